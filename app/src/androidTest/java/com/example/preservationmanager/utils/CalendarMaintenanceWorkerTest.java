@@ -0,0 +1,116 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.content.Context;
+import android.net.Uri;
+import android.provider.CalendarContract;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.GrantPermissionRule;
+import androidx.work.Data;
+import androidx.work.ListenableWorker;
+import androidx.work.testing.TestWorkerBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * CalendarMaintenanceWorker 的仪器测试，通过 WorkManager 测试工具直接运行 Worker
+ * 使用 ./gradlew connectedAndroidTest 执行
+ */
+@RunWith(AndroidJUnit4.class)
+public class CalendarMaintenanceWorkerTest {
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    @Rule
+    public GrantPermissionRule permissionRule = GrantPermissionRule.grant(
+            Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+
+    private Context context;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        CalendarPermissionState.refresh(context);
+        CalendarMaintenanceWorker.resetReconcileCursor(context);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        CalendarUtils.purgeProducts(context, Collections.singletonList("maintenance-test"));
+        executor.shutdownNow();
+    }
+
+    /**
+     * 测试清理过期超过保留期的事件
+     */
+    @Test
+    public void testPurgesExpiredEvents() {
+        long now = System.currentTimeMillis();
+        UpsertResult upsert = ProductReminderSync.upsert(context, new ProductReminder("maintenance-test",
+                "过期商品", "", now - 30 * DAY_MS, now - 30 * DAY_MS + 60 * 60 * 1000L, 60));
+        assertEquals(UpsertResult.Outcome.INSERTED, upsert.getOutcome(0));
+
+        ListenableWorker.Result result = buildWorker(new Data.Builder().build()).doWork();
+
+        assertTrue(result instanceof ListenableWorker.Result.Success);
+        assertTrue(result.getOutputData().getInt(CalendarMaintenanceWorker.KEY_PURGED, 0) >= 1);
+        assertEquals(0, ExpiryIndex.getInstance(context).findEventIds("maintenance-test").length);
+    }
+
+    /**
+     * 测试删除日历中已不存在的事件对应的索引记录
+     */
+    @Test
+    public void testRemovesIndexEntriesForDeletedEvents() {
+        long start = CalendarUtils.createFutureDateTime(5, 10, 0);
+        UpsertResult upsert = ProductReminderSync.upsert(context, new ProductReminder("maintenance-test",
+                "未过期商品", "", start, start + 60 * 60 * 1000L, 60));
+        long eventId = upsert.getEventId(0);
+        assertTrue(eventId > 0);
+
+        // 绕过 CalendarUtils 直接删除，模拟用户在日历应用中删除事件
+        context.getContentResolver().delete(
+                Uri.withAppendedPath(CalendarContract.Events.CONTENT_URI, String.valueOf(eventId)), null, null);
+
+        ListenableWorker.Result result = buildWorker(new Data.Builder().build()).doWork();
+
+        assertTrue(result instanceof ListenableWorker.Result.Success);
+        assertTrue(result.getOutputData().getBoolean(CalendarMaintenanceWorker.KEY_COMPLETE, false));
+        assertTrue(result.getOutputData().getInt(CalendarMaintenanceWorker.KEY_INDEX_REMOVED, 0) >= 1);
+        assertEquals(0, ExpiryIndex.getInstance(context).findEventIds("maintenance-test").length);
+    }
+
+    /**
+     * 测试预算耗尽时立即结束，剩余工作留到下次运行
+     */
+    @Test
+    public void testZeroBudget() {
+        Data input = new Data.Builder()
+                .putLong(CalendarMaintenanceWorker.KEY_RUN_BUDGET_MS, 0)
+                .build();
+
+        ListenableWorker.Result result = buildWorker(input).doWork();
+
+        assertTrue(result instanceof ListenableWorker.Result.Success);
+        assertFalse(result.getOutputData().getBoolean(CalendarMaintenanceWorker.KEY_COMPLETE, true));
+    }
+
+    private CalendarMaintenanceWorker buildWorker(Data input) {
+        return TestWorkerBuilder.from(context, CalendarMaintenanceWorker.class, executor)
+                .setInputData(input)
+                .build();
+    }
+}
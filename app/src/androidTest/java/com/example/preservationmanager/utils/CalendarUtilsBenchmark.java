@@ -0,0 +1,132 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.content.ContentValues;
+import android.content.Context;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.GrantPermissionRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * CalendarUtils 写入和读取路径的设备端基准测试
+ * 使用 ./gradlew :app:connectedBenchmarkAndroidTest -Ppm.benchmark=true 执行（不可调试的构建），结果由 androidx.benchmark 输出到
+ * build/outputs/connected_android_test_additional_output
+ * 测试创建的事件会在结束后删除
+ */
+@RunWith(AndroidJUnit4.class)
+public class CalendarUtilsBenchmark {
+
+    private static final int BULK_SIZE = 100;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Rule
+    public GrantPermissionRule permissionRule = GrantPermissionRule.grant(
+            Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+
+    private Context context;
+    private final List<Long> createdEventIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        CalendarPermissionState.refresh(context);
+    }
+
+    @After
+    public void tearDown() {
+        long[] ids = new long[createdEventIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = createdEventIds.get(i);
+        }
+        CalendarUtils.deleteEvents(context, ids);
+        createdEventIds.clear();
+    }
+
+    /**
+     * 构建事件字段（ContentValues）
+     */
+    @Test
+    public void buildEventValues() {
+        BenchmarkState state = benchmarkRule.getState();
+        long startTime = CalendarUtils.createFutureDateTime(1, 9, 0);
+        long endTime = CalendarUtils.createFutureDateTime(1, 10, 0);
+        while (state.keepRunning()) {
+            ContentValues values = CalendarUtils.buildEventValues(1, "p-1", "牛奶保质期提醒",
+                    "商品：牛奶", startTime, endTime, "Asia/Shanghai");
+            assertNotNull(values);
+        }
+    }
+
+    /**
+     * 单个事件 + 提醒的完整创建流程
+     */
+    @Test
+    public void addEventWithReminder() {
+        BenchmarkState state = benchmarkRule.getState();
+        long startTime = CalendarUtils.createFutureDateTime(1, 9, 0);
+        long endTime = CalendarUtils.createFutureDateTime(1, 10, 0);
+        while (state.keepRunning()) {
+            long eventId = CalendarUtils.addEventWithReminder(context, "基准测试事件", "benchmark",
+                    startTime, endTime, 60);
+            state.pauseTiming();
+            assertNotEquals(-1, eventId);
+            createdEventIds.add(eventId);
+            state.resumeTiming();
+        }
+    }
+
+    /**
+     * 批量创建 BULK_SIZE 个事件 + 提醒
+     */
+    @Test
+    public void addEventsWithReminders() {
+        BenchmarkState state = benchmarkRule.getState();
+        List<ProductReminder> reminders = new ArrayList<>(BULK_SIZE);
+        for (int i = 0; i < BULK_SIZE; i++) {
+            long startTime = CalendarUtils.createFutureDateTime(1 + i % 30, 9, 0);
+            reminders.add(new ProductReminder(null, "基准测试事件 " + i, "benchmark",
+                    startTime, startTime + 60 * 60 * 1000L, 60));
+        }
+        while (state.keepRunning()) {
+            BulkInsertResult result = CalendarUtils.addEventsWithReminders(context, reminders);
+            state.pauseTiming();
+            assertEquals(BULK_SIZE, result.getSuccessCount());
+            for (long eventId : result.getEventIds()) {
+                createdEventIds.add(eventId);
+            }
+            state.resumeTiming();
+        }
+    }
+
+    /**
+     * 查询单个事件详情
+     */
+    @Test
+    public void getEventDetails() {
+        long startTime = CalendarUtils.createFutureDateTime(1, 9, 0);
+        long eventId = CalendarUtils.addEventWithReminder(context, "基准测试事件", "benchmark",
+                startTime, startTime + 60 * 60 * 1000L, 60);
+        assertNotEquals(-1, eventId);
+        createdEventIds.add(eventId);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertNotNull(CalendarUtils.getEventDetails(context, eventId));
+        }
+    }
+}
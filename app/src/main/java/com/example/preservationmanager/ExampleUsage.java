@@ -2,8 +2,29 @@ package com.example.preservationmanager;
 
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import androidx.appcompat.app.AppCompatActivity;
+import com.example.preservationmanager.utils.AsyncCalendarUtils;
 import com.example.preservationmanager.utils.CalendarUtils;
+import com.example.preservationmanager.utils.CalendarWriteQueue;
+import com.example.preservationmanager.utils.ExpiryAlarmScheduler;
+import com.example.preservationmanager.utils.ExpiryBatch;
+import com.example.preservationmanager.utils.ExpiryCalculator;
+import com.example.preservationmanager.utils.ExpiryDigest;
+import com.example.preservationmanager.utils.ImportReport;
+import com.example.preservationmanager.utils.ImportStageStats;
+import com.example.preservationmanager.utils.InventoryImporter;
+import com.example.preservationmanager.utils.ProductReminder;
+import com.example.preservationmanager.utils.ProductReminderSync;
+import com.example.preservationmanager.utils.ReminderBackend;
+import com.example.preservationmanager.utils.ReminderSpec;
+import com.example.preservationmanager.utils.ShelfLifeUnit;
+import com.example.preservationmanager.utils.UpsertResult;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
 
 /**
  * CalendarUtils 的使用示例
@@ -152,8 +173,7 @@ public class ExampleUsage {
 
     /**
      * 示例 5: 多个不同时间的提醒
-     * 虽然 CalendarUtils 每次只能添加一个提醒，
-     * 但可以通过多次调用来添加多个提醒
+     * 一次调用写入全部提醒，并演示按差异替换提醒
      */
     public static void example5_MultipleReminders(Context context) {
         String title = "鸡蛋保质期提醒";
@@ -162,20 +182,25 @@ public class ExampleUsage {
         long startTime = CalendarUtils.createFutureDateTime(14, 10, 0);
         long endTime = CalendarUtils.createFutureDateTime(14, 11, 0);
 
-        // 先创建事件（只有一个提醒）
-        long eventId = CalendarUtils.addEventWithReminder(
+        // 事件和三个提醒（提前 7 天、1 天、2 小时）在一个事务中创建
+        long eventId = CalendarUtils.addEventWithReminders(
                 context,
                 title,
                 description,
                 startTime,
                 endTime,
-                1440  // 提前 1 天提醒
+                ReminderSpec.EXPIRY_DEFAULTS
         );
 
         if (eventId != -1) {
-            // 添加第二个提醒（提前 1 小时）
-            CalendarUtils.addReminder(context, eventId, 60);
             System.out.println("事件已创建，ID: " + eventId);
+
+            // 之后调整提醒：只改动有变化的提醒，相同的（提前 1 天）保持不变
+            int changed = CalendarUtils.replaceReminders(context, eventId,
+                    ReminderSpec.alert(3 * 24 * 60),
+                    ReminderSpec.alert(24 * 60),
+                    ReminderSpec.email(24 * 60));
+            System.out.println("提醒变更数: " + changed);
         }
     }
 
@@ -255,39 +280,35 @@ public class ExampleUsage {
 
     /**
      * 示例 9: 在线程中异步操作
-     * 适合在后台线程中执行耗时操作
+     * 通过 AsyncCalendarUtils 在有界线程池中执行，结果回调在主线程
      */
     public static void example9_AsyncOperation(AppCompatActivity activity) {
-        // 在后台线程中创建事件
-        new Thread(() -> {
-            String title = "酸奶活动到期提醒";
-            String description = "商品：活性酸奶\n活动截止：2024-11-25";
-
-            long startTime = CalendarUtils.createFutureDateTime(10, 12, 0);
-            long endTime = CalendarUtils.createFutureDateTime(10, 13, 0);
-
-            long eventId = CalendarUtils.addEventWithReminder(
-                    activity,
-                    title,
-                    description,
-                    startTime,
-                    endTime,
-                    120
-            );
-
-            // 在主线程中处理结果
-            activity.runOnUiThread(() -> {
-                if (eventId != -1) {
-                    System.out.println("事件创建成功");
-                } else {
-                    System.out.println("事件创建失败");
+        String title = "酸奶活动到期提醒";
+        String description = "商品：活性酸奶\n活动截止：2024-11-25";
+
+        long startTime = CalendarUtils.createFutureDateTime(10, 12, 0);
+        long endTime = CalendarUtils.createFutureDateTime(10, 13, 0);
+
+        AsyncCalendarUtils.getDefault(activity).addEventWithReminder(
+                title,
+                description,
+                startTime,
+                endTime,
+                120,
+                eventId -> {
+                    // 回调在主线程中执行
+                    if (eventId != -1) {
+                        System.out.println("事件创建成功");
+                    } else {
+                        System.out.println("事件创建失败");
+                    }
                 }
-            });
-        }).start();
+        );
     }
 
     /**
      * 示例 10: 完整的商品批量提醒创建
+     * 所有商品的事件和提醒通过批量事务写入，以商品名作为商品 ID，可重复执行
      */
     public static void example10_BulkCreateReminders(AppCompatActivity activity) {
         // 商品列表
@@ -298,27 +319,138 @@ public class ExampleUsage {
                 {"黄油", "黄油 250g", "60"}
         };
 
-        for (String[] product : products) {
-            String productName = product[0];
-            String description = product[1];
-            int shelfLife = Integer.parseInt(product[2]);
-
-            // 根据保质期创建提醒
-            long startTime = CalendarUtils.createFutureDateTime(shelfLife - 1, 10, 0);
-            long endTime = CalendarUtils.createFutureDateTime(shelfLife - 1, 11, 0);
-
-            long eventId = CalendarUtils.addEventWithReminder(
-                    activity,
-                    productName + "保质期提醒",
-                    "商品：" + description + "\n保质期：" + shelfLife + " 天",
-                    startTime,
-                    endTime,
-                    120  // 提前 2 小时提醒
-            );
-
-            if (eventId != -1) {
-                System.out.println("已为 " + productName + " 创建提醒");
-            }
+        // 今天生产，按天计算保质期；默认策略为到期前 1 天 10:00-11:00，提前 2 小时提醒
+        ExpiryCalculator calculator = new ExpiryCalculator();
+        ExpiryBatch batch = new ExpiryBatch(products.length);
+        String[] productIds = new String[products.length];
+        String[] titles = new String[products.length];
+        String[] descriptions = new String[products.length];
+        long today = calculator.today();
+        for (int i = 0; i < products.length; i++) {
+            String productName = products[i][0];
+            int shelfLife = Integer.parseInt(products[i][2]);
+
+            batch.add(today, shelfLife, ShelfLifeUnit.DAYS);
+            productIds[i] = productName;
+            titles[i] = productName + "保质期提醒";
+            descriptions[i] = "商品：" + products[i][1] + "\n保质期：" + shelfLife + " 天";
         }
+        calculator.compute(batch);
+        List<ProductReminder> reminders = calculator.toReminders(batch, productIds, titles, descriptions);
+
+        // 按商品 ID 批量写入：新商品插入，已有商品仅在内容变化时更新，重复执行不会产生重复事件
+        UpsertResult result = ProductReminderSync.upsertAll(activity, reminders);
+        System.out.println("新建 " + result.count(UpsertResult.Outcome.INSERTED)
+                + "，更新 " + result.count(UpsertResult.Outcome.UPDATED)
+                + "，未变化 " + result.count(UpsertResult.Outcome.UNCHANGED)
+                + "，失败 " + result.count(UpsertResult.Outcome.FAILED));
+    }
+
+    /**
+     * 示例 11: 快速连续编辑同一商品
+     * 通过写入队列合并变更，插入、两次修改和添加提醒最终只提交一次插入
+     */
+    public static void example11_QueuedEdits(AppCompatActivity activity) {
+        long calendarId = CalendarUtils.getOrCreateCalendarAccount(activity);
+        if (calendarId == -1) {
+            return;
+        }
+
+        CalendarWriteQueue queue = CalendarWriteQueue.getInstance(activity);
+        long eventKey = queue.insertEvent(calendarId, "面包保质期提醒", "商品：全麦面包",
+                CalendarUtils.createFutureDateTime(3, 10, 0),
+                CalendarUtils.createFutureDateTime(3, 11, 0),
+                TimeZone.getDefault().getID());
+
+        // 用户随后修改了保质期和描述
+        queue.updateEvent(eventKey, "面包保质期提醒", "商品：全麦面包 400g",
+                CalendarUtils.createFutureDateTime(5, 10, 0),
+                CalendarUtils.createFutureDateTime(5, 11, 0));
+        queue.addReminder(eventKey, 60);
+
+        // 2 秒后自动提交；也可以在后台线程调用 flush() 立即提交
+        System.out.println("待提交变更数: " + queue.getPendingCount());
+    }
+
+    /**
+     * 示例 12: 从 CSV/JSON 文件导入库存
+     * 文件逐行读取，每 500 行为一个分块，解析、计算和写入在流水线中并行，不会把整个文件读入内存
+     */
+    public static void example12_ImportInventory(AppCompatActivity activity, Uri fileUri) {
+        // 文件内容示例（CSV，第一行为表头）：
+        // product_id,name,shelf_life,unit,production_date
+        // SKU-001,常温牛奶 1L,180,天,2024-10-01
+        // SKU-002,罐头,24,月,2024-06-15
+        new Thread(() -> {
+            InventoryImporter importer = new InventoryImporter(InventoryImporter.calendarWriter(activity));
+            // 解析、计算、写入并行执行：解析和写入各占一个线程，其余核心用于计算
+            importer.setComputeThreads(Math.max(1, Runtime.getRuntime().availableProcessors() - 2));
+            importer.setProgressListener(progress ->
+                    System.out.println("已读取 " + progress.getRowsRead() + " 行，"
+                            + Math.round(progress.getRowsPerSecond()) + " 行/秒"));
+
+            ImportReport report = importer.importFrom(activity, fileUri);
+            if (!report.isSuccess()) {
+                System.out.println("导入中止：" + report.getError());
+            }
+            System.out.println("导入 " + report.getRowsImported() + "，跳过 " + report.getRowsRejected()
+                    + "，写入失败 " + report.getRowsFailed());
+            // 写入阶段利用率接近 100% 说明瓶颈在日历提供者
+            for (ImportStageStats stage : report.getStageStats()) {
+                System.out.println(stage);
+            }
+            for (ImportReport.Rejection rejection : report.getRejections()) {
+                System.out.println(rejection);
+            }
+        }).start();
+    }
+
+    /**
+     * 示例 13: 每日汇总提醒
+     * 同一天到期的商品按分组合并为一个事件，商品增减时只更新当天的汇总
+     */
+    public static void example13_DailyDigest(AppCompatActivity activity) {
+        new Thread(() -> {
+            ExpiryCalculator calculator = new ExpiryCalculator();
+            long today = calculator.today();
+            ExpiryDigest digest = new ExpiryDigest(activity, calculator);
+
+            // 冷藏区 3 天后到期的 2 件商品合并为一个事件，常温区单独一个事件
+            digest.addItems(Arrays.asList(
+                    new ExpiryDigest.Item("SKU-001", "常温牛奶 1L", "常温区", today + 3),
+                    new ExpiryDigest.Item("SKU-002", "活性酸奶 500ml", "冷藏区", today + 3),
+                    new ExpiryDigest.Item("SKU-003", "进口芝士 200g", "冷藏区", today + 3)));
+
+            // 酸奶售出：只更新冷藏区当天的汇总事件
+            int written = digest.removeItems(Collections.singletonList("SKU-002"));
+            if (written == -1) {
+                // 写入失败的汇总已记录，下次调用或维护任务中自动重试
+                System.out.println("汇总写入失败，稍后重试");
+            }
+        }).start();
+    }
+
+    /**
+     * 示例 14: 应用内提醒
+     * 不依赖系统日历应用的提醒，由应用自己发送通知，适合大量商品
+     */
+    public static void example14_InAppReminders(AppCompatActivity activity) {
+        new Thread(() -> {
+            long expiry = CalendarUtils.createFutureDateTime(3, 9, 0);
+
+            // 事件仍写入日历，提醒改为应用内通知（提前 1 天）
+            CalendarUtils.addEventWithReminder(activity, "活性酸奶 500ml 即将过期", "冷藏区 B-02",
+                    expiry, expiry + 60 * 60 * 1000, 24 * 60, TimeZone.getDefault().getID(),
+                    ReminderBackend.IN_APP);
+
+            // 不写日历，只安排应用内提醒；同一商品再次添加时替换
+            ExpiryAlarmScheduler scheduler = ExpiryAlarmScheduler.getInstance(activity);
+            scheduler.scheduleAll(Arrays.asList(
+                    new ProductReminder("SKU-001", "常温牛奶 1L 即将过期", null, expiry, expiry, 24 * 60),
+                    new ProductReminder("SKU-003", "进口芝士 200g 即将过期", null, expiry, expiry, 24 * 60)));
+
+            // 商品售出后取消
+            scheduler.cancel(ExpiryAlarmScheduler.productKey("SKU-001"));
+        }).start();
     }
 }
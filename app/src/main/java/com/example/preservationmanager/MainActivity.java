@@ -1,11 +1,21 @@
 package com.example.preservationmanager;
 
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
+import android.view.View;
 import android.widget.Button;
+import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.preservationmanager.utils.AsyncCalendarUtils;
+import com.example.preservationmanager.utils.CalendarMaintenanceWorker;
+import com.example.preservationmanager.utils.CalendarMetrics;
+import com.example.preservationmanager.utils.CalendarPermissionState;
+import com.example.preservationmanager.utils.CalendarTrace;
 import com.example.preservationmanager.utils.CalendarUtils;
+import com.example.preservationmanager.utils.LogcatMetricsSink;
+import com.example.preservationmanager.utils.MetricsSnapshot;
 
 /**
  * 主 Activity - 示例如何使用 CalendarUtils
@@ -19,11 +29,33 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        if (BuildConfig.FORCE_APP_TRACING) {
+            // 正式版本中也记录日历操作的跟踪区段
+            CalendarTrace.setForceEnabled(true);
+        }
+
         // 请求日历权限
         CalendarUtils.requestCalendarPermissions(this);
 
+        // 注册后台维护任务（清理过期事件、重试失败的写入），重复注册不会产生重复任务
+        CalendarMaintenanceWorker.schedule(this);
+
         Button createEventButton = findViewById(R.id.create_event_button);
         createEventButton.setOnClickListener(v -> createCalendarEvent());
+
+        // 调试版本中统计日历操作耗时，并显示查看按钮
+        boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        CalendarMetrics.setEnabled(debuggable);
+        Button metricsButton = findViewById(R.id.metrics_button);
+        metricsButton.setVisibility(debuggable ? View.VISIBLE : View.GONE);
+        metricsButton.setOnClickListener(v -> showMetrics());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // 用户可能在系统设置中修改了权限，恢复时刷新缓存的权限状态
+        CalendarPermissionState.refresh(this);
     }
 
     /**
@@ -40,21 +72,33 @@ public class MainActivity extends AppCompatActivity {
         // 提醒时间：提前 60 分钟（1 小时）
         int reminderMinutesBefore = 60;
 
-        // 创建事件和提醒
-        long eventId = CalendarUtils.addEventWithReminder(
-                this,
+        // 在后台线程创建事件和提醒，结果回调在主线程
+        AsyncCalendarUtils.getDefault(this).addEventWithReminder(
                 title,
                 description,
                 startTime,
                 endTime,
-                reminderMinutesBefore
+                reminderMinutesBefore,
+                eventId -> {
+                    if (eventId != -1) {
+                        Toast.makeText(this, "事件创建成功！事件 ID: " + eventId, Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(this, "事件创建失败！请检查权限设置", Toast.LENGTH_SHORT).show();
+                    }
+                }
         );
+    }
 
-        if (eventId != -1) {
-            Toast.makeText(this, "事件创建成功！事件 ID: " + eventId, Toast.LENGTH_SHORT).show();
-        } else {
-            Toast.makeText(this, "事件创建失败！请检查权限设置", Toast.LENGTH_SHORT).show();
-        }
+    /**
+     * 显示日历操作统计，同时输出到 logcat
+     */
+    private void showMetrics() {
+        MetricsSnapshot snapshot = CalendarMetrics.snapshot();
+        new LogcatMetricsSink().publish(snapshot);
+
+        TextView metricsText = findViewById(R.id.metrics_text);
+        metricsText.setText(snapshot.format());
+        metricsText.setVisibility(View.VISIBLE);
     }
 
     /**
@@ -65,15 +109,10 @@ public class MainActivity extends AppCompatActivity {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
 
         if (requestCode == PERMISSION_REQUEST_CODE) {
-            boolean hasAllPermissions = true;
-            for (int grantResult : grantResults) {
-                if (grantResult != android.content.pm.PackageManager.PERMISSION_GRANTED) {
-                    hasAllPermissions = false;
-                    break;
-                }
-            }
+            CalendarPermissionState.refresh(this);
 
-            if (hasAllPermissions) {
+            // 同时请求的通知权限只影响应用内提醒，这里只提示日历权限的结果
+            if (CalendarUtils.hasCalendarPermissions(this)) {
                 Toast.makeText(this, "权限已授予", Toast.LENGTH_SHORT).show();
             } else {
                 Toast.makeText(this, "权限被拒绝", Toast.LENGTH_SHORT).show();
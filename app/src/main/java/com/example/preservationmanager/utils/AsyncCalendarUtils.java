@@ -0,0 +1,286 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.os.Looper;
+import android.os.Process;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CalendarUtils 的异步版本 - 在有界线程池中执行日历操作
+ * <p>
+ * 线程数和等待队列长度都有上限。队列已满时，后台线程提交任务会阻塞等待（背压），
+ * 主线程提交任务会被拒绝并通过 {@link Callback#onError(Throwable)} 通知，避免阻塞界面。
+ * 每个操作返回 {@link Future}，可用于取消；结果通过回调在指定的 Executor 上分发。
+ */
+public class AsyncCalendarUtils {
+
+    /**
+     * 默认工作线程数
+     */
+    public static final int DEFAULT_THREAD_COUNT = 2;
+
+    /**
+     * 默认等待队列长度
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private static volatile AsyncCalendarUtils defaultInstance;
+
+    /**
+     * 异步操作结果回调
+     *
+     * @param <T> 结果类型
+     */
+    public interface Callback<T> {
+
+        /**
+         * 操作完成（返回值含义与 CalendarUtils 中对应方法相同）
+         */
+        void onResult(T result);
+
+        /**
+         * 操作抛出异常或提交被拒绝
+         */
+        default void onError(Throwable error) {
+            error.printStackTrace();
+        }
+    }
+
+    private final Context context;
+    private final ThreadPoolExecutor executor;
+    private final Executor callbackExecutor;
+
+    /**
+     * 创建异步执行器
+     *
+     * @param context          上下文（内部保存 ApplicationContext）
+     * @param threadCount      工作线程数
+     * @param queueCapacity    等待队列长度
+     * @param callbackExecutor 回调分发线程，例如 ContextCompat.getMainExecutor(context)
+     */
+    public AsyncCalendarUtils(Context context, int threadCount, int queueCapacity, Executor callbackExecutor) {
+        this.context = context.getApplicationContext();
+        this.callbackExecutor = callbackExecutor;
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CalendarThreadFactory(), new BlockingPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 获取默认实例：{@link #DEFAULT_THREAD_COUNT} 个线程，回调在主线程执行
+     *
+     * @param context 上下文
+     * @return 默认实例
+     */
+    public static AsyncCalendarUtils getDefault(Context context) {
+        if (defaultInstance == null || defaultInstance.isShutdown()) {
+            synchronized (AsyncCalendarUtils.class) {
+                if (defaultInstance == null || defaultInstance.isShutdown()) {
+                    defaultInstance = new AsyncCalendarUtils(context, DEFAULT_THREAD_COUNT,
+                            DEFAULT_QUEUE_CAPACITY, ContextCompat.getMainExecutor(context));
+                }
+            }
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * 异步插入事件，参见 {@link CalendarUtils#insertEvent}
+     */
+    public Future<Long> insertEvent(long calendarId, String title, String description,
+                                    long startTime, long endTime, String timeZone, Callback<Long> callback) {
+        return submit(() -> CalendarUtils.insertEvent(context, calendarId, title, description,
+                startTime, endTime, timeZone), callback);
+    }
+
+    /**
+     * 异步更新事件，参见 {@link CalendarUtils#updateEvent}
+     */
+    public Future<Boolean> updateEvent(long eventId, String title, String description,
+                                       long startTime, long endTime, Callback<Boolean> callback) {
+        return submit(() -> CalendarUtils.updateEvent(context, eventId, title, description,
+                startTime, endTime), callback);
+    }
+
+    /**
+     * 异步删除事件，参见 {@link CalendarUtils#deleteEvent}
+     */
+    public Future<Boolean> deleteEvent(long eventId, Callback<Boolean> callback) {
+        return submit(() -> CalendarUtils.deleteEvent(context, eventId), callback);
+    }
+
+    /**
+     * 异步获取事件详情，参见 {@link CalendarUtils#getEventDetails}
+     */
+    public Future<ContentValues> getEventDetails(long eventId, Callback<ContentValues> callback) {
+        return submit(() -> CalendarUtils.getEventDetails(context, eventId), callback);
+    }
+
+    /**
+     * 异步创建事件和提醒，参见 {@link CalendarUtils#addEventWithReminder(Context, String, String, long, long, int)}
+     */
+    public Future<Long> addEventWithReminder(String title, String description, long startTime, long endTime,
+                                             int reminderMinutesBefore, Callback<Long> callback) {
+        return submit(() -> CalendarUtils.addEventWithReminder(context, title, description,
+                startTime, endTime, reminderMinutesBefore), callback);
+    }
+
+    /**
+     * 异步创建事件和提醒（指定时区），
+     * 参见 {@link CalendarUtils#addEventWithReminder(Context, String, String, long, long, int, String)}
+     */
+    public Future<Long> addEventWithReminder(String title, String description, long startTime, long endTime,
+                                             int reminderMinutesBefore, String timeZone, Callback<Long> callback) {
+        return submit(() -> CalendarUtils.addEventWithReminder(context, title, description,
+                startTime, endTime, reminderMinutesBefore, timeZone), callback);
+    }
+
+    /**
+     * 异步批量创建事件和提醒，参见 {@link CalendarUtils#addEventsWithReminders}
+     */
+    public Future<BulkInsertResult> addEventsWithReminders(List<ProductReminder> reminders,
+                                                           Callback<BulkInsertResult> callback) {
+        List<ProductReminder> snapshot = new ArrayList<>(reminders);
+        return submit(() -> CalendarUtils.addEventsWithReminders(context, snapshot), callback);
+    }
+
+    /**
+     * 提交一个任务，完成后在回调线程上通知结果
+     *
+     * @param work     要执行的操作
+     * @param callback 结果回调，可为 null
+     * @return 可用于取消的 Future
+     */
+    public <T> Future<T> submit(Callable<T> work, Callback<T> callback) {
+        FutureTask<T> task = new FutureTask<T>(work) {
+            @Override
+            protected void done() {
+                if (callback == null || isCancelled()) {
+                    return;
+                }
+                try {
+                    T result = get();
+                    callbackExecutor.execute(() -> callback.onResult(result));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    callbackExecutor.execute(() -> callback.onError(cause));
+                } catch (InterruptedException | CancellationException e) {
+                    // 已取消，不再通知
+                }
+            }
+        };
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+            if (callback != null) {
+                callbackExecutor.execute(() -> callback.onError(e));
+            }
+        }
+        return task;
+    }
+
+    /**
+     * 取消所有尚未开始执行的任务
+     *
+     * @return 被取消的任务数
+     */
+    public int cancelPending() {
+        List<Runnable> pending = new ArrayList<>();
+        executor.getQueue().drainTo(pending);
+        for (Runnable runnable : pending) {
+            if (runnable instanceof Future) {
+                ((Future<?>) runnable).cancel(false);
+            }
+        }
+        return pending.size();
+    }
+
+    /**
+     * @return 等待执行的任务数
+     */
+    public int getPendingCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 停止接收新任务，已提交的任务继续执行完
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 立即停止：取消等待中的任务并中断正在执行的任务
+     */
+    public void shutdownNow() {
+        cancelPending();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 等待所有任务执行结束
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 在超时前全部结束返回 true
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * 队列已满时的策略：后台线程阻塞等待空位，主线程直接拒绝
+     */
+    private static final class BlockingPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("日历线程池已关闭");
+            }
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                throw new RejectedExecutionException("日历任务队列已满");
+            }
+            try {
+                executor.getQueue().put(r);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("等待队列空位时被中断", e);
+            }
+        }
+    }
+
+    private static final class CalendarThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, "calendar-io-" + count.incrementAndGet());
+        }
+    }
+}
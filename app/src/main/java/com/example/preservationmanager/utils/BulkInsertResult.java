@@ -0,0 +1,124 @@
+package com.example.preservationmanager.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量创建事件的结果
+ * 按输入顺序记录每个商品的事件 ID，失败的条目为 -1，并附带失败原因
+ */
+public class BulkInsertResult {
+
+    /**
+     * 单个条目的失败信息
+     */
+    public static class Failure {
+
+        private final int index;
+        private final String productId;
+        private final ErrorCategory category;
+        private final String reason;
+
+        Failure(int index, String productId, ErrorCategory category, String reason) {
+            this.index = index;
+            this.productId = productId;
+            this.category = category;
+            this.reason = reason;
+        }
+
+        /**
+         * @return 条目在输入列表中的位置
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        /**
+         * @return 失败类别，例如 {@link ErrorCategory#TRANSIENT} 的条目可以稍后重新提交
+         */
+        public ErrorCategory getCategory() {
+            return category;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + index + (productId != null ? " (" + productId + ")" : "") + ": " + category + " " + reason;
+        }
+    }
+
+    private final long[] eventIds;
+    private final List<Failure> failures = new ArrayList<>();
+
+    BulkInsertResult(int size) {
+        eventIds = new long[size];
+        Arrays.fill(eventIds, -1);
+    }
+
+    void setEventId(int index, long eventId) {
+        eventIds[index] = eventId;
+    }
+
+    void addFailure(int index, String productId, ErrorCategory category, String reason) {
+        eventIds[index] = -1;
+        failures.add(new Failure(index, productId, category, reason));
+    }
+
+    /**
+     * 获取指定条目的事件 ID
+     *
+     * @param index 条目在输入列表中的位置
+     * @return 事件 ID，如果该条目创建失败返回 -1
+     */
+    public long getEventId(int index) {
+        return eventIds[index];
+    }
+
+    /**
+     * @return 按输入顺序排列的事件 ID 副本，失败的条目为 -1
+     */
+    public long[] getEventIds() {
+        return eventIds.clone();
+    }
+
+    /**
+     * @param index 条目在输入列表中的位置
+     * @return 该条目的失败类别，未失败时返回 null
+     */
+    public ErrorCategory getFailureCategory(int index) {
+        for (Failure failure : failures) {
+            if (failure.index == index) {
+                return failure.category;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 所有失败条目，按发生顺序排列
+     */
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public int getSuccessCount() {
+        return eventIds.length - failures.size();
+    }
+
+    public int getFailureCount() {
+        return failures.size();
+    }
+
+    public int size() {
+        return eventIds.length;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.preservationmanager.utils;
+
+import android.database.Cursor;
+
+/**
+ * 日历事件的轻量只读记录，用于范围查询等批量读取场景
+ * 字段按 {@link CalendarUtils#EVENT_PROJECTION} 的列顺序直接从 Cursor 读取
+ */
+public class CalendarEvent {
+
+    private static final int[] NO_REMINDERS = new int[0];
+
+    private final long eventId;
+    private final String title;
+    private final String description;
+    private final long startTime;
+    private final long endTime;
+    private final String timeZone;
+    private int[] reminderMinutes = NO_REMINDERS;
+
+    CalendarEvent(long eventId, String title, String description, long startTime, long endTime, String timeZone) {
+        this.eventId = eventId;
+        this.title = title;
+        this.description = description;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * 从按 EVENT_PROJECTION 查询的 Cursor 当前行创建记录
+     */
+    static CalendarEvent fromCursor(Cursor cursor) {
+        return new CalendarEvent(
+                cursor.getLong(CalendarUtils.COLUMN_ID),
+                cursor.getString(CalendarUtils.COLUMN_TITLE),
+                cursor.getString(CalendarUtils.COLUMN_DESCRIPTION),
+                cursor.getLong(CalendarUtils.COLUMN_DTSTART),
+                cursor.getLong(CalendarUtils.COLUMN_DTEND),
+                cursor.getString(CalendarUtils.COLUMN_TIMEZONE));
+    }
+
+    void setReminderMinutes(int[] reminderMinutes) {
+        this.reminderMinutes = reminderMinutes;
+    }
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public String getTimeZone() {
+        return timeZone;
+    }
+
+    /**
+     * @return 该事件所有提醒的提前分钟数
+     */
+    public int[] getReminderMinutes() {
+        return reminderMinutes.clone();
+    }
+}
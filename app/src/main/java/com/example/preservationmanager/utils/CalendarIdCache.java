@@ -0,0 +1,225 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.provider.CalendarContract;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日历 ID 缓存 - 进程内缓存每种 {@link CalendarPolicy} 解析出的日历 ID
+ * <p>
+ * 通过 ContentObserver 监听日历数据变化，变化后在下次使用前用一次按 _ID 的查询确认
+ * 缓存的日历仍然存在；日历被删除时重新解析。日历提供者对事件写入也会发出通知，
+ * 因此确认查询最多每 {@link #REVALIDATE_INTERVAL_MS} 毫秒执行一次。
+ */
+public final class CalendarIdCache {
+
+    /**
+     * 收到变化通知后两次确认查询之间的最小间隔
+     */
+    static final long REVALIDATE_INTERVAL_MS = 5000;
+
+    private static volatile CalendarIdCache instance;
+
+    private static final class Entry {
+        final long calendarId;
+        volatile long verifiedAt;
+
+        Entry(long calendarId, long verifiedAt) {
+            this.calendarId = calendarId;
+            this.verifiedAt = verifiedAt;
+        }
+    }
+
+    private final Map<CalendarPolicy, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+
+    /**
+     * 最近一次收到日历变化通知的时间（elapsedRealtime），0 表示没有未处理的变化
+     */
+    private volatile long lastChangeAt;
+
+    private CalendarIdCache() {
+    }
+
+    /**
+     * 获取进程内唯一的缓存实例，首次调用时注册日历变化监听
+     *
+     * @param context 上下文
+     * @return 缓存实例
+     */
+    public static CalendarIdCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CalendarIdCache.class) {
+                if (instance == null) {
+                    CalendarIdCache cache = new CalendarIdCache();
+                    cache.registerObserver(context.getApplicationContext());
+                    instance = cache;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 丢弃进程内实例，下次调用 {@link #getInstance(Context)} 时重新创建（测试使用）
+     */
+    static void resetForTesting() {
+        synchronized (CalendarIdCache.class) {
+            instance = null;
+        }
+    }
+
+    private void registerObserver(Context appContext) {
+        ContentObserver observer = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                lastChangeAt = SystemClock.elapsedRealtime();
+            }
+        };
+        try {
+            appContext.getContentResolver().registerContentObserver(
+                    CalendarContract.Calendars.CONTENT_URI, true, observer);
+        } catch (SecurityException e) {
+            // 没有读取权限时无法监听，依赖写入失败时的 invalidate()
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 解析日历 ID，优先返回缓存值
+     *
+     * @param context 上下文
+     * @param policy  日历选择策略
+     * @return 日历 ID，如果获取失败返回 -1
+     */
+    public long resolve(Context context, CalendarPolicy policy) {
+        Entry entry = entries.get(policy);
+        if (entry != null) {
+            long changedAt = lastChangeAt;
+            if (changedAt == 0 || entry.verifiedAt >= changedAt
+                    || SystemClock.elapsedRealtime() - entry.verifiedAt < REVALIDATE_INTERVAL_MS) {
+                hitCount.incrementAndGet();
+                return entry.calendarId;
+            }
+
+            // 日历数据发生过变化，确认缓存的日历是否仍然存在
+            revalidationCount.incrementAndGet();
+            if (calendarExists(context.getContentResolver(), entry.calendarId)) {
+                entry.verifiedAt = SystemClock.elapsedRealtime();
+                hitCount.incrementAndGet();
+                return entry.calendarId;
+            }
+            entries.remove(policy, entry);
+        }
+
+        missCount.incrementAndGet();
+        long calendarId = CalendarUtils.queryOrCreateCalendar(context, policy);
+        if (calendarId != -1) {
+            entries.put(policy, new Entry(calendarId, SystemClock.elapsedRealtime()));
+        }
+        return calendarId;
+    }
+
+    private static boolean calendarExists(ContentResolver contentResolver, long calendarId) {
+        Uri uri = Uri.withAppendedPath(CalendarContract.Calendars.CONTENT_URI, String.valueOf(calendarId));
+        String[] projection = {CalendarContract.Calendars._ID};
+        Cursor cursor = null;
+        try {
+            cursor = contentResolver.query(uri, projection,
+                    CalendarContract.Calendars.VISIBLE + " = 1", null, null);
+            return cursor != null && cursor.moveToFirst();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * 清除所有缓存的日历 ID，下次解析时重新查询
+     */
+    public void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * 清除指定日历 ID 对应的缓存
+     *
+     * @param calendarId 日历 ID
+     */
+    public void invalidate(long calendarId) {
+        for (Map.Entry<CalendarPolicy, Entry> e : entries.entrySet()) {
+            if (e.getValue().calendarId == calendarId) {
+                entries.remove(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    /**
+     * 写入失败后调用：只有日历确实不存在时才清除缓存
+     * 权限被拒绝、暂时性故障和批次过大与日历是否存在无关，不清除；
+     * {@link ErrorCategory#NOT_FOUND} 直接清除；其它失败查询一次日历行确认
+     *
+     * @param context    上下文
+     * @param calendarId 写入的日历 ID
+     * @param category   写入失败的类别
+     */
+    public void invalidateIfMissing(Context context, long calendarId, ErrorCategory category) {
+        switch (category) {
+            case PERMISSION_DENIED:
+            case TRANSIENT:
+            case TOO_LARGE:
+                return;
+            case NOT_FOUND:
+                invalidate(calendarId);
+                return;
+            default:
+                if (!calendarExists(context.getContentResolver(), calendarId)) {
+                    invalidate(calendarId);
+                }
+        }
+    }
+
+    /**
+     * @return 直接命中缓存（或确认后命中）的次数
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return 需要完整查询日历的次数
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return 收到变化通知后执行确认查询的次数
+     */
+    public long getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    /**
+     * 重置命中统计
+     */
+    public void resetStats() {
+        hitCount.set(0);
+        missCount.set(0);
+        revalidationCount.set(0);
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.os.Build;
+import android.os.SystemClock;
+import android.provider.CalendarContract;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 日历后台维护任务 - 在设备空闲且充电时由 WorkManager 定期执行
+ * <p>
+ * 每次运行依次执行以下步骤，总耗时不超过运行预算，未完成的部分留到下次运行：
+ * <ol>
+ *     <li>设备时区与上次记录的不同时重新计算事件时间（{@link TimeZoneRebaseWorker#rebaseIfZoneChanged}），
+ *     弥补错过的时区变化广播</li>
+ *     <li>提交写入队列中积压或之前失败的变更（{@link CalendarWriteQueue#flush()}），
+ *     并重试写入失败的每日汇总（{@link ExpiryDigest#flush()}）</li>
+ *     <li>清理过期超过保留期的事件（{@link CalendarUtils#purgeEventsEndingBefore}）和汇总商品记录，空汇总的事件随之删除</li>
+ *     <li>核对本地索引与日历：按页检查索引中的事件是否仍存在，删除已被用户或同步删除的记录</li>
+ * </ol>
+ * 使用 {@link #schedule(Context)} 注册，重复调用不会产生重复任务。
+ */
+public class CalendarMaintenanceWorker extends Worker {
+
+    /**
+     * 周期任务的唯一名称
+     */
+    public static final String UNIQUE_WORK_NAME = "calendar-maintenance";
+
+    /**
+     * 默认执行间隔（小时）
+     */
+    public static final long DEFAULT_INTERVAL_HOURS = 12;
+
+    /**
+     * 默认单次运行预算（毫秒），远小于 WorkManager 的 10 分钟上限
+     */
+    public static final long DEFAULT_RUN_BUDGET_MS = 60 * 1000L;
+
+    /**
+     * 默认保留期：事件结束 7 天后清理
+     */
+    public static final long DEFAULT_RETENTION_MS = 7 * 24 * 60 * 60 * 1000L;
+
+    // 输入参数
+    public static final String KEY_RUN_BUDGET_MS = "run_budget_ms";
+    public static final String KEY_RETENTION_MS = "retention_ms";
+
+    // 输出结果
+    public static final String KEY_FLUSHED = "flushed";
+    public static final String KEY_PURGED = "purged";
+    public static final String KEY_INDEX_REMOVED = "index_removed";
+    public static final String KEY_COMPLETE = "complete";
+
+    /**
+     * 核对索引时每页的事件数，每页一次提供者查询
+     */
+    static final int RECONCILE_PAGE_SIZE = CalendarUtils.IN_CLAUSE_CHUNK_SIZE;
+
+    private static final String PREFS_NAME = "calendar_maintenance";
+    private static final String PREF_RECONCILE_CURSOR = "reconcile_cursor";
+
+    public CalendarMaintenanceWorker(Context context, WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * 注册周期维护任务：每 {@link #DEFAULT_INTERVAL_HOURS} 小时一次，要求设备充电且空闲
+     *
+     * @param context 上下文
+     */
+    public static void schedule(Context context) {
+        Constraints.Builder constraints = new Constraints.Builder()
+                .setRequiresCharging(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            constraints.setRequiresDeviceIdle(true);
+        }
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(CalendarMaintenanceWorker.class,
+                DEFAULT_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints.build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(UNIQUE_WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * 取消周期维护任务
+     *
+     * @param context 上下文
+     */
+    public static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(UNIQUE_WORK_NAME);
+    }
+
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        if (!CalendarPermissionState.canWrite(context)) {
+            // 没有权限时什么也做不了，等待下一个周期
+            return Result.success();
+        }
+
+        long budget = getInputData().getLong(KEY_RUN_BUDGET_MS, DEFAULT_RUN_BUDGET_MS);
+        long retention = getInputData().getLong(KEY_RETENTION_MS, DEFAULT_RETENTION_MS);
+        long deadline = SystemClock.elapsedRealtime() + budget;
+        Data.Builder output = new Data.Builder();
+
+        // 每一步在分块之间检查预算，超出时剩余部分留到下次运行
+        BooleanSupplier stop = () -> outOfTime(deadline);
+
+        // 1. 检查时区变化，失败或未完成时留到下次运行或时区广播触发的任务
+        TimeZoneRebaseWorker.rebaseIfZoneChanged(context, stop);
+
+        // 2. 提交写入队列
+        if (outOfTime(deadline)) {
+            return Result.success(output.putBoolean(KEY_COMPLETE, false).build());
+        }
+        int flushed = CalendarWriteQueue.getInstance(context).flush(stop);
+        output.putInt(KEY_FLUSHED, Math.max(flushed, 0));
+        ExpiryDigest digest = new ExpiryDigest(context);
+        if (outOfTime(deadline)) {
+            return Result.success(output.putBoolean(KEY_COMPLETE, false).build());
+        }
+        digest.flush(stop);
+
+        // 3. 清理过期事件
+        if (outOfTime(deadline)) {
+            return Result.success(output.putBoolean(KEY_COMPLETE, false).build());
+        }
+        long cutoff = System.currentTimeMillis() - retention;
+        int purged = CalendarUtils.purgeEventsEndingBefore(context, cutoff, stop);
+        if (purged == -1) {
+            // 提供者调用失败，按退避策略重试
+            return Result.retry();
+        }
+        output.putInt(KEY_PURGED, purged);
+        if (outOfTime(deadline)) {
+            return Result.success(output.putBoolean(KEY_COMPLETE, false).build());
+        }
+        digest.removeItemsExpiringBefore(DateEngine.forDefaultZone().toEpochDay(cutoff), stop);
+
+        // 4. 按页核对索引，从上次中断的位置继续
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long cursor = prefs.getLong(PREF_RECONCILE_CURSOR, -1);
+        int removed = 0;
+        boolean complete = false;
+        while (!outOfTime(deadline)) {
+            long[] page = ExpiryIndex.getInstance(context).findEventIdsAfter(cursor, RECONCILE_PAGE_SIZE);
+            if (page.length > 0) {
+                int pageRemoved = removeMissingEvents(context, page);
+                if (pageRemoved == -1) {
+                    break;
+                }
+                removed += pageRemoved;
+                cursor = page[page.length - 1];
+            }
+            if (page.length < RECONCILE_PAGE_SIZE) {
+                cursor = -1;
+                complete = true;
+                break;
+            }
+        }
+        prefs.edit().putLong(PREF_RECONCILE_CURSOR, cursor).apply();
+
+        return Result.success(output
+                .putInt(KEY_INDEX_REMOVED, removed)
+                .putBoolean(KEY_COMPLETE, complete)
+                .build());
+    }
+
+    private boolean outOfTime(long deadline) {
+        return isStopped() || SystemClock.elapsedRealtime() >= deadline;
+    }
+
+    /**
+     * 删除日历中已不存在（或已标记删除）的事件对应的索引记录
+     *
+     * @param context  上下文
+     * @param eventIds 索引中的事件 ID，数量不超过 {@link #RECONCILE_PAGE_SIZE}
+     * @return 删除的索引记录数，查询失败返回 -1
+     */
+    static int removeMissingEvents(Context context, long[] eventIds) {
+        ContentResolver contentResolver = context.getContentResolver();
+        StringBuilder selection = new StringBuilder(CalendarContract.Events.DELETED)
+                .append(" = 0 AND ").append(CalendarContract.Events._ID).append(" IN (");
+        for (int i = 0; i < eventIds.length; i++) {
+            selection.append(i == 0 ? "" : ",").append(eventIds[i]);
+        }
+        selection.append(')');
+
+        long[] existing = new long[eventIds.length];
+        int existingCount = 0;
+        try (Cursor cursor = contentResolver.query(CalendarContract.Events.CONTENT_URI,
+                new String[]{CalendarContract.Events._ID}, selection.toString(), null, null)) {
+            if (cursor == null) {
+                return -1;
+            }
+            while (cursor.moveToNext() && existingCount < existing.length) {
+                existing[existingCount++] = cursor.getLong(0);
+            }
+        } catch (SecurityException e) {
+            CalendarPermissionState.invalidate();
+            return -1;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+
+        Arrays.sort(existing, 0, existingCount);
+        long[] missing = new long[eventIds.length - existingCount];
+        int missingCount = 0;
+        for (long eventId : eventIds) {
+            if (Arrays.binarySearch(existing, 0, existingCount, eventId) < 0 && missingCount < missing.length) {
+                missing[missingCount++] = eventId;
+            }
+        }
+        if (missingCount > 0) {
+            long[] toRemove = Arrays.copyOf(missing, missingCount);
+            CalendarUtils.syncIndex(() -> ExpiryIndex.getInstance(context).removeEvents(toRemove));
+        }
+        return missingCount;
+    }
+
+    /**
+     * 从头开始核对索引（测试使用）
+     */
+    static void resetReconcileCursor(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .remove(PREF_RECONCILE_CURSOR).apply();
+    }
+}
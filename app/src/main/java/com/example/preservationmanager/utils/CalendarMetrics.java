@@ -0,0 +1,172 @@
+package com.example.preservationmanager.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日历提供者调用的性能指标 - 每种操作的延迟直方图、成功/失败/权限拒绝次数和批次大小
+ * <p>
+ * 默认关闭；关闭时每次调用只多一次 volatile 读取。使用方式：
+ * <pre>
+ * CalendarMetrics.setEnabled(true);
+ * ...
+ * CalendarMetrics.publish(new LogcatMetricsSink());
+ * </pre>
+ */
+public final class CalendarMetrics {
+
+    /**
+     * 被统计的操作
+     */
+    public enum Operation {
+        GET_CALENDAR,
+        INSERT_EVENT,
+        ADD_REMINDER,
+        UPDATE_EVENT,
+        DELETE_EVENT,
+        /**
+         * 按 ID 或条件批量删除，每个分块记录一次
+         */
+        DELETE_EVENTS,
+        GET_EVENT_DETAILS,
+        QUERY_EVENTS,
+        APPLY_BATCH
+    }
+
+    /**
+     * 单个操作的累计数据
+     */
+    static final class Recorder {
+        final LatencyHistogram latencyMicros = new LatencyHistogram();
+        final LatencyHistogram batchSizes = new LatencyHistogram();
+        final AtomicLong successes = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong permissionDenials = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+
+        void reset() {
+            latencyMicros.reset();
+            batchSizes.reset();
+            successes.set(0);
+            failures.set(0);
+            permissionDenials.set(0);
+            retries.set(0);
+        }
+    }
+
+    private static final Recorder[] RECORDERS = new Recorder[Operation.values().length];
+
+    static {
+        for (int i = 0; i < RECORDERS.length; i++) {
+            RECORDERS[i] = new Recorder();
+        }
+    }
+
+    private static volatile boolean enabled;
+
+    private CalendarMetrics() {
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开始计时
+     *
+     * @return 开始时间（纳秒）；未启用时返回 0，之后的 record 调用直接忽略
+     */
+    static long start() {
+        return enabled ? System.nanoTime() | 1 : 0;
+    }
+
+    /**
+     * 记录一次操作
+     *
+     * @param operation    操作
+     * @param startedNanos {@link #start()} 的返回值
+     * @param failure      失败类别，成功时为 null
+     */
+    static void record(Operation operation, long startedNanos, ErrorCategory failure) {
+        record(operation, startedNanos, failure, 1);
+    }
+
+    /**
+     * 记录一次成功的操作
+     */
+    static void recordSuccess(Operation operation, long startedNanos) {
+        record(operation, startedNanos, null, 1);
+    }
+
+    /**
+     * 记录一次操作的结果并原样返回，便于在 return 语句中使用
+     */
+    static <T> CalendarResult<T> record(Operation operation, long startedNanos, CalendarResult<T> result) {
+        if (startedNanos != 0) {
+            record(operation, startedNanos, result.isSuccess() ? null : result.getCategory(), result.getAttempts());
+        }
+        return result;
+    }
+
+    private static void record(Operation operation, long startedNanos, ErrorCategory failure, int attempts) {
+        if (startedNanos == 0) {
+            return;
+        }
+        Recorder recorder = RECORDERS[operation.ordinal()];
+        recorder.latencyMicros.record((System.nanoTime() - startedNanos) / 1000);
+        if (failure == null) {
+            recorder.successes.incrementAndGet();
+        } else if (failure == ErrorCategory.PERMISSION_DENIED) {
+            recorder.permissionDenials.incrementAndGet();
+        } else {
+            recorder.failures.incrementAndGet();
+        }
+        if (attempts > 1) {
+            recorder.retries.addAndGet(attempts - 1);
+        }
+    }
+
+    /**
+     * 记录批量操作包含的条目数
+     */
+    static void recordBatchSize(Operation operation, int size) {
+        if (enabled) {
+            RECORDERS[operation.ordinal()].batchSizes.record(size);
+        }
+    }
+
+    /**
+     * @return 当前累计数据的快照，只包含至少发生过一次的操作
+     */
+    public static MetricsSnapshot snapshot() {
+        List<MetricsSnapshot.OperationStats> stats = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            Recorder recorder = RECORDERS[operation.ordinal()];
+            if (recorder.latencyMicros.getCount() > 0 || recorder.batchSizes.getCount() > 0) {
+                stats.add(new MetricsSnapshot.OperationStats(operation, recorder));
+            }
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), stats);
+    }
+
+    /**
+     * 将当前快照输出到指定目标
+     */
+    public static void publish(MetricsSink sink) {
+        sink.publish(snapshot());
+    }
+
+    /**
+     * 清空所有累计数据
+     */
+    public static void reset() {
+        for (Recorder recorder : RECORDERS) {
+            recorder.reset();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import androidx.core.content.ContextCompat;
+
+/**
+ * 日历权限状态缓存 - 避免每次写入都通过 Binder 调用 checkSelfPermission
+ * <p>
+ * 只缓存已授予的状态：未授予时每次使用都重新查询，用户之后在系统设置中授予的权限
+ * 在后台任务和接收器中也立即生效，不需要等界面调用 {@link #refresh(Context)}。
+ * 系统撤销运行时权限会结束应用进程，缓存随之失效；如果日历操作仍然抛出 SecurityException，
+ * 调用方应调用 {@link #invalidate()}，下次使用时重新查询。
+ */
+public final class CalendarPermissionState {
+
+    private static final int UNKNOWN = -1;
+    private static final int DENIED = 0;
+    private static final int GRANTED = 1;
+
+    private static volatile int readState = UNKNOWN;
+    private static volatile int writeState = UNKNOWN;
+
+    private CalendarPermissionState() {
+    }
+
+    /**
+     * @param context 上下文
+     * @return 是否拥有读取日历权限
+     */
+    public static boolean canRead(Context context) {
+        int state = readState;
+        if (state != GRANTED) {
+            state = check(context, Manifest.permission.READ_CALENDAR);
+            readState = state;
+        }
+        return state == GRANTED;
+    }
+
+    /**
+     * @param context 上下文
+     * @return 是否拥有写入日历权限
+     */
+    public static boolean canWrite(Context context) {
+        int state = writeState;
+        if (state != GRANTED) {
+            state = check(context, Manifest.permission.WRITE_CALENDAR);
+            writeState = state;
+        }
+        return state == GRANTED;
+    }
+
+    /**
+     * @param context 上下文
+     * @return 是否同时拥有读取和写入日历权限
+     */
+    public static boolean hasAll(Context context) {
+        return canRead(context) && canWrite(context);
+    }
+
+    /**
+     * 重新查询权限状态
+     * 在 onRequestPermissionsResult 和 onResume 中调用
+     *
+     * @param context 上下文
+     */
+    public static void refresh(Context context) {
+        readState = check(context, Manifest.permission.READ_CALENDAR);
+        writeState = check(context, Manifest.permission.WRITE_CALENDAR);
+    }
+
+    /**
+     * 清除缓存的权限状态，下次使用时重新查询
+     * 日历操作抛出 SecurityException 时调用
+     */
+    public static void invalidate() {
+        readState = UNKNOWN;
+        writeState = UNKNOWN;
+    }
+
+    private static int check(Context context, String permission) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return GRANTED;
+        }
+        return ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED
+                ? GRANTED : DENIED;
+    }
+}
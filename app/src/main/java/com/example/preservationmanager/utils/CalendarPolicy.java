@@ -0,0 +1,17 @@
+package com.example.preservationmanager.utils;
+
+/**
+ * 日历选择策略 - 决定事件写入哪个日历
+ */
+public enum CalendarPolicy {
+
+    /**
+     * 优先使用可见的主日历，其次使用任何可见日历，都没有时创建本地日历
+     */
+    PRIMARY_VISIBLE,
+
+    /**
+     * 只使用应用自己的本地日历账户，不存在时创建
+     */
+    LOCAL_ACCOUNT
+}
@@ -0,0 +1,319 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.CalendarContract;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 日历差异同步 - 用于库存系统推送完整商品列表后的全量同步
+ * <p>
+ * 用一次投影查询读取应用按商品创建的全部事件（UID_2445 带商品前缀），
+ * 与期望的商品提醒集合比较，计算出插入、更新和删除，并以最少的批量事务写入。
+ * 未变化的商品不产生任何写入，同步的写入成本只与变化数量有关。
+ * 提醒直接从日历中读取（按事件 ID 分块查询），本地 {@link ExpiryIndex} 丢失或被重置时也不会重复添加提醒。
+ */
+public final class CalendarReconciler {
+
+    /**
+     * 应用按商品创建的事件的投影，{@link ProductReminderSync} 按 UID 查找事件时也使用
+     */
+    static final String[] EVENT_PROJECTION = {
+            CalendarContract.Events._ID,
+            CalendarContract.Events.UID_2445,
+            CalendarContract.Events.TITLE,
+            CalendarContract.Events.DESCRIPTION,
+            CalendarContract.Events.DTSTART,
+            CalendarContract.Events.DTEND,
+            CalendarContract.Events.EVENT_TIMEZONE
+    };
+
+    /**
+     * 同步结果统计
+     */
+    public static class Result {
+        int inserted;
+        int updated;
+        int deleted;
+        int unchanged;
+        int failed;
+
+        public int getInsertedCount() {
+            return inserted;
+        }
+
+        public int getUpdatedCount() {
+            return updated;
+        }
+
+        public int getDeletedCount() {
+            return deleted;
+        }
+
+        public int getUnchangedCount() {
+            return unchanged;
+        }
+
+        public int getFailedCount() {
+            return failed;
+        }
+
+        /**
+         * @return 实际写入日历的变化数量
+         */
+        public int getChangeCount() {
+            return inserted + updated + deleted;
+        }
+
+        @Override
+        public String toString() {
+            return "新建 " + inserted + "，更新 " + updated + "，删除 " + deleted
+                    + "，未变化 " + unchanged + "，失败 " + failed;
+        }
+    }
+
+    /**
+     * 一个待执行的更新或删除，对应批量操作中从 opIndex 开始的一组操作
+     */
+    private static final class Change {
+        final ExpiryIndex.Entry entry;
+        final ProductReminder reminder;
+        final int opIndex;
+
+        Change(ExpiryIndex.Entry entry, ProductReminder reminder, int opIndex) {
+            this.entry = entry;
+            this.reminder = reminder;
+            this.opIndex = opIndex;
+        }
+
+        boolean isDelete() {
+            return reminder == null;
+        }
+    }
+
+    private CalendarReconciler() {
+    }
+
+    /**
+     * 将应用在日历中的事件同步为期望的商品提醒集合
+     * 不在 desired 中的应用事件会被删除，每日汇总事件（{@link ExpiryDigest}）不受影响
+     *
+     * @param context 上下文
+     * @param desired 期望的完整商品提醒集合，productId 不能为 null
+     * @return 同步结果
+     */
+    public static Result reconcile(Context context, List<ProductReminder> desired) {
+        Result result = new Result();
+
+        if (!CalendarUtils.hasCalendarPermissions(context)) {
+            result.failed = desired.size();
+            return result;
+        }
+
+        long calendarId = CalendarUtils.getOrCreateCalendarAccount(context);
+        if (calendarId == -1) {
+            result.failed = desired.size();
+            return result;
+        }
+
+        ExpiryIndex index = ExpiryIndex.getInstance(context);
+        Map<String, ExpiryIndex.Entry> current = new HashMap<>();
+        List<ExpiryIndex.Entry> duplicates = new ArrayList<>();
+        if (!loadCurrentEvents(context, calendarId, current, duplicates)) {
+            result.failed = desired.size();
+            return result;
+        }
+
+        // 计算差异
+        List<ProductReminder> toInsert = new ArrayList<>();
+        List<Change> changes = new ArrayList<>();
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        Map<String, ProductReminder> desiredById = new HashMap<>();
+
+        for (ProductReminder reminder : desired) {
+            if (reminder.getProductId() == null || !reminder.isValid()
+                    || CalendarUtils.isDigestKey(reminder.getProductId())
+                    || desiredById.put(reminder.getProductId(), reminder) != null) {
+                result.failed++;
+                continue;
+            }
+            ExpiryIndex.Entry entry = current.remove(reminder.getProductId());
+            if (entry == null) {
+                toInsert.add(reminder);
+            } else if (entry.matches(reminder)) {
+                result.unchanged++;
+            } else {
+                changes.add(new Change(entry, reminder, operations.size()));
+                ProductReminderSync.addUpdateOperations(operations, calendarId, entry, reminder);
+            }
+        }
+
+        // 剩余的当前事件不再需要，连同重复事件一起删除
+        duplicates.addAll(current.values());
+        for (ExpiryIndex.Entry entry : duplicates) {
+            changes.add(new Change(entry, null, operations.size()));
+            operations.add(ContentProviderOperation.newDelete(eventUri(entry.eventId))
+                    .withYieldAllowed(true)
+                    .build());
+        }
+
+        applyChanges(context, index, calendarId, operations, changes, toInsert, result);
+
+        if (!toInsert.isEmpty()) {
+            BulkInsertResult inserted = new BulkInsertResult(toInsert.size());
+            CalendarUtils.insertReminders(context, calendarId, toInsert, inserted);
+            result.inserted += inserted.getSuccessCount();
+            result.failed += inserted.getFailureCount();
+        }
+
+        return result;
+    }
+
+    /**
+     * 一次投影查询读取日历中应用按商品创建的事件
+     *
+     * @param current    商品 ID → 事件状态（每个商品事件 ID 最小的一条）
+     * @param duplicates 同一商品的多余事件
+     * @return 查询失败返回 false
+     */
+    private static boolean loadCurrentEvents(Context context, long calendarId,
+                                             Map<String, ExpiryIndex.Entry> current,
+                                             List<ExpiryIndex.Entry> duplicates) {
+        String selection = CalendarContract.Events.CALENDAR_ID + " = ? AND "
+                + CalendarContract.Events.UID_2445 + " LIKE ? AND "
+                + CalendarContract.Events.DELETED + " = 0";
+        String[] selectionArgs = {String.valueOf(calendarId), CalendarUtils.PRODUCT_UID_PREFIX + "%"};
+
+        Cursor cursor;
+        try {
+            cursor = context.getContentResolver().query(CalendarContract.Events.CONTENT_URI, EVENT_PROJECTION,
+                    selection, selectionArgs, CalendarContract.Events._ID);
+        } catch (SecurityException e) {
+            CalendarPermissionState.invalidate();
+            return false;
+        }
+        if (cursor == null) {
+            return false;
+        }
+
+        int prefixLength = CalendarUtils.PRODUCT_UID_PREFIX.length();
+        try {
+            List<Long> eventIds = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                eventIds.add(cursor.getLong(0));
+            }
+            Map<Long, long[]> reminders = CalendarUtils.queryFirstReminders(context.getContentResolver(), eventIds);
+            if (reminders == null) {
+                return false;
+            }
+
+            cursor.moveToPosition(-1);
+            while (cursor.moveToNext()) {
+                long eventId = cursor.getLong(0);
+                String productId = cursor.getString(1).substring(prefixLength);
+                long[] reminder = reminders.get(eventId);
+                ExpiryIndex.Entry entry = new ExpiryIndex.Entry(
+                        eventId,
+                        cursor.getString(2),
+                        ExpiryIndex.hash(cursor.getString(3)),
+                        cursor.getLong(4),
+                        cursor.getLong(5),
+                        cursor.getString(6),
+                        reminder != null ? reminder[0] : -1,
+                        reminder != null ? (int) reminder[1] : 0);
+                if (current.containsKey(productId)) {
+                    duplicates.add(entry);
+                } else {
+                    current.put(productId, entry);
+                }
+            }
+        } catch (SecurityException e) {
+            CalendarPermissionState.invalidate();
+            return false;
+        } finally {
+            cursor.close();
+        }
+        return true;
+    }
+
+    /**
+     * 分块执行更新和删除；事件已不存在的更新转为插入
+     */
+    private static void applyChanges(Context context, ExpiryIndex index, long calendarId,
+                                     ArrayList<ContentProviderOperation> operations, List<Change> changes,
+                                     List<ProductReminder> toInsert, Result result) {
+        int maxOps = CalendarUtils.BATCH_CHUNK_SIZE * 2;
+        int changeStart = 0;
+        while (changeStart < changes.size()) {
+            // 按整组操作分块，一个变化的操作不会跨越两个事务
+            int firstOp = changes.get(changeStart).opIndex;
+            int changeEnd = changeStart;
+            while (changeEnd < changes.size() && changes.get(changeEnd).opIndex - firstOp < maxOps) {
+                changeEnd++;
+            }
+            int lastOp = changeEnd < changes.size() ? changes.get(changeEnd).opIndex : operations.size();
+
+            CalendarResult<ContentProviderResult[]> batchResult = CalendarUtils.applyBatch(context,
+                    new ArrayList<>(operations.subList(firstOp, lastOp)));
+            if (!batchResult.isSuccess()) {
+                if (batchResult.getCategory() == ErrorCategory.TOO_LARGE && changeEnd - changeStart > 1) {
+                    // 超过 Binder 事务大小限制：减半后重新提交同一段变化
+                    maxOps = Math.max(1, (lastOp - firstOp) / 2);
+                    continue;
+                }
+                result.failed += changeEnd - changeStart;
+                changeStart = changeEnd;
+                continue;
+            }
+            ContentProviderResult[] results = batchResult.getValue();
+            // 已删除的事件的应用内提醒
+            List<String> removedAlarms = new ArrayList<>();
+
+            for (int i = changeStart; i < changeEnd; i++) {
+                Change change = changes.get(i);
+                int opIndex = change.opIndex - firstOp;
+                Integer count = results[opIndex].count;
+                boolean applied = count != null && count > 0;
+                long eventId = change.entry.eventId;
+
+                if (change.isDelete()) {
+                    result.deleted++;
+                    CalendarUtils.syncIndex(() -> index.removeEvent(eventId));
+                    removedAlarms.add(ExpiryAlarmScheduler.eventKey(eventId));
+                } else if (!applied) {
+                    // 事件在查询之后被删除，重新插入
+                    CalendarUtils.syncIndex(() -> index.removeEvent(eventId));
+                    removedAlarms.add(ExpiryAlarmScheduler.eventKey(eventId));
+                    toInsert.add(change.reminder);
+                } else {
+                    result.updated++;
+                    ProductReminder reminder = change.reminder;
+                    long reminderId = ProductReminderSync.reminderIdAfterUpdate(change.entry, results, opIndex);
+                    CalendarUtils.syncIndex(() -> {
+                        index.recordEvent(eventId, reminder.getProductId(), calendarId, reminder.getTitle(),
+                                reminder.getDescription(), reminder.getStartTime(), reminder.getEndTime(),
+                                reminder.getTimeZone());
+                        if (reminderId != -1) {
+                            index.replaceReminder(eventId, reminderId, reminder.getReminderMinutesBefore());
+                        }
+                    });
+                }
+            }
+            if (!removedAlarms.isEmpty()) {
+                CalendarUtils.syncIndex(() -> ExpiryAlarmScheduler.getInstance(context).cancelAll(removedAlarms));
+            }
+            changeStart = changeEnd;
+        }
+    }
+
+    private static Uri eventUri(long eventId) {
+        return Uri.withAppendedPath(CalendarContract.Events.CONTENT_URI, String.valueOf(eventId));
+    }
+}
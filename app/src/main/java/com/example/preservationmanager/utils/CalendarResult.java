@@ -0,0 +1,91 @@
+package com.example.preservationmanager.utils;
+
+/**
+ * 日历操作的结果：成功时包含返回值，失败时包含失败类别和原始异常
+ *
+ * @param <T> 返回值类型
+ */
+public final class CalendarResult<T> {
+
+    private final T value;
+    private final ErrorCategory category;
+    private final Throwable error;
+    private final int attempts;
+
+    private CalendarResult(T value, ErrorCategory category, Throwable error, int attempts) {
+        this.value = value;
+        this.category = category;
+        this.error = error;
+        this.attempts = attempts;
+    }
+
+    static <T> CalendarResult<T> success(T value, int attempts) {
+        return new CalendarResult<>(value, null, null, attempts);
+    }
+
+    static <T> CalendarResult<T> success(T value) {
+        return success(value, 1);
+    }
+
+    static <T> CalendarResult<T> failure(ErrorCategory category, Throwable error, int attempts) {
+        return new CalendarResult<>(null, category, error, attempts);
+    }
+
+    static <T> CalendarResult<T> failure(ErrorCategory category) {
+        return failure(category, null, 0);
+    }
+
+    public boolean isSuccess() {
+        return category == null;
+    }
+
+    /**
+     * @return 返回值，失败时为 null
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * @return 成功时返回 value，失败时返回 defaultValue
+     */
+    public T getOrDefault(T defaultValue) {
+        return isSuccess() ? value : defaultValue;
+    }
+
+    /**
+     * @return 失败类别，成功时为 null
+     */
+    public ErrorCategory getCategory() {
+        return category;
+    }
+
+    /**
+     * @return 导致失败的异常；没有异常（例如缺少权限、事件不存在）时为 null
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return 实际尝试的次数（包括自动重试），未执行时为 0
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * 转换为另一种返回值类型的失败结果
+     */
+    <R> CalendarResult<R> asFailure() {
+        return new CalendarResult<>(null, category, error, attempts);
+    }
+
+    @Override
+    public String toString() {
+        if (isSuccess()) {
+            return "成功: " + value;
+        }
+        return "失败: " + category + (error != null ? " (" + error + ")" : "") + "，尝试 " + attempts + " 次";
+    }
+}
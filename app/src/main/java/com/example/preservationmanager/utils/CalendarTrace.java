@@ -0,0 +1,78 @@
+package com.example.preservationmanager.utils;
+
+import androidx.tracing.Trace;
+
+/**
+ * 日历操作的跟踪区段 - 在 Perfetto / systrace 中按阶段显示耗时
+ * <p>
+ * 区段名统一以 "PM:" 开头，格式为 "PM:流程:阶段"，begin 和 end 必须在同一线程中成对调用：
+ * <pre>
+ * CalendarTrace.begin(CalendarTrace.ADD_EVENT_INSERT);
+ * try {
+ *     ...
+ * } finally {
+ *     CalendarTrace.end();
+ * }
+ * </pre>
+ * 可调试的构建始终可以抓取；正式版本需调用 {@link #setForceEnabled(boolean)}（或以
+ * {@code -Ppm.forceTracing=true} 构建）后才会记录应用区段。
+ */
+public final class CalendarTrace {
+
+    // addEventWithReminder 的整体和四个阶段
+    static final String ADD_EVENT = "PM:addEvent";
+    static final String ADD_EVENT_PERMISSION = "PM:addEvent:permission";
+    static final String ADD_EVENT_CALENDAR = "PM:addEvent:calendar";
+    static final String ADD_EVENT_INSERT = "PM:addEvent:insertEvent";
+    static final String ADD_EVENT_REMINDER = "PM:addEvent:addReminder";
+
+    // 批量写入：整体和每个事务分块
+    static final String BULK_INSERT = "PM:bulkInsert";
+    static final String BULK_INSERT_CHUNK = "PM:bulkInsert:chunk";
+    static final String UPSERT = "PM:upsert";
+    static final String UPSERT_CHUNK = "PM:upsert:chunk";
+
+    /**
+     * 一次 applyBatch 提供者调用
+     */
+    static final String APPLY_BATCH = "PM:applyBatch";
+
+    /**
+     * 计数器：最近一次 applyBatch 的操作数
+     */
+    static final String COUNTER_BATCH_OPS = "PM:batchOps";
+
+    private static volatile boolean forceEnabled;
+
+    private CalendarTrace() {
+    }
+
+    /**
+     * 在不可调试的正式版本中也记录应用区段
+     * 开启后在进程结束前无法关闭，传入 false 只影响 {@link #isForceEnabled()} 的返回值
+     *
+     * @param enabled 是否开启
+     */
+    public static void setForceEnabled(boolean enabled) {
+        if (enabled && !forceEnabled) {
+            Trace.forceEnableAppTracing();
+        }
+        forceEnabled = enabled;
+    }
+
+    public static boolean isForceEnabled() {
+        return forceEnabled;
+    }
+
+    static void begin(String section) {
+        Trace.beginSection(section);
+    }
+
+    static void end() {
+        Trace.endSection();
+    }
+
+    static void counter(String name, int value) {
+        Trace.setCounter(name, value);
+    }
+}
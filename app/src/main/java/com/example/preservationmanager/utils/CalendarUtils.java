@@ -1,6 +1,8 @@
 package com.example.preservationmanager.utils;
 
 import android.Manifest;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
@@ -8,12 +10,21 @@ import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Looper;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import android.provider.CalendarContract;
+import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.function.BooleanSupplier;
 
 /**
  * 日历工具类 - 用于在系统日历中创建事件和添加提醒
@@ -21,6 +32,8 @@ import java.util.TimeZone;
  */
 public class CalendarUtils {
 
+    private static final String TAG = "CalendarUtils";
+
     private static final String[] CALENDAR_PERMISSIONS = {
             Manifest.permission.READ_CALENDAR,
             Manifest.permission.WRITE_CALENDAR
@@ -28,84 +41,167 @@ public class CalendarUtils {
 
     private static final int PERMISSION_REQUEST_CODE = 1001;
 
+    /**
+     * 批量写入时每个事务包含的商品数量
+     * 每个商品对应 2 个操作（事件 + 提醒），保持在 Binder 事务大小限制以内
+     */
+    static final int BATCH_CHUNK_SIZE = 100;
+
+    private static final String LOCAL_ACCOUNT_NAME = "local_calendar";
+
+    /**
+     * 写入 Events.UID_2445 的商品标识前缀，用于识别应用按商品创建的事件
+     */
+    static final String PRODUCT_UID_PREFIX = "preservationmanager:";
+
+    /**
+     * 每日汇总事件的键前缀（见 {@link ExpiryDigest}），汇总的键本身就是其 UID_2445
+     * 与商品前缀不重叠，全量同步和过期清理按商品前缀查询时不会涉及汇总事件；商品 ID 不能以此开头
+     */
+    static final String DIGEST_UID_PREFIX = "preservationmanager-digest:";
+
+    /**
+     * 读取事件使用的固定投影，列下标见 COLUMN_* 常量
+     */
+    static final String[] EVENT_PROJECTION = {
+            CalendarContract.Events.TITLE,
+            CalendarContract.Events.DESCRIPTION,
+            CalendarContract.Events.DTSTART,
+            CalendarContract.Events.DTEND,
+            CalendarContract.Events.EVENT_TIMEZONE,
+            CalendarContract.Events._ID
+    };
+
+    static final int COLUMN_TITLE = 0;
+    static final int COLUMN_DESCRIPTION = 1;
+    static final int COLUMN_DTSTART = 2;
+    static final int COLUMN_DTEND = 3;
+    static final int COLUMN_TIMEZONE = 4;
+    static final int COLUMN_ID = 5;
+
+    /**
+     * 按 ID 查询或删除时，每条语句 IN (...) 中的元素上限
+     */
+    static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
     /**
      * 检查是否已经拥有日历权限
+     * 使用 {@link CalendarPermissionState} 缓存的状态，不会每次都查询系统
      *
      * @param context 上下文
      * @return 如果已获得权限返回 true，否则返回 false
      */
     public static boolean hasCalendarPermissions(Context context) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            return ContextCompat.checkSelfPermission(context, Manifest.permission.READ_CALENDAR)
-                    == PackageManager.PERMISSION_GRANTED &&
-                    ContextCompat.checkSelfPermission(context, Manifest.permission.WRITE_CALENDAR)
-                            == PackageManager.PERMISSION_GRANTED;
-        }
-        return true;
+        return CalendarPermissionState.hasAll(context);
     }
 
     /**
      * 请求日历权限（用于 Activity）
+     * Android 13 及以上同时请求应用内提醒（{@link ExpiryAlarmScheduler}）需要的通知权限
      *
      * @param activity Activity 实例
      */
     public static void requestCalendarPermissions(androidx.appcompat.app.AppCompatActivity activity) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            CalendarPermissionState.refresh(activity);
+            List<String> missing = new ArrayList<>();
             if (!hasCalendarPermissions(activity)) {
-                ActivityCompat.requestPermissions(activity, CALENDAR_PERMISSIONS, PERMISSION_REQUEST_CODE);
+                missing.addAll(Arrays.asList(CALENDAR_PERMISSIONS));
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                    && ContextCompat.checkSelfPermission(activity, Manifest.permission.POST_NOTIFICATIONS)
+                    != PackageManager.PERMISSION_GRANTED) {
+                missing.add(Manifest.permission.POST_NOTIFICATIONS);
+            }
+            if (!missing.isEmpty()) {
+                ActivityCompat.requestPermissions(activity, missing.toArray(new String[0]), PERMISSION_REQUEST_CODE);
             }
         }
     }
 
     /**
      * 获取或创建一个日历账户
+     * 解析结果由 {@link CalendarIdCache} 缓存，日历变化时自动失效
      *
      * @param context 上下文
      * @return 日历 ID，如果获取失败返回 -1
      */
     public static long getOrCreateCalendarAccount(Context context) {
-        ContentResolver contentResolver = context.getContentResolver();
+        return getOrCreateCalendarAccount(context, CalendarPolicy.PRIMARY_VISIBLE);
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_CALENDAR)
-                    != PackageManager.PERMISSION_GRANTED) {
-                return -1;
-            }
+    /**
+     * 按指定策略获取或创建一个日历账户
+     *
+     * @param context 上下文
+     * @param policy  日历选择策略
+     * @return 日历 ID，如果获取失败返回 -1
+     */
+    public static long getOrCreateCalendarAccount(Context context, CalendarPolicy policy) {
+        long started = CalendarMetrics.start();
+        if (!CalendarPermissionState.canRead(context)) {
+            CalendarMetrics.record(CalendarMetrics.Operation.GET_CALENDAR, started, ErrorCategory.PERMISSION_DENIED);
+            return -1;
         }
 
-        // 查询现有日历账户
+        long calendarId = CalendarIdCache.getInstance(context).resolve(context, policy);
+        CalendarMetrics.record(CalendarMetrics.Operation.GET_CALENDAR, started,
+                calendarId == -1 ? ErrorCategory.NOT_FOUND : null);
+        return calendarId;
+    }
+
+    /**
+     * 查询日历账户，不存在时创建（不经过缓存）
+     *
+     * @param context 上下文
+     * @param policy  日历选择策略
+     * @return 日历 ID，如果获取失败返回 -1
+     */
+    static long queryOrCreateCalendar(Context context, CalendarPolicy policy) {
+        ContentResolver contentResolver = context.getContentResolver();
         Uri uri = CalendarContract.Calendars.CONTENT_URI;
         String[] projection = {CalendarContract.Calendars._ID, CalendarContract.Calendars.ACCOUNT_NAME};
-        String selection = CalendarContract.Calendars.VISIBLE + " = 1 AND " + CalendarContract.Calendars.IS_PRIMARY + " = 1";
 
-        Cursor cursor = contentResolver.query(uri, projection, selection, null, null);
-        long calendarId = -1;
+        if (policy == CalendarPolicy.LOCAL_ACCOUNT) {
+            long calendarId = queryFirstCalendarId(contentResolver, uri, projection,
+                    CalendarContract.Calendars.ACCOUNT_NAME + " = ? AND "
+                            + CalendarContract.Calendars.ACCOUNT_TYPE + " = ?",
+                    new String[]{LOCAL_ACCOUNT_NAME, CalendarContract.ACCOUNT_TYPE_LOCAL});
+            return calendarId != -1 ? calendarId : createLocalCalendar(context);
+        }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            calendarId = cursor.getLong(cursor.getColumnIndexOrThrow(CalendarContract.Calendars._ID));
-            cursor.close();
+        // 查询现有日历账户
+        String selection = CalendarContract.Calendars.VISIBLE + " = 1 AND " + CalendarContract.Calendars.IS_PRIMARY + " = 1";
+        long calendarId = queryFirstCalendarId(contentResolver, uri, projection, selection, null);
+        if (calendarId != -1) {
             return calendarId;
         }
 
-        if (cursor != null) {
-            cursor.close();
+        // 如果没有主日历，则查询任何可用的日历
+        calendarId = queryFirstCalendarId(contentResolver, uri, projection,
+                CalendarContract.Calendars.VISIBLE + " = 1", null);
+        if (calendarId != -1) {
+            return calendarId;
         }
 
-        // 如果没有主日历，则查询任何可用的日历
-        cursor = contentResolver.query(uri, projection, CalendarContract.Calendars.VISIBLE + " = 1", null, null);
+        // 如果没有任何日历，创建一个本地日历
+        return createLocalCalendar(context);
+    }
+
+    private static long queryFirstCalendarId(ContentResolver contentResolver, Uri uri, String[] projection,
+                                             String selection, String[] selectionArgs) {
+        Cursor cursor = contentResolver.query(uri, projection, selection, selectionArgs, null);
+        long calendarId = -1;
 
         if (cursor != null && cursor.moveToFirst()) {
             calendarId = cursor.getLong(cursor.getColumnIndexOrThrow(CalendarContract.Calendars._ID));
-            cursor.close();
-            return calendarId;
         }
 
         if (cursor != null) {
             cursor.close();
         }
 
-        // 如果没有任何日历，创建一个本地日历
-        return createLocalCalendar(context);
+        return calendarId;
     }
 
     /**
@@ -118,7 +214,7 @@ public class CalendarUtils {
         ContentResolver contentResolver = context.getContentResolver();
         ContentValues values = new ContentValues();
 
-        values.put(CalendarContract.Calendars.ACCOUNT_NAME, "local_calendar");
+        values.put(CalendarContract.Calendars.ACCOUNT_NAME, LOCAL_ACCOUNT_NAME);
         values.put(CalendarContract.Calendars.ACCOUNT_TYPE, CalendarContract.ACCOUNT_TYPE_LOCAL);
         values.put(CalendarContract.Calendars.NAME, "本地日历");
         values.put(CalendarContract.Calendars.CALENDAR_DISPLAY_NAME, "本地日历");
@@ -128,13 +224,16 @@ public class CalendarUtils {
         values.put(CalendarContract.Calendars.IS_PRIMARY, 1);
         values.put(CalendarContract.Calendars.SYNC_EVENTS, 1);
 
-        Uri uri = Uri.withAppendedPath(CalendarContract.Calendars.CONTENT_URI, "local_calendar");
+        Uri uri = Uri.withAppendedPath(CalendarContract.Calendars.CONTENT_URI, LOCAL_ACCOUNT_NAME);
 
         try {
             Uri result = contentResolver.insert(uri, values);
             if (result != null) {
                 return Long.parseLong(result.getLastPathSegment());
             }
+        } catch (SecurityException e) {
+            // 权限已被撤销，下次使用时重新查询
+            CalendarPermissionState.invalidate();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -156,17 +255,59 @@ public class CalendarUtils {
      */
     public static long insertEvent(Context context, long calendarId, String title, String description,
                                     long startTime, long endTime, String timeZone) {
-        ContentResolver contentResolver = context.getContentResolver();
+        return tryInsertEvent(context, calendarId, title, description, startTime, endTime, timeZone)
+                .getOrDefault(-1L);
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            if (ContextCompat.checkSelfPermission(context, Manifest.permission.WRITE_CALENDAR)
-                    != PackageManager.PERMISSION_GRANTED) {
-                return -1;
-            }
+    /**
+     * 插入日历事件，失败时返回失败类别；暂时性故障在后台线程中自动重试
+     *
+     * @return 成功时包含事件 ID
+     * @see #insertEvent(Context, long, String, String, long, long, String)
+     */
+    public static CalendarResult<Long> tryInsertEvent(Context context, long calendarId, String title,
+                                                      String description, long startTime, long endTime,
+                                                      String timeZone) {
+        long started = CalendarMetrics.start();
+        return CalendarMetrics.record(CalendarMetrics.Operation.INSERT_EVENT, started,
+                insertEventImpl(context, calendarId, title, description, startTime, endTime, timeZone));
+    }
+
+    private static CalendarResult<Long> insertEventImpl(Context context, long calendarId, String title,
+                                                        String description, long startTime, long endTime,
+                                                        String timeZone) {
+        if (!CalendarPermissionState.canWrite(context)) {
+            return CalendarResult.failure(ErrorCategory.PERMISSION_DENIED);
+        }
+
+        ContentValues values = buildEventValues(calendarId, null, title, description, startTime, endTime, timeZone);
+        CalendarResult<Uri> inserted = runWithRetry(() ->
+                context.getContentResolver().insert(CalendarContract.Events.CONTENT_URI, values));
+        if (!inserted.isSuccess()) {
+            return inserted.asFailure();
         }
+        Uri uri = inserted.getValue();
+        if (uri == null) {
+            return CalendarResult.failure(ErrorCategory.UNKNOWN, null, inserted.getAttempts());
+        }
+
+        long eventId = Long.parseLong(uri.getLastPathSegment());
+        syncIndex(() -> ExpiryIndex.getInstance(context).recordEvent(eventId, null, calendarId,
+                title, description, startTime, endTime, timeZone));
+        return CalendarResult.success(eventId, inserted.getAttempts());
+    }
 
+    /**
+     * 构建插入事件所需的字段
+     * productId 不为 null 时写入 UID_2445，便于之后按商品识别事件
+     */
+    static ContentValues buildEventValues(long calendarId, String productId, String title, String description,
+                                          long startTime, long endTime, String timeZone) {
         ContentValues values = new ContentValues();
         values.put(CalendarContract.Events.CALENDAR_ID, calendarId);
+        if (productId != null) {
+            values.put(CalendarContract.Events.UID_2445, uidFor(productId));
+        }
         values.put(CalendarContract.Events.TITLE, title);
         values.put(CalendarContract.Events.DESCRIPTION, description);
         values.put(CalendarContract.Events.DTSTART, startTime);
@@ -174,17 +315,28 @@ public class CalendarUtils {
         values.put(CalendarContract.Events.EVENT_TIMEZONE, timeZone);
         values.put(CalendarContract.Events.EVENT_COLOR, 0xFF0000FF);
         values.put(CalendarContract.Events.HAS_ALARM, 1);
+        return values;
+    }
 
-        try {
-            Uri uri = contentResolver.insert(CalendarContract.Events.CONTENT_URI, values);
-            if (uri != null) {
-                return Long.parseLong(uri.getLastPathSegment());
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    /**
+     * @return 商品 ID 或汇总键对应的 UID_2445
+     */
+    static String uidFor(String productId) {
+        return isDigestKey(productId) ? productId : PRODUCT_UID_PREFIX + productId;
+    }
 
-        return -1;
+    /**
+     * @return UID_2445 对应的商品 ID 或汇总键，{@link #uidFor} 的逆运算
+     */
+    static String productIdFor(String uid) {
+        return isDigestKey(uid) ? uid : uid.substring(PRODUCT_UID_PREFIX.length());
+    }
+
+    /**
+     * @return id 是否为每日汇总的键（商品 ID 不允许使用）
+     */
+    static boolean isDigestKey(String id) {
+        return id.startsWith(DIGEST_UID_PREFIX);
     }
 
     /**
@@ -196,13 +348,24 @@ public class CalendarUtils {
      * @return 提醒 ID，如果添加失败返回 -1
      */
     public static long addReminder(Context context, long eventId, int minutesBefore) {
-        ContentResolver contentResolver = context.getContentResolver();
+        return tryAddReminder(context, eventId, minutesBefore).getOrDefault(-1L);
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            if (ContextCompat.checkSelfPermission(context, Manifest.permission.WRITE_CALENDAR)
-                    != PackageManager.PERMISSION_GRANTED) {
-                return -1;
-            }
+    /**
+     * 为事件添加提醒，失败时返回失败类别；暂时性故障在后台线程中自动重试
+     *
+     * @return 成功时包含提醒 ID
+     * @see #addReminder(Context, long, int)
+     */
+    public static CalendarResult<Long> tryAddReminder(Context context, long eventId, int minutesBefore) {
+        long started = CalendarMetrics.start();
+        return CalendarMetrics.record(CalendarMetrics.Operation.ADD_REMINDER, started,
+                addReminderImpl(context, eventId, minutesBefore));
+    }
+
+    private static CalendarResult<Long> addReminderImpl(Context context, long eventId, int minutesBefore) {
+        if (!CalendarPermissionState.canWrite(context)) {
+            return CalendarResult.failure(ErrorCategory.PERMISSION_DENIED);
         }
 
         ContentValues values = new ContentValues();
@@ -210,16 +373,19 @@ public class CalendarUtils {
         values.put(CalendarContract.Reminders.MINUTES, minutesBefore);
         values.put(CalendarContract.Reminders.METHOD, CalendarContract.Reminders.METHOD_ALERT);
 
-        try {
-            Uri uri = contentResolver.insert(CalendarContract.Reminders.CONTENT_URI, values);
-            if (uri != null) {
-                return Long.parseLong(uri.getLastPathSegment());
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        CalendarResult<Uri> inserted = runWithRetry(() ->
+                context.getContentResolver().insert(CalendarContract.Reminders.CONTENT_URI, values));
+        if (!inserted.isSuccess()) {
+            return inserted.asFailure();
+        }
+        Uri uri = inserted.getValue();
+        if (uri == null) {
+            return CalendarResult.failure(ErrorCategory.UNKNOWN, null, inserted.getAttempts());
         }
 
-        return -1;
+        long reminderId = Long.parseLong(uri.getLastPathSegment());
+        syncIndex(() -> ExpiryIndex.getInstance(context).recordReminder(reminderId, eventId, minutesBefore));
+        return CalendarResult.success(reminderId, inserted.getAttempts());
     }
 
     /**
@@ -256,29 +422,521 @@ public class CalendarUtils {
     public static long addEventWithReminder(Context context, String title, String description,
                                              long startTime, long endTime, int reminderMinutesBefore,
                                              String timeZone) {
-        // 检查权限
+        return addEventWithReminder(context, title, description, startTime, endTime,
+                reminderMinutesBefore, timeZone, ReminderBackend.CALENDAR);
+    }
+
+    /**
+     * 创建事件，并用指定的方式提醒
+     * {@link ReminderBackend#IN_APP} 不写入日历提醒，由 {@link ExpiryAlarmScheduler} 在
+     * 开始时间前 reminderMinutesBefore 分钟发送通知；删除事件时同时取消应用内提醒
+     *
+     * @param context              上下文
+     * @param title                事件标题
+     * @param description          事件描述
+     * @param startTime            事件开始时间（毫秒）
+     * @param endTime              事件结束时间（毫秒）
+     * @param reminderMinutesBefore 提前提醒的分钟数
+     * @param timeZone             时区（例如："Asia/Shanghai"）
+     * @param backend              提醒方式
+     * @return 事件 ID，如果创建失败返回 -1
+     */
+    public static long addEventWithReminder(Context context, String title, String description,
+                                             long startTime, long endTime, int reminderMinutesBefore,
+                                             String timeZone, ReminderBackend backend) {
+        CalendarTrace.begin(CalendarTrace.ADD_EVENT);
+        try {
+            // 检查权限
+            CalendarTrace.begin(CalendarTrace.ADD_EVENT_PERMISSION);
+            boolean permitted;
+            try {
+                permitted = hasCalendarPermissions(context);
+            } finally {
+                CalendarTrace.end();
+            }
+            if (!permitted) {
+                return -1;
+            }
+
+            // 获取或创建日历账户
+            CalendarTrace.begin(CalendarTrace.ADD_EVENT_CALENDAR);
+            long calendarId;
+            try {
+                calendarId = getOrCreateCalendarAccount(context);
+            } finally {
+                CalendarTrace.end();
+            }
+            if (calendarId == -1) {
+                return -1;
+            }
+
+            // 插入事件
+            CalendarTrace.begin(CalendarTrace.ADD_EVENT_INSERT);
+            CalendarResult<Long> inserted;
+            try {
+                inserted = tryInsertEvent(context, calendarId, title, description, startTime, endTime, timeZone);
+            } finally {
+                CalendarTrace.end();
+            }
+            if (!inserted.isSuccess()) {
+                // 缓存的日历可能已被删除，确认后下次重新解析
+                CalendarIdCache.getInstance(context).invalidateIfMissing(context, calendarId, inserted.getCategory());
+                return -1;
+            }
+            long eventId = inserted.getValue();
+
+            // 添加提醒
+            CalendarTrace.begin(CalendarTrace.ADD_EVENT_REMINDER);
+            try {
+                if (backend.usesCalendar()) {
+                    addReminder(context, eventId, reminderMinutesBefore);
+                }
+                if (backend.usesInApp()) {
+                    ExpiryAlarmScheduler.getInstance(context).schedule(ExpiryAlarmScheduler.eventKey(eventId),
+                            startTime - reminderMinutesBefore * 60_000L, startTime, title, description);
+                }
+            } finally {
+                CalendarTrace.end();
+            }
+
+            return eventId;
+        } finally {
+            CalendarTrace.end();
+        }
+    }
+
+    /**
+     * 为事件一次添加多个提醒，所有提醒在同一个事务中写入
+     *
+     * @param context   上下文
+     * @param eventId   事件 ID
+     * @param reminders 提醒列表，例如 {@link ReminderSpec#EXPIRY_DEFAULTS}
+     * @return 添加的提醒数，如果添加失败返回 -1
+     */
+    public static int addReminders(Context context, long eventId, ReminderSpec... reminders) {
+        CalendarResult<long[]> result = tryAddReminders(context, eventId, reminders);
+        return result.isSuccess() ? result.getValue().length : -1;
+    }
+
+    /**
+     * 为事件一次添加多个提醒，失败时返回失败类别
+     *
+     * @return 成功时包含按输入顺序的提醒 ID
+     * @see #addReminders(Context, long, ReminderSpec...)
+     */
+    public static CalendarResult<long[]> tryAddReminders(Context context, long eventId, ReminderSpec... reminders) {
+        if (!CalendarPermissionState.canWrite(context)) {
+            return CalendarResult.failure(ErrorCategory.PERMISSION_DENIED);
+        }
+        for (ReminderSpec reminder : reminders) {
+            if (reminder == null || !reminder.isValid()) {
+                return CalendarResult.failure(ErrorCategory.INVALID_ARGUMENT);
+            }
+        }
+        if (reminders.length == 0) {
+            return CalendarResult.success(new long[0]);
+        }
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(reminders.length);
+        for (ReminderSpec reminder : reminders) {
+            operations.add(reminderInsert(reminder).withValue(CalendarContract.Reminders.EVENT_ID, eventId).build());
+        }
+        CalendarResult<ContentProviderResult[]> applied = applyBatch(context, operations);
+        if (!applied.isSuccess()) {
+            return applied.asFailure();
+        }
+
+        long[] reminderIds = parseIds(applied.getValue(), 0, reminders.length);
+        syncIndex(() -> recordReminders(ExpiryIndex.getInstance(context), eventId, reminderIds, reminders));
+        return CalendarResult.success(reminderIds, applied.getAttempts());
+    }
+
+    /**
+     * 创建事件及其多个提醒，事件和提醒在同一个事务中写入（提醒通过反向引用指向事件）
+     *
+     * @param context     上下文
+     * @param title       事件标题
+     * @param description 事件描述
+     * @param startTime   事件开始时间（毫秒）
+     * @param endTime     事件结束时间（毫秒）
+     * @param reminders   提醒列表，例如 {@link ReminderSpec#EXPIRY_DEFAULTS}
+     * @return 事件 ID，如果创建失败返回 -1
+     */
+    public static long addEventWithReminders(Context context, String title, String description,
+                                             long startTime, long endTime, ReminderSpec... reminders) {
+        for (ReminderSpec reminder : reminders) {
+            if (reminder == null || !reminder.isValid()) {
+                return -1;
+            }
+        }
         if (!hasCalendarPermissions(context)) {
             return -1;
         }
-
-        // 获取或创建日历账户
         long calendarId = getOrCreateCalendarAccount(context);
         if (calendarId == -1) {
             return -1;
         }
 
-        // 插入事件
-        long eventId = insertEvent(context, calendarId, title, description, startTime, endTime, timeZone);
-        if (eventId == -1) {
-            return -1;
+        String timeZone = TimeZone.getDefault().getID();
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(reminders.length + 1);
+        operations.add(ContentProviderOperation.newInsert(CalendarContract.Events.CONTENT_URI)
+                .withValues(buildEventValues(calendarId, null, title, description, startTime, endTime, timeZone))
+                .build());
+        for (ReminderSpec reminder : reminders) {
+            operations.add(reminderInsert(reminder).withValueBackReference(CalendarContract.Reminders.EVENT_ID, 0)
+                    .build());
         }
 
-        // 添加提醒
-        addReminder(context, eventId, reminderMinutesBefore);
+        CalendarResult<ContentProviderResult[]> applied = applyBatch(context, operations);
+        ContentProviderResult[] results = applied.getValue();
+        if (!applied.isSuccess() || results == null || results.length == 0 || results[0].uri == null) {
+            // 缓存的日历可能已被删除，确认后下次重新解析
+            CalendarIdCache.getInstance(context).invalidateIfMissing(context, calendarId,
+                    applied.isSuccess() ? ErrorCategory.UNKNOWN : applied.getCategory());
+            return -1;
+        }
 
+        long eventId = Long.parseLong(results[0].uri.getLastPathSegment());
+        long[] reminderIds = parseIds(results, 1, reminders.length);
+        syncIndex(() -> {
+            ExpiryIndex index = ExpiryIndex.getInstance(context);
+            index.runInTransaction(() -> {
+                index.recordEvent(eventId, null, calendarId, title, description, startTime, endTime, timeZone);
+                recordReminders(index, eventId, reminderIds, reminders);
+            });
+        });
         return eventId;
     }
 
+    /**
+     * 将事件的提醒替换为指定列表
+     * 与现有提醒逐条比较：相同的保留，不同的原地更新，多余的删除，缺少的插入，全部在一个事务中完成
+     *
+     * @param context   上下文
+     * @param eventId   事件 ID
+     * @param reminders 目标提醒列表，为空时删除全部提醒
+     * @return 实际执行的提醒变更数（0 表示已一致），如果失败返回 -1
+     */
+    public static int replaceReminders(Context context, long eventId, ReminderSpec... reminders) {
+        return tryReplaceReminders(context, eventId, reminders).getOrDefault(-1);
+    }
+
+    /**
+     * 将事件的提醒替换为指定列表，失败时返回失败类别
+     *
+     * @return 成功时包含实际执行的提醒变更数
+     * @see #replaceReminders(Context, long, ReminderSpec...)
+     */
+    public static CalendarResult<Integer> tryReplaceReminders(Context context, long eventId,
+                                                              ReminderSpec... reminders) {
+        if (!CalendarPermissionState.canWrite(context)) {
+            return CalendarResult.failure(ErrorCategory.PERMISSION_DENIED);
+        }
+        for (ReminderSpec reminder : reminders) {
+            if (reminder == null || !reminder.isValid()) {
+                return CalendarResult.failure(ErrorCategory.INVALID_ARGUMENT);
+            }
+        }
+
+        ContentResolver contentResolver = context.getContentResolver();
+        String[] projection = {CalendarContract.Reminders._ID, CalendarContract.Reminders.MINUTES,
+                CalendarContract.Reminders.METHOD};
+        String[] selectionArgs = {String.valueOf(eventId)};
+        CalendarResult<ReminderDiff> loaded = runWithRetry(() -> {
+            try (Cursor cursor = contentResolver.query(CalendarContract.Reminders.CONTENT_URI, projection,
+                    CalendarContract.Reminders.EVENT_ID + " = ?", selectionArgs, null)) {
+                int count = cursor != null ? cursor.getCount() : 0;
+                long[] existingIds = new long[count];
+                ReminderSpec[] existing = new ReminderSpec[count];
+                for (int i = 0; i < count && cursor.moveToNext(); i++) {
+                    existingIds[i] = cursor.getLong(0);
+                    existing[i] = new ReminderSpec(cursor.getInt(1), cursor.getInt(2));
+                }
+                return ReminderDiff.compute(existingIds, existing, reminders);
+            }
+        });
+        if (!loaded.isSuccess()) {
+            return loaded.asFailure();
+        }
+        ReminderDiff diff = loaded.getValue();
+        if (diff.isEmpty()) {
+            return CalendarResult.success(0, loaded.getAttempts());
+        }
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(diff.size());
+        for (long reminderId : diff.deleteIds) {
+            operations.add(ContentProviderOperation.newDelete(reminderUri(reminderId)).build());
+        }
+        for (int i = 0; i < diff.updateIds.length; i++) {
+            operations.add(ContentProviderOperation.newUpdate(reminderUri(diff.updateIds[i]))
+                    .withValue(CalendarContract.Reminders.MINUTES, diff.updateValues[i].getMinutesBefore())
+                    .withValue(CalendarContract.Reminders.METHOD, diff.updateValues[i].getMethod())
+                    .build());
+        }
+        for (ReminderSpec reminder : diff.inserts) {
+            operations.add(reminderInsert(reminder).withValue(CalendarContract.Reminders.EVENT_ID, eventId).build());
+        }
+
+        CalendarResult<ContentProviderResult[]> applied = applyBatch(context, operations);
+        if (!applied.isSuccess()) {
+            return applied.asFailure();
+        }
+
+        long[] insertedIds = parseIds(applied.getValue(), diff.deleteIds.length + diff.updateIds.length,
+                diff.inserts.length);
+        syncIndex(() -> {
+            ExpiryIndex index = ExpiryIndex.getInstance(context);
+            index.runInTransaction(() -> {
+                index.removeReminders(diff.deleteIds);
+                recordReminders(index, eventId, diff.updateIds, diff.updateValues);
+                recordReminders(index, eventId, insertedIds, diff.inserts);
+            });
+        });
+        return CalendarResult.success(diff.size(), applied.getAttempts());
+    }
+
+    private static ContentProviderOperation.Builder reminderInsert(ReminderSpec reminder) {
+        return ContentProviderOperation.newInsert(CalendarContract.Reminders.CONTENT_URI)
+                .withValue(CalendarContract.Reminders.MINUTES, reminder.getMinutesBefore())
+                .withValue(CalendarContract.Reminders.METHOD, reminder.getMethod());
+    }
+
+    private static Uri reminderUri(long reminderId) {
+        return Uri.withAppendedPath(CalendarContract.Reminders.CONTENT_URI, String.valueOf(reminderId));
+    }
+
+    /**
+     * @return results[offset, offset + count) 中插入行的 ID，没有返回 URI 的为 -1
+     */
+    private static long[] parseIds(ContentProviderResult[] results, int offset, int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            int index = offset + i;
+            Uri uri = index < results.length ? results[index].uri : null;
+            ids[i] = uri != null ? Long.parseLong(uri.getLastPathSegment()) : -1;
+        }
+        return ids;
+    }
+
+    private static void recordReminders(ExpiryIndex index, long eventId, long[] reminderIds,
+                                        ReminderSpec[] reminders) {
+        for (int i = 0; i < reminderIds.length; i++) {
+            if (reminderIds[i] != -1) {
+                index.recordReminder(reminderIds[i], eventId, reminders[i].getMinutesBefore());
+            }
+        }
+    }
+
+    /**
+     * 批量创建事件和提醒（推荐用于导入大量商品）
+     * 所有事件和提醒按 {@link #BATCH_CHUNK_SIZE} 分块，通过 applyBatch 在少量事务中写入，
+     * 提醒通过反向引用指向同一事务中刚插入的事件 ID
+     *
+     * @param context   上下文
+     * @param reminders 商品提醒列表
+     * @return 批量结果，包含每个条目的事件 ID 和失败原因
+     */
+    public static BulkInsertResult addEventsWithReminders(Context context, List<ProductReminder> reminders) {
+        BulkInsertResult result = new BulkInsertResult(reminders.size());
+        if (reminders.isEmpty()) {
+            return result;
+        }
+
+        // 检查权限
+        if (!hasCalendarPermissions(context)) {
+            failRange(result, reminders, 0, reminders.size(), ErrorCategory.PERMISSION_DENIED, "缺少日历权限");
+            return result;
+        }
+
+        // 获取或创建日历账户（整个批次只解析一次）
+        long calendarId = getOrCreateCalendarAccount(context);
+        if (calendarId == -1) {
+            failRange(result, reminders, 0, reminders.size(), ErrorCategory.NOT_FOUND, "获取日历账户失败");
+            return result;
+        }
+
+        CalendarTrace.begin(CalendarTrace.BULK_INSERT);
+        try {
+            insertReminders(context, calendarId, reminders, result);
+        } finally {
+            CalendarTrace.end();
+        }
+        return result;
+    }
+
+    /**
+     * 分块写入商品提醒（调用方已检查权限并解析日历）
+     *
+     * @param context    上下文
+     * @param calendarId 日历 ID
+     * @param reminders  商品提醒列表
+     * @param result     按 reminders 下标记录结果
+     */
+    static void insertReminders(Context context, long calendarId, List<ProductReminder> reminders,
+                                BulkInsertResult result) {
+        for (int chunkStart = 0; chunkStart < reminders.size(); chunkStart += BATCH_CHUNK_SIZE) {
+            int chunkEnd = Math.min(chunkStart + BATCH_CHUNK_SIZE, reminders.size());
+            ErrorCategory failure;
+            CalendarTrace.begin(CalendarTrace.BULK_INSERT_CHUNK);
+            try {
+                failure = applyReminderChunk(context, calendarId, reminders, chunkStart, chunkEnd, result);
+            } finally {
+                CalendarTrace.end();
+            }
+            if (failure != null) {
+                // 缓存的日历可能已被删除，确认后下次重新解析
+                CalendarIdCache.getInstance(context).invalidateIfMissing(context, calendarId, failure);
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中写入 [start, end) 范围内的商品提醒
+     * 超过 Binder 事务大小限制时拆成两半分别写入，直到单个商品一个事务
+     *
+     * @return 事务执行失败时返回失败类别（拆分后取第一个失败的类别），成功时返回 null
+     */
+    private static ErrorCategory applyReminderChunk(Context context, long calendarId, List<ProductReminder> reminders,
+                                              int start, int end, BulkInsertResult result) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>((end - start) * 2);
+        // eventOpIndex[i] 为第 start + i 个条目的事件插入操作下标，参数无效的条目为 -1
+        int[] eventOpIndex = new int[end - start];
+
+        for (int i = start; i < end; i++) {
+            ProductReminder reminder = reminders.get(i);
+            if (!reminder.isValid()) {
+                eventOpIndex[i - start] = -1;
+                continue;
+            }
+
+            int eventIndex = operations.size();
+            eventOpIndex[i - start] = eventIndex;
+
+            operations.add(ContentProviderOperation.newInsert(CalendarContract.Events.CONTENT_URI)
+                    .withValues(buildEventValues(calendarId, reminder.getProductId(), reminder.getTitle(),
+                            reminder.getDescription(),
+                            reminder.getStartTime(), reminder.getEndTime(), reminder.getTimeZone()))
+                    .withYieldAllowed(true)
+                    .build());
+            operations.add(ContentProviderOperation.newInsert(CalendarContract.Reminders.CONTENT_URI)
+                    .withValueBackReference(CalendarContract.Reminders.EVENT_ID, eventIndex)
+                    .withValue(CalendarContract.Reminders.MINUTES, reminder.getReminderMinutesBefore())
+                    .withValue(CalendarContract.Reminders.METHOD, CalendarContract.Reminders.METHOD_ALERT)
+                    .build());
+        }
+
+        CalendarResult<ContentProviderResult[]> applied = operations.isEmpty()
+                ? CalendarResult.success(new ContentProviderResult[0])
+                : applyBatch(context, operations);
+        if (!applied.isSuccess() && applied.getCategory() == ErrorCategory.TOO_LARGE && end - start > 1) {
+            int mid = (start + end) >>> 1;
+            ErrorCategory first = applyReminderChunk(context, calendarId, reminders, start, mid, result);
+            ErrorCategory second = applyReminderChunk(context, calendarId, reminders, mid, end, result);
+            return first != null ? first : second;
+        }
+
+        ContentProviderResult[] results = applied.getValue();
+        String batchFailure = applied.isSuccess() ? null : "批量写入失败：" + (applied.getError() != null
+                ? applied.getError().getClass().getSimpleName() : applied.getCategory().name());
+        for (int i = start; i < end; i++) {
+            int eventIndex = eventOpIndex[i - start];
+            String productId = reminders.get(i).getProductId();
+            if (eventIndex == -1) {
+                result.addFailure(i, productId, ErrorCategory.INVALID_ARGUMENT, "参数无效");
+                continue;
+            }
+            if (batchFailure != null) {
+                result.addFailure(i, productId, applied.getCategory(), batchFailure);
+                continue;
+            }
+            Uri uri = eventIndex < results.length ? results[eventIndex].uri : null;
+            if (uri != null) {
+                result.setEventId(i, Long.parseLong(uri.getLastPathSegment()));
+            } else {
+                result.addFailure(i, productId, ErrorCategory.UNKNOWN, "事件插入无返回");
+            }
+        }
+        if (batchFailure != null) {
+            return applied.getCategory();
+        }
+
+        // 同步本地索引（整个分块一个事务）
+        syncIndex(() -> {
+            ExpiryIndex index = ExpiryIndex.getInstance(context);
+            index.runInTransaction(() -> {
+                for (int i = start; i < end; i++) {
+                    long eventId = result.getEventId(i);
+                    if (eventId == -1) {
+                        continue;
+                    }
+                    ProductReminder reminder = reminders.get(i);
+                    index.recordEvent(eventId, reminder.getProductId(), calendarId, reminder.getTitle(),
+                            reminder.getDescription(), reminder.getStartTime(), reminder.getEndTime(), reminder.getTimeZone());
+                    int reminderIndex = eventOpIndex[i - start] + 1;
+                    Uri reminderUri = reminderIndex < results.length ? results[reminderIndex].uri : null;
+                    if (reminderUri != null) {
+                        index.recordReminder(Long.parseLong(reminderUri.getLastPathSegment()), eventId,
+                                reminder.getReminderMinutesBefore());
+                    }
+                }
+            });
+        });
+        return null;
+    }
+
+    /**
+     * 执行本地索引写入，索引失败不影响日历操作的结果
+     */
+    static void syncIndex(Runnable indexWrite) {
+        try {
+            indexWrite.run();
+        } catch (RuntimeException e) {
+            Log.w(TAG, "本地索引写入失败", e);
+        }
+    }
+
+    /**
+     * 执行一次提供者调用：后台线程中按 {@link RetryPolicy#DEFAULT} 重试暂时性故障，主线程中不等待重试
+     * 权限被撤销时使缓存的权限状态失效，未知错误记录到日志
+     */
+    static <T> CalendarResult<T> runWithRetry(Callable<T> call) {
+        RetryPolicy policy = Looper.myLooper() == Looper.getMainLooper() ? RetryPolicy.NONE : RetryPolicy.DEFAULT;
+        CalendarResult<T> result = policy.execute(call);
+        if (result.getCategory() == ErrorCategory.PERMISSION_DENIED) {
+            // 权限已被撤销，下次使用时重新查询
+            CalendarPermissionState.invalidate();
+        } else if (result.getCategory() == ErrorCategory.UNKNOWN && result.getError() != null) {
+            Log.w(TAG, "日历提供者调用失败", result.getError());
+        }
+        return result;
+    }
+
+    /**
+     * 通过 {@link #runWithRetry} 执行 applyBatch
+     * 失败类别为 {@link ErrorCategory#TOO_LARGE} 时由调用方拆分批次后重新提交
+     */
+    static CalendarResult<ContentProviderResult[]> applyBatch(Context context,
+                                                              ArrayList<ContentProviderOperation> operations) {
+        CalendarMetrics.recordBatchSize(CalendarMetrics.Operation.APPLY_BATCH, operations.size());
+        CalendarTrace.counter(CalendarTrace.COUNTER_BATCH_OPS, operations.size());
+        CalendarTrace.begin(CalendarTrace.APPLY_BATCH);
+        try {
+            long started = CalendarMetrics.start();
+            return CalendarMetrics.record(CalendarMetrics.Operation.APPLY_BATCH, started,
+                    runWithRetry(() -> context.getContentResolver()
+                            .applyBatch(CalendarContract.AUTHORITY, operations)));
+        } finally {
+            CalendarTrace.end();
+        }
+    }
+
+    private static void failRange(BulkInsertResult result, List<ProductReminder> reminders,
+                                  int start, int end, ErrorCategory category, String reason) {
+        for (int i = start; i < end; i++) {
+            result.addFailure(i, reminders.get(i).getProductId(), category, reason);
+        }
+    }
+
     /**
      * 创建一个经过计算的日期时间（便于测试）
      *
@@ -320,23 +978,235 @@ public class CalendarUtils {
      * @return 删除成功返回 true，否则返回 false
      */
     public static boolean deleteEvent(Context context, long eventId) {
+        // 事件已不存在也视为删除成功
+        CalendarResult<Integer> result = tryDeleteEvent(context, eventId);
+        return result.isSuccess() || result.getCategory() == ErrorCategory.NOT_FOUND;
+    }
+
+    /**
+     * 删除日历事件，失败时返回失败类别；事件不存在时为 {@link ErrorCategory#NOT_FOUND}
+     *
+     * @return 成功时包含删除的行数
+     * @see #deleteEvent(Context, long)
+     */
+    public static CalendarResult<Integer> tryDeleteEvent(Context context, long eventId) {
+        long started = CalendarMetrics.start();
+        return CalendarMetrics.record(CalendarMetrics.Operation.DELETE_EVENT, started,
+                deleteEventImpl(context, eventId));
+    }
+
+    private static CalendarResult<Integer> deleteEventImpl(Context context, long eventId) {
+        if (!CalendarPermissionState.canWrite(context)) {
+            return CalendarResult.failure(ErrorCategory.PERMISSION_DENIED);
+        }
+
+        Uri uri = Uri.withAppendedPath(CalendarContract.Events.CONTENT_URI, String.valueOf(eventId));
+        CalendarResult<Integer> deleted = runWithRetry(() -> context.getContentResolver().delete(uri, null, null));
+        if (!deleted.isSuccess()) {
+            return deleted;
+        }
+
+        syncIndex(() -> ExpiryIndex.getInstance(context).removeEvent(eventId));
+        syncIndex(() -> ExpiryAlarmScheduler.getInstance(context).cancel(ExpiryAlarmScheduler.eventKey(eventId)));
+        if (deleted.getValue() == 0) {
+            return CalendarResult.failure(ErrorCategory.NOT_FOUND, null, deleted.getAttempts());
+        }
+        return deleted;
+    }
+
+    /**
+     * 批量删除日历事件
+     * 按 {@code _ID IN (...)} 分块删除，每块一次提供者调用，并同步删除本地索引记录
+     *
+     * @param context  上下文
+     * @param eventIds 事件 ID
+     * @return 删除的事件数，如果删除失败返回 -1
+     */
+    public static int deleteEvents(Context context, long[] eventIds) {
+        return deleteEvents(context, eventIds, () -> false);
+    }
+
+    /**
+     * 批量删除日历事件，每块之前检查 stop，为 true 时剩余的事件不再删除
+     *
+     * @param stop 返回 true 时停止（例如后台任务超出运行预算）
+     * @return 删除的事件数（停止时为已删除的部分），如果删除失败返回 -1
+     */
+    static int deleteEvents(Context context, long[] eventIds, BooleanSupplier stop) {
+        if (!CalendarPermissionState.canWrite(context)) {
+            return -1;
+        }
+
         ContentResolver contentResolver = context.getContentResolver();
+        int deleted = 0;
+        for (int start = 0; start < eventIds.length; start += IN_CLAUSE_CHUNK_SIZE) {
+            if (start > 0 && stop.getAsBoolean()) {
+                break;
+            }
+            int end = Math.min(start + IN_CLAUSE_CHUNK_SIZE, eventIds.length);
+            StringBuilder selection = new StringBuilder(CalendarContract.Events._ID).append(" IN (");
+            for (int i = start; i < end; i++) {
+                selection.append(i == start ? "" : ",").append(eventIds[i]);
+            }
+            selection.append(')');
+            CalendarMetrics.recordBatchSize(CalendarMetrics.Operation.DELETE_EVENTS, end - start);
+            long started = CalendarMetrics.start();
+            CalendarResult<Integer> chunk = CalendarMetrics.record(CalendarMetrics.Operation.DELETE_EVENTS, started,
+                    runWithRetry(() -> contentResolver.delete(CalendarContract.Events.CONTENT_URI,
+                            selection.toString(), null)));
+            if (!chunk.isSuccess()) {
+                return -1;
+            }
+            deleted += chunk.getValue();
+            // 每块成功后立即同步，之后的块失败时已删除的事件也不会留在索引中
+            removeDeletedEvents(context, Arrays.copyOfRange(eventIds, start, end));
+        }
+        return deleted;
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            if (ContextCompat.checkSelfPermission(context, Manifest.permission.WRITE_CALENDAR)
-                    != PackageManager.PERMISSION_GRANTED) {
-                return false;
+    /**
+     * 删除已从日历中删除的事件的索引记录和应用内提醒
+     */
+    private static void removeDeletedEvents(Context context, long[] eventIds) {
+        syncIndex(() -> ExpiryIndex.getInstance(context).removeEvents(eventIds));
+        cancelEventAlarms(context, eventIds);
+    }
+
+    /**
+     * 取消已删除事件的应用内提醒
+     */
+    private static void cancelEventAlarms(Context context, long[] eventIds) {
+        syncIndex(() -> {
+            List<String> keys = new ArrayList<>(eventIds.length);
+            for (long eventId : eventIds) {
+                keys.add(ExpiryAlarmScheduler.eventKey(eventId));
             }
+            ExpiryAlarmScheduler.getInstance(context).cancelAll(keys);
+        });
+    }
+
+    /**
+     * 清理结束时间早于 cutoff 的应用事件（例如早已过期的商品）
+     * 带商品标识的事件用一条 {@code CALENDAR_ID + DTEND} 条件语句删除，
+     * 其余由本地索引记录的事件按 ID 分块删除；不会删除日历中其他来源的事件。
+     * 只删除实际从日历中删除的事件的索引记录
+     *
+     * @param context 上下文
+     * @param cutoff  截止时间（毫秒）
+     * @return 删除的事件数，如果删除失败返回 -1
+     */
+    public static int purgeEventsEndingBefore(Context context, long cutoff) {
+        return purgeEventsEndingBefore(context, cutoff, () -> false);
+    }
+
+    /**
+     * 清理结束时间早于 cutoff 的应用事件，按 ID 删除的部分每块之前检查 stop
+     *
+     * @param stop 返回 true 时停止，剩余的事件下次清理
+     * @return 删除的事件数（停止时为已删除的部分），如果删除失败返回 -1
+     */
+    static int purgeEventsEndingBefore(Context context, long cutoff, BooleanSupplier stop) {
+        if (!CalendarPermissionState.canWrite(context)) {
+            return -1;
+        }
+
+        long calendarId = getOrCreateCalendarAccount(context);
+        if (calendarId == -1) {
+            return -1;
+        }
+
+        ContentResolver contentResolver = context.getContentResolver();
+        String selection = CalendarContract.Events.CALENDAR_ID + " = ? AND "
+                + CalendarContract.Events.DTEND + " < ? AND "
+                + CalendarContract.Events.UID_2445 + " LIKE ?";
+        String[] selectionArgs = {String.valueOf(calendarId), String.valueOf(cutoff), PRODUCT_UID_PREFIX + "%"};
+
+        // 删除前记下索引中的事件，删除后取消它们的应用内提醒
+        long[] taggedIds;
+        try {
+            taggedIds = ExpiryIndex.getInstance(context).findTaggedEventsEndingBefore(calendarId, cutoff);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            taggedIds = new long[0];
         }
 
+        long started = CalendarMetrics.start();
+        CalendarResult<Integer> tagged = CalendarMetrics.record(CalendarMetrics.Operation.DELETE_EVENTS, started,
+                runWithRetry(() -> contentResolver.delete(CalendarContract.Events.CONTENT_URI,
+                        selection, selectionArgs)));
+        if (!tagged.isSuccess()) {
+            return -1;
+        }
+        int deleted = tagged.getValue();
+        syncIndex(() -> ExpiryIndex.getInstance(context).removeTaggedEventsEndingBefore(calendarId, cutoff));
+        if (taggedIds.length > 0) {
+            cancelEventAlarms(context, taggedIds);
+        }
+
+        long[] untagged;
         try {
-            Uri uri = ContentResolver.SCHEME_CONTENT + "://" + CalendarContract.AUTHORITY + "/events/" + eventId;
-            contentResolver.delete(Uri.parse(uri), null, null);
-            return true;
-        } catch (Exception e) {
+            untagged = ExpiryIndex.getInstance(context).findUntaggedEventsEndingBefore(cutoff);
+        } catch (RuntimeException e) {
             e.printStackTrace();
-            return false;
+            untagged = new long[0];
         }
+        if (untagged.length > 0 && !stop.getAsBoolean()) {
+            // 成功时由 deleteEvents 删除对应的索引记录；失败时保留，下次重试
+            int untaggedDeleted = deleteEvents(context, untagged, stop);
+            if (untaggedDeleted == -1) {
+                return -1;
+            }
+            deleted += untaggedDeleted;
+        }
+        return deleted;
+    }
+
+    /**
+     * 删除指定商品（例如已消耗的商品）的所有事件
+     * 按 UID_2445 的商品标识分块删除，每块一次提供者调用
+     *
+     * @param context    上下文
+     * @param productIds 商品 ID
+     * @return 删除的事件数，如果删除失败返回 -1
+     */
+    public static int purgeProducts(Context context, List<String> productIds) {
+        if (!CalendarPermissionState.canWrite(context)) {
+            return -1;
+        }
+
+        ContentResolver contentResolver = context.getContentResolver();
+        int deleted = 0;
+        for (int start = 0; start < productIds.size(); start += IN_CLAUSE_CHUNK_SIZE) {
+            int end = Math.min(start + IN_CLAUSE_CHUNK_SIZE, productIds.size());
+            StringBuilder selection = new StringBuilder(CalendarContract.Events.UID_2445).append(" IN (");
+            String[] selectionArgs = new String[end - start];
+            for (int i = start; i < end; i++) {
+                selection.append(i == start ? "?" : ",?");
+                selectionArgs[i - start] = uidFor(productIds.get(i));
+            }
+            selection.append(')');
+            CalendarMetrics.recordBatchSize(CalendarMetrics.Operation.DELETE_EVENTS, end - start);
+            long started = CalendarMetrics.start();
+            CalendarResult<Integer> chunk = CalendarMetrics.record(CalendarMetrics.Operation.DELETE_EVENTS, started,
+                    runWithRetry(() -> contentResolver.delete(CalendarContract.Events.CONTENT_URI,
+                            selection.toString(), selectionArgs)));
+            if (!chunk.isSuccess()) {
+                return -1;
+            }
+            deleted += chunk.getValue();
+
+            // 每块成功后立即同步，之后的块失败时已删除的商品也不会留在索引中
+            List<String> removed = productIds.subList(start, end);
+            syncIndex(() -> ExpiryIndex.getInstance(context).removeProducts(removed));
+            syncIndex(() -> {
+                List<String> keys = new ArrayList<>(removed.size());
+                for (String productId : removed) {
+                    keys.add(ExpiryAlarmScheduler.productKey(productId));
+                }
+                ExpiryAlarmScheduler.getInstance(context).cancelAll(keys);
+            });
+        }
+        return deleted;
     }
 
     /**
@@ -352,13 +1222,26 @@ public class CalendarUtils {
      */
     public static boolean updateEvent(Context context, long eventId, String title, String description,
                                        long startTime, long endTime) {
-        ContentResolver contentResolver = context.getContentResolver();
+        return tryUpdateEvent(context, eventId, title, description, startTime, endTime).isSuccess();
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            if (ContextCompat.checkSelfPermission(context, Manifest.permission.WRITE_CALENDAR)
-                    != PackageManager.PERMISSION_GRANTED) {
-                return false;
-            }
+    /**
+     * 更新日历事件，失败时返回失败类别；事件不存在时为 {@link ErrorCategory#NOT_FOUND}
+     *
+     * @return 成功时包含更新的行数
+     * @see #updateEvent(Context, long, String, String, long, long)
+     */
+    public static CalendarResult<Integer> tryUpdateEvent(Context context, long eventId, String title,
+                                                         String description, long startTime, long endTime) {
+        long started = CalendarMetrics.start();
+        return CalendarMetrics.record(CalendarMetrics.Operation.UPDATE_EVENT, started,
+                updateEventImpl(context, eventId, title, description, startTime, endTime));
+    }
+
+    private static CalendarResult<Integer> updateEventImpl(Context context, long eventId, String title,
+                                                           String description, long startTime, long endTime) {
+        if (!CalendarPermissionState.canWrite(context)) {
+            return CalendarResult.failure(ErrorCategory.PERMISSION_DENIED);
         }
 
         ContentValues values = new ContentValues();
@@ -367,14 +1250,19 @@ public class CalendarUtils {
         values.put(CalendarContract.Events.DTSTART, startTime);
         values.put(CalendarContract.Events.DTEND, endTime);
 
-        try {
-            Uri uri = Uri.withAppendedPath(CalendarContract.Events.CONTENT_URI, String.valueOf(eventId));
-            int rows = contentResolver.update(uri, values, null, null);
-            return rows > 0;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+        Uri uri = Uri.withAppendedPath(CalendarContract.Events.CONTENT_URI, String.valueOf(eventId));
+        CalendarResult<Integer> updated = runWithRetry(() ->
+                context.getContentResolver().update(uri, values, null, null));
+        if (!updated.isSuccess()) {
+            return updated;
+        }
+        if (updated.getValue() == 0) {
+            return CalendarResult.failure(ErrorCategory.NOT_FOUND, null, updated.getAttempts());
         }
+
+        syncIndex(() -> ExpiryIndex.getInstance(context).updateEvent(eventId, title, description,
+                startTime, endTime));
+        return updated;
     }
 
     /**
@@ -387,39 +1275,221 @@ public class CalendarUtils {
     public static ContentValues getEventDetails(Context context, long eventId) {
         ContentResolver contentResolver = context.getContentResolver();
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_CALENDAR)
-                    != PackageManager.PERMISSION_GRANTED) {
-                return null;
-            }
+        long started = CalendarMetrics.start();
+        if (!CalendarPermissionState.canRead(context)) {
+            CalendarMetrics.record(CalendarMetrics.Operation.GET_EVENT_DETAILS, started,
+                    ErrorCategory.PERMISSION_DENIED);
+            return null;
         }
 
         Uri uri = Uri.withAppendedPath(CalendarContract.Events.CONTENT_URI, String.valueOf(eventId));
-        String[] projection = {
-                CalendarContract.Events.TITLE,
-                CalendarContract.Events.DESCRIPTION,
-                CalendarContract.Events.DTSTART,
-                CalendarContract.Events.DTEND,
-                CalendarContract.Events.EVENT_TIMEZONE
-        };
-
-        Cursor cursor = contentResolver.query(uri, projection, null, null, null);
+
         ContentValues values = null;
+        try (Cursor cursor = contentResolver.query(uri, EVENT_PROJECTION, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                values = new ContentValues();
+                values.put(CalendarContract.Events.TITLE, cursor.getString(COLUMN_TITLE));
+                values.put(CalendarContract.Events.DESCRIPTION, cursor.getString(COLUMN_DESCRIPTION));
+                values.put(CalendarContract.Events.DTSTART, cursor.getLong(COLUMN_DTSTART));
+                values.put(CalendarContract.Events.DTEND, cursor.getLong(COLUMN_DTEND));
+                values.put(CalendarContract.Events.EVENT_TIMEZONE, cursor.getString(COLUMN_TIMEZONE));
+            }
+        } catch (SecurityException e) {
+            CalendarPermissionState.invalidate();
+            CalendarMetrics.record(CalendarMetrics.Operation.GET_EVENT_DETAILS, started,
+                    ErrorCategory.PERMISSION_DENIED);
+            return null;
+        }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            values = new ContentValues();
-            values.put(CalendarContract.Events.TITLE, cursor.getString(0));
-            values.put(CalendarContract.Events.DESCRIPTION, cursor.getString(1));
-            values.put(CalendarContract.Events.DTSTART, cursor.getLong(2));
-            values.put(CalendarContract.Events.DTEND, cursor.getLong(3));
-            values.put(CalendarContract.Events.EVENT_TIMEZONE, cursor.getString(4));
-            cursor.close();
+        CalendarMetrics.record(CalendarMetrics.Operation.GET_EVENT_DETAILS, started,
+                values != null ? null : ErrorCategory.NOT_FOUND);
+        return values;
+    }
+
+    /**
+     * 查询应用日历中开始时间在 [startFrom, startTo) 范围内的所有事件及其提醒
+     * 事件通过一次固定投影查询读取，提醒按事件 ID 分批查询后合并，不会为每个事件单独查询
+     *
+     * @param context   上下文
+     * @param startFrom 起始时间（毫秒，含）
+     * @param startTo   结束时间（毫秒，不含）
+     * @return 按开始时间排序的事件列表，如果获取失败返回 null
+     */
+    public static List<CalendarEvent> queryEvents(Context context, long startFrom, long startTo) {
+        long started = CalendarMetrics.start();
+        if (!CalendarPermissionState.canRead(context)) {
+            CalendarMetrics.record(CalendarMetrics.Operation.QUERY_EVENTS, started, ErrorCategory.PERMISSION_DENIED);
+            return null;
         }
 
-        if (cursor != null) {
-            cursor.close();
+        long calendarId = getOrCreateCalendarAccount(context);
+        if (calendarId == -1) {
+            CalendarMetrics.record(CalendarMetrics.Operation.QUERY_EVENTS, started, ErrorCategory.NOT_FOUND);
+            return null;
         }
 
-        return values;
+        ContentResolver contentResolver = context.getContentResolver();
+        String selection = CalendarContract.Events.CALENDAR_ID + " = ? AND "
+                + CalendarContract.Events.DTSTART + " >= ? AND "
+                + CalendarContract.Events.DTSTART + " < ? AND "
+                + CalendarContract.Events.DELETED + " = 0";
+        String[] selectionArgs = {String.valueOf(calendarId), String.valueOf(startFrom), String.valueOf(startTo)};
+
+        List<CalendarEvent> events = new ArrayList<>();
+        Map<Long, CalendarEvent> eventsById = new HashMap<>();
+        try {
+            Cursor cursor = contentResolver.query(CalendarContract.Events.CONTENT_URI, EVENT_PROJECTION,
+                    selection, selectionArgs, CalendarContract.Events.DTSTART);
+            if (cursor == null) {
+                CalendarMetrics.record(CalendarMetrics.Operation.QUERY_EVENTS, started, ErrorCategory.UNKNOWN);
+                return null;
+            }
+            try {
+                while (cursor.moveToNext()) {
+                    CalendarEvent event = CalendarEvent.fromCursor(cursor);
+                    events.add(event);
+                    eventsById.put(event.getEventId(), event);
+                }
+            } finally {
+                cursor.close();
+            }
+
+            loadReminderMinutes(contentResolver, events, eventsById);
+        } catch (SecurityException e) {
+            CalendarPermissionState.invalidate();
+            CalendarMetrics.record(CalendarMetrics.Operation.QUERY_EVENTS, started, ErrorCategory.PERMISSION_DENIED);
+            return null;
+        }
+
+        CalendarMetrics.recordSuccess(CalendarMetrics.Operation.QUERY_EVENTS, started);
+        CalendarMetrics.recordBatchSize(CalendarMetrics.Operation.QUERY_EVENTS, events.size());
+        return events;
+    }
+
+    /**
+     * 流式遍历应用日历中的全部事件，按事件 ID 分页读取
+     * 使用完毕（或提前结束）时必须关闭返回的迭代器
+     * 遍历结束后通过 {@link EventIterator#getFailure()} 判断是否因读取失败而提前结束
+     *
+     * @param context 上下文
+     * @return 事件迭代器，如果获取失败返回 null
+     */
+    public static EventIterator iterateEvents(Context context) {
+        return iterateEvents(context, Long.MIN_VALUE, Long.MAX_VALUE, EventIterator.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 流式遍历应用日历中开始时间在 [startFrom, startTo) 范围内的事件
+     *
+     * @param context   上下文
+     * @param startFrom 起始时间（毫秒，含）
+     * @param startTo   结束时间（毫秒，不含）
+     * @param pageSize  每页读取的行数
+     * @return 事件迭代器，如果获取失败返回 null
+     */
+    public static EventIterator iterateEvents(Context context, long startFrom, long startTo, int pageSize) {
+        if (!CalendarPermissionState.canRead(context)) {
+            return null;
+        }
+
+        long calendarId = getOrCreateCalendarAccount(context);
+        if (calendarId == -1) {
+            return null;
+        }
+
+        return new EventIterator(context.getContentResolver(), calendarId, startFrom, startTo, pageSize);
+    }
+
+    /**
+     * 按事件 ID 分批查询每个事件的第一个提醒（ID 最小的一条）
+     *
+     * @return 事件 ID → {提醒 ID, 提前分钟数}，没有提醒的事件不在其中；查询失败返回 null
+     */
+    static Map<Long, long[]> queryFirstReminders(ContentResolver contentResolver, List<Long> eventIds) {
+        String[] projection = {CalendarContract.Reminders._ID, CalendarContract.Reminders.EVENT_ID,
+                CalendarContract.Reminders.MINUTES};
+        Map<Long, long[]> reminders = new HashMap<>();
+
+        for (int start = 0; start < eventIds.size(); start += IN_CLAUSE_CHUNK_SIZE) {
+            int end = Math.min(start + IN_CLAUSE_CHUNK_SIZE, eventIds.size());
+            StringBuilder selection = new StringBuilder(CalendarContract.Reminders.EVENT_ID).append(" IN (");
+            for (int i = start; i < end; i++) {
+                selection.append(i == start ? "" : ",").append(eventIds.get(i));
+            }
+            selection.append(')');
+
+            Cursor cursor = contentResolver.query(CalendarContract.Reminders.CONTENT_URI, projection,
+                    selection.toString(), null, CalendarContract.Reminders._ID);
+            if (cursor == null) {
+                return null;
+            }
+            try {
+                while (cursor.moveToNext()) {
+                    long eventId = cursor.getLong(1);
+                    if (!reminders.containsKey(eventId)) {
+                        reminders.put(eventId, new long[]{cursor.getLong(0), cursor.getInt(2)});
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return reminders;
+    }
+
+    /**
+     * 按事件 ID 分批查询提醒并填充到事件记录中
+     * 提醒按事件 ID 排序，同一事件的提醒连续读出，每个事件只复制一次数组
+     */
+    static void loadReminderMinutes(ContentResolver contentResolver, List<CalendarEvent> events,
+                                    Map<Long, CalendarEvent> eventsById) {
+        String[] projection = {CalendarContract.Reminders.EVENT_ID, CalendarContract.Reminders.MINUTES};
+        String sortOrder = CalendarContract.Reminders.EVENT_ID + " ASC, " + CalendarContract.Reminders._ID + " ASC";
+        int[] scratch = new int[4];
+
+        for (int start = 0; start < events.size(); start += IN_CLAUSE_CHUNK_SIZE) {
+            int end = Math.min(start + IN_CLAUSE_CHUNK_SIZE, events.size());
+            StringBuilder selection = new StringBuilder(CalendarContract.Reminders.EVENT_ID).append(" IN (");
+            for (int i = start; i < end; i++) {
+                selection.append(i == start ? "" : ",").append(events.get(i).getEventId());
+            }
+            selection.append(')');
+
+            Cursor cursor = contentResolver.query(CalendarContract.Reminders.CONTENT_URI, projection,
+                    selection.toString(), null, sortOrder);
+            if (cursor == null) {
+                continue;
+            }
+            try {
+                long currentId = -1;
+                int count = 0;
+                while (cursor.moveToNext()) {
+                    long eventId = cursor.getLong(0);
+                    if (eventId != currentId) {
+                        setReminderMinutes(eventsById, currentId, scratch, count);
+                        currentId = eventId;
+                        count = 0;
+                    }
+                    if (count == scratch.length) {
+                        scratch = Arrays.copyOf(scratch, count * 2);
+                    }
+                    scratch[count++] = cursor.getInt(1);
+                }
+                setReminderMinutes(eventsById, currentId, scratch, count);
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+
+    private static void setReminderMinutes(Map<Long, CalendarEvent> eventsById, long eventId,
+                                           int[] minutes, int count) {
+        if (count == 0) {
+            return;
+        }
+        CalendarEvent event = eventsById.get(eventId);
+        if (event != null) {
+            event.setReminderMinutes(Arrays.copyOf(minutes, count));
+        }
     }
 }
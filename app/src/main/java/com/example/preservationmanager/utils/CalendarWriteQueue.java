@@ -0,0 +1,676 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.Process;
+import android.provider.CalendarContract;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static com.example.preservationmanager.utils.ExpiryIndexDatabase.*;
+
+/**
+ * 日历写入队列 - 在 insertEvent / updateEvent / addReminder / deleteEvent 之前合并变更，延迟批量提交
+ * <p>
+ * 同一事件的连续变更会合并（插入 + 更新 → 插入，更新 + 删除 → 删除，插入 + 删除 → 不写入），
+ * 待提交的变更达到 maxPending 条或第一条变更等待超过 flushDelayMs 时，通过 applyBatch 批量提交。
+ * 每次变更同时写入本地数据库的日志表，进程被杀后重新创建队列时会重放未提交的变更。
+ * <p>
+ * 新插入的事件在提交前没有事件 ID，{@link #insertEvent} 返回一个临时的负数键，
+ * 之后可直接用它调用 update / addReminder / delete；提交后通过 {@link #getEventId(long)} 获取真实 ID。
+ * 临时键和它对应的事件 ID 保存在本地数据库中：进程重启后临时键不会重复，保存下来的临时键仍指向同一个事件。
+ * 不再被未提交的变更引用的临时键在 {@link #TEMP_KEY_RETENTION_MS} 后删除，之后只能使用真实 ID。
+ */
+public class CalendarWriteQueue {
+
+    /**
+     * 默认待提交变更数上限，达到后立即提交
+     */
+    public static final int DEFAULT_MAX_PENDING = 50;
+
+    /**
+     * 默认延迟提交时间（毫秒）
+     */
+    public static final long DEFAULT_FLUSH_DELAY_MS = 2000;
+
+    /**
+     * 已提交（或已丢弃）的临时键的保留时间（毫秒），之后 {@link #getEventId(long)} 对它返回 -1
+     */
+    public static final long TEMP_KEY_RETENTION_MS = 24 * 60 * 60 * 1000L;
+
+    private static volatile CalendarWriteQueue instance;
+
+    private final Context context;
+    private final int maxPending;
+    private final long flushDelayMs;
+    private final ScheduledExecutorService scheduler;
+    /**
+     * 保证同一时间只有一次提交
+     */
+    private final Object flushLock = new Object();
+
+    // 以下字段由 this 保护
+    private final LinkedHashMap<Long, PendingWrite> pending = new LinkedHashMap<>();
+    /**
+     * 已提交的临时键 → 事件 ID（数据库 temp_keys 表的缓存）
+     */
+    private final Map<Long, Long> resolvedKeys = new HashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean immediateFlushScheduled;
+
+    /**
+     * 创建写入队列并重放日志中未提交的变更
+     *
+     * @param context      上下文（内部保存 ApplicationContext）
+     * @param maxPending   待提交变更数上限
+     * @param flushDelayMs 延迟提交时间（毫秒）
+     */
+    public CalendarWriteQueue(Context context, int maxPending, long flushDelayMs) {
+        this.context = context.getApplicationContext();
+        this.maxPending = maxPending;
+        this.flushDelayMs = flushDelayMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, "calendar-write-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loadJournal();
+    }
+
+    /**
+     * 获取默认队列：{@link #DEFAULT_MAX_PENDING} 条或 {@link #DEFAULT_FLUSH_DELAY_MS} 毫秒后提交
+     *
+     * @param context 上下文
+     * @return 默认队列
+     */
+    public static CalendarWriteQueue getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CalendarWriteQueue.class) {
+                if (instance == null) {
+                    instance = new CalendarWriteQueue(context, DEFAULT_MAX_PENDING, DEFAULT_FLUSH_DELAY_MS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 排队插入事件，参见 {@link CalendarUtils#insertEvent}
+     *
+     * @return 临时事件键（负数），如果写入日志失败返回 -1
+     */
+    public long insertEvent(long calendarId, String title, String description,
+                            long startTime, long endTime, String timeZone) {
+        synchronized (this) {
+            long key;
+            try {
+                key = allocateTempKey();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                return -1;
+            }
+            return enqueue(PendingWrite.insert(key, calendarId, title, description,
+                    startTime, endTime, timeZone)) ? key : -1;
+        }
+    }
+
+    /**
+     * 排队更新事件，参见 {@link CalendarUtils#updateEvent}
+     *
+     * @param eventId 事件 ID 或 {@link #insertEvent} 返回的临时键
+     * @return 成功加入队列返回 true
+     */
+    public boolean updateEvent(long eventId, String title, String description, long startTime, long endTime) {
+        return enqueue(PendingWrite.update(eventId, title, description, startTime, endTime));
+    }
+
+    /**
+     * 排队添加提醒，参见 {@link CalendarUtils#addReminder}
+     *
+     * @param eventId 事件 ID 或 {@link #insertEvent} 返回的临时键
+     * @return 成功加入队列返回 true
+     */
+    public boolean addReminder(long eventId, int minutesBefore) {
+        return enqueue(PendingWrite.reminder(eventId, minutesBefore));
+    }
+
+    /**
+     * 排队删除事件，参见 {@link CalendarUtils#deleteEvent}
+     *
+     * @param eventId 事件 ID 或 {@link #insertEvent} 返回的临时键
+     * @return 成功加入队列返回 true
+     */
+    public boolean deleteEvent(long eventId) {
+        return enqueue(PendingWrite.delete(eventId));
+    }
+
+    /**
+     * @param eventKey 事件 ID 或临时键
+     * @return 真实的事件 ID；临时键对应的插入尚未提交时返回 -1
+     */
+    public synchronized long getEventId(long eventKey) {
+        if (eventKey >= 0) {
+            return eventKey;
+        }
+        return resolvedEventIdQuietly(eventKey);
+    }
+
+    /**
+     * @return 尚未提交的变更数（合并后）
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 立即在调用线程提交所有待提交的变更（不要在主线程调用）
+     *
+     * @return 提交的变更数；缺少权限或提供者暂时不可用、变更保留在队列中时返回 -1
+     */
+    public int flush() {
+        return flush(() -> false);
+    }
+
+    /**
+     * 立即提交，每 {@link CalendarUtils#BATCH_CHUNK_SIZE} 条变更之间检查 stop，为 true 时剩余的变更放回队列
+     *
+     * @param stop 返回 true 时停止（例如后台任务超出运行预算）
+     * @return 提交的变更数；缺少权限或提供者暂时不可用时返回 -1
+     */
+    int flush(BooleanSupplier stop) {
+        synchronized (flushLock) {
+            List<PendingWrite> batch;
+            synchronized (this) {
+                cancelScheduledFlush();
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                if (!CalendarPermissionState.canWrite(context)) {
+                    return -1;
+                }
+                batch = new ArrayList<>(pending.size());
+                for (PendingWrite write : pending.values()) {
+                    if (write.eventKey < 0 && write.op != PendingWrite.Op.INSERT) {
+                        long eventId = resolvedEventIdQuietly(write.eventKey);
+                        if (eventId == -1) {
+                            // 临时键对应的插入已被丢弃，此变更无法执行
+                            deleteJournalQuietly(write.journalId);
+                            continue;
+                        }
+                        write = write.withEventKey(eventId);
+                    }
+                    batch.add(write);
+                }
+                pending.clear();
+            }
+
+            int applied = 0;
+            for (int start = 0; start < batch.size(); start += CalendarUtils.BATCH_CHUNK_SIZE) {
+                if (start > 0 && stop.getAsBoolean()) {
+                    requeue(batch.subList(start, batch.size()));
+                    break;
+                }
+                int end = Math.min(start + CalendarUtils.BATCH_CHUNK_SIZE, batch.size());
+                int chunkApplied = applyChunk(batch.subList(start, end));
+                if (chunkApplied < 0) {
+                    // 权限被撤销或提供者暂时不可用：之后的变更也放回队列，等待下次提交
+                    requeue(batch.subList(end, batch.size()));
+                    return -1;
+                }
+                applied += chunkApplied;
+            }
+            pruneTempKeysQuietly(System.currentTimeMillis());
+            return applied;
+        }
+    }
+
+    /**
+     * 在队列线程上异步提交
+     */
+    public void flushAsync() {
+        scheduler.execute(this::flushQuietly);
+    }
+
+    private boolean enqueue(PendingWrite write) {
+        if (write.eventKey == -1) {
+            return false;
+        }
+        synchronized (this) {
+            try {
+                if (write.eventKey < 0 && write.op != PendingWrite.Op.INSERT) {
+                    long eventId = resolvedEventId(write.eventKey);
+                    if (eventId != -1) {
+                        write = write.withEventKey(eventId);
+                    }
+                }
+                mergeIntoPending(write, true);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                return false;
+            }
+            scheduleFlush();
+            return true;
+        }
+    }
+
+    /**
+     * 将变更合并进待提交队列并同步日志（调用方持有 this 锁）
+     *
+     * @param write   变更
+     * @param isNewer write 是否比队列中同一事件的变更更晚发生
+     */
+    private void mergeIntoPending(PendingWrite write, boolean isNewer) {
+        PendingWrite existing = pending.get(write.eventKey);
+        if (existing == null) {
+            if (write.journalId == -1) {
+                writeJournal(write);
+            }
+            pending.put(write.eventKey, write);
+            return;
+        }
+
+        PendingWrite older = isNewer ? existing : write;
+        PendingWrite newer = isNewer ? write : existing;
+        PendingWrite merged = PendingWrite.merge(older, newer);
+        if (newer.journalId != -1 && (merged == null || merged.journalId != newer.journalId)) {
+            deleteJournal(newer.journalId);
+        }
+        if (merged == null) {
+            deleteJournal(older.journalId);
+            pending.remove(write.eventKey);
+        } else {
+            writeJournal(merged);
+            pending.put(write.eventKey, merged);
+        }
+    }
+
+    private void scheduleFlush() {
+        if (pending.size() >= maxPending) {
+            if (!immediateFlushScheduled) {
+                cancelScheduledFlush();
+                scheduledFlush = scheduler.schedule(this::flushQuietly, 0, TimeUnit.MILLISECONDS);
+                immediateFlushScheduled = true;
+            }
+        } else if (scheduledFlush == null && !pending.isEmpty()) {
+            scheduledFlush = scheduler.schedule(this::flushQuietly, flushDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        immediateFlushScheduled = false;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 在一次 applyBatch 中提交一组变更（暂时性故障已自动重试）：
+     * 超过事务大小限制时拆成两半提交；其他失败逐条重试，仍失败的变更被丢弃
+     *
+     * @return 提交的变更数；权限被撤销或重试后仍是暂时性故障时，未提交的变更放回队列，返回 -1
+     */
+    private int applyChunk(List<PendingWrite> chunk) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(chunk.size() * 2);
+        int[] opIndex = new int[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            opIndex[i] = operations.size();
+            addOperations(operations, chunk.get(i));
+        }
+
+        CalendarResult<ContentProviderResult[]> batchResult = CalendarUtils.applyBatch(context, operations);
+        if (!batchResult.isSuccess()) {
+            ErrorCategory category = batchResult.getCategory();
+            if (category == ErrorCategory.PERMISSION_DENIED || category == ErrorCategory.TRANSIENT) {
+                requeue(chunk);
+                return -1;
+            }
+            if (category == ErrorCategory.TOO_LARGE && chunk.size() > 1) {
+                int mid = chunk.size() / 2;
+                int first = applyChunk(chunk.subList(0, mid));
+                if (first < 0) {
+                    requeue(chunk.subList(mid, chunk.size()));
+                    return -1;
+                }
+                int second = applyChunk(chunk.subList(mid, chunk.size()));
+                return second < 0 ? -1 : first + second;
+            }
+            if (chunk.size() == 1) {
+                // 单条变更无法提交（例如日历已被删除），丢弃以免反复重试
+                deleteJournalQuietly(chunk.get(0).journalId);
+                return 0;
+            }
+            int applied = 0;
+            for (int i = 0; i < chunk.size(); i++) {
+                int single = applyChunk(Collections.singletonList(chunk.get(i)));
+                if (single < 0) {
+                    requeue(chunk.subList(i + 1, chunk.size()));
+                    return -1;
+                }
+                applied += single;
+            }
+            return applied;
+        }
+
+        onApplied(chunk, opIndex, batchResult.getValue());
+        return chunk.size();
+    }
+
+    private static void addOperations(List<ContentProviderOperation> operations, PendingWrite write) {
+        int eventIndex = operations.size();
+        switch (write.op) {
+            case INSERT:
+                operations.add(ContentProviderOperation.newInsert(CalendarContract.Events.CONTENT_URI)
+                        .withValues(CalendarUtils.buildEventValues(write.calendarId, null, write.title,
+                                write.description, write.startTime, write.endTime, write.timeZone))
+                        .withYieldAllowed(true)
+                        .build());
+                break;
+            case UPDATE:
+                ContentValues values = new ContentValues();
+                values.put(CalendarContract.Events.TITLE, write.title);
+                values.put(CalendarContract.Events.DESCRIPTION, write.description);
+                values.put(CalendarContract.Events.DTSTART, write.startTime);
+                values.put(CalendarContract.Events.DTEND, write.endTime);
+                operations.add(ContentProviderOperation.newUpdate(eventUri(write.eventKey))
+                        .withValues(values)
+                        .withYieldAllowed(true)
+                        .build());
+                break;
+            case DELETE:
+                operations.add(ContentProviderOperation.newDelete(eventUri(write.eventKey))
+                        .withYieldAllowed(true)
+                        .build());
+                return;
+            default:
+                break;
+        }
+
+        for (int minutes : write.reminderMinutes) {
+            ContentProviderOperation.Builder builder =
+                    ContentProviderOperation.newInsert(CalendarContract.Reminders.CONTENT_URI);
+            if (write.op == PendingWrite.Op.INSERT) {
+                builder.withValueBackReference(CalendarContract.Reminders.EVENT_ID, eventIndex);
+            } else {
+                builder.withValue(CalendarContract.Reminders.EVENT_ID, write.eventKey);
+            }
+            operations.add(builder
+                    .withValue(CalendarContract.Reminders.MINUTES, minutes)
+                    .withValue(CalendarContract.Reminders.METHOD, CalendarContract.Reminders.METHOD_ALERT)
+                    .build());
+        }
+    }
+
+    /**
+     * 提交成功后删除日志，记录临时键对应的事件 ID 并同步本地索引
+     */
+    private void onApplied(List<PendingWrite> chunk, int[] opIndex, ContentProviderResult[] results) {
+        long[] eventIds = new long[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            PendingWrite write = chunk.get(i);
+            eventIds[i] = write.eventKey;
+            if (write.op == PendingWrite.Op.INSERT) {
+                Uri uri = opIndex[i] < results.length ? results[opIndex[i]].uri : null;
+                eventIds[i] = uri != null ? Long.parseLong(uri.getLastPathSegment()) : -1;
+                if (eventIds[i] != -1) {
+                    resolve(write.eventKey, eventIds[i]);
+                }
+            }
+        }
+
+        // 日志先于索引删除：索引写入失败不能导致已提交的变更被重放；临时键的事件 ID 与日志在同一事务中记录
+        CalendarUtils.syncIndex(() -> ExpiryIndex.getInstance(context).runInTransaction(() -> {
+            for (int i = 0; i < chunk.size(); i++) {
+                PendingWrite write = chunk.get(i);
+                deleteJournal(write.journalId);
+                if (write.op == PendingWrite.Op.INSERT && eventIds[i] != -1) {
+                    recordTempKey(write.eventKey, eventIds[i]);
+                }
+            }
+        }));
+
+        CalendarUtils.syncIndex(() -> {
+            ExpiryIndex index = ExpiryIndex.getInstance(context);
+            index.runInTransaction(() -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    PendingWrite write = chunk.get(i);
+                    long eventId = eventIds[i];
+                    if (eventId == -1) {
+                        continue;
+                    }
+                    int reminderIndex = opIndex[i];
+                    switch (write.op) {
+                        case INSERT:
+                            index.recordEvent(eventId, null, write.calendarId, write.title, write.description,
+                                    write.startTime, write.endTime, write.timeZone);
+                            reminderIndex++;
+                            break;
+                        case UPDATE:
+                            Integer rows = results[opIndex[i]].count;
+                            if (rows != null && rows > 0) {
+                                index.updateEvent(eventId, write.title, write.description,
+                                        write.startTime, write.endTime);
+                            }
+                            reminderIndex++;
+                            break;
+                        case DELETE:
+                            index.removeEvent(eventId);
+                            continue;
+                        default:
+                            break;
+                    }
+                    for (int minutes : write.reminderMinutes) {
+                        Uri uri = reminderIndex < results.length ? results[reminderIndex].uri : null;
+                        if (uri != null) {
+                            index.recordReminder(Long.parseLong(uri.getLastPathSegment()), eventId, minutes);
+                        }
+                        reminderIndex++;
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * 记录临时键对应的真实 ID，并把提交期间以临时键排队的变更改为真实 ID
+     */
+    private synchronized void resolve(long tempKey, long eventId) {
+        resolvedKeys.put(tempKey, eventId);
+        PendingWrite queued = pending.remove(tempKey);
+        if (queued != null) {
+            PendingWrite rekeyed = queued.withEventKey(eventId);
+            try {
+                writeJournal(rekeyed);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            pending.put(eventId, rekeyed);
+        }
+    }
+
+    /**
+     * 将未能提交的变更放回队列，与提交期间新排队的同一事件的变更合并
+     */
+    private synchronized void requeue(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            try {
+                mergeIntoPending(write, false);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                pending.put(write.eventKey, write);
+            }
+        }
+    }
+
+    private synchronized void loadJournal() {
+        try (Cursor cursor = database().query(TABLE_PENDING_WRITES, null, null, null,
+                null, null, COLUMN_JOURNAL_ID + " ASC")) {
+            while (cursor.moveToNext()) {
+                PendingWrite write = new PendingWrite(
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_EVENT_KEY)),
+                        PendingWrite.Op.fromCode(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_OP))),
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_CALENDAR_ID)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TITLE)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)),
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_DTSTART)),
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_DTEND)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TIME_ZONE)),
+                        PendingWrite.decodeReminders(
+                                cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_REMINDER_MINUTES))));
+                write.journalId = cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_JOURNAL_ID));
+                if (write.eventKey < 0 && write.op != PendingWrite.Op.INSERT) {
+                    // 插入已在上次运行时提交：以真实 ID 重放
+                    long eventId = resolvedEventId(write.eventKey);
+                    if (eventId != -1) {
+                        write = write.withEventKey(eventId);
+                    }
+                }
+                mergeIntoPending(write, true);
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * 分配一个新的临时键（-2、-3 ……），编号保存在数据库中，进程重启后也不会重复
+     */
+    private long allocateTempKey() {
+        ContentValues values = new ContentValues();
+        values.putNull(COLUMN_EVENT_ID);
+        values.put(COLUMN_TOUCHED_AT, System.currentTimeMillis());
+        return -1 - database().insertOrThrow(TABLE_TEMP_KEYS, null, values);
+    }
+
+    private void recordTempKey(long tempKey, long eventId) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_KEY_ID, -1 - tempKey);
+        values.put(COLUMN_EVENT_ID, eventId);
+        values.put(COLUMN_TOUCHED_AT, System.currentTimeMillis());
+        database().insertWithOnConflict(TABLE_TEMP_KEYS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * 删除超过保留时间、且没有未提交的变更引用的临时键，并清空内存中的缓存
+     * AUTOINCREMENT 保证删除后编号不会被重新分配
+     *
+     * @param now 当前时间（毫秒）
+     * @return 删除的临时键数
+     */
+    synchronized int pruneTempKeys(long now) {
+        int pruned = database().delete(TABLE_TEMP_KEYS, "(" + COLUMN_TOUCHED_AT + " IS NULL OR "
+                        + COLUMN_TOUCHED_AT + " < ?) AND " + COLUMN_KEY_ID + " NOT IN (SELECT -1 - "
+                        + COLUMN_EVENT_KEY + " FROM " + TABLE_PENDING_WRITES + " WHERE " + COLUMN_EVENT_KEY + " < -1)",
+                new String[]{String.valueOf(now - TEMP_KEY_RETENTION_MS)});
+        if (pruned > 0) {
+            resolvedKeys.clear();
+        }
+        return pruned;
+    }
+
+    private void pruneTempKeysQuietly(long now) {
+        try {
+            pruneTempKeys(now);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return 临时键对应的事件 ID；插入尚未提交或已被丢弃时返回 -1（调用方持有 this 锁）
+     */
+    private long resolvedEventId(long tempKey) {
+        Long cached = resolvedKeys.get(tempKey);
+        if (cached != null) {
+            return cached;
+        }
+        try (Cursor cursor = database().query(TABLE_TEMP_KEYS, new String[]{COLUMN_EVENT_ID},
+                COLUMN_KEY_ID + " = ? AND " + COLUMN_EVENT_ID + " IS NOT NULL",
+                new String[]{String.valueOf(-1 - tempKey)}, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return -1;
+            }
+            long eventId = cursor.getLong(0);
+            resolvedKeys.put(tempKey, eventId);
+            return eventId;
+        }
+    }
+
+    private long resolvedEventIdQuietly(long tempKey) {
+        try {
+            return resolvedEventId(tempKey);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private void writeJournal(PendingWrite write) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_EVENT_KEY, write.eventKey);
+        values.put(COLUMN_OP, write.op.code);
+        values.put(COLUMN_CALENDAR_ID, write.calendarId);
+        values.put(COLUMN_TITLE, write.title);
+        values.put(COLUMN_DESCRIPTION, write.description);
+        values.put(COLUMN_DTSTART, write.startTime);
+        values.put(COLUMN_DTEND, write.endTime);
+        values.put(COLUMN_TIME_ZONE, write.timeZone);
+        values.put(COLUMN_REMINDER_MINUTES, write.encodeReminders());
+        if (write.journalId == -1) {
+            write.journalId = database().insertOrThrow(TABLE_PENDING_WRITES, null, values);
+        } else {
+            database().update(TABLE_PENDING_WRITES, values, COLUMN_JOURNAL_ID + " = ?",
+                    new String[]{String.valueOf(write.journalId)});
+        }
+    }
+
+    private void deleteJournal(long journalId) {
+        if (journalId != -1) {
+            database().delete(TABLE_PENDING_WRITES, COLUMN_JOURNAL_ID + " = ?",
+                    new String[]{String.valueOf(journalId)});
+        }
+    }
+
+    private void deleteJournalQuietly(long journalId) {
+        try {
+            deleteJournal(journalId);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private SQLiteDatabase database() {
+        return ExpiryIndex.getInstance(context).getWritableDatabase();
+    }
+
+    private static Uri eventUri(long eventId) {
+        return Uri.withAppendedPath(CalendarContract.Events.CONTENT_URI, String.valueOf(eventId));
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.preservationmanager.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 流式 CSV 读取器（RFC 4180）- 逐条读取记录，不把整个文件读入内存
+ * <p>
+ * 支持双引号包裹的字段、字段内的逗号、换行和 "" 转义，以及 \n、\r\n 换行和开头的 BOM。
+ * 当前记录保存在可复用的字符缓冲区中，数字和日期字段直接从缓冲区解析，不创建中间字符串。
+ */
+final class CsvReader {
+
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] input = new char[INPUT_BUFFER_SIZE];
+    private int inputPos;
+    private int inputLimit;
+    private boolean started;
+
+    /**
+     * 当前记录所有字段的内容依次存放在 row 中，第 i 个字段为 row[fieldStart[i], fieldEnd[i])
+     */
+    private char[] row = new char[256];
+    private int rowLength;
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private int fieldCount;
+
+    private int line = 1;
+    private int recordLine;
+
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 读取下一条记录，跳过空行
+     *
+     * @return 到达文件末尾时返回 false
+     */
+    boolean next() throws IOException {
+        if (!started) {
+            started = true;
+            if (fill() && input[inputPos] == '\uFEFF') {
+                inputPos++;
+            }
+        }
+        while (true) {
+            if (inputPos >= inputLimit && !fill()) {
+                return false;
+            }
+            char c = input[inputPos];
+            if (c == '\n' || c == '\r') {
+                consumeLineEnd();
+                continue;
+            }
+            readRecord();
+            return true;
+        }
+    }
+
+    private void readRecord() throws IOException {
+        recordLine = line;
+        rowLength = 0;
+        fieldCount = 0;
+        beginField();
+        boolean quoted = false;
+        boolean afterQuote = false;
+
+        while (inputPos < inputLimit || fill()) {
+            char c = input[inputPos];
+            if (quoted) {
+                inputPos++;
+                if (c == '"') {
+                    if ((inputPos < inputLimit || fill()) && input[inputPos] == '"') {
+                        inputPos++;
+                        append('"');
+                    } else {
+                        quoted = false;
+                        afterQuote = true;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    append(c);
+                }
+            } else if (c == ',') {
+                inputPos++;
+                endField();
+                beginField();
+                afterQuote = false;
+            } else if (c == '\n' || c == '\r') {
+                consumeLineEnd();
+                break;
+            } else if (c == '"' && !afterQuote && fieldStart[fieldCount] == rowLength) {
+                inputPos++;
+                quoted = true;
+            } else {
+                inputPos++;
+                append(c);
+            }
+        }
+        endField();
+    }
+
+    private void consumeLineEnd() throws IOException {
+        char c = input[inputPos++];
+        if (c == '\r' && (inputPos < inputLimit || fill()) && input[inputPos] == '\n') {
+            inputPos++;
+        }
+        line++;
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(input, 0, input.length);
+        inputPos = 0;
+        inputLimit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    private void beginField() {
+        if (fieldCount == fieldStart.length) {
+            fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+            fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+        }
+        fieldStart[fieldCount] = rowLength;
+    }
+
+    private void endField() {
+        fieldEnd[fieldCount++] = rowLength;
+    }
+
+    private void append(char c) {
+        if (rowLength == row.length) {
+            row = Arrays.copyOf(row, rowLength * 2);
+        }
+        row[rowLength++] = c;
+    }
+
+    /**
+     * @return 当前记录开始的行号（从 1 开始）
+     */
+    int getLineNumber() {
+        return recordLine;
+    }
+
+    int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return 去掉首尾空白后的字段内容，字段不存在时返回空字符串
+     */
+    String getString(int index) {
+        if (index >= fieldCount) {
+            return "";
+        }
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        return new String(row, start, end - start);
+    }
+
+    /**
+     * @return 字段不存在或只包含空白时返回 true
+     */
+    boolean isBlank(int index) {
+        return index >= fieldCount || trimStart(index) == fieldEnd[index];
+    }
+
+    /**
+     * 解析十进制整数（可带正负号）
+     *
+     * @throws NumberFormatException 字段不是整数或超出 int 范围
+     */
+    int getInt(int index) {
+        if (isBlank(index)) {
+            throw new NumberFormatException("empty field");
+        }
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        boolean negative = row[start] == '-';
+        int pos = row[start] == '-' || row[start] == '+' ? start + 1 : start;
+        if (pos == end) {
+            throw new NumberFormatException("no digits");
+        }
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = row[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("not a number");
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw new NumberFormatException("out of range");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * 解析 yyyy-MM-dd（也接受 yyyy/MM/dd 和 yyyy.MM.dd，月和日可以是一位数）
+     *
+     * @return 纪元日
+     * @throws IllegalArgumentException 日期格式或取值无效
+     */
+    long getEpochDay(int index) {
+        if (isBlank(index)) {
+            throw new IllegalArgumentException("empty date");
+        }
+        int start = trimStart(index);
+        return parseEpochDay(row, start, trimEnd(index, start));
+    }
+
+    /**
+     * 解析 chars[start, end) 中的日期，格式同 {@link #getEpochDay(int)}
+     *
+     * @return 纪元日
+     * @throws IllegalArgumentException 日期格式或取值无效
+     */
+    static long parseEpochDay(char[] chars, int start, int end) {
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        int part = 0;
+        int digits = 0;
+        for (int pos = start; pos < end; pos++) {
+            char c = chars[pos];
+            if (c >= '0' && c <= '9') {
+                if (++digits > (part == 0 ? 4 : 2)) {
+                    throw new IllegalArgumentException("invalid date");
+                }
+                if (part == 0) {
+                    year = year * 10 + (c - '0');
+                } else if (part == 1) {
+                    month = month * 10 + (c - '0');
+                } else {
+                    day = day * 10 + (c - '0');
+                }
+            } else if ((c == '-' || c == '/' || c == '.') && part < 2 && digits > 0) {
+                part++;
+                digits = 0;
+            } else {
+                throw new IllegalArgumentException("invalid date");
+            }
+        }
+        if (part != 2 || digits == 0
+                || month < 1 || month > 12 || day < 1 || day > DateEngine.lengthOfMonth(year, month - 1)) {
+            throw new IllegalArgumentException("invalid date");
+        }
+        return DateEngine.epochDay(year, month - 1, day);
+    }
+
+    private int trimStart(int index) {
+        int start = fieldStart[index];
+        int end = fieldEnd[index];
+        while (start < end && row[start] <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int index, int start) {
+        int end = fieldEnd[index];
+        while (end > start && row[end - 1] <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
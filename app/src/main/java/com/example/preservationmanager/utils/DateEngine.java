@@ -0,0 +1,325 @@
+package com.example.preservationmanager.utils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于纪元日（epoch day）的日期计算引擎 - CalendarUtils 时间方法的低开销替代
+ * <p>
+ * 每个时区创建时预先展开一段时间窗口内的时区偏移变化（夏令时切换等），
+ * 之后 "N 天后 HH:mm" 之类的计算只需整数运算和一次二分查找，不再为每次调用创建
+ * {@link java.util.Calendar}。窗口外的时间回退到 {@link ZoneRules} 计算，结果相同。
+ * <p>
+ * 计算结果与 {@link CalendarUtils#createDateTime} / {@link CalendarUtils#createFutureDateTime} 一致：
+ * 秒固定为 0，毫秒沿用当前时间的毫秒数；不存在的本地时间（夏令时开始时跳过的一小时）
+ * 按切换前的偏移换算，重复的本地时间（夏令时结束时）取标准时间。
+ * 同一个实例可被多个线程同时使用。批量计算时应取得一次实例后重复使用。
+ */
+public final class DateEngine {
+
+    static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    private static final long MILLIS_PER_HOUR = 60 * 60 * 1000L;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+
+    /**
+     * 预展开的偏移变化窗口：当前时间之前 2 年到之后 20 年
+     */
+    private static final long WINDOW_PAST_MS = 2 * 366 * MILLIS_PER_DAY;
+    private static final long WINDOW_FUTURE_MS = 20 * 366 * MILLIS_PER_DAY;
+
+    private static final Map<String, DateEngine> ENGINES = new ConcurrentHashMap<>();
+
+    private static volatile DateEngine defaultEngine;
+
+    private final String zoneId;
+    private final ZoneRules rules;
+    private final long windowStart;
+    private final long windowEnd;
+
+    /**
+     * 窗口内每次偏移变化的 UTC 时间，升序
+     */
+    private final long[] utcTransitions;
+
+    /**
+     * 每次变化生效时的本地时间（变化的 UTC 时间 + 变化后的偏移）
+     */
+    private final long[] wallTransitions;
+
+    /**
+     * offsets[0] 为窗口起点的偏移，offsets[i + 1] 为第 i 次变化之后的偏移（毫秒）
+     */
+    private final int[] offsets;
+
+    private DateEngine(String zoneId, long nowMillis) {
+        this.zoneId = zoneId;
+        this.rules = ZoneId.of(zoneId, ZoneId.SHORT_IDS).getRules();
+        this.windowStart = nowMillis - WINDOW_PAST_MS;
+        this.windowEnd = nowMillis + WINDOW_FUTURE_MS;
+
+        List<ZoneOffsetTransition> transitions = new ArrayList<>();
+        if (!rules.isFixedOffset()) {
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(windowStart));
+            while (transition != null && transition.toEpochSecond() * 1000 < windowEnd) {
+                transitions.add(transition);
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        }
+
+        int count = transitions.size();
+        utcTransitions = new long[count];
+        wallTransitions = new long[count];
+        offsets = new int[count + 1];
+        offsets[0] = rules.getOffset(Instant.ofEpochMilli(windowStart)).getTotalSeconds() * 1000;
+        for (int i = 0; i < count; i++) {
+            ZoneOffsetTransition transition = transitions.get(i);
+            utcTransitions[i] = transition.toEpochSecond() * 1000;
+            offsets[i + 1] = transition.getOffsetAfter().getTotalSeconds() * 1000;
+            wallTransitions[i] = utcTransitions[i] + offsets[i + 1];
+        }
+    }
+
+    /**
+     * 获取指定时区的引擎（每个时区只创建一次）
+     *
+     * @param zoneId 时区 ID（例如："Asia/Shanghai"）
+     * @return 日期引擎
+     */
+    public static DateEngine of(String zoneId) {
+        DateEngine engine = ENGINES.get(zoneId);
+        if (engine == null) {
+            engine = new DateEngine(zoneId, System.currentTimeMillis());
+            ENGINES.put(zoneId, engine);
+        }
+        return engine;
+    }
+
+    /**
+     * 获取当前默认时区的引擎，默认时区变化后自动重建
+     *
+     * @return 日期引擎
+     */
+    public static DateEngine forDefaultZone() {
+        String zoneId = TimeZone.getDefault().getID();
+        DateEngine engine = defaultEngine;
+        if (engine == null || !engine.zoneId.equals(zoneId)) {
+            engine = of(zoneId);
+            defaultEngine = engine;
+        }
+        return engine;
+    }
+
+    public String getZoneId() {
+        return zoneId;
+    }
+
+    /**
+     * 计算 N 天后 hour:minute 的时间戳，与 {@link CalendarUtils#createFutureDateTime} 结果相同
+     *
+     * @param daysFromNow 距今天数（正数表示未来）
+     * @param hour        小时
+     * @param minute      分钟
+     * @return 时间戳（毫秒）
+     */
+    public long futureDateTime(int daysFromNow, int hour, int minute) {
+        return futureDateTime(daysFromNow, hour, minute, System.currentTimeMillis());
+    }
+
+    /**
+     * 以 nowMillis 作为当前时间计算 N 天后 hour:minute 的时间戳
+     */
+    public long futureDateTime(int daysFromNow, int hour, int minute, long nowMillis) {
+        long nowWall = nowMillis + offsetAtUtc(nowMillis);
+        long epochDay = Math.floorDiv(nowWall, MILLIS_PER_DAY) + daysFromNow;
+        return wallToUtc(epochDay * MILLIS_PER_DAY + hour * MILLIS_PER_HOUR + minute * MILLIS_PER_MINUTE
+                + Math.floorMod(nowWall, 1000L));
+    }
+
+    /**
+     * 批量计算 N 天后 hour:minute 的时间戳，所有条目使用同一个当前时间
+     *
+     * @param daysFromNow 每个条目的距今天数
+     * @param hour        小时
+     * @param minute      分钟
+     * @param out         输出数组，长度不小于 daysFromNow.length
+     */
+    public void futureDateTimes(int[] daysFromNow, int hour, int minute, long[] out) {
+        long nowMillis = System.currentTimeMillis();
+        long nowWall = nowMillis + offsetAtUtc(nowMillis);
+        long today = Math.floorDiv(nowWall, MILLIS_PER_DAY);
+        long timeOfDay = hour * MILLIS_PER_HOUR + minute * MILLIS_PER_MINUTE + Math.floorMod(nowWall, 1000L);
+        for (int i = 0; i < daysFromNow.length; i++) {
+            out[i] = wallToUtc((today + daysFromNow[i]) * MILLIS_PER_DAY + timeOfDay);
+        }
+    }
+
+    /**
+     * 计算指定日期时间的时间戳，与 {@link CalendarUtils#createDateTime} 结果相同
+     *
+     * @param year   年份
+     * @param month  月份（0-11，超出范围时顺延）
+     * @param day    日期
+     * @param hour   小时
+     * @param minute 分钟
+     * @return 时间戳（毫秒）
+     */
+    public long dateTime(int year, int month, int day, int hour, int minute) {
+        return dateTime(year, month, day, hour, minute, System.currentTimeMillis());
+    }
+
+    /**
+     * 以 nowMillis 作为当前时间（只取其毫秒数）计算指定日期时间的时间戳
+     */
+    public long dateTime(int year, int month, int day, int hour, int minute, long nowMillis) {
+        long millisOfSecond = Math.floorMod(nowMillis + offsetAtUtc(nowMillis), 1000L);
+        return wallToUtc(epochDay(year, month, day) * MILLIS_PER_DAY
+                + hour * MILLIS_PER_HOUR + minute * MILLIS_PER_MINUTE + millisOfSecond);
+    }
+
+    /**
+     * @param utcMillis 时间戳（毫秒）
+     * @return 该时刻所在的本地纪元日
+     */
+    public long toEpochDay(long utcMillis) {
+        return Math.floorDiv(utcMillis + offsetAtUtc(utcMillis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * 计算某个本地纪元日 hour:minute:00.000 的时间戳
+     *
+     * @param epochDay 本地纪元日
+     * @param hour     小时
+     * @param minute   分钟
+     * @return 时间戳（毫秒）
+     */
+    public long atTime(long epochDay, int hour, int minute) {
+        return wallToUtc(epochDay * MILLIS_PER_DAY + hour * MILLIS_PER_HOUR + minute * MILLIS_PER_MINUTE);
+    }
+
+    /**
+     * 本地时间（以 UTC 纪元表示的墙上时间）转换为时间戳
+     *
+     * @param wallMillis 本地时间（毫秒）
+     * @return 时间戳（毫秒）
+     */
+    public long wallToUtc(long wallMillis) {
+        return wallMillis - offsetForWall(wallMillis);
+    }
+
+    /**
+     * 时间戳转换为本地时间（以 UTC 纪元表示的墙上时间）
+     *
+     * @param utcMillis 时间戳（毫秒）
+     * @return 本地时间（毫秒）
+     */
+    public long utcToWall(long utcMillis) {
+        return utcMillis + offsetAtUtc(utcMillis);
+    }
+
+    /**
+     * @param utcMillis 时间戳（毫秒）
+     * @return 该时刻的时区偏移（毫秒）
+     */
+    public int offsetAtUtc(long utcMillis) {
+        if (utcMillis < windowStart || utcMillis >= windowEnd) {
+            return rules.getOffset(Instant.ofEpochMilli(utcMillis)).getTotalSeconds() * 1000;
+        }
+        return offsets[countNotAfter(utcTransitions, utcMillis)];
+    }
+
+    private int offsetForWall(long wallMillis) {
+        // 窗口按 UTC 定义，本地时间与 UTC 最多相差一天
+        if (wallMillis < windowStart + MILLIS_PER_DAY || wallMillis >= windowEnd - MILLIS_PER_DAY) {
+            return offsetForWallSlow(wallMillis);
+        }
+        return offsets[countNotAfter(wallTransitions, wallMillis)];
+    }
+
+    private int offsetForWallSlow(long wallMillis) {
+        LocalDateTime local = LocalDateTime.ofEpochSecond(Math.floorDiv(wallMillis, 1000L),
+                (int) Math.floorMod(wallMillis, 1000L) * 1_000_000, ZoneOffset.UTC);
+        ZoneOffsetTransition transition = rules.getTransition(local);
+        if (transition != null) {
+            // 跳过的时间按切换前偏移换算；重复的时间取切换后（标准时间）
+            return (transition.isGap() ? transition.getOffsetBefore() : transition.getOffsetAfter())
+                    .getTotalSeconds() * 1000;
+        }
+        return rules.getOffset(local).getTotalSeconds() * 1000;
+    }
+
+    /**
+     * @return 升序数组中不大于 key 的元素个数
+     */
+    private static int countNotAfter(long[] sorted, long key) {
+        int index = Arrays.binarySearch(sorted, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * 公历日期转换为纪元日，月份和日期超出范围时按宽松规则顺延
+     *
+     * @param year  年份
+     * @param month 月份（0-11）
+     * @param day   日期（1 开始）
+     * @return 纪元日（1970-01-01 为 0）
+     */
+    public static long epochDay(int year, int month, int day) {
+        long y = year + Math.floorDiv(month, 12);
+        int m = Math.floorMod(month, 12) + 1;
+        // Howard Hinnant 的 days_from_civil 算法
+        y -= m <= 2 ? 1 : 0;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468 + (day - 1);
+    }
+
+    /**
+     * 纪元日加若干个月，目标月份没有对应日期时取该月最后一天（1 月 31 日加一个月为 2 月底）
+     *
+     * @param epochDay 纪元日
+     * @param months   月数（可为负数）
+     * @return 纪元日
+     */
+    public static long plusMonths(long epochDay, int months) {
+        // Howard Hinnant 的 civil_from_days 算法
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 2 : mp - 10);
+        long year = yearOfEra + era * 400 + (month <= 1 ? 1 : 0);
+
+        long totalMonths = year * 12 + month + months;
+        int targetYear = (int) Math.floorDiv(totalMonths, 12);
+        int targetMonth = (int) Math.floorMod(totalMonths, 12);
+        return epochDay(targetYear, targetMonth, Math.min(day, lengthOfMonth(targetYear, targetMonth)));
+    }
+
+    /**
+     * @param year  年份
+     * @param month 月份（0-11）
+     * @return 该月天数
+     */
+    static int lengthOfMonth(int year, int month) {
+        if (month == 1) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 3 || month == 5 || month == 8 || month == 10 ? 30 : 31;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.preservationmanager.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 带索引的二叉最小堆 - 按到期时间排列的提醒，每个键最多一条
+ * <p>
+ * 查看最早到期的条目 O(1)；添加、修改和按键取消都是 O(log n)。
+ * 时间和键分别存放在并行数组中，另用一个 Map 记录键在堆中的位置。不是线程安全的。
+ */
+final class DeadlineHeap {
+
+    private long[] times;
+    private String[] keys;
+    private int size;
+    private final Map<String, Integer> positions;
+
+    DeadlineHeap() {
+        this(16);
+    }
+
+    DeadlineHeap(int capacity) {
+        int initial = Math.max(capacity, 16);
+        times = new long[initial];
+        keys = new String[initial];
+        positions = new HashMap<>(initial * 2);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(String key) {
+        return positions.containsKey(key);
+    }
+
+    /**
+     * @return 键的到期时间，不存在时返回 -1
+     */
+    long getTime(String key) {
+        Integer position = positions.get(key);
+        return position != null ? times[position] : -1;
+    }
+
+    /**
+     * @return 最早的到期时间，堆为空时返回 {@link Long#MAX_VALUE}
+     */
+    long peekTime() {
+        return size > 0 ? times[0] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return 最早到期的键，堆为空时返回 null
+     */
+    String peekKey() {
+        return size > 0 ? keys[0] : null;
+    }
+
+    /**
+     * 添加条目，键已存在时修改其到期时间
+     *
+     * @param key  键
+     * @param time 到期时间
+     */
+    void put(String key, long time) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            long old = times[position];
+            times[position] = time;
+            if (time < old) {
+                siftUp(position);
+            } else if (time > old) {
+                siftDown(position);
+            }
+            return;
+        }
+
+        if (size == times.length) {
+            times = Arrays.copyOf(times, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        times[size] = time;
+        keys[size] = key;
+        positions.put(key, size);
+        siftUp(size++);
+    }
+
+    /**
+     * 按键删除条目
+     *
+     * @return 键不存在时返回 false
+     */
+    boolean remove(String key) {
+        Integer position = positions.remove(key);
+        if (position == null) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    /**
+     * 删除并返回最早到期的键
+     *
+     * @return 堆为空时返回 null
+     */
+    String poll() {
+        if (size == 0) {
+            return null;
+        }
+        String key = keys[0];
+        positions.remove(key);
+        removeAt(0);
+        return key;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0, size, null);
+        size = 0;
+        positions.clear();
+    }
+
+    /**
+     * 用最后一个条目填补 position 的空位，再向上或向下调整
+     */
+    private void removeAt(int position) {
+        int last = --size;
+        if (position != last) {
+            long movedTime = times[last];
+            String movedKey = keys[last];
+            times[position] = movedTime;
+            keys[position] = movedKey;
+            positions.put(movedKey, position);
+            siftDown(position);
+            if (keys[position] == movedKey) {
+                siftUp(position);
+            }
+        }
+        keys[last] = null;
+    }
+
+    private void siftUp(int position) {
+        long time = times[position];
+        String key = keys[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (times[parent] <= time) {
+                break;
+            }
+            move(parent, position);
+            position = parent;
+        }
+        place(key, time, position);
+    }
+
+    private void siftDown(int position) {
+        long time = times[position];
+        String key = keys[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && times[right] < times[child]) {
+                child = right;
+            }
+            if (time <= times[child]) {
+                break;
+            }
+            move(child, position);
+            position = child;
+        }
+        place(key, time, position);
+    }
+
+    private void move(int from, int to) {
+        times[to] = times[from];
+        keys[to] = keys[from];
+        positions.put(keys[to], to);
+    }
+
+    private void place(String key, long time, int position) {
+        times[position] = time;
+        keys[position] = key;
+        positions.put(key, position);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.preservationmanager.utils;
+
+import android.database.sqlite.SQLiteDatabaseLockedException;
+import android.database.sqlite.SQLiteException;
+import android.os.RemoteException;
+import android.os.TransactionTooLargeException;
+
+/**
+ * 日历操作失败的类别，决定调用方应该如何处理
+ */
+public enum ErrorCategory {
+
+    /**
+     * 缺少日历权限或权限已被撤销，重试无效，需要重新申请权限
+     */
+    PERMISSION_DENIED,
+
+    /**
+     * 暂时性故障（数据库被锁、提供者进程重启等），稍后重试通常会成功
+     */
+    TRANSIENT,
+
+    /**
+     * 单次 Binder 事务超过大小限制，需要拆分成更小的批次
+     */
+    TOO_LARGE,
+
+    /**
+     * 参数无效，重试无效
+     */
+    INVALID_ARGUMENT,
+
+    /**
+     * 目标事件或日历不存在
+     */
+    NOT_FOUND,
+
+    /**
+     * 其他未知错误
+     */
+    UNKNOWN;
+
+    /**
+     * 根据异常（及其 cause 链）判断失败类别
+     *
+     * @param error 异常
+     * @return 失败类别
+     */
+    public static ErrorCategory classify(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            ErrorCategory category = classifySingle(t);
+            if (category != UNKNOWN) {
+                return category;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private static ErrorCategory classifySingle(Throwable t) {
+        if (t instanceof SecurityException) {
+            return PERMISSION_DENIED;
+        }
+        if (t instanceof TransactionTooLargeException) {
+            return TOO_LARGE;
+        }
+        if (t instanceof RemoteException || t instanceof SQLiteDatabaseLockedException) {
+            // DeadObjectException 等 Binder 故障：提供者进程可能正在重启
+            return TRANSIENT;
+        }
+        if (t instanceof SQLiteException) {
+            // 跨进程传递后只保留 SQLiteException 和消息，按消息识别锁冲突
+            String message = t.getMessage();
+            if (message != null && (message.contains("locked") || message.contains("busy"))) {
+                return TRANSIENT;
+            }
+            return UNKNOWN;
+        }
+        if (t instanceof IllegalArgumentException) {
+            return INVALID_ARGUMENT;
+        }
+        return UNKNOWN;
+    }
+}
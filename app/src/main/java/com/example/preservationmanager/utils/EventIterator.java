@@ -0,0 +1,147 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.provider.CalendarContract;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 流式遍历应用日历中的事件
+ * <p>
+ * 按 _ID 键集分页：每页查询 {@code _ID > 上一页最后的 ID}，逐行读取 Cursor，
+ * 读完一页立即关闭其 Cursor 再查询下一页。任何时刻最多只有一页 Cursor 打开，
+ * 内存占用与事件总数无关。遍历结束时自动关闭；提前结束时必须调用 {@link #close()}，
+ * 推荐使用 try-with-resources。
+ * <p>
+ * 查询某一页失败（例如权限被撤销）时遍历同样结束，{@link #hasNext()} 返回 false 后
+ * 通过 {@link #getFailure()} 区分读完全部事件和读取失败。
+ */
+public class EventIterator implements Iterator<CalendarEvent>, Closeable {
+
+    /**
+     * 默认每页行数
+     */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    private final ContentResolver contentResolver;
+    private final String selection;
+    private final String[] selectionArgs;
+    private final int pageSize;
+
+    private Cursor cursor;
+    private int rowsInPage;
+    private long lastEventId = -1;
+    private boolean hasMorePages = true;
+    private boolean closed;
+    private boolean rowReady;
+    private ErrorCategory failure;
+
+    /**
+     * @param contentResolver ContentResolver
+     * @param calendarId      日历 ID
+     * @param startFrom       开始时间下限（毫秒，含），Long.MIN_VALUE 表示不限
+     * @param startTo         开始时间上限（毫秒，不含），Long.MAX_VALUE 表示不限
+     * @param pageSize        每页行数
+     */
+    EventIterator(ContentResolver contentResolver, long calendarId, long startFrom, long startTo, int pageSize) {
+        this.contentResolver = contentResolver;
+        this.pageSize = pageSize;
+        this.selection = CalendarContract.Events.CALENDAR_ID + " = ? AND "
+                + CalendarContract.Events._ID + " > ? AND "
+                + CalendarContract.Events.DTSTART + " >= ? AND "
+                + CalendarContract.Events.DTSTART + " < ? AND "
+                + CalendarContract.Events.DELETED + " = 0";
+        this.selectionArgs = new String[]{
+                String.valueOf(calendarId), null, String.valueOf(startFrom), String.valueOf(startTo)};
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (rowReady) {
+            return true;
+        }
+
+        while (true) {
+            if (cursor != null && cursor.moveToNext()) {
+                rowsInPage++;
+                rowReady = true;
+                return true;
+            }
+
+            // 当前页已读完：不足一页说明没有更多数据
+            if (cursor != null) {
+                hasMorePages = rowsInPage >= pageSize;
+                cursor.close();
+                cursor = null;
+            }
+            if (!hasMorePages || !openNextPage()) {
+                close();
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public CalendarEvent next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        rowReady = false;
+        CalendarEvent event = CalendarEvent.fromCursor(cursor);
+        lastEventId = event.getEventId();
+        return event;
+    }
+
+    private boolean openNextPage() {
+        selectionArgs[1] = String.valueOf(lastEventId);
+        // 日历提供者直接拼接排序子句，LIMIT 限制每页行数；
+        // 即使提供者忽略 LIMIT，Cursor 仍按窗口懒加载，结果依然正确
+        String sortOrder = CalendarContract.Events._ID + " ASC LIMIT " + pageSize;
+        try {
+            cursor = contentResolver.query(CalendarContract.Events.CONTENT_URI, CalendarUtils.EVENT_PROJECTION,
+                    selection, selectionArgs, sortOrder);
+        } catch (RuntimeException e) {
+            failure = ErrorCategory.classify(e);
+            if (failure == ErrorCategory.PERMISSION_DENIED) {
+                CalendarPermissionState.invalidate();
+            }
+            cursor = null;
+            return false;
+        }
+        rowsInPage = 0;
+        if (cursor == null) {
+            // 日历提供者不可用
+            failure = ErrorCategory.UNKNOWN;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 获取遍历提前结束的原因
+     *
+     * @return 查询某一页失败时返回失败类别，读完全部事件（或尚未结束）时返回 null
+     */
+    public ErrorCategory getFailure() {
+        return failure;
+    }
+
+    /**
+     * 关闭当前打开的 Cursor，之后 hasNext() 返回 false
+     */
+    @Override
+    public void close() {
+        closed = true;
+        rowReady = false;
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+    }
+}
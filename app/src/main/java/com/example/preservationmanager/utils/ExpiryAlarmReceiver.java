@@ -0,0 +1,160 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.preservationmanager.R;
+
+import java.util.List;
+
+/**
+ * 应用内提醒的接收器 - 闹钟到期时发送通知，开机和应用更新后重新注册闹钟
+ * <p>
+ * 在 AndroidManifest.xml 中注册（不导出），并监听 BOOT_COMPLETED 和 MY_PACKAGE_REPLACED。
+ * 数据库操作在后台线程中进行，通过 {@link #goAsync()} 延长广播的生命周期。
+ * 提醒在通知发送成功后才删除；没有通知权限或发送失败时保留，{@link #RETRY_DELAY_MS} 后重试。
+ */
+public class ExpiryAlarmReceiver extends BroadcastReceiver {
+
+    static final String CHANNEL_ID = "expiry_alarms";
+
+    /**
+     * 一次到期的提醒超过此数量时合并为一条汇总通知
+     */
+    static final int MAX_SEPARATE_NOTIFICATIONS = 5;
+
+    /**
+     * 通知无法发送时重试的间隔
+     */
+    static final long RETRY_DELAY_MS = 15 * 60 * 1000L;
+
+    private static final String NOTIFICATION_TAG = "expiry_alarm";
+    private static final int SUMMARY_NOTIFICATION_ID = 0;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!ExpiryAlarmScheduler.ACTION_ALARM.equals(action)
+                && !Intent.ACTION_BOOT_COMPLETED.equals(action)
+                && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        PendingResult result = goAsync();
+        new Thread(() -> {
+            try {
+                ExpiryAlarmScheduler scheduler = ExpiryAlarmScheduler.getInstance(appContext);
+                if (ExpiryAlarmScheduler.ACTION_ALARM.equals(action)) {
+                    long now = System.currentTimeMillis();
+                    List<ExpiryAlarmScheduler.Alarm> due = scheduler.peekDue(now);
+                    if (notify(appContext, due)) {
+                        scheduler.complete(due);
+                    } else {
+                        scheduler.defer(now + RETRY_DELAY_MS);
+                    }
+                } else {
+                    scheduler.rearm();
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                result.finish();
+            }
+        }, "ExpiryAlarmReceiver").start();
+    }
+
+    /**
+     * 为到期的提醒发送通知
+     *
+     * @param context 上下文
+     * @param alarms  到期的提醒
+     * @return 通知已发送（或没有到期的提醒）时返回 true；没有通知权限或发送失败时返回 false
+     */
+    static boolean notify(Context context, List<ExpiryAlarmScheduler.Alarm> alarms) {
+        if (alarms.isEmpty()) {
+            return true;
+        }
+        if (!canNotify(context)) {
+            return false;
+        }
+        createChannel(context);
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        try {
+            if (alarms.size() <= MAX_SEPARATE_NOTIFICATIONS) {
+                for (ExpiryAlarmScheduler.Alarm alarm : alarms) {
+                    NotificationCompat.Builder builder = builder(context, alarm.triggerTime)
+                            .setContentTitle(alarm.title);
+                    if (alarm.text != null) {
+                        builder.setContentText(alarm.text)
+                                .setStyle(new NotificationCompat.BigTextStyle().bigText(alarm.text));
+                    }
+                    // 同一个键的通知相互替换
+                    manager.notify(NOTIFICATION_TAG + ":" + alarm.key, 0, builder.build());
+                }
+                return true;
+            }
+
+            NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+            for (int i = 0; i < MAX_SEPARATE_NOTIFICATIONS; i++) {
+                style.addLine(alarms.get(i).title);
+            }
+            int more = alarms.size() - MAX_SEPARATE_NOTIFICATIONS;
+            style.setSummaryText("还有 " + more + " 件");
+            String title = alarms.size() + " 件商品即将过期";
+            manager.notify(NOTIFICATION_TAG, SUMMARY_NOTIFICATION_ID,
+                    builder(context, alarms.get(alarms.size() - 1).triggerTime)
+                            .setContentTitle(title)
+                            .setContentText(alarms.get(0).title)
+                            .setStyle(style)
+                            .build());
+            return true;
+        } catch (RuntimeException e) {
+            // 通知权限在检查之后被撤销，或通知内容无效
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static NotificationCompat.Builder builder(Context context, long when) {
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_stat_expiry)
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setWhen(when)
+                .setShowWhen(true)
+                .setAutoCancel(true);
+    }
+
+    private static boolean canNotify(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            return false;
+        }
+        return NotificationManagerCompat.from(context).areNotificationsEnabled();
+    }
+
+    private static void createChannel(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager != null) {
+            // 渠道已存在时此调用不做任何事
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "保质期提醒",
+                    NotificationManager.IMPORTANCE_HIGH);
+            channel.setDescription("商品即将过期时的提醒");
+            manager.createNotificationChannel(channel);
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package com.example.preservationmanager.utils;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.preservationmanager.utils.ExpiryIndexDatabase.*;
+
+/**
+ * 应用内过期提醒 - 不依赖系统日历的提醒方式
+ * <p>
+ * 所有提醒保存在本地数据库的 expiry_alarms 表中，进程内按到期时间维护一个 {@link DeadlineHeap}，
+ * 添加和取消都是 O(log n)。无论有多少条提醒，AlarmManager 中只注册最早的一个；
+ * 到期后由 {@link ExpiryAlarmReceiver} 取出所有已到期的提醒发送通知，再注册下一个。
+ * 堆中只保存键和时间，标题和内容在发送通知时才从数据库读取。
+ */
+public final class ExpiryAlarmScheduler {
+
+    /**
+     * 闹钟到期时发送给 {@link ExpiryAlarmReceiver} 的 action
+     */
+    static final String ACTION_ALARM = "com.example.preservationmanager.action.EXPIRY_ALARM";
+
+    /**
+     * 所有提醒共用同一个 PendingIntent，重新注册时覆盖之前的闹钟
+     */
+    private static final int REQUEST_CODE = 2445;
+
+    /**
+     * 闹钟可能被系统略微提前或推迟，到期时间在此范围内的提醒一并发送
+     */
+    static final long FIRE_TOLERANCE_MS = 1000;
+
+    static final String KEY_PREFIX_EVENT = "event:";
+    static final String KEY_PREFIX_PRODUCT = "product:";
+
+    private static volatile ExpiryAlarmScheduler instance;
+
+    /**
+     * 一条已到期的提醒
+     */
+    static final class Alarm {
+        final String key;
+        final long triggerTime;
+        final String title;
+        final String text;
+
+        Alarm(String key, long triggerTime, String title, String text) {
+            this.key = key;
+            this.triggerTime = triggerTime;
+            this.title = title;
+            this.text = text;
+        }
+    }
+
+    private final Context context;
+    private DeadlineHeap heap;
+    private long armedTime = -1;
+
+    /**
+     * 到期的提醒无法发送时推迟闹钟，在此时间之前不触发
+     */
+    private long deferredUntil;
+
+    private ExpiryAlarmScheduler(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * 获取进程内唯一的实例
+     *
+     * @param context 上下文
+     * @return 调度器实例
+     */
+    public static ExpiryAlarmScheduler getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ExpiryAlarmScheduler.class) {
+                if (instance == null) {
+                    instance = new ExpiryAlarmScheduler(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 丢弃进程内实例，下次调用 {@link #getInstance(Context)} 时重新从数据库加载（测试使用）
+     */
+    static void resetForTesting() {
+        synchronized (ExpiryAlarmScheduler.class) {
+            instance = null;
+        }
+    }
+
+    /**
+     * @return 日历事件对应的提醒键，用于 {@link ReminderBackend#IN_APP}
+     */
+    public static String eventKey(long eventId) {
+        return KEY_PREFIX_EVENT + eventId;
+    }
+
+    /**
+     * @return 商品对应的提醒键，用于 {@link #scheduleAll(List)}
+     */
+    public static String productKey(String productId) {
+        return KEY_PREFIX_PRODUCT + productId;
+    }
+
+    /**
+     * 添加提醒，键已存在时替换
+     * 提醒时间固定，不随事件移动（时区变化后）重新计算
+     *
+     * @param key             提醒键
+     * @param triggerAtMillis 提醒时间（毫秒），早于当前时间的提醒会立即发送
+     * @param title           通知标题
+     * @param text            通知内容（可为 null）
+     * @return 是否成功
+     */
+    public synchronized boolean schedule(String key, long triggerAtMillis, String title, String text) {
+        return schedule(key, triggerAtMillis, -1, title, text);
+    }
+
+    /**
+     * 添加事件的提醒，键已存在时替换
+     *
+     * @param anchorTime 事件开始时间（毫秒），事件移动后按 {@link #rebaseAll(Map)} 重新计算提醒时间；-1 表示不随事件移动
+     */
+    synchronized boolean schedule(String key, long triggerAtMillis, long anchorTime, String title, String text) {
+        if (key == null || title == null) {
+            return false;
+        }
+        try {
+            DeadlineHeap heap = heap();
+            database().insertWithOnConflict(TABLE_ALARMS, null,
+                    values(key, triggerAtMillis, anchorTime, title, text), SQLiteDatabase.CONFLICT_REPLACE);
+            heap.put(key, triggerAtMillis);
+            rearmIfNeeded();
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 按商品批量添加提醒，在一个事务中写入，最后只注册一次闹钟
+     * <p>
+     * 提醒时间为事件开始时间减去提前的分钟数，键为 {@link #productKey(String)}，
+     * 同一商品再次添加时替换之前的提醒。商品的日历事件因时区变化移动时，提醒随之移动。
+     *
+     * @param reminders 商品提醒，无效的条目被跳过
+     * @return 添加的提醒数，失败返回 -1
+     */
+    public synchronized int scheduleAll(List<ProductReminder> reminders) {
+        try {
+            DeadlineHeap heap = heap();
+            List<String> keys = new ArrayList<>(reminders.size());
+            long[] times = new long[reminders.size()];
+            SQLiteDatabase db = database();
+            db.beginTransactionNonExclusive();
+            try {
+                for (ProductReminder reminder : reminders) {
+                    if (reminder == null || reminder.getProductId() == null || !reminder.isValid()) {
+                        continue;
+                    }
+                    String key = productKey(reminder.getProductId());
+                    long time = reminder.getStartTime() - reminder.getReminderMinutesBefore() * 60_000L;
+                    db.insertWithOnConflict(TABLE_ALARMS, null,
+                            values(key, time, reminder.getStartTime(), reminder.getTitle(),
+                                    reminder.getDescription()),
+                            SQLiteDatabase.CONFLICT_REPLACE);
+                    times[keys.size()] = time;
+                    keys.add(key);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            // 事务提交后再修改堆，保证两者一致
+            for (int i = 0; i < keys.size(); i++) {
+                heap.put(keys.get(i), times[i]);
+            }
+            rearmIfNeeded();
+            return keys.size();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * 取消提醒
+     *
+     * @param key 提醒键
+     * @return 提醒存在并已取消时返回 true
+     */
+    public synchronized boolean cancel(String key) {
+        return cancelAll(Collections.singletonList(key)) > 0;
+    }
+
+    /**
+     * 批量取消提醒，在一个事务中删除
+     *
+     * @param keys 提醒键，不存在的键被忽略
+     * @return 取消的提醒数，失败返回 -1
+     */
+    public synchronized int cancelAll(Collection<String> keys) {
+        try {
+            DeadlineHeap heap = heap();
+            List<String> present = new ArrayList<>();
+            for (String key : keys) {
+                if (key != null && heap.contains(key)) {
+                    present.add(key);
+                }
+            }
+            if (present.isEmpty()) {
+                return 0;
+            }
+            SQLiteDatabase db = database();
+            db.beginTransactionNonExclusive();
+            try {
+                String[] args = new String[1];
+                for (String key : present) {
+                    args[0] = key;
+                    db.delete(TABLE_ALARMS, COLUMN_ALARM_KEY + " = ?", args);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            for (String key : present) {
+                heap.remove(key);
+            }
+            rearmIfNeeded();
+            return present.size();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * 事件移动（例如因时区变化）后批量重新计算提醒时间，在一个事务中写入
+     * 新的提醒时间为新的开始时间减去提醒原本提前的时长，与当前提醒时间无关，重复调用结果相同
+     *
+     * @param startTimes 提醒键 → 事件新的开始时间（毫秒），不存在或不随事件移动的提醒被忽略
+     * @return 修改的提醒数，失败返回 -1
+     */
+    synchronized int rebaseAll(Map<String, Long> startTimes) {
+        try {
+            DeadlineHeap heap = heap();
+            List<String> keys = new ArrayList<>();
+            List<Long> times = new ArrayList<>();
+            SQLiteDatabase db = database();
+            db.beginTransactionNonExclusive();
+            try {
+                ContentValues values = new ContentValues();
+                String[] args = new String[1];
+                for (Map.Entry<String, Long> start : startTimes.entrySet()) {
+                    args[0] = start.getKey();
+                    long time;
+                    try (Cursor cursor = db.query(TABLE_ALARMS,
+                            new String[]{COLUMN_TRIGGER_TIME, COLUMN_ANCHOR_TIME},
+                            COLUMN_ALARM_KEY + " = ? AND " + COLUMN_ANCHOR_TIME + " IS NOT NULL",
+                            args, null, null, null)) {
+                        if (!cursor.moveToFirst() || cursor.getLong(1) == start.getValue()) {
+                            continue;
+                        }
+                        time = start.getValue() - (cursor.getLong(1) - cursor.getLong(0));
+                    }
+                    values.put(COLUMN_TRIGGER_TIME, time);
+                    values.put(COLUMN_ANCHOR_TIME, start.getValue());
+                    db.update(TABLE_ALARMS, values, COLUMN_ALARM_KEY + " = ?", args);
+                    keys.add(start.getKey());
+                    times.add(time);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                heap.put(keys.get(i), times.get(i));
+            }
+            rearmIfNeeded();
+            return keys.size();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * @return 提醒键的提醒时间，不存在时返回 -1
+     */
+    public synchronized long getTriggerTime(String key) {
+        try {
+            return heap().getTime(key);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * @return 最早的提醒时间，没有提醒时返回 -1
+     */
+    public synchronized long getNextTriggerTime() {
+        try {
+            DeadlineHeap heap = heap();
+            return heap.isEmpty() ? -1 : heap.peekTime();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * @return 等待中的提醒数，失败返回 -1
+     */
+    public synchronized int size() {
+        try {
+            return heap().size();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * 查询所有在 now（含容差）之前到期的提醒，不删除
+     * 通知发送成功后调用 {@link #complete(List)} 删除，无法发送时调用 {@link #defer(long)} 稍后重试
+     *
+     * @param now 当前时间（毫秒）
+     * @return 按提醒时间排列的到期提醒，失败时返回空列表
+     */
+    synchronized List<Alarm> peekDue(long now) {
+        List<Alarm> due = new ArrayList<>();
+        try {
+            long limit = now + FIRE_TOLERANCE_MS;
+            if (heap().peekTime() > limit) {
+                return due;
+            }
+            // 堆和表的内容一致，到期的行可以直接用 trigger_time 索引范围查询取出
+            try (Cursor cursor = database().query(TABLE_ALARMS,
+                    new String[]{COLUMN_ALARM_KEY, COLUMN_TRIGGER_TIME, COLUMN_TITLE, COLUMN_TEXT},
+                    COLUMN_TRIGGER_TIME + " <= ?", new String[]{String.valueOf(limit)},
+                    null, null, COLUMN_TRIGGER_TIME)) {
+                while (cursor.moveToNext()) {
+                    due.add(new Alarm(cursor.getString(0), cursor.getLong(1),
+                            cursor.getString(2), cursor.getString(3)));
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return due;
+    }
+
+    /**
+     * 删除已发送通知的提醒，然后注册下一个闹钟
+     * 发送期间被重新安排到其它时间的提醒保留
+     *
+     * @param alarms {@link #peekDue(long)} 返回的提醒
+     */
+    synchronized void complete(List<Alarm> alarms) {
+        try {
+            DeadlineHeap heap = heap();
+            List<Alarm> removed = new ArrayList<>(alarms.size());
+            SQLiteDatabase db = database();
+            db.beginTransactionNonExclusive();
+            try {
+                String[] args = new String[2];
+                for (Alarm alarm : alarms) {
+                    args[0] = alarm.key;
+                    args[1] = String.valueOf(alarm.triggerTime);
+                    if (db.delete(TABLE_ALARMS, COLUMN_ALARM_KEY + " = ? AND "
+                            + COLUMN_TRIGGER_TIME + " = ?", args) > 0) {
+                        removed.add(alarm);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            for (Alarm alarm : removed) {
+                heap.remove(alarm.key);
+            }
+            deferredUntil = 0;
+            rearmIfNeeded();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 到期的提醒暂时无法发送（例如没有通知权限）时保留，until 之前不再触发闹钟
+     *
+     * @param until 下次尝试的时间（毫秒）
+     */
+    synchronized void defer(long until) {
+        deferredUntil = until;
+        try {
+            heap();
+            rearmIfNeeded();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 重新注册闹钟（开机和应用更新后系统会清除所有闹钟）
+     */
+    synchronized void rearm() {
+        armedTime = -1;
+        try {
+            heap();
+            rearmIfNeeded();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 最早的提醒时间变化时更新 AlarmManager，没有提醒时取消闹钟
+     */
+    private void rearmIfNeeded() {
+        long next = heap.isEmpty() ? -1 : Math.max(heap.peekTime(), deferredUntil);
+        if (next == armedTime) {
+            return;
+        }
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            return;
+        }
+        PendingIntent operation = PendingIntent.getBroadcast(context, REQUEST_CODE,
+                new Intent(context, ExpiryAlarmReceiver.class).setAction(ACTION_ALARM),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        if (next == -1) {
+            alarmManager.cancel(operation);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            // 没有精确闹钟权限时退回非精确闹钟，系统可能推迟几分钟
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next, operation);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next, operation);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, next, operation);
+        }
+        armedTime = next;
+    }
+
+    /**
+     * 首次使用时从数据库加载所有提醒
+     */
+    private DeadlineHeap heap() {
+        if (heap == null) {
+            try (Cursor cursor = database().query(TABLE_ALARMS,
+                    new String[]{COLUMN_ALARM_KEY, COLUMN_TRIGGER_TIME}, null, null, null, null, null)) {
+                DeadlineHeap loaded = new DeadlineHeap(cursor.getCount());
+                while (cursor.moveToNext()) {
+                    loaded.put(cursor.getString(0), cursor.getLong(1));
+                }
+                heap = loaded;
+            }
+        }
+        return heap;
+    }
+
+    private SQLiteDatabase database() {
+        return ExpiryIndex.getInstance(context).getWritableDatabase();
+    }
+
+    private static ContentValues values(String key, long triggerTime, long anchorTime, String title, String text) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ALARM_KEY, key);
+        values.put(COLUMN_TRIGGER_TIME, triggerTime);
+        if (anchorTime != -1) {
+            values.put(COLUMN_ANCHOR_TIME, anchorTime);
+        } else {
+            values.putNull(COLUMN_ANCHOR_TIME);
+        }
+        values.put(COLUMN_TITLE, title);
+        values.put(COLUMN_TEXT, text);
+        return values;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.preservationmanager.utils;
+
+import java.util.Arrays;
+
+/**
+ * 保质期批量计算的输入与输出
+ * 所有字段按条目下标存放在基本类型数组中，一次导入只分配一次，可通过 {@link #clear()} 复用
+ */
+public class ExpiryBatch {
+
+    private static final ShelfLifeUnit[] UNITS = ShelfLifeUnit.values();
+
+    private int size;
+
+    // 输入
+    long[] productionDays;
+    int[] shelfLives;
+    byte[] units;
+
+    // 输出
+    long[] expiryDays;
+    long[] startTimes;
+    long[] endTimes;
+    long[] alarmTimes;
+
+    /**
+     * @param capacity 预计条目数量，超出时自动扩容
+     */
+    public ExpiryBatch(int capacity) {
+        allocate(Math.max(capacity, 16));
+    }
+
+    /**
+     * 添加一个商品
+     *
+     * @param productionDay 生产日期（纪元日，见 {@link DateEngine#toEpochDay}）
+     * @param shelfLife     保质期数值
+     * @param unit          保质期单位
+     * @return 条目下标
+     */
+    public int add(long productionDay, int shelfLife, ShelfLifeUnit unit) {
+        if (size == productionDays.length) {
+            grow();
+        }
+        productionDays[size] = productionDay;
+        shelfLives[size] = shelfLife;
+        units[size] = (byte) unit.ordinal();
+        return size++;
+    }
+
+    /**
+     * 清空条目，保留已分配的数组
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getProductionDay(int index) {
+        return productionDays[index];
+    }
+
+    public int getShelfLife(int index) {
+        return shelfLives[index];
+    }
+
+    public ShelfLifeUnit getUnit(int index) {
+        return UNITS[units[index]];
+    }
+
+    /**
+     * @return 到期日（纪元日）
+     */
+    public long getExpiryDay(int index) {
+        return expiryDays[index];
+    }
+
+    /**
+     * @return 提醒事件开始时间（毫秒）
+     */
+    public long getStartTime(int index) {
+        return startTimes[index];
+    }
+
+    /**
+     * @return 提醒事件结束时间（毫秒）
+     */
+    public long getEndTime(int index) {
+        return endTimes[index];
+    }
+
+    /**
+     * @return 提醒触发时间（毫秒），即开始时间减去提前提醒的分钟数
+     */
+    public long getAlarmTime(int index) {
+        return alarmTimes[index];
+    }
+
+    private void allocate(int capacity) {
+        productionDays = new long[capacity];
+        shelfLives = new int[capacity];
+        units = new byte[capacity];
+        expiryDays = new long[capacity];
+        startTimes = new long[capacity];
+        endTimes = new long[capacity];
+        alarmTimes = new long[capacity];
+    }
+
+    private void grow() {
+        int capacity = productionDays.length * 2;
+        productionDays = Arrays.copyOf(productionDays, capacity);
+        shelfLives = Arrays.copyOf(shelfLives, capacity);
+        units = Arrays.copyOf(units, capacity);
+        expiryDays = Arrays.copyOf(expiryDays, capacity);
+        startTimes = Arrays.copyOf(startTimes, capacity);
+        endTimes = Arrays.copyOf(endTimes, capacity);
+        alarmTimes = Arrays.copyOf(alarmTimes, capacity);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.preservationmanager.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 保质期计算器 - 根据生产日期、保质期和提醒策略批量计算到期日与提醒时间
+ * 计算只读写 {@link ExpiryBatch} 中的基本类型数组；条目很多时拆分到多个线程并行计算
+ */
+public class ExpiryCalculator {
+
+    /**
+     * 超过该数量时并行计算，数量较少时线程调度的开销大于收益
+     */
+    static final int PARALLEL_THRESHOLD = 8192;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+
+    private static volatile ForkJoinPool pool;
+
+    private final DateEngine engine;
+    private final ReminderPolicy policy;
+
+    /**
+     * 使用默认时区和默认提醒策略
+     */
+    public ExpiryCalculator() {
+        this(DateEngine.forDefaultZone(), ReminderPolicy.DEFAULT);
+    }
+
+    /**
+     * @param engine 时区对应的日期引擎
+     * @param policy 提醒策略
+     */
+    public ExpiryCalculator(DateEngine engine, ReminderPolicy policy) {
+        this.engine = engine;
+        this.policy = policy;
+    }
+
+    /**
+     * @return 今天（本地纪元日），可作为默认生产日期
+     */
+    public long today() {
+        return engine.toEpochDay(System.currentTimeMillis());
+    }
+
+    /**
+     * 计算批次中所有条目的到期日和提醒时间
+     *
+     * @param batch 输入输出批次
+     */
+    public void compute(ExpiryBatch batch) {
+        int size = batch.size();
+        if (size >= PARALLEL_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1) {
+            getPool().invoke(new ComputeTask(batch, 0, size));
+        } else {
+            computeRange(batch, 0, size);
+        }
+    }
+
+    /**
+     * 单线程计算 [from, to) 范围内的条目
+     */
+    void computeRange(ExpiryBatch batch, int from, int to) {
+        long[] productionDays = batch.productionDays;
+        int[] shelfLives = batch.shelfLives;
+        byte[] units = batch.units;
+        long[] expiryDays = batch.expiryDays;
+        long[] startTimes = batch.startTimes;
+        long[] endTimes = batch.endTimes;
+        long[] alarmTimes = batch.alarmTimes;
+
+        int daysBefore = policy.getDaysBeforeExpiry();
+        int hour = policy.getHour();
+        int startMinute = policy.getMinute();
+        int endMinute = startMinute + policy.getDurationMinutes();
+        long reminderMillis = policy.getReminderMinutesBefore() * MILLIS_PER_MINUTE;
+        byte months = (byte) ShelfLifeUnit.MONTHS.ordinal();
+
+        for (int i = from; i < to; i++) {
+            long expiryDay = units[i] == months
+                    ? DateEngine.plusMonths(productionDays[i], shelfLives[i])
+                    : productionDays[i] + shelfLives[i];
+            long reminderDay = expiryDay - daysBefore;
+            long start = engine.atTime(reminderDay, hour, startMinute);
+
+            expiryDays[i] = expiryDay;
+            startTimes[i] = start;
+            endTimes[i] = engine.atTime(reminderDay, hour, endMinute);
+            alarmTimes[i] = start - reminderMillis;
+        }
+    }
+
+    /**
+     * 根据计算结果创建单个商品提醒，可直接交给批量创建接口
+     *
+     * @param batch       已计算的批次
+     * @param index       条目下标
+     * @param productId   商品 ID（可为 null）
+     * @param title       事件标题
+     * @param description 事件描述
+     * @return 商品提醒
+     */
+    public ProductReminder toReminder(ExpiryBatch batch, int index, String productId,
+                                      String title, String description) {
+        return new ProductReminder(productId, title, description,
+                batch.getStartTime(index), batch.getEndTime(index),
+                policy.getReminderMinutesBefore(), engine.getZoneId());
+    }
+
+    /**
+     * 根据计算结果创建商品提醒列表
+     *
+     * @param batch        已计算的批次
+     * @param productIds   商品 ID（可为 null）
+     * @param titles       事件标题
+     * @param descriptions 事件描述
+     * @return 与批次条目顺序一致的商品提醒列表
+     */
+    public List<ProductReminder> toReminders(ExpiryBatch batch, String[] productIds,
+                                             String[] titles, String[] descriptions) {
+        int size = batch.size();
+        List<ProductReminder> reminders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            reminders.add(toReminder(batch, i, productIds != null ? productIds[i] : null,
+                    titles[i], descriptions[i]));
+        }
+        return reminders;
+    }
+
+    private static ForkJoinPool getPool() {
+        // ForkJoinPool.commonPool() 需要 API 24，这里自行创建一个共享线程池
+        ForkJoinPool result = pool;
+        if (result == null) {
+            synchronized (ExpiryCalculator.class) {
+                result = pool;
+                if (result == null) {
+                    result = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                    pool = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 二分拆分任务，直到范围小于阈值
+     */
+    private class ComputeTask extends RecursiveAction {
+
+        private final ExpiryBatch batch;
+        private final int from;
+        private final int to;
+
+        ComputeTask(ExpiryBatch batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD / 2) {
+                computeRange(batch, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ComputeTask(batch, from, mid), new ComputeTask(batch, mid, to));
+        }
+    }
+}
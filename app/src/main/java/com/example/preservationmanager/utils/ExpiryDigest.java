@@ -0,0 +1,419 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static com.example.preservationmanager.utils.ExpiryIndexDatabase.*;
+
+/**
+ * 每日汇总提醒 - 同一天到期、同一分组（门店、分类等）的所有商品合并为一个日历事件
+ * <p>
+ * 每个商品一个事件时，商品多的门店每周会产生上千个事件和提醒；汇总模式下每个分组每天最多一个事件，
+ * 标题为商品数量，描述列出商品名称，提醒时间按 {@link ReminderPolicy} 计算（与单个商品的事件相同）。
+ * <p>
+ * 汇总包含的商品保存在本地索引数据库中。添加、修改或删除商品时只重写受影响的（分组, 日期），
+ * 且通过 {@link ProductReminderSync} 原地更新已有事件，不会删除后重建整天的事件；
+ * 内容没有变化的汇总不产生任何写入。写入失败的汇总会被记录，下次调用任意方法（或 {@link #flush()}）时重试。
+ * <p>
+ * 所有方法都会访问数据库和日历提供者，请在后台线程中调用。
+ */
+public final class ExpiryDigest {
+
+    /**
+     * 汇总事件在索引中的键前缀，后接 "到期日:分组"；键同时作为事件的 UID_2445，
+     * 不在 {@link CalendarReconciler} 和 {@link CalendarUtils#purgeEventsEndingBefore} 的商品范围内
+     */
+    static final String KEY_PREFIX = CalendarUtils.DIGEST_UID_PREFIX;
+
+    /**
+     * 描述中最多列出的商品数，其余只显示数量
+     */
+    static final int MAX_LISTED_ITEMS = 100;
+
+    private static final Object LOCK = new Object();
+
+    /**
+     * 汇总中的一个商品
+     */
+    public static final class Item {
+        private final String productId;
+        private final String name;
+        private final String group;
+        private final long expiryDay;
+
+        /**
+         * @param productId 商品 ID
+         * @param name      商品名称，显示在汇总描述中
+         * @param group     分组（门店、分类等），null 表示不分组
+         * @param expiryDay 到期日（纪元日，见 {@link ExpiryBatch#getExpiryDay(int)}）
+         */
+        public Item(String productId, String name, String group, long expiryDay) {
+            this.productId = productId;
+            this.name = name;
+            this.group = group != null ? group : "";
+            this.expiryDay = expiryDay;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return 分组，不分组时为空字符串
+         */
+        public String getGroup() {
+            return group;
+        }
+
+        public long getExpiryDay() {
+            return expiryDay;
+        }
+
+        boolean isValid() {
+            return productId != null && !productId.isEmpty() && name != null;
+        }
+    }
+
+    private final Context context;
+    private final ExpiryCalculator calculator;
+
+    /**
+     * 使用默认时区和默认提醒策略
+     *
+     * @param context 上下文
+     */
+    public ExpiryDigest(Context context) {
+        this(context, new ExpiryCalculator());
+    }
+
+    /**
+     * @param context    上下文
+     * @param calculator 计算汇总事件时间的计算器
+     */
+    public ExpiryDigest(Context context, ExpiryCalculator calculator) {
+        this.context = context.getApplicationContext();
+        this.calculator = calculator;
+    }
+
+    /**
+     * 添加商品，已存在的商品 ID 更新其名称、分组和到期日
+     *
+     * @param items 商品
+     * @return 写入日历的汇总事件数（新建、更新和删除），参数无效或有汇总写入失败时返回 -1
+     */
+    public int addItems(List<Item> items) {
+        for (Item item : items) {
+            if (!item.isValid()) {
+                return -1;
+            }
+        }
+
+        synchronized (LOCK) {
+            SQLiteDatabase db = database();
+            db.beginTransactionNonExclusive();
+            try {
+                String[] args = new String[1];
+                for (Item item : items) {
+                    args[0] = item.productId;
+                    try (Cursor cursor = db.query(TABLE_DIGEST_ITEMS,
+                            new String[]{COLUMN_GROUP_KEY, COLUMN_EXPIRY_DAY, COLUMN_NAME},
+                            COLUMN_PRODUCT_ID + " = ?", args, null, null, null)) {
+                        if (cursor.moveToFirst()) {
+                            String oldGroup = cursor.getString(0);
+                            long oldDay = cursor.getLong(1);
+                            if (oldGroup.equals(item.group) && oldDay == item.expiryDay
+                                    && cursor.getString(2).equals(item.name)) {
+                                continue;
+                            }
+                            // 商品移到其它日期或分组时，原来的汇总也要重写
+                            markDirty(db, oldGroup, oldDay);
+                        }
+                    }
+
+                    ContentValues values = new ContentValues();
+                    values.put(COLUMN_PRODUCT_ID, item.productId);
+                    values.put(COLUMN_GROUP_KEY, item.group);
+                    values.put(COLUMN_EXPIRY_DAY, item.expiryDay);
+                    values.put(COLUMN_NAME, item.name);
+                    db.insertWithOnConflict(TABLE_DIGEST_ITEMS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                    markDirty(db, item.group, item.expiryDay);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            return flushLocked(() -> false);
+        }
+    }
+
+    /**
+     * 删除商品（例如已售出或已处理），商品所在的汇总随之更新；汇总中没有商品时删除事件
+     *
+     * @param productIds 商品 ID
+     * @return 写入日历的汇总事件数，有汇总写入失败时返回 -1
+     */
+    public int removeItems(Collection<String> productIds) {
+        synchronized (LOCK) {
+            SQLiteDatabase db = database();
+            db.beginTransactionNonExclusive();
+            try {
+                String[] args = new String[1];
+                for (String productId : productIds) {
+                    args[0] = productId;
+                    try (Cursor cursor = db.query(TABLE_DIGEST_ITEMS,
+                            new String[]{COLUMN_GROUP_KEY, COLUMN_EXPIRY_DAY},
+                            COLUMN_PRODUCT_ID + " = ?", args, null, null, null)) {
+                        if (!cursor.moveToFirst()) {
+                            continue;
+                        }
+                        markDirty(db, cursor.getString(0), cursor.getLong(1));
+                    }
+                    db.delete(TABLE_DIGEST_ITEMS, COLUMN_PRODUCT_ID + " = ?", args);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            return flushLocked(() -> false);
+        }
+    }
+
+    /**
+     * 重试之前写入失败的汇总
+     *
+     * @return 写入日历的汇总事件数，仍有汇总写入失败时返回 -1
+     */
+    public int flush() {
+        return flush(() -> false);
+    }
+
+    /**
+     * 重试之前写入失败的汇总，每 {@link CalendarUtils#BATCH_CHUNK_SIZE} 个汇总之间检查 stop，
+     * 为 true 时剩余的汇总留到下次
+     *
+     * @param stop 返回 true 时停止（例如后台任务超出运行预算）
+     * @return 写入日历的汇总事件数，仍有汇总写入失败时返回 -1
+     */
+    int flush(BooleanSupplier stop) {
+        synchronized (LOCK) {
+            return flushLocked(stop);
+        }
+    }
+
+    /**
+     * 查询某个汇总包含的商品，按名称排序
+     *
+     * @param group     分组，null 表示不分组
+     * @param expiryDay 到期日（纪元日）
+     * @return 商品列表
+     */
+    public List<Item> getItems(String group, long expiryDay) {
+        String groupKey = group != null ? group : "";
+        List<Item> items = new ArrayList<>();
+        try (Cursor cursor = database().query(TABLE_DIGEST_ITEMS, new String[]{COLUMN_PRODUCT_ID, COLUMN_NAME},
+                COLUMN_GROUP_KEY + " = ? AND " + COLUMN_EXPIRY_DAY + " = ?",
+                new String[]{groupKey, String.valueOf(expiryDay)}, null, null,
+                COLUMN_NAME + ", " + COLUMN_PRODUCT_ID)) {
+            while (cursor.moveToNext()) {
+                items.add(new Item(cursor.getString(0), cursor.getString(1), groupKey, expiryDay));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 删除到期日早于 epochDay 的商品记录，对应的汇总变为空并删除事件
+     * 事件删除失败或 stop 为 true 时汇总保留为需要更新，下次 {@link #flush()} 时继续
+     *
+     * @param epochDay 纪元日
+     * @param stop     返回 true 时停止删除事件
+     * @return 删除的商品数
+     */
+    int removeItemsExpiringBefore(long epochDay, BooleanSupplier stop) {
+        synchronized (LOCK) {
+            String[] args = {String.valueOf(epochDay)};
+            SQLiteDatabase db = database();
+            int removed;
+            db.beginTransactionNonExclusive();
+            try {
+                db.execSQL("INSERT OR IGNORE INTO " + TABLE_DIGEST_DIRTY + " (" + COLUMN_GROUP_KEY + ", "
+                        + COLUMN_EXPIRY_DAY + ") SELECT DISTINCT " + COLUMN_GROUP_KEY + ", " + COLUMN_EXPIRY_DAY
+                        + " FROM " + TABLE_DIGEST_ITEMS + " WHERE " + COLUMN_EXPIRY_DAY + " < ?", args);
+                removed = db.delete(TABLE_DIGEST_ITEMS, COLUMN_EXPIRY_DAY + " < ?", args);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            flushLocked(stop);
+            return removed;
+        }
+    }
+
+    /**
+     * 重写所有标记为需要更新的汇总：有商品的汇总插入或更新事件，没有商品的汇总删除事件
+     */
+    private int flushLocked(BooleanSupplier stop) {
+        SQLiteDatabase db = database();
+        List<String> groups = new ArrayList<>();
+        List<Long> days = new ArrayList<>();
+        try (Cursor cursor = db.query(TABLE_DIGEST_DIRTY, new String[]{COLUMN_GROUP_KEY, COLUMN_EXPIRY_DAY},
+                null, null, null, null, COLUMN_EXPIRY_DAY)) {
+            while (cursor.moveToNext()) {
+                groups.add(cursor.getString(0));
+                days.add(cursor.getLong(1));
+            }
+        }
+        if (groups.isEmpty()) {
+            return 0;
+        }
+        if (!CalendarPermissionState.canWrite(context)) {
+            return -1;
+        }
+
+        int[] written = new int[1];
+        boolean failed = false;
+        for (int start = 0; start < groups.size(); start += CalendarUtils.BATCH_CHUNK_SIZE) {
+            if (start > 0 && stop.getAsBoolean()) {
+                // 剩余的汇总仍标记为需要更新
+                break;
+            }
+            int end = Math.min(start + CalendarUtils.BATCH_CHUNK_SIZE, groups.size());
+            if (!flushChunk(db, groups.subList(start, end), days.subList(start, end), written)) {
+                failed = true;
+            }
+        }
+        return failed ? -1 : written[0];
+    }
+
+    /**
+     * 重写一组汇总，写入成功的汇总清除需要更新的标记
+     *
+     * @param written 累加写入日历的汇总事件数
+     * @return 有汇总写入失败时返回 false
+     */
+    private boolean flushChunk(SQLiteDatabase db, List<String> groups, List<Long> days, int[] written) {
+        // 汇总事件的时间与单个商品相同：把到期日作为生产日期、保质期 0 天交给计算器
+        int size = groups.size();
+        ExpiryBatch batch = new ExpiryBatch(size);
+        String[] keys = new String[size];
+        String[] titles = new String[size];
+        String[] descriptions = new String[size];
+        // 批次下标 → 待更新列表中的下标
+        int[] positions = new int[size];
+        List<Integer> emptyPositions = new ArrayList<>();
+        List<String> emptyKeys = new ArrayList<>();
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            String group = groups.get(i);
+            long day = days.get(i);
+            int count = describe(db, group, day, description);
+            if (count == 0) {
+                emptyPositions.add(i);
+                emptyKeys.add(key(group, day));
+                continue;
+            }
+            int index = batch.add(day, 0, ShelfLifeUnit.DAYS);
+            positions[index] = i;
+            keys[index] = key(group, day);
+            titles[index] = group + "保质期汇总（" + count + " 件）";
+            descriptions[index] = description.toString();
+        }
+
+        boolean failed = false;
+        if (batch.size() > 0) {
+            calculator.compute(batch);
+            List<ProductReminder> reminders = calculator.toReminders(batch, keys, titles, descriptions);
+            UpsertResult result = ProductReminderSync.upsertDigests(context, reminders);
+            for (int index = 0; index < result.size(); index++) {
+                UpsertResult.Outcome outcome = result.getOutcome(index);
+                if (outcome == UpsertResult.Outcome.FAILED) {
+                    failed = true;
+                    continue;
+                }
+                if (outcome != UpsertResult.Outcome.UNCHANGED) {
+                    written[0]++;
+                }
+                int position = positions[index];
+                clearDirty(db, groups.get(position), days.get(position));
+            }
+        }
+
+        if (!emptyKeys.isEmpty()) {
+            int deleted = CalendarUtils.purgeProducts(context, emptyKeys);
+            if (deleted == -1) {
+                failed = true;
+            } else {
+                written[0] += deleted;
+                for (int position : emptyPositions) {
+                    clearDirty(db, groups.get(position), days.get(position));
+                }
+            }
+        }
+        return !failed;
+    }
+
+    /**
+     * 生成汇总的描述
+     *
+     * @param out 输出，先被清空
+     * @return 汇总中的商品数
+     */
+    private static int describe(SQLiteDatabase db, String group, long day, StringBuilder out) {
+        out.setLength(0);
+        try (Cursor cursor = db.query(TABLE_DIGEST_ITEMS, new String[]{COLUMN_NAME},
+                COLUMN_GROUP_KEY + " = ? AND " + COLUMN_EXPIRY_DAY + " = ?",
+                new String[]{group, String.valueOf(day)}, null, null, COLUMN_NAME + ", " + COLUMN_PRODUCT_ID)) {
+            int count = cursor.getCount();
+            if (count == 0) {
+                return 0;
+            }
+            out.append("到期日：").append(LocalDate.ofEpochDay(day));
+            if (!group.isEmpty()) {
+                out.append("\n分组：").append(group);
+            }
+            out.append("\n共 ").append(count).append(" 件商品：");
+            for (int listed = 0; listed < MAX_LISTED_ITEMS && cursor.moveToNext(); listed++) {
+                out.append("\n· ").append(cursor.getString(0));
+            }
+            if (count > MAX_LISTED_ITEMS) {
+                out.append("\n……另有 ").append(count - MAX_LISTED_ITEMS).append(" 件");
+            }
+            return count;
+        }
+    }
+
+    private static void markDirty(SQLiteDatabase db, String group, long day) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_GROUP_KEY, group);
+        values.put(COLUMN_EXPIRY_DAY, day);
+        db.insertWithOnConflict(TABLE_DIGEST_DIRTY, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    private static void clearDirty(SQLiteDatabase db, String group, long day) {
+        db.delete(TABLE_DIGEST_DIRTY, COLUMN_GROUP_KEY + " = ? AND " + COLUMN_EXPIRY_DAY + " = ?",
+                new String[]{group, String.valueOf(day)});
+    }
+
+    /**
+     * @return 汇总事件的键（同时是其 UID_2445）
+     */
+    static String key(String group, long day) {
+        return KEY_PREFIX + day + ":" + group;
+    }
+
+    private SQLiteDatabase database() {
+        return ExpiryIndex.getInstance(context).getWritableDatabase();
+    }
+}
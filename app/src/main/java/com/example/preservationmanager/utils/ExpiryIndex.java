@@ -0,0 +1,585 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.preservationmanager.utils.ExpiryIndexDatabase.*;
+
+/**
+ * 本地保质期索引 - 应用自己记录写入系统日历的事件，查询时无需访问日历提供者
+ * <p>
+ * CalendarUtils 的每个写入方法在日历写入成功后同步更新此索引；
+ * "N 天内过期" 通过 expiry_time 索引上的一次范围查询完成。
+ * 索引写入失败不会影响日历写入结果。
+ */
+public final class ExpiryIndex {
+
+    private static volatile ExpiryIndex instance;
+
+    /**
+     * 按商品查询时返回的已写入事件状态，用于判断是否需要更新
+     */
+    static final class Entry {
+        final long eventId;
+        final String title;
+        final Integer descriptionHash;
+        final long startTime;
+        final long endTime;
+        final String timeZone;
+        final long reminderId;
+        final int reminderMinutes;
+
+        Entry(long eventId, String title, Integer descriptionHash, long startTime, long endTime,
+              String timeZone, long reminderId, int reminderMinutes) {
+            this.eventId = eventId;
+            this.title = title;
+            this.descriptionHash = descriptionHash;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.timeZone = timeZone;
+            this.reminderId = reminderId;
+            this.reminderMinutes = reminderMinutes;
+        }
+
+        /**
+         * @return 事件内容与 reminder 完全一致时返回 true
+         */
+        boolean matches(ProductReminder reminder) {
+            return startTime == reminder.getStartTime()
+                    && endTime == reminder.getEndTime()
+                    && equals(title, reminder.getTitle())
+                    && equals(timeZone, reminder.getTimeZone())
+                    && descriptionHash != null && descriptionHash == hash(reminder.getDescription())
+                    && reminderId != -1 && reminderMinutes == reminder.getReminderMinutesBefore();
+        }
+
+        /**
+         * @return 提醒替换为指定提醒的副本
+         */
+        Entry withReminder(long newReminderId, int newReminderMinutes) {
+            return new Entry(eventId, title, descriptionHash, startTime, endTime, timeZone,
+                    newReminderId, newReminderMinutes);
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * 事件的时间和时区，用于时区变化后重新计算
+     */
+    static final class EventTimes {
+        final long eventId;
+        final String productId;
+        final long startTime;
+        final long endTime;
+        final String timeZone;
+        final long localStart;
+        final long localEnd;
+
+        EventTimes(long eventId, String productId, long startTime, long endTime, String timeZone,
+                   long localStart, long localEnd) {
+            this.eventId = eventId;
+            this.productId = productId;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.timeZone = timeZone;
+            this.localStart = localStart;
+            this.localEnd = localEnd;
+        }
+    }
+
+    /**
+     * 指定日历中结束时间早于截止时间、带商品标识的事件（不含每日汇总事件），参数为日历 ID、截止时间和汇总前缀
+     */
+    private static final String TAGGED_ENDING_BEFORE = COLUMN_CALENDAR_ID + " = ? AND " + COLUMN_DTEND + " < ? AND "
+            + COLUMN_PRODUCT_ID + " IS NOT NULL AND substr(" + COLUMN_PRODUCT_ID + ", 1, "
+            + CalendarUtils.DIGEST_UID_PREFIX.length() + ") != ?";
+
+    private final ExpiryIndexDatabase database;
+
+    private ExpiryIndex(Context context) {
+        database = new ExpiryIndexDatabase(context);
+        // 在写入第一个事件之前记录设备时区，安装后的第一次时区变化才能得知之前的时区
+        TimeZoneRebaseWorker.seedLastZone(context);
+    }
+
+    /**
+     * 获取进程内唯一的索引实例
+     *
+     * @param context 上下文
+     * @return 索引实例
+     */
+    public static ExpiryIndex getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ExpiryIndex.class) {
+                if (instance == null) {
+                    instance = new ExpiryIndex(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 关闭并丢弃进程内实例，下次调用 {@link #getInstance(Context)} 时重新打开（测试使用）
+     */
+    static void resetForTesting() {
+        synchronized (ExpiryIndex.class) {
+            if (instance != null) {
+                instance.database.close();
+                instance = null;
+            }
+        }
+    }
+
+    SQLiteDatabase getWritableDatabase() {
+        return database.getWritableDatabase();
+    }
+
+    /**
+     * 在一个数据库事务中执行多次索引写入
+     *
+     * @param work 写入操作
+     */
+    public void runInTransaction(Runnable work) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            work.run();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 记录一个新写入的事件（过期时间取事件开始时间）
+     *
+     * @param eventId    事件 ID
+     * @param productId  商品 ID（可为 null）
+     * @param calendarId 日历 ID
+     * @param title       事件标题
+     * @param description 事件描述（只保存哈希）
+     * @param startTime   事件开始时间（毫秒）
+     * @param endTime     事件结束时间（毫秒）
+     * @param timeZone    时区
+     */
+    public void recordEvent(long eventId, String productId, long calendarId, String title, String description,
+                            long startTime, long endTime, String timeZone) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_EVENT_ID, eventId);
+        values.put(COLUMN_PRODUCT_ID, productId);
+        values.put(COLUMN_CALENDAR_ID, calendarId);
+        values.put(COLUMN_TITLE, title);
+        values.put(COLUMN_DESCRIPTION_HASH, hash(description));
+        values.put(COLUMN_DTSTART, startTime);
+        values.put(COLUMN_DTEND, endTime);
+        values.put(COLUMN_EXPIRY_TIME, startTime);
+        values.put(COLUMN_TIME_ZONE, timeZone);
+        putLocalTimes(values, timeZone, startTime, endTime);
+        database.getWritableDatabase().insertWithOnConflict(TABLE_EVENTS, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * 记录事件的一个提醒
+     *
+     * @param reminderId 提醒 ID
+     * @param eventId    事件 ID
+     * @param minutes    提前提醒的分钟数
+     */
+    public void recordReminder(long reminderId, long eventId, int minutes) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_REMINDER_ID, reminderId);
+        values.put(COLUMN_EVENT_ID, eventId);
+        values.put(COLUMN_MINUTES, minutes);
+        database.getWritableDatabase().insertWithOnConflict(TABLE_REMINDERS, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * 同步事件的标题、描述和时间
+     *
+     * @param eventId     事件 ID
+     * @param title       新的事件标题
+     * @param description 新的事件描述
+     * @param startTime   新的事件开始时间（毫秒）
+     * @param endTime     新的事件结束时间（毫秒）
+     */
+    public void updateEvent(long eventId, String title, String description, long startTime, long endTime) {
+        String[] args = {String.valueOf(eventId)};
+        runInTransaction(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            String timeZone;
+            try (Cursor cursor = db.query(TABLE_EVENTS, new String[]{COLUMN_TIME_ZONE},
+                    COLUMN_EVENT_ID + " = ?", args, null, null, null)) {
+                if (!cursor.moveToFirst()) {
+                    return;
+                }
+                timeZone = cursor.getString(0);
+            }
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_TITLE, title);
+            values.put(COLUMN_DESCRIPTION_HASH, hash(description));
+            values.put(COLUMN_DTSTART, startTime);
+            values.put(COLUMN_DTEND, endTime);
+            values.put(COLUMN_EXPIRY_TIME, startTime);
+            putLocalTimes(values, timeZone, startTime, endTime);
+            db.update(TABLE_EVENTS, values, COLUMN_EVENT_ID + " = ?", args);
+        });
+    }
+
+    /**
+     * 时区变化后同步事件的时间和时区，本地时间保持不变
+     *
+     * @param eventId   事件 ID
+     * @param startTime 新的事件开始时间（毫秒）
+     * @param endTime   新的事件结束时间（毫秒）
+     * @param timeZone  新的时区
+     */
+    void rebaseEvent(long eventId, long startTime, long endTime, String timeZone) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_DTSTART, startTime);
+        values.put(COLUMN_DTEND, endTime);
+        values.put(COLUMN_EXPIRY_TIME, startTime);
+        values.put(COLUMN_TIME_ZONE, timeZone);
+        database.getWritableDatabase().update(TABLE_EVENTS, values,
+                COLUMN_EVENT_ID + " = ?", new String[]{String.valueOf(eventId)});
+    }
+
+    /**
+     * 替换事件的提醒记录
+     *
+     * @param eventId    事件 ID
+     * @param reminderId 新的提醒 ID
+     * @param minutes    提前提醒的分钟数
+     */
+    public void replaceReminder(long eventId, long reminderId, int minutes) {
+        runInTransaction(() -> {
+            database.getWritableDatabase().delete(TABLE_REMINDERS, COLUMN_EVENT_ID + " = ?",
+                    new String[]{String.valueOf(eventId)});
+            recordReminder(reminderId, eventId, minutes);
+        });
+    }
+
+    /**
+     * 删除指定的提醒记录
+     *
+     * @param reminderIds 提醒 ID
+     */
+    public void removeReminders(long[] reminderIds) {
+        runInTransaction(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            String[] args = new String[1];
+            for (long reminderId : reminderIds) {
+                args[0] = String.valueOf(reminderId);
+                db.delete(TABLE_REMINDERS, COLUMN_REMINDER_ID + " = ?", args);
+            }
+        });
+    }
+
+    /**
+     * 删除事件及其提醒记录
+     *
+     * @param eventId 事件 ID
+     */
+    public void removeEvent(long eventId) {
+        String[] args = {String.valueOf(eventId)};
+        runInTransaction(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.delete(TABLE_REMINDERS, COLUMN_EVENT_ID + " = ?", args);
+            db.delete(TABLE_EVENTS, COLUMN_EVENT_ID + " = ?", args);
+        });
+    }
+
+    /**
+     * 批量删除事件及其提醒记录
+     *
+     * @param eventIds 事件 ID
+     */
+    public void removeEvents(long[] eventIds) {
+        runInTransaction(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            String[] args = new String[1];
+            for (long eventId : eventIds) {
+                args[0] = String.valueOf(eventId);
+                db.delete(TABLE_REMINDERS, COLUMN_EVENT_ID + " = ?", args);
+                db.delete(TABLE_EVENTS, COLUMN_EVENT_ID + " = ?", args);
+            }
+        });
+    }
+
+    /**
+     * 查询指定日历中结束时间早于 cutoff、且带商品标识的事件 ID（不含每日汇总事件）
+     *
+     * @param calendarId 日历 ID
+     * @param cutoff     截止时间（毫秒）
+     * @return 事件 ID
+     */
+    long[] findTaggedEventsEndingBefore(long calendarId, long cutoff) {
+        Cursor cursor = database.getReadableDatabase().query(TABLE_EVENTS, new String[]{COLUMN_EVENT_ID},
+                TAGGED_ENDING_BEFORE,
+                new String[]{String.valueOf(calendarId), String.valueOf(cutoff), CalendarUtils.DIGEST_UID_PREFIX},
+                null, null, null);
+        long[] ids = new long[cursor.getCount()];
+        int i = 0;
+        while (cursor.moveToNext()) {
+            ids[i++] = cursor.getLong(0);
+        }
+        cursor.close();
+        return ids;
+    }
+
+    /**
+     * 删除指定日历中结束时间早于 cutoff、且带商品标识的事件记录（不含每日汇总事件）
+     * 对应 {@link CalendarUtils#purgeEventsEndingBefore} 中按 UID_2445 条件删除的事件
+     *
+     * @param calendarId 日历 ID
+     * @param cutoff     截止时间（毫秒）
+     * @return 删除的事件记录数
+     */
+    public int removeTaggedEventsEndingBefore(long calendarId, long cutoff) {
+        String where = TAGGED_ENDING_BEFORE;
+        String[] args = {String.valueOf(calendarId), String.valueOf(cutoff), CalendarUtils.DIGEST_UID_PREFIX};
+        int[] removed = new int[1];
+        runInTransaction(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.delete(TABLE_REMINDERS, COLUMN_EVENT_ID + " IN (SELECT " + COLUMN_EVENT_ID + " FROM "
+                    + TABLE_EVENTS + " WHERE " + where + ")", args);
+            removed[0] = db.delete(TABLE_EVENTS, where, args);
+        });
+        return removed[0];
+    }
+
+    /**
+     * 删除指定商品的事件记录
+     *
+     * @param productIds 商品 ID
+     */
+    public void removeProducts(Collection<String> productIds) {
+        runInTransaction(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            String[] args = new String[1];
+            for (String productId : productIds) {
+                args[0] = productId;
+                db.delete(TABLE_REMINDERS, COLUMN_EVENT_ID + " IN (SELECT " + COLUMN_EVENT_ID + " FROM "
+                        + TABLE_EVENTS + " WHERE " + COLUMN_PRODUCT_ID + " = ?)", args);
+                db.delete(TABLE_EVENTS, COLUMN_PRODUCT_ID + " = ?", args);
+            }
+        });
+    }
+
+    /**
+     * 查询结束时间早于 cutoff、且没有商品标识的事件 ID
+     * 这些事件无法通过 UID_2445 识别，只能按 ID 删除
+     *
+     * @param cutoff 截止时间（毫秒）
+     * @return 事件 ID
+     */
+    long[] findUntaggedEventsEndingBefore(long cutoff) {
+        Cursor cursor = database.getReadableDatabase().query(TABLE_EVENTS, new String[]{COLUMN_EVENT_ID},
+                COLUMN_DTEND + " < ? AND " + COLUMN_PRODUCT_ID + " IS NULL",
+                new String[]{String.valueOf(cutoff)}, null, null, null);
+        long[] ids = new long[cursor.getCount()];
+        int i = 0;
+        while (cursor.moveToNext()) {
+            ids[i++] = cursor.getLong(0);
+        }
+        cursor.close();
+        return ids;
+    }
+
+    /**
+     * 按事件 ID 升序分页查询索引中的事件 ID（键集分页）
+     *
+     * @param afterEventId 上一页最后一个事件 ID，第一页传 -1
+     * @param limit        每页数量
+     * @return 事件 ID，长度小于 limit 时表示已到末尾
+     */
+    long[] findEventIdsAfter(long afterEventId, int limit) {
+        Cursor cursor = database.getReadableDatabase().query(TABLE_EVENTS, new String[]{COLUMN_EVENT_ID},
+                COLUMN_EVENT_ID + " > ?", new String[]{String.valueOf(afterEventId)}, null, null,
+                COLUMN_EVENT_ID + " ASC", String.valueOf(limit));
+        long[] ids = new long[cursor.getCount()];
+        int i = 0;
+        while (cursor.moveToNext()) {
+            ids[i++] = cursor.getLong(0);
+        }
+        cursor.close();
+        return ids;
+    }
+
+    /**
+     * 按事件 ID 升序分页查询记录了本地时间的事件（键集分页）
+     *
+     * @param afterEventId 上一页最后一个事件 ID，第一页传 -1
+     * @param limit        每页数量
+     * @return 事件的时间，长度小于 limit 时表示已到末尾
+     */
+    List<EventTimes> findEventTimesAfter(long afterEventId, int limit) {
+        Cursor cursor = database.getReadableDatabase().query(TABLE_EVENTS,
+                new String[]{COLUMN_EVENT_ID, COLUMN_PRODUCT_ID, COLUMN_DTSTART, COLUMN_DTEND, COLUMN_TIME_ZONE,
+                        COLUMN_LOCAL_START, COLUMN_LOCAL_END},
+                COLUMN_EVENT_ID + " > ? AND " + COLUMN_LOCAL_START + " IS NOT NULL",
+                new String[]{String.valueOf(afterEventId)}, null, null,
+                COLUMN_EVENT_ID + " ASC", String.valueOf(limit));
+        List<EventTimes> events = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            events.add(new EventTimes(cursor.getLong(0), cursor.getString(1), cursor.getLong(2), cursor.getLong(3),
+                    cursor.getString(4), cursor.getLong(5), cursor.getLong(6)));
+        }
+        cursor.close();
+        return events;
+    }
+
+    /**
+     * 查询某个商品对应的事件 ID
+     *
+     * @param productId 商品 ID
+     * @return 事件 ID 列表
+     */
+    public long[] findEventIds(String productId) {
+        Cursor cursor = database.getReadableDatabase().query(TABLE_EVENTS, new String[]{COLUMN_EVENT_ID},
+                COLUMN_PRODUCT_ID + " = ?", new String[]{productId}, null, null, null);
+        long[] ids = new long[cursor.getCount()];
+        int i = 0;
+        while (cursor.moveToNext()) {
+            ids[i++] = cursor.getLong(0);
+        }
+        cursor.close();
+        return ids;
+    }
+
+    /**
+     * 批量查询商品对应的已写入事件（每个商品取事件 ID 最小的一条）
+     *
+     * @param productIds 商品 ID，数量不超过 SQLite 参数上限（999）
+     * @return 商品 ID → 事件状态
+     */
+    Map<String, Entry> findByProductIds(Collection<String> productIds) {
+        Map<String, Entry> entries = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return entries;
+        }
+
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < productIds.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+        String sql = "SELECT e." + COLUMN_PRODUCT_ID + ", e." + COLUMN_EVENT_ID + ", e." + COLUMN_TITLE
+                + ", e." + COLUMN_DESCRIPTION_HASH + ", e." + COLUMN_DTSTART + ", e." + COLUMN_DTEND
+                + ", e." + COLUMN_TIME_ZONE + ", r." + COLUMN_REMINDER_ID + ", r." + COLUMN_MINUTES
+                + " FROM " + TABLE_EVENTS + " e LEFT JOIN " + TABLE_REMINDERS + " r"
+                + " ON r." + COLUMN_EVENT_ID + " = e." + COLUMN_EVENT_ID
+                + " WHERE e." + COLUMN_PRODUCT_ID + " IN (" + placeholders + ")"
+                + " ORDER BY e." + COLUMN_EVENT_ID + ", r." + COLUMN_REMINDER_ID;
+        Cursor cursor = database.getReadableDatabase().rawQuery(sql, productIds.toArray(new String[0]));
+        while (cursor.moveToNext()) {
+            String productId = cursor.getString(0);
+            if (entries.containsKey(productId)) {
+                continue;
+            }
+            entries.put(productId, new Entry(
+                    cursor.getLong(1),
+                    cursor.getString(2),
+                    cursor.isNull(3) ? null : cursor.getInt(3),
+                    cursor.getLong(4),
+                    cursor.getLong(5),
+                    cursor.getString(6),
+                    cursor.isNull(7) ? -1 : cursor.getLong(7),
+                    cursor.isNull(8) ? 0 : cursor.getInt(8)));
+        }
+        cursor.close();
+        return entries;
+    }
+
+    /**
+     * 查询过期时间在 [from, to) 范围内的事件，按过期时间排序
+     *
+     * @param from 起始时间（毫秒，含）
+     * @param to   结束时间（毫秒，不含）
+     * @return 索引记录列表
+     */
+    public List<ExpiryRecord> queryExpiringBetween(long from, long to) {
+        String sql = "SELECT e." + COLUMN_EVENT_ID + ", e." + COLUMN_PRODUCT_ID + ", e." + COLUMN_CALENDAR_ID
+                + ", e." + COLUMN_TITLE + ", e." + COLUMN_DTSTART + ", e." + COLUMN_DTEND
+                + ", e." + COLUMN_EXPIRY_TIME + ", r." + COLUMN_REMINDER_ID
+                + " FROM " + TABLE_EVENTS + " e LEFT JOIN " + TABLE_REMINDERS + " r"
+                + " ON r." + COLUMN_EVENT_ID + " = e." + COLUMN_EVENT_ID
+                + " WHERE e." + COLUMN_EXPIRY_TIME + " >= ? AND e." + COLUMN_EXPIRY_TIME + " < ?"
+                + " ORDER BY e." + COLUMN_EXPIRY_TIME + ", e." + COLUMN_EVENT_ID;
+        Cursor cursor = database.getReadableDatabase().rawQuery(sql,
+                new String[]{String.valueOf(from), String.valueOf(to)});
+
+        List<ExpiryRecord> records = new ArrayList<>();
+        boolean hasEvent = false;
+        long[] reminderIds = new long[4];
+        int reminderCount = 0;
+        // 同一事件的多个提醒在相邻行中，按事件合并
+        long eventId = -1;
+        String productId = null;
+        long calendarId = 0;
+        String title = null;
+        long startTime = 0;
+        long endTime = 0;
+        long expiryTime = 0;
+
+        while (cursor.moveToNext()) {
+            long rowEventId = cursor.getLong(0);
+            if (!hasEvent || rowEventId != eventId) {
+                if (hasEvent) {
+                    records.add(new ExpiryRecord(eventId, productId, calendarId, title, startTime, endTime,
+                            expiryTime, Arrays.copyOf(reminderIds, reminderCount)));
+                }
+                hasEvent = true;
+                eventId = rowEventId;
+                productId = cursor.getString(1);
+                calendarId = cursor.getLong(2);
+                title = cursor.getString(3);
+                startTime = cursor.getLong(4);
+                endTime = cursor.getLong(5);
+                expiryTime = cursor.getLong(6);
+                reminderCount = 0;
+            }
+            if (!cursor.isNull(7)) {
+                if (reminderCount == reminderIds.length) {
+                    reminderIds = Arrays.copyOf(reminderIds, reminderCount * 2);
+                }
+                reminderIds[reminderCount++] = cursor.getLong(7);
+            }
+        }
+        if (hasEvent) {
+            records.add(new ExpiryRecord(eventId, productId, calendarId, title, startTime, endTime,
+                    expiryTime, Arrays.copyOf(reminderIds, reminderCount)));
+        }
+        cursor.close();
+        return records;
+    }
+
+    /**
+     * 查询从现在起 N 天内过期的事件
+     *
+     * @param days 天数
+     * @return 索引记录列表
+     */
+    public List<ExpiryRecord> queryExpiringWithin(int days) {
+        long now = System.currentTimeMillis();
+        return queryExpiringBetween(now, now + TimeUnit.DAYS.toMillis(days));
+    }
+
+    static int hash(String description) {
+        return description != null ? description.hashCode() : 0;
+    }
+}
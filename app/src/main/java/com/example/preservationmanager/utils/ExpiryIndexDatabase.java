@@ -0,0 +1,264 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * 本地保质期索引数据库
+ * 记录应用写入系统日历的事件：商品 → 事件 ID → 提醒 ID → 过期时间；
+ * 同时保存写入队列中尚未提交的变更日志和临时键、每日汇总事件包含的商品和应用内提醒
+ */
+class ExpiryIndexDatabase extends SQLiteOpenHelper {
+
+    static final String DATABASE_NAME = "expiry_index.db";
+    static final int DATABASE_VERSION = 10;
+
+    /**
+     * 版本 8 之前汇总事件的键前缀（UID_2445 为商品前缀 + 键，与商品事件混在一起）
+     */
+    private static final String LEGACY_DIGEST_PREFIX = "digest:";
+
+    static final String TABLE_EVENTS = "product_events";
+    static final String TABLE_REMINDERS = "event_reminders";
+    static final String TABLE_PENDING_WRITES = "pending_writes";
+    static final String TABLE_DIGEST_ITEMS = "digest_items";
+    static final String TABLE_DIGEST_DIRTY = "digest_dirty";
+    static final String TABLE_ALARMS = "expiry_alarms";
+    static final String TABLE_TEMP_KEYS = "temp_keys";
+
+    static final String COLUMN_EVENT_ID = "event_id";
+    static final String COLUMN_PRODUCT_ID = "product_id";
+    static final String COLUMN_CALENDAR_ID = "calendar_id";
+    static final String COLUMN_TITLE = "title";
+    static final String COLUMN_DESCRIPTION_HASH = "description_hash";
+    static final String COLUMN_DTSTART = "dtstart";
+    static final String COLUMN_DTEND = "dtend";
+    static final String COLUMN_EXPIRY_TIME = "expiry_time";
+    static final String COLUMN_TIME_ZONE = "time_zone";
+    static final String COLUMN_LOCAL_START = "local_start";
+    static final String COLUMN_LOCAL_END = "local_end";
+
+    static final String COLUMN_REMINDER_ID = "reminder_id";
+    static final String COLUMN_MINUTES = "minutes";
+
+    static final String COLUMN_JOURNAL_ID = "_id";
+    static final String COLUMN_EVENT_KEY = "event_key";
+    static final String COLUMN_OP = "op";
+    static final String COLUMN_DESCRIPTION = "description";
+    static final String COLUMN_REMINDER_MINUTES = "reminder_minutes";
+
+    static final String COLUMN_KEY_ID = "_id";
+    static final String COLUMN_TOUCHED_AT = "touched_at";
+
+    static final String COLUMN_GROUP_KEY = "group_key";
+    static final String COLUMN_EXPIRY_DAY = "expiry_day";
+    static final String COLUMN_NAME = "name";
+
+    static final String COLUMN_ALARM_KEY = "alarm_key";
+    static final String COLUMN_TRIGGER_TIME = "trigger_time";
+    static final String COLUMN_ANCHOR_TIME = "anchor_time";
+    static final String COLUMN_TEXT = "text";
+
+    ExpiryIndexDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_EVENTS + " ("
+                + COLUMN_EVENT_ID + " INTEGER PRIMARY KEY, "
+                + COLUMN_PRODUCT_ID + " TEXT, "
+                + COLUMN_CALENDAR_ID + " INTEGER NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_DESCRIPTION_HASH + " INTEGER, "
+                + COLUMN_DTSTART + " INTEGER NOT NULL, "
+                + COLUMN_DTEND + " INTEGER NOT NULL, "
+                + COLUMN_EXPIRY_TIME + " INTEGER NOT NULL, "
+                + COLUMN_TIME_ZONE + " TEXT, "
+                + COLUMN_LOCAL_START + " INTEGER, "
+                + COLUMN_LOCAL_END + " INTEGER)");
+        // "N 天内过期" 的范围查询走此索引
+        db.execSQL("CREATE INDEX idx_" + TABLE_EVENTS + "_expiry ON "
+                + TABLE_EVENTS + " (" + COLUMN_EXPIRY_TIME + ")");
+        db.execSQL("CREATE INDEX idx_" + TABLE_EVENTS + "_product ON "
+                + TABLE_EVENTS + " (" + COLUMN_PRODUCT_ID + ")");
+
+        db.execSQL("CREATE TABLE " + TABLE_REMINDERS + " ("
+                + COLUMN_REMINDER_ID + " INTEGER PRIMARY KEY, "
+                + COLUMN_EVENT_ID + " INTEGER NOT NULL, "
+                + COLUMN_MINUTES + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_" + TABLE_REMINDERS + "_event ON "
+                + TABLE_REMINDERS + " (" + COLUMN_EVENT_ID + ")");
+
+        createPendingWritesTable(db);
+        createDigestTables(db);
+        createAlarmsTable(db);
+        createTempKeysTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // 版本 2：记录描述的哈希，用于判断 upsert 时内容是否变化
+            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COLUMN_DESCRIPTION_HASH + " INTEGER");
+        }
+        if (oldVersion < 3) {
+            // 版本 3：写入队列的变更日志
+            createPendingWritesTable(db);
+        }
+        if (oldVersion < 4) {
+            // 版本 4：每日汇总事件
+            createDigestTables(db);
+        }
+        if (oldVersion < 5) {
+            // 版本 5：应用内提醒
+            createAlarmsTable(db);
+        }
+        if (oldVersion < 6) {
+            // 版本 6：事件在其时区中的本地时间，时区变化后据此重新计算
+            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COLUMN_LOCAL_START + " INTEGER");
+            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COLUMN_LOCAL_END + " INTEGER");
+            backfillLocalTimes(db);
+        }
+        if (oldVersion < 7) {
+            // 版本 7：写入队列的临时键，进程重启后临时键不重复、已提交的临时键仍能换成事件 ID
+            createTempKeysTable(db);
+            db.execSQL("INSERT OR IGNORE INTO " + TABLE_TEMP_KEYS + " (" + COLUMN_KEY_ID + ") SELECT DISTINCT -1 - "
+                    + COLUMN_EVENT_KEY + " FROM " + TABLE_PENDING_WRITES + " WHERE " + COLUMN_EVENT_KEY + " < -1");
+        }
+        if (oldVersion < 8) {
+            // 版本 8：汇总事件改用独立的 UID 前缀。旧记录换成新键并清除描述哈希，
+            // 所有汇总标记为需要更新，下次写入时原地更新事件并改写其 UID
+            db.execSQL("UPDATE " + TABLE_EVENTS + " SET " + COLUMN_PRODUCT_ID + " = ? || substr("
+                    + COLUMN_PRODUCT_ID + ", " + (LEGACY_DIGEST_PREFIX.length() + 1) + "), "
+                    + COLUMN_DESCRIPTION_HASH + " = NULL WHERE " + COLUMN_PRODUCT_ID + " IN (SELECT ? || "
+                    + COLUMN_EXPIRY_DAY + " || ':' || " + COLUMN_GROUP_KEY + " FROM " + TABLE_DIGEST_ITEMS + ")",
+                    new Object[]{CalendarUtils.DIGEST_UID_PREFIX, LEGACY_DIGEST_PREFIX});
+            db.execSQL("INSERT OR IGNORE INTO " + TABLE_DIGEST_DIRTY + " (" + COLUMN_GROUP_KEY + ", "
+                    + COLUMN_EXPIRY_DAY + ") SELECT DISTINCT " + COLUMN_GROUP_KEY + ", " + COLUMN_EXPIRY_DAY
+                    + " FROM " + TABLE_DIGEST_ITEMS);
+        }
+        if (oldVersion < 9) {
+            // 版本 9：提醒记录对应事件的开始时间，事件移动后按新的开始时间重新计算提醒时间。
+            // 已有提醒取索引中事件（或商品事件）当前的开始时间，找不到事件的提醒不随事件移动
+            if (oldVersion >= 5) {
+                db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COLUMN_ANCHOR_TIME + " INTEGER");
+            }
+            db.execSQL("UPDATE " + TABLE_ALARMS + " SET " + COLUMN_ANCHOR_TIME + " = (SELECT " + COLUMN_DTSTART
+                    + " FROM " + TABLE_EVENTS + " WHERE ? || " + COLUMN_EVENT_ID + " = " + COLUMN_ALARM_KEY
+                    + ") WHERE substr(" + COLUMN_ALARM_KEY + ", 1, " + ExpiryAlarmScheduler.KEY_PREFIX_EVENT.length()
+                    + ") = ?", new Object[]{ExpiryAlarmScheduler.KEY_PREFIX_EVENT,
+                    ExpiryAlarmScheduler.KEY_PREFIX_EVENT});
+            db.execSQL("UPDATE " + TABLE_ALARMS + " SET " + COLUMN_ANCHOR_TIME + " = (SELECT MIN(" + COLUMN_DTSTART
+                    + ") FROM " + TABLE_EVENTS + " WHERE ? || " + COLUMN_PRODUCT_ID + " = " + COLUMN_ALARM_KEY
+                    + ") WHERE substr(" + COLUMN_ALARM_KEY + ", 1, "
+                    + ExpiryAlarmScheduler.KEY_PREFIX_PRODUCT.length() + ") = ?",
+                    new Object[]{ExpiryAlarmScheduler.KEY_PREFIX_PRODUCT, ExpiryAlarmScheduler.KEY_PREFIX_PRODUCT});
+        }
+        if (oldVersion < 10) {
+            // 版本 10：临时键的分配或提交时间；已有的临时键没有时间，不再被日志引用时即可清理
+            if (oldVersion >= 7) {
+                db.execSQL("ALTER TABLE " + TABLE_TEMP_KEYS + " ADD COLUMN " + COLUMN_TOUCHED_AT + " INTEGER");
+            }
+        }
+    }
+
+    /**
+     * 写入事件开始和结束时间在 timeZone 中的本地时间（以 UTC 纪元表示的墙上时间）
+     * 时区为 null 或无效时写入 null，这类事件不参与时区变化后的重新计算
+     */
+    static void putLocalTimes(ContentValues values, String timeZone, long startTime, long endTime) {
+        DateEngine engine = null;
+        if (timeZone != null) {
+            try {
+                engine = DateEngine.of(timeZone);
+            } catch (RuntimeException e) {
+                // 无效的时区 ID
+            }
+        }
+        if (engine != null) {
+            values.put(COLUMN_LOCAL_START, engine.utcToWall(startTime));
+            values.put(COLUMN_LOCAL_END, engine.utcToWall(endTime));
+        } else {
+            values.putNull(COLUMN_LOCAL_START);
+            values.putNull(COLUMN_LOCAL_END);
+        }
+    }
+
+    private static void backfillLocalTimes(SQLiteDatabase db) {
+        // 升级在一个事务中进行，已有事件按当前规则换算
+        String[] args = new String[1];
+        try (Cursor cursor = db.query(TABLE_EVENTS,
+                new String[]{COLUMN_EVENT_ID, COLUMN_DTSTART, COLUMN_DTEND, COLUMN_TIME_ZONE},
+                COLUMN_TIME_ZONE + " IS NOT NULL", null, null, null, null)) {
+            ContentValues values = new ContentValues();
+            while (cursor.moveToNext()) {
+                values.clear();
+                putLocalTimes(values, cursor.getString(3), cursor.getLong(1), cursor.getLong(2));
+                args[0] = String.valueOf(cursor.getLong(0));
+                db.update(TABLE_EVENTS, values, COLUMN_EVENT_ID + " = ?", args);
+            }
+        }
+    }
+
+    private static void createPendingWritesTable(SQLiteDatabase db) {
+        // 按 _id 顺序重放；描述需要完整保存，不能只存哈希
+        db.execSQL("CREATE TABLE " + TABLE_PENDING_WRITES + " ("
+                + COLUMN_JOURNAL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COLUMN_EVENT_KEY + " INTEGER NOT NULL, "
+                + COLUMN_OP + " INTEGER NOT NULL, "
+                + COLUMN_CALENDAR_ID + " INTEGER NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_DESCRIPTION + " TEXT, "
+                + COLUMN_DTSTART + " INTEGER NOT NULL, "
+                + COLUMN_DTEND + " INTEGER NOT NULL, "
+                + COLUMN_TIME_ZONE + " TEXT, "
+                + COLUMN_REMINDER_MINUTES + " TEXT)");
+    }
+
+    private static void createDigestTables(SQLiteDatabase db) {
+        // 汇总中的商品；按 (分组, 到期日) 读取一天的商品列表
+        db.execSQL("CREATE TABLE " + TABLE_DIGEST_ITEMS + " ("
+                + COLUMN_PRODUCT_ID + " TEXT PRIMARY KEY, "
+                + COLUMN_GROUP_KEY + " TEXT NOT NULL, "
+                + COLUMN_EXPIRY_DAY + " INTEGER NOT NULL, "
+                + COLUMN_NAME + " TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX idx_" + TABLE_DIGEST_ITEMS + "_day ON "
+                + TABLE_DIGEST_ITEMS + " (" + COLUMN_GROUP_KEY + ", " + COLUMN_EXPIRY_DAY + ")");
+
+        // 商品变化后需要重写的汇总，写入日历成功后删除
+        db.execSQL("CREATE TABLE " + TABLE_DIGEST_DIRTY + " ("
+                + COLUMN_GROUP_KEY + " TEXT NOT NULL, "
+                + COLUMN_EXPIRY_DAY + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_GROUP_KEY + ", " + COLUMN_EXPIRY_DAY + "))");
+    }
+
+    private static void createAlarmsTable(SQLiteDatabase db) {
+        // 启动时按 trigger_time 顺序读入内存中的堆
+        db.execSQL("CREATE TABLE " + TABLE_ALARMS + " ("
+                + COLUMN_ALARM_KEY + " TEXT PRIMARY KEY, "
+                + COLUMN_TRIGGER_TIME + " INTEGER NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_TEXT + " TEXT, "
+                + COLUMN_ANCHOR_TIME + " INTEGER)");
+        db.execSQL("CREATE INDEX idx_" + TABLE_ALARMS + "_trigger ON "
+                + TABLE_ALARMS + " (" + COLUMN_TRIGGER_TIME + ")");
+    }
+
+    private static void createTempKeysTable(SQLiteDatabase db) {
+        // 临时键为 -1 - _id；AUTOINCREMENT 保证删除行后编号也不会重用。event_id 在插入提交后写入，
+        // touched_at 为分配或提交的时间，用于清理不再使用的临时键
+        db.execSQL("CREATE TABLE " + TABLE_TEMP_KEYS + " ("
+                + COLUMN_KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COLUMN_EVENT_ID + " INTEGER, "
+                + COLUMN_TOUCHED_AT + " INTEGER)");
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.preservationmanager.utils;
+
+/**
+ * 本地保质期索引中的一条记录
+ */
+public class ExpiryRecord {
+
+    private final long eventId;
+    private final String productId;
+    private final long calendarId;
+    private final String title;
+    private final long startTime;
+    private final long endTime;
+    private final long expiryTime;
+    private final long[] reminderIds;
+
+    ExpiryRecord(long eventId, String productId, long calendarId, String title,
+                 long startTime, long endTime, long expiryTime, long[] reminderIds) {
+        this.eventId = eventId;
+        this.productId = productId;
+        this.calendarId = calendarId;
+        this.title = title;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.expiryTime = expiryTime;
+        this.reminderIds = reminderIds;
+    }
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public long getCalendarId() {
+        return calendarId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getExpiryTime() {
+        return expiryTime;
+    }
+
+    /**
+     * @return 该事件在系统日历中的提醒 ID
+     */
+    public long[] getReminderIds() {
+        return reminderIds.clone();
+    }
+}
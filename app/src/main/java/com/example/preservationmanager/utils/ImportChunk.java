@@ -0,0 +1,45 @@
+package com.example.preservationmanager.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 导入的一个分块 - 解析阶段填充输入，计算阶段生成商品提醒，写入阶段写入后清空复用
+ */
+final class ImportChunk {
+
+    final ExpiryBatch batch;
+    final String[] productIds;
+    final String[] titles;
+    final String[] descriptions;
+
+    /**
+     * 计算阶段的结果，计算失败时为 null
+     */
+    List<ProductReminder> reminders;
+
+    /**
+     * 分块在文件中的顺序，写入阶段按该顺序写入
+     */
+    long sequence;
+
+    ImportChunk(int capacity) {
+        batch = new ExpiryBatch(capacity);
+        productIds = new String[capacity];
+        titles = new String[capacity];
+        descriptions = new String[capacity];
+    }
+
+    int size() {
+        return batch.size();
+    }
+
+    void clear() {
+        int size = batch.size();
+        Arrays.fill(productIds, 0, size, null);
+        Arrays.fill(titles, 0, size, null);
+        Arrays.fill(descriptions, 0, size, null);
+        batch.clear();
+        reminders = null;
+    }
+}
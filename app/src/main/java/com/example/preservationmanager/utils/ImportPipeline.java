@@ -0,0 +1,232 @@
+package com.example.preservationmanager.utils;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 导入流水线 - 解析、计算、写入三个阶段通过有界队列连接
+ * <p>
+ * 解析在调用线程中进行（输入流只能顺序读取），计算由多个线程并行处理，
+ * 写入只有一个线程，按分块在文件中的顺序依次写入日历，保证同一商品 ID 后出现的行覆盖先出现的行。
+ * 分块从固定大小的缓冲池中取出，写入后归还，内存占用与文件大小无关；
+ * 下游处理不过来时解析线程在取空闲分块或入队时阻塞。
+ * <p>
+ * 写入阶段抛出异常（进度回调失败；日历写入的异常已在写入阶段内计为失败）后不再写入：写入线程继续取出分块并归还缓冲池，
+ * 解析和计算线程不会阻塞，解析线程通过 {@link #getWriteFailure()} 得知后停止。
+ */
+final class ImportPipeline {
+
+    /**
+     * 计算和写入的具体实现
+     */
+    interface Stages {
+        void compute(ImportChunk chunk);
+
+        void write(ImportChunk chunk);
+    }
+
+    /**
+     * 结束标记：每个计算线程收到后向写入队列转发一个，写入线程收到全部后退出
+     */
+    private static final ImportChunk END = new ImportChunk(0);
+
+    private final Stages stages;
+    private final ArrayBlockingQueue<ImportChunk> free;
+    private final ArrayBlockingQueue<ImportChunk> computeQueue;
+    private final ArrayBlockingQueue<ImportChunk> writeQueue;
+    private final Thread[] computeThreads;
+    private final Thread writerThread;
+
+    final ImportStage parseStage;
+    final ImportStage computeStage;
+    final ImportStage writeStage;
+
+    /**
+     * 写入阶段抛出的异常，之后的分块被丢弃
+     */
+    private volatile RuntimeException writeFailure;
+
+    private long nextSequence;
+    private long chunkStartNanos;
+
+    /**
+     * @param stages             计算和写入的实现
+     * @param chunkSize          每个分块的行数
+     * @param computeThreadCount 计算线程数
+     * @param queueCapacity      计算队列和写入队列的容量（分块数）
+     */
+    ImportPipeline(Stages stages, int chunkSize, int computeThreadCount, int queueCapacity) {
+        this.stages = stages;
+        // 解析线程和写入线程各持有一个，其余分布在队列、计算线程和写入线程的重排缓冲中
+        int poolSize = 2 * queueCapacity + computeThreadCount + 2;
+        free = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            free.add(new ImportChunk(chunkSize));
+        }
+        computeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        parseStage = new ImportStage("parse", 1, null);
+        computeStage = new ImportStage("compute", computeThreadCount, computeQueue);
+        writeStage = new ImportStage("write", 1, writeQueue);
+
+        computeThreads = new Thread[computeThreadCount];
+        for (int i = 0; i < computeThreadCount; i++) {
+            computeThreads[i] = new Thread(this::runCompute, "InventoryImport-compute-" + i);
+        }
+        writerThread = new Thread(this::runWriter, "InventoryImport-write");
+    }
+
+    /**
+     * 启动计算和写入线程
+     *
+     * @return 解析线程填充的第一个分块
+     */
+    ImportChunk start() {
+        for (Thread thread : computeThreads) {
+            thread.start();
+        }
+        writerThread.start();
+        chunkStartNanos = System.nanoTime();
+        return free.poll();
+    }
+
+    /**
+     * 提交一个已填满的分块（解析线程调用）
+     *
+     * @return 下一个空闲分块，下游处理不过来时阻塞等待
+     */
+    ImportChunk submit(ImportChunk chunk) throws InterruptedException {
+        long now = System.nanoTime();
+        parseStage.recordBusy(chunk.size(), now - chunkStartNanos);
+        chunk.sequence = nextSequence++;
+        computeQueue.put(chunk);
+        computeStage.sampleQueueDepth();
+        ImportChunk next = free.take();
+        chunkStartNanos = System.nanoTime();
+        parseStage.recordWait(chunkStartNanos - now);
+        return next;
+    }
+
+    /**
+     * 提交最后一个分块并等待所有分块写入完成（解析线程调用）
+     *
+     * @param last 解析线程持有的分块，可以为空
+     */
+    void finish(ImportChunk last) throws InterruptedException {
+        if (last.size() > 0) {
+            parseStage.recordBusy(last.size(), System.nanoTime() - chunkStartNanos);
+            last.sequence = nextSequence++;
+            computeQueue.put(last);
+        }
+        for (int i = 0; i < computeThreads.length; i++) {
+            computeQueue.put(END);
+        }
+        writerThread.join();
+        for (Thread thread : computeThreads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * 中止导入：中断所有线程并等待退出，尚未写入的分块被丢弃
+     */
+    void abort() {
+        for (Thread thread : computeThreads) {
+            thread.interrupt();
+        }
+        writerThread.interrupt();
+        boolean interrupted = false;
+        for (Thread thread : computeThreads) {
+            interrupted |= joinUninterruptibly(thread);
+        }
+        interrupted |= joinUninterruptibly(writerThread);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return 写入阶段抛出的异常，没有失败时返回 null
+     */
+    RuntimeException getWriteFailure() {
+        return writeFailure;
+    }
+
+    private static boolean joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    private void runCompute() {
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                ImportChunk chunk = computeQueue.take();
+                long busyStart = System.nanoTime();
+                computeStage.recordWait(busyStart - waitStart);
+                if (chunk == END) {
+                    writeQueue.put(END);
+                    return;
+                }
+
+                stages.compute(chunk);
+                long busyEnd = System.nanoTime();
+                computeStage.recordBusy(chunk.size(), busyEnd - busyStart);
+
+                writeQueue.put(chunk);
+                writeStage.sampleQueueDepth();
+                computeStage.recordWait(System.nanoTime() - busyEnd);
+            }
+        } catch (InterruptedException e) {
+            // 被 abort() 中断
+        }
+    }
+
+    private void runWriter() {
+        // 计算线程并行处理，分块可能乱序到达，先缓存后按 sequence 顺序写入
+        PriorityQueue<ImportChunk> pending = new PriorityQueue<>(computeThreads.length + 1,
+                (a, b) -> Long.compare(a.sequence, b.sequence));
+        long nextToWrite = 0;
+        int ends = 0;
+        try {
+            while (ends < computeThreads.length) {
+                long waitStart = System.nanoTime();
+                ImportChunk chunk = writeQueue.take();
+                writeStage.recordWait(System.nanoTime() - waitStart);
+                if (chunk == END) {
+                    ends++;
+                    continue;
+                }
+
+                pending.add(chunk);
+                while (!pending.isEmpty() && pending.peek().sequence == nextToWrite) {
+                    ImportChunk next = pending.poll();
+                    if (writeFailure == null) {
+                        long busyStart = System.nanoTime();
+                        try {
+                            stages.write(next);
+                        } catch (RuntimeException e) {
+                            // 不能让写入线程退出：计算线程会在写入队列上、解析线程会在缓冲池上永远阻塞
+                            e.printStackTrace();
+                            writeFailure = e;
+                        }
+                        writeStage.recordBusy(next.size(), System.nanoTime() - busyStart);
+                    }
+                    next.clear();
+                    free.add(next);
+                    nextToWrite++;
+                }
+            }
+        } catch (InterruptedException e) {
+            // 被 abort() 中断
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.preservationmanager.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 库存导入的进度和结果
+ * 导入过程中每写入一个分块回调一次快照，导入结束时返回最终结果
+ */
+public final class ImportReport {
+
+    /**
+     * 最多保留的被拒绝行数，超过后只计数
+     */
+    static final int MAX_REJECTIONS = 100;
+
+    /**
+     * 一条被拒绝的输入行
+     */
+    public static final class Rejection {
+        private final int line;
+        private final String reason;
+
+        Rejection(int line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+
+        /**
+         * @return CSV 中的行号，或 JSON 数组中的序号（均从 1 开始）
+         */
+        public int getLine() {
+            return line;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "第 " + line + " 行：" + reason;
+        }
+    }
+
+    private final long rowsRead;
+    private final long rowsImported;
+    private final long rowsRejected;
+    private final long rowsFailed;
+    private final int chunksWritten;
+    private final long elapsedMs;
+    private final boolean finished;
+    private final String error;
+    private final List<Rejection> rejections;
+    private final List<ImportStageStats> stageStats;
+
+    ImportReport(long rowsRead, long rowsImported, long rowsRejected, long rowsFailed, int chunksWritten,
+                 long elapsedMs, boolean finished, String error, List<Rejection> rejections,
+                 List<ImportStageStats> stageStats) {
+        this.rowsRead = rowsRead;
+        this.rowsImported = rowsImported;
+        this.rowsRejected = rowsRejected;
+        this.rowsFailed = rowsFailed;
+        this.chunksWritten = chunksWritten;
+        this.elapsedMs = elapsedMs;
+        this.finished = finished;
+        this.error = error;
+        this.rejections = rejections == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(rejections));
+        this.stageStats = stageStats == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(stageStats));
+    }
+
+    /**
+     * @return 已读取的数据行数（不含表头）
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * @return 已写入日历的行数
+     */
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    /**
+     * @return 校验失败、没有写入的行数
+     */
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    /**
+     * @return 通过校验但写入日历失败的行数
+     */
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    public int getChunksWritten() {
+        return chunksWritten;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    /**
+     * @return 每秒读取的行数
+     */
+    public double getRowsPerSecond() {
+        return elapsedMs == 0 ? 0 : rowsRead * 1000.0 / elapsedMs;
+    }
+
+    /**
+     * @return 导入是否已结束（包括因错误中止）
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return 导入是否完整处理了整个文件
+     */
+    public boolean isSuccess() {
+        return finished && error == null;
+    }
+
+    /**
+     * @return 中止导入的错误（无法读取文件、缺少必需的列等），没有时为 null
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return 被拒绝的行（最多 {@link #MAX_REJECTIONS} 条）
+     */
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    /**
+     * @return 解析、计算、写入各阶段的统计，可用于判断瓶颈所在的阶段
+     */
+    public List<ImportStageStats> getStageStats() {
+        return stageStats;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "read=%d imported=%d rejected=%d failed=%d chunks=%d %.0f rows/s%s",
+                rowsRead, rowsImported, rowsRejected, rowsFailed, chunksWritten, getRowsPerSecond(),
+                error != null ? " error=" + error : "");
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.preservationmanager.utils;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导入流水线一个阶段的累计数据，可在多个线程中并发更新
+ */
+final class ImportStage {
+
+    final String name;
+    final int threads;
+
+    /**
+     * 阶段的输入队列，没有时为 null
+     */
+    private final BlockingQueue<?> input;
+
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    ImportStage(String name, int threads, BlockingQueue<?> input) {
+        this.name = name;
+        this.threads = threads;
+        this.input = input;
+    }
+
+    /**
+     * 记录处理完一个分块
+     */
+    void recordBusy(int rowCount, long nanos) {
+        chunks.incrementAndGet();
+        rows.addAndGet(rowCount);
+        busyNanos.addAndGet(nanos);
+    }
+
+    /**
+     * 记录等待输入或等待下游队列空位的时间
+     */
+    void recordWait(long nanos) {
+        waitNanos.addAndGet(nanos);
+    }
+
+    /**
+     * 输入队列入队后调用，更新最大深度
+     */
+    void sampleQueueDepth() {
+        if (input == null) {
+            return;
+        }
+        int depth = input.size();
+        int max = maxQueueDepth.get();
+        while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+            max = maxQueueDepth.get();
+        }
+    }
+
+    ImportStageStats snapshot(long elapsedNanos) {
+        return new ImportStageStats(name, threads, chunks.get(), rows.get(),
+                busyNanos.get() / 1000000, waitNanos.get() / 1000000, elapsedNanos / 1000000,
+                input != null ? input.size() : 0, maxQueueDepth.get());
+    }
+}
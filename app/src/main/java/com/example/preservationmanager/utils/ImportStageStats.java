@@ -0,0 +1,97 @@
+package com.example.preservationmanager.utils;
+
+import java.util.Locale;
+
+/**
+ * 导入流水线单个阶段的统计快照
+ * 通过利用率判断瓶颈：写入阶段接近 100% 而计算阶段较低时，说明日历提供者是瓶颈且写入线程没有空闲
+ */
+public final class ImportStageStats {
+
+    private final String name;
+    private final int threads;
+    private final long chunks;
+    private final long rows;
+    private final long busyMs;
+    private final long waitMs;
+    private final long elapsedMs;
+    private final int queueDepth;
+    private final int maxQueueDepth;
+
+    ImportStageStats(String name, int threads, long chunks, long rows, long busyMs, long waitMs,
+                     long elapsedMs, int queueDepth, int maxQueueDepth) {
+        this.name = name;
+        this.threads = threads;
+        this.chunks = chunks;
+        this.rows = rows;
+        this.busyMs = busyMs;
+        this.waitMs = waitMs;
+        this.elapsedMs = elapsedMs;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    /**
+     * @return 阶段名称：parse、compute 或 write
+     */
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return 所有线程处理分块的总耗时
+     */
+    public long getBusyMs() {
+        return busyMs;
+    }
+
+    /**
+     * @return 所有线程等待输入或等待下游队列空位的总耗时
+     */
+    public long getWaitMs() {
+        return waitMs;
+    }
+
+    /**
+     * @return 按导入总耗时计算的每秒行数
+     */
+    public double getRowsPerSecond() {
+        return elapsedMs == 0 ? 0 : rows * 1000.0 / elapsedMs;
+    }
+
+    /**
+     * @return 线程忙碌时间占比（0-1）
+     */
+    public double getUtilization() {
+        return elapsedMs == 0 ? 0 : Math.min(1.0, (double) busyMs / (elapsedMs * threads));
+    }
+
+    /**
+     * @return 快照时输入队列中等待的分块数
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s x%d: rows=%d %.0f rows/s busy=%.0f%% queue=%d (max %d)",
+                name, threads, rows, getRowsPerSecond(), getUtilization() * 100, queueDepth, maxQueueDepth);
+    }
+}
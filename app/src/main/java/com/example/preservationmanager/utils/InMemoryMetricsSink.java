@@ -0,0 +1,21 @@
+package com.example.preservationmanager.utils;
+
+/**
+ * 在内存中保留最近一次发布的指标快照（测试和调试界面使用）
+ */
+public class InMemoryMetricsSink implements MetricsSink {
+
+    private volatile MetricsSnapshot latest;
+
+    @Override
+    public void publish(MetricsSnapshot snapshot) {
+        latest = snapshot;
+    }
+
+    /**
+     * @return 最近一次发布的快照，尚未发布时返回 null
+     */
+    public MetricsSnapshot getLatest() {
+        return latest;
+    }
+}
@@ -0,0 +1,723 @@
+package com.example.preservationmanager.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 库存导入 - 从 CSV 或 JSON 文件流式读取商品，按固定大小的分块计算到期日并写入日历
+ * <p>
+ * 文件逐行读取，任何时刻内存中只有一个分块（默认 {@link #DEFAULT_CHUNK_SIZE} 行），
+ * 导入几十万行的文件也不会把整个文件读入内存。字段：
+ * <ul>
+ * <li>product_id（必需）：商品 ID，重复导入时按 ID 更新已有事件</li>
+ * <li>name（必需）：商品名称</li>
+ * <li>shelf_life（必需）：保质期，正整数</li>
+ * <li>unit：保质期单位，d/day/days/天 或 m/month/months/月，默认按天</li>
+ * <li>production_date：生产日期 yyyy-MM-dd，默认今天</li>
+ * <li>description：事件描述，默认由名称和保质期生成</li>
+ * </ul>
+ * CSV 第一行为表头，列的顺序不限，未知的列被忽略；JSON 为对象数组，字段名同上。
+ * 校验失败的行被跳过并记录在 {@link ImportReport#getRejections()} 中，不影响其它行。
+ * <p>
+ * 默认在调用线程中依次解析、计算和写入。通过 {@link #setComputeThreads(int)} 开启流水线后，
+ * 解析（调用线程）、计算（多个线程）和写入（单个线程）三个阶段通过有界队列并行执行，
+ * 写入线程等待日历提供者时解析和计算继续进行，各阶段的吞吐量和队列深度见 {@link #getStageStats()}。
+ * <p>
+ * 导入在调用线程中同步执行，会访问日历提供者，请在后台线程中调用。
+ * 同一个实例不能同时执行多次导入。
+ */
+public final class InventoryImporter {
+
+    /**
+     * 每个分块的默认行数
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * 流水线模式下计算队列和写入队列的默认容量（分块数）
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    public static final String COLUMN_PRODUCT_ID = "product_id";
+    public static final String COLUMN_NAME = "name";
+    public static final String COLUMN_DESCRIPTION = "description";
+    public static final String COLUMN_PRODUCTION_DATE = "production_date";
+    public static final String COLUMN_SHELF_LIFE = "shelf_life";
+    public static final String COLUMN_UNIT = "unit";
+
+    /**
+     * 超过该值的保质期视为输入错误
+     */
+    private static final int MAX_SHELF_LIFE_DAYS = 36500;
+    private static final int MAX_SHELF_LIFE_MONTHS = 1200;
+
+    /**
+     * 文件格式
+     */
+    public enum Format {
+        CSV,
+        JSON;
+
+        /**
+         * 根据 MIME 类型或文件名判断格式
+         *
+         * @param mimeTypeOrName 例如 "text/csv"、"application/json"、"inventory.csv"
+         * @return 无法判断时返回 null
+         */
+        public static Format detect(String mimeTypeOrName) {
+            if (mimeTypeOrName == null) {
+                return null;
+            }
+            String value = mimeTypeOrName.toLowerCase(Locale.ROOT);
+            if (value.endsWith(".json") || value.contains("json")) {
+                return JSON;
+            }
+            if (value.endsWith(".csv") || value.contains("csv") || value.contains("comma-separated")) {
+                return CSV;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 分块写入目标
+     */
+    public interface ChunkWriter {
+        /**
+         * 写入一个分块；抛出异常时整个分块计为写入失败，导入继续
+         *
+         * @param reminders 分块中的商品提醒
+         * @return 写入成功的条数
+         */
+        int write(List<ProductReminder> reminders);
+    }
+
+    /**
+     * 进度回调，每写入一个分块调用一次；串行模式在导入线程中调用，流水线模式在写入线程中调用
+     * 回调抛出异常会中止导入（两种模式相同）：之后的分块不再写入，结果中带有写入失败的错误
+     */
+    public interface ProgressListener {
+        void onProgress(ImportReport progress);
+    }
+
+    /**
+     * 通过 {@link ProductReminderSync#upsertAll(Context, List)} 写入日历
+     *
+     * @param context 上下文
+     * @return 写入目标
+     */
+    public static ChunkWriter calendarWriter(Context context) {
+        Context appContext = context.getApplicationContext();
+        return reminders -> {
+            UpsertResult result = ProductReminderSync.upsertAll(appContext, reminders);
+            return result.size() - result.count(UpsertResult.Outcome.FAILED);
+        };
+    }
+
+    /**
+     * 一行输入解析后的字段，每行复用
+     */
+    private static final class Row {
+        int line;
+        String productId;
+        String name;
+        String description;
+        long productionDay;
+        boolean hasProductionDate;
+        int shelfLife;
+        ShelfLifeUnit unit;
+        String error;
+
+        void reset(int line) {
+            this.line = line;
+            productId = null;
+            name = null;
+            description = null;
+            productionDay = 0;
+            hasProductionDate = false;
+            shelfLife = 0;
+            unit = ShelfLifeUnit.DAYS;
+            error = null;
+        }
+
+        void reject(String reason) {
+            if (error == null) {
+                error = reason;
+            }
+        }
+    }
+
+    private static final String ERROR_INTERRUPTED = "导入被中断";
+
+    private final ChunkWriter writer;
+    private final ExpiryCalculator calculator;
+    private final int chunkSize;
+    private volatile ProgressListener progressListener;
+    private int computeThreads;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    /**
+     * 串行模式使用的分块，每个分块写入后复用
+     */
+    private final ImportChunk serialChunk;
+
+    /**
+     * 解析线程正在填充的分块
+     */
+    private ImportChunk chunk;
+    private ImportPipeline pipeline;
+    private long chunkStartNanos;
+    private final Row row = new Row();
+    private char[] dateScratch = new char[16];
+
+    // 当前导入的统计；解析线程和写入线程分别更新，其它线程可随时读取
+    private volatile long startNanos;
+    private long today;
+    private volatile long rowsRead;
+    private volatile long rowsImported;
+    private volatile long rowsRejected;
+    private volatile long rowsFailed;
+    private volatile int chunksWritten;
+    /**
+     * 串行模式下进度回调抛出的异常；流水线模式见 {@link ImportPipeline#getWriteFailure()}
+     */
+    private RuntimeException serialFailure;
+    private volatile ImportStage[] stages = new ImportStage[0];
+    private final List<ImportReport.Rejection> rejections = new ArrayList<>();
+
+    /**
+     * 使用默认时区、默认提醒策略和默认分块大小
+     *
+     * @param writer 写入目标，通常为 {@link #calendarWriter(Context)}
+     */
+    public InventoryImporter(ChunkWriter writer) {
+        this(writer, new ExpiryCalculator(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param writer     写入目标
+     * @param calculator 到期日计算器
+     * @param chunkSize  每个分块的行数
+     */
+    public InventoryImporter(ChunkWriter writer, ExpiryCalculator calculator, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.writer = writer;
+        this.calculator = calculator;
+        this.chunkSize = chunkSize;
+        serialChunk = new ImportChunk(chunkSize);
+    }
+
+    public void setProgressListener(ProgressListener listener) {
+        progressListener = listener;
+    }
+
+    /**
+     * 设置流水线计算阶段的线程数
+     * 解析和写入各占一个线程，通常取 CPU 核数减 2（至少为 1）
+     *
+     * @param threads 0 表示不使用流水线，在调用线程中串行执行（默认）
+     */
+    public void setComputeThreads(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("threads must not be negative");
+        }
+        computeThreads = threads;
+    }
+
+    /**
+     * 设置流水线中计算队列和写入队列的容量
+     * 容量越大越能吸收写入耗时的波动，代价是更多的分块同时驻留内存
+     *
+     * @param capacity 每个队列最多容纳的分块数
+     */
+    public void setQueueCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        queueCapacity = capacity;
+    }
+
+    /**
+     * 获取当前（或最近一次）导入各阶段的统计，可在任意线程中调用
+     *
+     * @return 解析、计算、写入三个阶段的统计；还没有导入过时返回空列表
+     */
+    public List<ImportStageStats> getStageStats() {
+        ImportStage[] current = stages;
+        if (current.length == 0) {
+            return Collections.emptyList();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        List<ImportStageStats> stats = new ArrayList<>(current.length);
+        for (ImportStage stage : current) {
+            stats.add(stage.snapshot(elapsedNanos));
+        }
+        return stats;
+    }
+
+    /**
+     * 导入文件，格式根据 MIME 类型或文件名判断
+     *
+     * @param context 上下文
+     * @param uri     文件 Uri（content:// 或 file://）
+     * @return 导入结果；无法判断格式时返回带错误的结果
+     */
+    public ImportReport importFrom(Context context, Uri uri) {
+        Format format = Format.detect(context.getContentResolver().getType(uri));
+        if (format == null) {
+            format = Format.detect(uri.getLastPathSegment());
+        }
+        if (format == null) {
+            return failed("无法识别的文件格式");
+        }
+        return importFrom(context, uri, format);
+    }
+
+    /**
+     * 按指定格式导入文件
+     *
+     * @param context 上下文
+     * @param uri     文件 Uri（content:// 或 file://）
+     * @param format  文件格式
+     * @return 导入结果
+     */
+    public ImportReport importFrom(Context context, Uri uri, Format format) {
+        InputStream in;
+        try {
+            in = context.getContentResolver().openInputStream(uri);
+        } catch (IOException | SecurityException e) {
+            return failed("无法打开文件：" + e.getMessage());
+        }
+        if (in == null) {
+            return failed("无法打开文件");
+        }
+        try {
+            return format == Format.JSON ? importJson(in) : importCsv(in);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 导入 UTF-8 编码的 CSV，不会关闭输入流
+     *
+     * @param in 输入流
+     * @return 导入结果
+     */
+    public ImportReport importCsv(InputStream in) {
+        begin();
+        CsvReader csv = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            if (!csv.next()) {
+                return end("文件为空");
+            }
+            int productIdColumn = -1;
+            int nameColumn = -1;
+            int descriptionColumn = -1;
+            int productionDateColumn = -1;
+            int shelfLifeColumn = -1;
+            int unitColumn = -1;
+            for (int i = 0; i < csv.getFieldCount(); i++) {
+                switch (csv.getString(i).toLowerCase(Locale.ROOT)) {
+                    case COLUMN_PRODUCT_ID:
+                        productIdColumn = i;
+                        break;
+                    case COLUMN_NAME:
+                        nameColumn = i;
+                        break;
+                    case COLUMN_DESCRIPTION:
+                        descriptionColumn = i;
+                        break;
+                    case COLUMN_PRODUCTION_DATE:
+                        productionDateColumn = i;
+                        break;
+                    case COLUMN_SHELF_LIFE:
+                        shelfLifeColumn = i;
+                        break;
+                    case COLUMN_UNIT:
+                        unitColumn = i;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (productIdColumn < 0 || nameColumn < 0 || shelfLifeColumn < 0) {
+                return end("缺少必需的列：" + COLUMN_PRODUCT_ID + "、" + COLUMN_NAME + "、" + COLUMN_SHELF_LIFE);
+            }
+
+            while (csv.next()) {
+                row.reset(csv.getLineNumber());
+                row.productId = csv.getString(productIdColumn);
+                row.name = csv.getString(nameColumn);
+                if (descriptionColumn >= 0 && !csv.isBlank(descriptionColumn)) {
+                    row.description = csv.getString(descriptionColumn);
+                }
+                try {
+                    row.shelfLife = csv.getInt(shelfLifeColumn);
+                } catch (NumberFormatException e) {
+                    row.reject("保质期不是整数");
+                }
+                if (unitColumn >= 0 && !csv.isBlank(unitColumn)) {
+                    row.unit = parseUnit(csv.getString(unitColumn));
+                }
+                if (productionDateColumn >= 0 && !csv.isBlank(productionDateColumn)) {
+                    try {
+                        row.productionDay = csv.getEpochDay(productionDateColumn);
+                        row.hasProductionDate = true;
+                    } catch (IllegalArgumentException e) {
+                        row.reject("生产日期无效");
+                    }
+                }
+                accept();
+            }
+            return end(null);
+        } catch (InterruptedIOException e) {
+            return end(ERROR_INTERRUPTED);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return end("读取文件失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 导入 UTF-8 编码的 JSON 对象数组，不会关闭输入流
+     *
+     * @param in 输入流
+     * @return 导入结果
+     */
+    public ImportReport importJson(InputStream in) {
+        begin();
+        JsonReader json = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        int index = 0;
+        try {
+            json.beginArray();
+            while (json.hasNext()) {
+                row.reset(++index);
+                json.beginObject();
+                while (json.hasNext()) {
+                    String name = json.nextName();
+                    String value = nextValue(json);
+                    if (value == null) {
+                        continue;
+                    }
+                    switch (name) {
+                        case COLUMN_PRODUCT_ID:
+                            row.productId = value.trim();
+                            break;
+                        case COLUMN_NAME:
+                            row.name = value.trim();
+                            break;
+                        case COLUMN_DESCRIPTION:
+                            row.description = value.trim().isEmpty() ? null : value.trim();
+                            break;
+                        case COLUMN_PRODUCTION_DATE:
+                            parseProductionDate(value.trim());
+                            break;
+                        case COLUMN_SHELF_LIFE:
+                            try {
+                                row.shelfLife = Integer.parseInt(value.trim());
+                            } catch (NumberFormatException e) {
+                                row.reject("保质期不是整数");
+                            }
+                            break;
+                        case COLUMN_UNIT:
+                            row.unit = parseUnit(value.trim());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                json.endObject();
+                accept();
+            }
+            json.endArray();
+            return end(null);
+        } catch (InterruptedIOException e) {
+            return end(ERROR_INTERRUPTED);
+        } catch (IOException | IllegalStateException e) {
+            // MalformedJsonException 属于 IOException；结构不符（例如顶层不是数组）抛出 IllegalStateException
+            e.printStackTrace();
+            return end("JSON 格式错误（第 " + Math.max(index, 1) + " 项）：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 读取一个字段值，数字按原文返回，null 返回 null，数组和对象被跳过
+     */
+    private static String nextValue(JsonReader json) throws IOException {
+        JsonToken token = json.peek();
+        switch (token) {
+            case STRING:
+            case NUMBER:
+                return json.nextString();
+            case NULL:
+                json.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(json.nextBoolean());
+            default:
+                json.skipValue();
+                return null;
+        }
+    }
+
+    private void parseProductionDate(String value) {
+        if (value.isEmpty()) {
+            return;
+        }
+        int length = value.length();
+        if (length > dateScratch.length) {
+            dateScratch = new char[length];
+        }
+        value.getChars(0, length, dateScratch, 0);
+        try {
+            row.productionDay = CsvReader.parseEpochDay(dateScratch, 0, length);
+            row.hasProductionDate = true;
+        } catch (IllegalArgumentException e) {
+            row.reject("生产日期无效");
+        }
+    }
+
+    /**
+     * @return 无法识别时返回 null
+     */
+    private static ShelfLifeUnit parseUnit(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "d":
+            case "day":
+            case "days":
+            case "天":
+                return ShelfLifeUnit.DAYS;
+            case "m":
+            case "month":
+            case "months":
+            case "月":
+            case "个月":
+                return ShelfLifeUnit.MONTHS;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 校验当前行，通过后加入分块，分块满时提交
+     */
+    private void accept() throws InterruptedIOException {
+        rowsRead++;
+        if (row.productId == null || row.productId.isEmpty()) {
+            row.reject("缺少商品 ID");
+        }
+        if (row.name == null || row.name.isEmpty()) {
+            row.reject("缺少商品名称");
+        }
+        if (row.unit == null) {
+            row.reject("无法识别的保质期单位");
+        } else if (row.shelfLife <= 0
+                || row.shelfLife > (row.unit == ShelfLifeUnit.MONTHS ? MAX_SHELF_LIFE_MONTHS : MAX_SHELF_LIFE_DAYS)) {
+            row.reject("保质期超出范围");
+        }
+        if (row.error != null) {
+            rowsRejected++;
+            synchronized (rejections) {
+                if (rejections.size() < ImportReport.MAX_REJECTIONS) {
+                    rejections.add(new ImportReport.Rejection(row.line, row.error));
+                }
+            }
+            return;
+        }
+
+        int index = chunk.batch.add(row.hasProductionDate ? row.productionDay : today, row.shelfLife, row.unit);
+        chunk.productIds[index] = row.productId;
+        chunk.titles[index] = row.name + "保质期提醒";
+        chunk.descriptions[index] = row.description != null ? row.description
+                : "商品：" + row.name + "\n保质期：" + row.shelfLife
+                + (row.unit == ShelfLifeUnit.MONTHS ? " 个月" : " 天");
+        if (chunk.size() == chunkSize) {
+            if (pipeline != null) {
+                try {
+                    chunk = pipeline.submit(chunk);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(ERROR_INTERRUPTED);
+                }
+                if (pipeline.getWriteFailure() != null) {
+                    // 写入已失败，不再解析剩余的行，end() 报告写入失败
+                    throw new InterruptedIOException(ERROR_INTERRUPTED);
+                }
+            } else {
+                processSerially();
+                if (serialFailure != null) {
+                    // 与流水线模式相同：不再解析剩余的行，end() 报告写入失败
+                    throw new InterruptedIOException(ERROR_INTERRUPTED);
+                }
+            }
+        }
+    }
+
+    /**
+     * 串行模式：在调用线程中计算并写入当前分块
+     */
+    private void processSerially() {
+        int size = chunk.size();
+        long computeStart = System.nanoTime();
+        stages[0].recordBusy(size, computeStart - chunkStartNanos);
+        computeChunk(chunk);
+        long writeStart = System.nanoTime();
+        stages[1].recordBusy(size, writeStart - computeStart);
+        try {
+            writeChunk(chunk);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            serialFailure = e;
+        }
+        chunkStartNanos = System.nanoTime();
+        stages[2].recordBusy(size, chunkStartNanos - writeStart);
+        chunk.clear();
+    }
+
+    /**
+     * 计算阶段：计算到期日并生成商品提醒
+     */
+    private void computeChunk(ImportChunk target) {
+        try {
+            calculator.compute(target.batch);
+            target.reminders = calculator.toReminders(target.batch,
+                    target.productIds, target.titles, target.descriptions);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            target.reminders = null;
+        }
+    }
+
+    /**
+     * 写入阶段：写入日历并更新统计，流水线模式下只在写入线程中调用
+     */
+    private void writeChunk(ImportChunk target) {
+        int size = target.size();
+        int written = 0;
+        if (target.reminders != null) {
+            try {
+                written = writer.write(target.reminders);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        rowsImported += written;
+        rowsFailed += size - written;
+        chunksWritten++;
+
+        ProgressListener listener = progressListener;
+        if (listener != null) {
+            listener.onProgress(report(false, null));
+        }
+    }
+
+    private void begin() {
+        startNanos = System.nanoTime();
+        today = calculator.today();
+        rowsRead = 0;
+        rowsImported = 0;
+        rowsRejected = 0;
+        rowsFailed = 0;
+        chunksWritten = 0;
+        serialFailure = null;
+        synchronized (rejections) {
+            rejections.clear();
+        }
+
+        if (computeThreads > 0) {
+            pipeline = new ImportPipeline(new ImportPipeline.Stages() {
+                @Override
+                public void compute(ImportChunk target) {
+                    computeChunk(target);
+                }
+
+                @Override
+                public void write(ImportChunk target) {
+                    writeChunk(target);
+                }
+            }, chunkSize, computeThreads, queueCapacity);
+            stages = new ImportStage[]{pipeline.parseStage, pipeline.computeStage, pipeline.writeStage};
+            chunk = pipeline.start();
+        } else {
+            stages = new ImportStage[]{new ImportStage("parse", 1, null),
+                    new ImportStage("compute", 1, null), new ImportStage("write", 1, null)};
+            chunk = serialChunk;
+            chunk.clear();
+            chunkStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 写入剩余的行并结束导入；被中断或写入失败时丢弃尚未写入的分块
+     *
+     * @param error 中止导入的错误，正常结束时为 null
+     */
+    private ImportReport end(String error) {
+        RuntimeException failure;
+        if (pipeline != null) {
+            ImportPipeline current = pipeline;
+            pipeline = null;
+            if (ERROR_INTERRUPTED.equals(error)) {
+                current.abort();
+            } else {
+                try {
+                    current.finish(chunk);
+                } catch (InterruptedException e) {
+                    current.abort();
+                    Thread.currentThread().interrupt();
+                    error = ERROR_INTERRUPTED;
+                }
+            }
+            failure = current.getWriteFailure();
+        } else {
+            if (chunk.size() > 0 && !ERROR_INTERRUPTED.equals(error)) {
+                processSerially();
+            }
+            failure = serialFailure;
+        }
+        if (failure != null) {
+            error = "写入失败：" + failure.getClass().getSimpleName();
+        }
+        // 被中断或写入失败时丢弃的行计为写入失败，保证读取 = 导入 + 拒绝 + 失败
+        rowsFailed = rowsRead - rowsRejected - rowsImported;
+        chunk = null;
+        serialChunk.clear();
+        return report(true, error);
+    }
+
+    private ImportReport report(boolean finished, String error) {
+        long elapsedMs = (System.nanoTime() - startNanos) / 1000000;
+        List<ImportReport.Rejection> rejected;
+        synchronized (rejections) {
+            rejected = new ArrayList<>(rejections);
+        }
+        return new ImportReport(rowsRead, rowsImported, rowsRejected, rowsFailed, chunksWritten,
+                elapsedMs, finished, error, rejected, getStageStats());
+    }
+
+    /**
+     * @return 没有读取任何数据就结束的导入结果
+     */
+    private static ImportReport failed(String error) {
+        return new ImportReport(0, 0, 0, 0, 0, 0, true, error, null, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.preservationmanager.utils;
+
+import android.util.Log;
+
+/**
+ * 将指标快照逐行输出到 logcat
+ */
+public class LogcatMetricsSink implements MetricsSink {
+
+    public static final String TAG = "CalendarMetrics";
+
+    @Override
+    public void publish(MetricsSnapshot snapshot) {
+        for (MetricsSnapshot.OperationStats stats : snapshot.getOperations()) {
+            Log.i(TAG, stats.toString());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.preservationmanager.utils;
+
+/**
+ * 指标输出目标
+ *
+ * @see CalendarMetrics#publish(MetricsSink)
+ */
+public interface MetricsSink {
+
+    void publish(MetricsSnapshot snapshot);
+}
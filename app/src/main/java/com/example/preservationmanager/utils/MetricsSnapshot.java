@@ -0,0 +1,160 @@
+package com.example.preservationmanager.utils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@link CalendarMetrics} 在某一时刻的只读快照
+ */
+public final class MetricsSnapshot {
+
+    /**
+     * 单个操作的统计数据，延迟单位为微秒
+     */
+    public static final class OperationStats {
+        private final CalendarMetrics.Operation operation;
+        private final long successCount;
+        private final long failureCount;
+        private final long permissionDeniedCount;
+        private final long retryCount;
+        private final long p50Micros;
+        private final long p90Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+        private final double meanMicros;
+        private final long batchCount;
+        private final double meanBatchSize;
+        private final long maxBatchSize;
+
+        OperationStats(CalendarMetrics.Operation operation, CalendarMetrics.Recorder recorder) {
+            this.operation = operation;
+            this.successCount = recorder.successes.get();
+            this.failureCount = recorder.failures.get();
+            this.permissionDeniedCount = recorder.permissionDenials.get();
+            this.retryCount = recorder.retries.get();
+            this.p50Micros = recorder.latencyMicros.getValueAtPercentile(50);
+            this.p90Micros = recorder.latencyMicros.getValueAtPercentile(90);
+            this.p99Micros = recorder.latencyMicros.getValueAtPercentile(99);
+            this.maxMicros = recorder.latencyMicros.getMax();
+            this.meanMicros = recorder.latencyMicros.getMean();
+            this.batchCount = recorder.batchSizes.getCount();
+            this.meanBatchSize = recorder.batchSizes.getMean();
+            this.maxBatchSize = recorder.batchSizes.getMax();
+        }
+
+        public CalendarMetrics.Operation getOperation() {
+            return operation;
+        }
+
+        public long getCount() {
+            return successCount + failureCount + permissionDeniedCount;
+        }
+
+        public long getSuccessCount() {
+            return successCount;
+        }
+
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        public long getPermissionDeniedCount() {
+            return permissionDeniedCount;
+        }
+
+        public long getRetryCount() {
+            return retryCount;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP90Micros() {
+            return p90Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+
+        public long getBatchCount() {
+            return batchCount;
+        }
+
+        public double getMeanBatchSize() {
+            return meanBatchSize;
+        }
+
+        public long getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        @Override
+        public String toString() {
+            String line = String.format(Locale.US,
+                    "%s n=%d ok=%d fail=%d denied=%d retry=%d p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                    operation, getCount(), successCount, failureCount, permissionDeniedCount, retryCount,
+                    p50Micros / 1000.0, p90Micros / 1000.0, p99Micros / 1000.0, maxMicros / 1000.0);
+            if (batchCount > 0) {
+                line += String.format(Locale.US, " batches=%d avgSize=%.1f maxSize=%d",
+                        batchCount, meanBatchSize, maxBatchSize);
+            }
+            return line;
+        }
+    }
+
+    private final long timestamp;
+    private final List<OperationStats> operations;
+
+    MetricsSnapshot(long timestamp, List<OperationStats> operations) {
+        this.timestamp = timestamp;
+        this.operations = Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * @return 快照时间（毫秒）
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<OperationStats> getOperations() {
+        return operations;
+    }
+
+    /**
+     * @return 指定操作的统计数据，尚未发生过时返回 null
+     */
+    public OperationStats get(CalendarMetrics.Operation operation) {
+        for (OperationStats stats : operations) {
+            if (stats.operation == operation) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 每个操作一行的文本
+     */
+    public String format() {
+        if (operations.isEmpty()) {
+            return "暂无日历操作数据";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (OperationStats stats : operations) {
+            builder.append(builder.length() == 0 ? "" : "\n").append(stats);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.preservationmanager.utils;
+
+import java.util.Arrays;
+
+/**
+ * 写入队列中尚未提交到日历的一个事件变更
+ * 同一事件的多次变更通过 {@link #merge(PendingWrite, PendingWrite)} 合并为一个
+ */
+final class PendingWrite {
+
+    /**
+     * 变更类型，数值写入日志表，不可修改
+     */
+    enum Op {
+        INSERT(1),
+        UPDATE(2),
+        DELETE(3),
+        /**
+         * 只为已有事件添加提醒
+         */
+        REMINDERS(4);
+
+        final int code;
+
+        Op(int code) {
+            this.code = code;
+        }
+
+        static Op fromCode(int code) {
+            for (Op op : values()) {
+                if (op.code == code) {
+                    return op;
+                }
+            }
+            throw new IllegalArgumentException("Unknown op " + code);
+        }
+    }
+
+    private static final int[] NO_REMINDERS = new int[0];
+
+    /**
+     * 事件 ID；尚未插入的事件为临时的负数键
+     */
+    final long eventKey;
+    final Op op;
+    final long calendarId;
+    final String title;
+    final String description;
+    final long startTime;
+    final long endTime;
+    final String timeZone;
+    final int[] reminderMinutes;
+
+    /**
+     * 日志表中的行 ID，尚未写入日志时为 -1
+     */
+    long journalId = -1;
+
+    PendingWrite(long eventKey, Op op, long calendarId, String title, String description,
+                 long startTime, long endTime, String timeZone, int[] reminderMinutes) {
+        this.eventKey = eventKey;
+        this.op = op;
+        this.calendarId = calendarId;
+        this.title = title;
+        this.description = description;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.timeZone = timeZone;
+        this.reminderMinutes = reminderMinutes != null ? reminderMinutes : NO_REMINDERS;
+    }
+
+    static PendingWrite insert(long eventKey, long calendarId, String title, String description,
+                               long startTime, long endTime, String timeZone) {
+        return new PendingWrite(eventKey, Op.INSERT, calendarId, title, description,
+                startTime, endTime, timeZone, null);
+    }
+
+    static PendingWrite update(long eventId, String title, String description, long startTime, long endTime) {
+        return new PendingWrite(eventId, Op.UPDATE, -1, title, description, startTime, endTime, null, null);
+    }
+
+    static PendingWrite delete(long eventId) {
+        return new PendingWrite(eventId, Op.DELETE, -1, null, null, 0, 0, null, null);
+    }
+
+    static PendingWrite reminder(long eventId, int minutesBefore) {
+        return new PendingWrite(eventId, Op.REMINDERS, -1, null, null, 0, 0, null, new int[]{minutesBefore});
+    }
+
+    /**
+     * 将同一事件先后两次变更合并为一次：
+     * <ul>
+     *     <li>插入 + 更新 → 使用新内容插入</li>
+     *     <li>插入 + 删除 → 无需写入，返回 null</li>
+     *     <li>更新 + 删除 → 删除</li>
+     *     <li>删除之后的任何变更都被忽略</li>
+     *     <li>提醒按先后顺序累加</li>
+     * </ul>
+     *
+     * @param older 先发生的变更
+     * @param newer 后发生的变更
+     * @return 合并后的变更（沿用 older 的日志行），两者相互抵消时返回 null
+     */
+    static PendingWrite merge(PendingWrite older, PendingWrite newer) {
+        if (older.op == Op.DELETE) {
+            return older;
+        }
+        if (newer.op == Op.DELETE) {
+            if (older.op == Op.INSERT) {
+                return null;
+            }
+            PendingWrite merged = delete(older.eventKey);
+            merged.journalId = older.journalId;
+            return merged;
+        }
+
+        Op op;
+        if (older.op == Op.INSERT) {
+            op = Op.INSERT;
+        } else if (older.op == Op.UPDATE || newer.op == Op.UPDATE) {
+            op = Op.UPDATE;
+        } else {
+            op = Op.REMINDERS;
+        }
+        PendingWrite content = newer.op == Op.UPDATE ? newer : older;
+
+        int[] reminders = Arrays.copyOf(older.reminderMinutes,
+                older.reminderMinutes.length + newer.reminderMinutes.length);
+        System.arraycopy(newer.reminderMinutes, 0, reminders, older.reminderMinutes.length,
+                newer.reminderMinutes.length);
+
+        PendingWrite merged = new PendingWrite(older.eventKey, op, older.calendarId, content.title,
+                content.description, content.startTime, content.endTime, older.timeZone, reminders);
+        merged.journalId = older.journalId;
+        return merged;
+    }
+
+    /**
+     * 以新的事件 ID 复制此变更（临时键对应的插入已经提交时使用）
+     */
+    PendingWrite withEventKey(long newKey) {
+        PendingWrite copy = new PendingWrite(newKey, op, calendarId, title, description,
+                startTime, endTime, timeZone, reminderMinutes);
+        copy.journalId = journalId;
+        return copy;
+    }
+
+    /**
+     * @return 提醒分钟数序列化为 "60,120"，用于写入日志表
+     */
+    String encodeReminders() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < reminderMinutes.length; i++) {
+            builder.append(i == 0 ? "" : ",").append(reminderMinutes[i]);
+        }
+        return builder.toString();
+    }
+
+    static int[] decodeReminders(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return NO_REMINDERS;
+        }
+        String[] parts = encoded.split(",");
+        int[] minutes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            minutes[i] = Integer.parseInt(parts[i]);
+        }
+        return minutes;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.preservationmanager.utils;
+
+import java.util.TimeZone;
+
+/**
+ * 商品保质期提醒 - 批量创建事件时使用的数据对象
+ * 每个实例对应系统日历中的一个事件及其提醒
+ */
+public class ProductReminder {
+
+    private final String productId;
+    private final String title;
+    private final String description;
+    private final long startTime;
+    private final long endTime;
+    private final int reminderMinutesBefore;
+    private final String timeZone;
+
+    /**
+     * 使用默认时区创建商品提醒
+     *
+     * @param productId             商品 ID（可为 null）
+     * @param title                 事件标题
+     * @param description           事件描述
+     * @param startTime             事件开始时间（毫秒）
+     * @param endTime               事件结束时间（毫秒）
+     * @param reminderMinutesBefore 提前提醒的分钟数
+     */
+    public ProductReminder(String productId, String title, String description,
+                           long startTime, long endTime, int reminderMinutesBefore) {
+        this(productId, title, description, startTime, endTime, reminderMinutesBefore,
+                TimeZone.getDefault().getID());
+    }
+
+    /**
+     * 创建商品提醒，可指定时区
+     *
+     * @param productId             商品 ID（可为 null）
+     * @param title                 事件标题
+     * @param description           事件描述
+     * @param startTime             事件开始时间（毫秒）
+     * @param endTime               事件结束时间（毫秒）
+     * @param reminderMinutesBefore 提前提醒的分钟数
+     * @param timeZone              时区（例如："Asia/Shanghai"）
+     */
+    public ProductReminder(String productId, String title, String description,
+                           long startTime, long endTime, int reminderMinutesBefore, String timeZone) {
+        this.productId = productId;
+        this.title = title;
+        this.description = description;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.reminderMinutesBefore = reminderMinutesBefore;
+        this.timeZone = timeZone;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public int getReminderMinutesBefore() {
+        return reminderMinutesBefore;
+    }
+
+    public String getTimeZone() {
+        return timeZone;
+    }
+
+    /**
+     * 检查提醒数据是否可以写入日历
+     *
+     * @return 数据有效返回 true，否则返回 false
+     */
+    boolean isValid() {
+        return title != null && !title.isEmpty() && endTime >= startTime
+                && reminderMinutesBefore >= 0 && timeZone != null;
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.CalendarContract;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按商品 ID 幂等写入提醒（upsert）
+ * <p>
+ * 通过本地 {@link ExpiryIndex} 查找商品已有的事件，索引中没有记录的商品再按 UID_2445 在日历中查找
+ * （索引写入失败或丢失时），找到的事件重新记入索引。新商品插入事件和提醒，
+ * 内容变化的商品原地更新，内容未变化的商品不产生任何写入。
+ * 重复执行同一批商品（例如每晚同步）不会产生重复事件。
+ */
+public final class ProductReminderSync {
+
+    private ProductReminderSync() {
+    }
+
+    /**
+     * 写入单个商品提醒
+     *
+     * @param context  上下文
+     * @param reminder 商品提醒，productId 不能为 null
+     * @return 处理结果
+     */
+    public static UpsertResult upsert(Context context, ProductReminder reminder) {
+        return upsertAll(context, Collections.singletonList(reminder));
+    }
+
+    /**
+     * 批量写入商品提醒
+     *
+     * @param context   上下文
+     * @param reminders 商品提醒列表，productId 不能为 null
+     * @return 按输入顺序的处理结果
+     */
+    public static UpsertResult upsertAll(Context context, List<ProductReminder> reminders) {
+        return upsertAll(context, reminders, false);
+    }
+
+    /**
+     * 批量写入每日汇总事件，productId 为 {@link ExpiryDigest} 的汇总键
+     *
+     * @param context   上下文
+     * @param reminders 汇总提醒列表
+     * @return 按输入顺序的处理结果
+     */
+    static UpsertResult upsertDigests(Context context, List<ProductReminder> reminders) {
+        return upsertAll(context, reminders, true);
+    }
+
+    private static UpsertResult upsertAll(Context context, List<ProductReminder> reminders, boolean digests) {
+        UpsertResult result = new UpsertResult(reminders.size());
+        if (reminders.isEmpty()) {
+            return result;
+        }
+
+        if (!CalendarUtils.hasCalendarPermissions(context)) {
+            failAll(result, ErrorCategory.PERMISSION_DENIED, "缺少日历权限");
+            return result;
+        }
+
+        long calendarId = CalendarUtils.getOrCreateCalendarAccount(context);
+        if (calendarId == -1) {
+            failAll(result, ErrorCategory.NOT_FOUND, "获取日历账户失败");
+            return result;
+        }
+
+        CalendarTrace.begin(CalendarTrace.UPSERT);
+        try {
+            for (int start = 0; start < reminders.size(); start += CalendarUtils.BATCH_CHUNK_SIZE) {
+                int end = Math.min(start + CalendarUtils.BATCH_CHUNK_SIZE, reminders.size());
+                CalendarTrace.begin(CalendarTrace.UPSERT_CHUNK);
+                try {
+                    upsertChunk(context, calendarId, reminders, start, end, digests, result);
+                } finally {
+                    CalendarTrace.end();
+                }
+            }
+        } finally {
+            CalendarTrace.end();
+        }
+        return result;
+    }
+
+    private static void upsertChunk(Context context, long calendarId, List<ProductReminder> reminders,
+                                    int start, int end, boolean digests, UpsertResult result) {
+        ExpiryIndex index = ExpiryIndex.getInstance(context);
+
+        Set<String> productIds = new HashSet<>();
+        for (int i = start; i < end; i++) {
+            ProductReminder reminder = reminders.get(i);
+            if (reminder.getProductId() == null || !reminder.isValid()) {
+                result.fail(i, ErrorCategory.INVALID_ARGUMENT, "参数无效");
+            } else if (CalendarUtils.isDigestKey(reminder.getProductId()) != digests) {
+                // 商品 ID 不能占用汇总事件的 UID
+                result.fail(i, ErrorCategory.INVALID_ARGUMENT, "商品 ID 无效");
+            } else if (!productIds.add(reminder.getProductId())) {
+                result.fail(i, ErrorCategory.INVALID_ARGUMENT, "商品 ID 重复");
+            }
+        }
+
+        Map<String, ExpiryIndex.Entry> existing;
+        try {
+            existing = index.findByProductIds(productIds);
+        } catch (RuntimeException e) {
+            // 无法确认已有事件时不写入，避免产生重复事件
+            e.printStackTrace();
+            failRemaining(result, start, end, "读取本地索引失败");
+            return;
+        }
+        if (!loadMissingReminders(context, existing)) {
+            failRemaining(result, start, end, "读取日历提醒失败");
+            return;
+        }
+        List<String> missing = new ArrayList<>();
+        for (String productId : productIds) {
+            if (!existing.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty() && !adoptCalendarEvents(context, calendarId, missing, existing)) {
+            failRemaining(result, start, end, "查询日历事件失败");
+            return;
+        }
+
+        List<ProductReminder> toInsert = new ArrayList<>();
+        List<Integer> insertPositions = new ArrayList<>();
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        List<Integer> updatePositions = new ArrayList<>();
+        List<Integer> updateOpIndices = new ArrayList<>();
+
+        for (int i = start; i < end; i++) {
+            if (result.getFailureReason(i) != null) {
+                continue;
+            }
+            ProductReminder reminder = reminders.get(i);
+            ExpiryIndex.Entry entry = existing.get(reminder.getProductId());
+            if (entry == null) {
+                toInsert.add(reminder);
+                insertPositions.add(i);
+            } else if (entry.matches(reminder)) {
+                result.set(i, UpsertResult.Outcome.UNCHANGED, entry.eventId);
+            } else {
+                updatePositions.add(i);
+                updateOpIndices.add(operations.size());
+                addUpdateOperations(operations, calendarId, entry, reminder);
+            }
+        }
+
+        if (!operations.isEmpty()) {
+            CalendarResult<ContentProviderResult[]> applied = CalendarUtils.applyBatch(context, operations);
+            if (!applied.isSuccess() && applied.getCategory() == ErrorCategory.TOO_LARGE && end - start > 1) {
+                // 整个批次未写入，拆成两半重新处理
+                int mid = (start + end) >>> 1;
+                upsertChunk(context, calendarId, reminders, start, mid, digests, result);
+                upsertChunk(context, calendarId, reminders, mid, end, digests, result);
+                return;
+            }
+            ContentProviderResult[] results = applied.getValue();
+            if (!applied.isSuccess()) {
+                String reason = "批量更新失败：" + (applied.getError() != null
+                        ? applied.getError().getClass().getSimpleName() : applied.getCategory().name());
+                for (int position : updatePositions) {
+                    result.fail(position, applied.getCategory(), reason);
+                }
+            }
+
+            if (results != null) {
+                for (int k = 0; k < updatePositions.size(); k++) {
+                    int position = updatePositions.get(k);
+                    int opIndex = updateOpIndices.get(k);
+                    ProductReminder reminder = reminders.get(position);
+                    ExpiryIndex.Entry entry = existing.get(reminder.getProductId());
+                    Integer count = results[opIndex].count;
+                    if (count == null || count == 0) {
+                        // 事件已在系统日历中被删除，改为重新插入
+                        CalendarUtils.syncIndex(() -> index.removeEvent(entry.eventId));
+                        toInsert.add(reminder);
+                        insertPositions.add(position);
+                        continue;
+                    }
+                    result.set(position, UpsertResult.Outcome.UPDATED, entry.eventId);
+                    long reminderId = reminderIdAfterUpdate(entry, results, opIndex);
+                    CalendarUtils.syncIndex(() -> {
+                        index.recordEvent(entry.eventId, reminder.getProductId(), calendarId, reminder.getTitle(),
+                                reminder.getDescription(), reminder.getStartTime(), reminder.getEndTime(),
+                                reminder.getTimeZone());
+                        if (reminderId != -1) {
+                            index.replaceReminder(entry.eventId, reminderId, reminder.getReminderMinutesBefore());
+                        }
+                    });
+                }
+            }
+        }
+
+        if (!toInsert.isEmpty()) {
+            BulkInsertResult inserted = new BulkInsertResult(toInsert.size());
+            CalendarUtils.insertReminders(context, calendarId, toInsert, inserted);
+            for (int k = 0; k < toInsert.size(); k++) {
+                long eventId = inserted.getEventId(k);
+                if (eventId != -1) {
+                    result.set(insertPositions.get(k), UpsertResult.Outcome.INSERTED, eventId);
+                } else {
+                    ErrorCategory category = inserted.getFailureCategory(k);
+                    result.fail(insertPositions.get(k), category != null ? category : ErrorCategory.UNKNOWN, "插入失败");
+                }
+            }
+        }
+    }
+
+    /**
+     * 本地索引中没有提醒记录的事件从日历中读取提醒，避免为已有提醒的事件再添加一条
+     *
+     * @param existing 商品 ID → 索引记录，找到的提醒直接替换进去
+     * @return 查询失败返回 false
+     */
+    private static boolean loadMissingReminders(Context context, Map<String, ExpiryIndex.Entry> existing) {
+        List<Long> eventIds = new ArrayList<>();
+        for (ExpiryIndex.Entry entry : existing.values()) {
+            if (entry.reminderId == -1) {
+                eventIds.add(entry.eventId);
+            }
+        }
+        if (eventIds.isEmpty()) {
+            return true;
+        }
+
+        Map<Long, long[]> reminders;
+        try {
+            reminders = CalendarUtils.queryFirstReminders(context.getContentResolver(), eventIds);
+        } catch (SecurityException e) {
+            CalendarPermissionState.invalidate();
+            return false;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return false;
+        }
+        if (reminders == null) {
+            return false;
+        }
+        for (Map.Entry<String, ExpiryIndex.Entry> item : existing.entrySet()) {
+            long[] reminder = reminders.get(item.getValue().eventId);
+            if (reminder != null) {
+                item.setValue(item.getValue().withReminder(reminder[0], (int) reminder[1]));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 本地索引中没有记录的商品按 UID_2445 在日历中查找事件，找到的事件（每个商品事件 ID 最小的一条）重新记入索引
+     * 同一商品的多余事件由 {@link CalendarReconciler} 全量同步时删除
+     *
+     * @param missing  索引中没有记录的商品 ID
+     * @param existing 商品 ID → 索引记录，找到的事件加入其中
+     * @return 查询失败返回 false
+     */
+    private static boolean adoptCalendarEvents(Context context, long calendarId, List<String> missing,
+                                               Map<String, ExpiryIndex.Entry> existing) {
+        ContentResolver contentResolver = context.getContentResolver();
+        ExpiryIndex index = ExpiryIndex.getInstance(context);
+
+        for (int start = 0; start < missing.size(); start += CalendarUtils.IN_CLAUSE_CHUNK_SIZE) {
+            int end = Math.min(start + CalendarUtils.IN_CLAUSE_CHUNK_SIZE, missing.size());
+            StringBuilder selection = new StringBuilder(CalendarContract.Events.CALENDAR_ID).append(" = ? AND ")
+                    .append(CalendarContract.Events.DELETED).append(" = 0 AND ")
+                    .append(CalendarContract.Events.UID_2445).append(" IN (");
+            String[] selectionArgs = new String[end - start + 1];
+            selectionArgs[0] = String.valueOf(calendarId);
+            for (int i = start; i < end; i++) {
+                selection.append(i == start ? "?" : ",?");
+                selectionArgs[i - start + 1] = CalendarUtils.uidFor(missing.get(i));
+            }
+            selection.append(')');
+
+            try (Cursor cursor = contentResolver.query(CalendarContract.Events.CONTENT_URI,
+                    CalendarReconciler.EVENT_PROJECTION, selection.toString(), selectionArgs,
+                    CalendarContract.Events._ID)) {
+                if (cursor == null) {
+                    return false;
+                }
+                List<Long> eventIds = new ArrayList<>(cursor.getCount());
+                while (cursor.moveToNext()) {
+                    eventIds.add(cursor.getLong(0));
+                }
+                if (eventIds.isEmpty()) {
+                    continue;
+                }
+                Map<Long, long[]> reminders = CalendarUtils.queryFirstReminders(contentResolver, eventIds);
+                if (reminders == null) {
+                    return false;
+                }
+
+                Map<String, String> descriptions = new HashMap<>();
+                cursor.moveToPosition(-1);
+                while (cursor.moveToNext()) {
+                    String productId = CalendarUtils.productIdFor(cursor.getString(1));
+                    if (existing.containsKey(productId)) {
+                        continue;
+                    }
+                    long eventId = cursor.getLong(0);
+                    long[] reminder = reminders.get(eventId);
+                    existing.put(productId, new ExpiryIndex.Entry(eventId, cursor.getString(2),
+                            ExpiryIndex.hash(cursor.getString(3)), cursor.getLong(4), cursor.getLong(5),
+                            cursor.getString(6), reminder != null ? reminder[0] : -1,
+                            reminder != null ? (int) reminder[1] : 0));
+                    descriptions.put(productId, cursor.getString(3));
+                }
+
+                CalendarUtils.syncIndex(() -> index.runInTransaction(() -> {
+                    for (Map.Entry<String, String> adopted : descriptions.entrySet()) {
+                        ExpiryIndex.Entry entry = existing.get(adopted.getKey());
+                        index.recordEvent(entry.eventId, adopted.getKey(), calendarId, entry.title,
+                                adopted.getValue(), entry.startTime, entry.endTime, entry.timeZone);
+                        if (entry.reminderId != -1) {
+                            index.replaceReminder(entry.eventId, entry.reminderId, entry.reminderMinutes);
+                        }
+                    }
+                }));
+            } catch (SecurityException e) {
+                CalendarPermissionState.invalidate();
+                return false;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 为已有事件添加更新操作：事件本身一个操作，提醒变化时再加一个操作
+     * entry 的提醒必须来自日历本身（或已与日历核对），reminderId 为 -1 表示事件确实没有提醒
+     */
+    static void addUpdateOperations(ArrayList<ContentProviderOperation> operations, long calendarId,
+                                    ExpiryIndex.Entry entry, ProductReminder reminder) {
+        ContentValues values = CalendarUtils.buildEventValues(calendarId, reminder.getProductId(),
+                reminder.getTitle(), reminder.getDescription(), reminder.getStartTime(), reminder.getEndTime(),
+                reminder.getTimeZone());
+        values.remove(CalendarContract.Events.CALENDAR_ID);
+        operations.add(ContentProviderOperation.newUpdate(
+                        Uri.withAppendedPath(CalendarContract.Events.CONTENT_URI, String.valueOf(entry.eventId)))
+                .withValues(values)
+                .withYieldAllowed(true)
+                .build());
+
+        if (entry.reminderId == -1) {
+            operations.add(ContentProviderOperation.newInsert(CalendarContract.Reminders.CONTENT_URI)
+                    .withValue(CalendarContract.Reminders.EVENT_ID, entry.eventId)
+                    .withValue(CalendarContract.Reminders.MINUTES, reminder.getReminderMinutesBefore())
+                    .withValue(CalendarContract.Reminders.METHOD, CalendarContract.Reminders.METHOD_ALERT)
+                    .build());
+        } else if (entry.reminderMinutes != reminder.getReminderMinutesBefore()) {
+            operations.add(ContentProviderOperation.newUpdate(
+                            Uri.withAppendedPath(CalendarContract.Reminders.CONTENT_URI,
+                                    String.valueOf(entry.reminderId)))
+                    .withValue(CalendarContract.Reminders.MINUTES, reminder.getReminderMinutesBefore())
+                    .build());
+        }
+    }
+
+    /**
+     * @return 更新后事件的提醒 ID，提醒未变化时返回原 ID，无法确定时返回 -1
+     */
+    static long reminderIdAfterUpdate(ExpiryIndex.Entry entry, ContentProviderResult[] results,
+                                      int eventOpIndex) {
+        if (entry.reminderId != -1) {
+            return entry.reminderId;
+        }
+        int reminderOpIndex = eventOpIndex + 1;
+        Uri uri = reminderOpIndex < results.length ? results[reminderOpIndex].uri : null;
+        return uri != null ? Long.parseLong(uri.getLastPathSegment()) : -1;
+    }
+
+    private static void failRemaining(UpsertResult result, int start, int end, String reason) {
+        for (int i = start; i < end; i++) {
+            if (result.getFailureReason(i) == null) {
+                result.fail(i, ErrorCategory.UNKNOWN, reason);
+            }
+        }
+    }
+
+    private static void failAll(UpsertResult result, ErrorCategory category, String reason) {
+        for (int i = 0; i < result.size(); i++) {
+            result.fail(i, category, reason);
+        }
+    }
+}
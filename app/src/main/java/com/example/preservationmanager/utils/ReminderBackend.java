@@ -0,0 +1,30 @@
+package com.example.preservationmanager.utils;
+
+/**
+ * 提醒的实现方式
+ */
+public enum ReminderBackend {
+
+    /**
+     * 在系统日历中为事件添加提醒（CalendarContract.Reminders），由系统日历应用通知
+     */
+    CALENDAR,
+
+    /**
+     * 由应用自己的 {@link ExpiryAlarmScheduler} 通知，不写入提醒行，不依赖系统日历应用
+     */
+    IN_APP,
+
+    /**
+     * 同时使用两种方式
+     */
+    BOTH;
+
+    boolean usesCalendar() {
+        return this != IN_APP;
+    }
+
+    boolean usesInApp() {
+        return this != CALENDAR;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.preservationmanager.utils;
+
+import java.util.Arrays;
+
+/**
+ * 事件现有提醒与目标提醒之间的差异
+ * 内容相同的提醒保持不变；其余的现有提醒尽量原地更新，多出的删除，不足的插入
+ */
+final class ReminderDiff {
+
+    final long[] deleteIds;
+    final long[] updateIds;
+    final ReminderSpec[] updateValues;
+    final ReminderSpec[] inserts;
+
+    private ReminderDiff(long[] deleteIds, long[] updateIds, ReminderSpec[] updateValues, ReminderSpec[] inserts) {
+        this.deleteIds = deleteIds;
+        this.updateIds = updateIds;
+        this.updateValues = updateValues;
+        this.inserts = inserts;
+    }
+
+    /**
+     * @param existingIds 现有提醒的行 ID
+     * @param existing    现有提醒，与 existingIds 一一对应
+     * @param desired     目标提醒（重复项按出现次数计算）
+     * @return 差异
+     */
+    static ReminderDiff compute(long[] existingIds, ReminderSpec[] existing, ReminderSpec[] desired) {
+        boolean[] kept = new boolean[existing.length];
+        boolean[] satisfied = new boolean[desired.length];
+        for (int d = 0; d < desired.length; d++) {
+            for (int e = 0; e < existing.length; e++) {
+                if (!kept[e] && existing[e].equals(desired[d])) {
+                    kept[e] = true;
+                    satisfied[d] = true;
+                    break;
+                }
+            }
+        }
+
+        long[] updateIds = new long[Math.min(existing.length, desired.length)];
+        ReminderSpec[] updateValues = new ReminderSpec[updateIds.length];
+        long[] deleteIds = new long[existing.length];
+        ReminderSpec[] inserts = new ReminderSpec[desired.length];
+        int updateCount = 0;
+        int deleteCount = 0;
+        int insertCount = 0;
+
+        int d = 0;
+        for (int e = 0; e < existing.length; e++) {
+            if (kept[e]) {
+                continue;
+            }
+            while (d < desired.length && satisfied[d]) {
+                d++;
+            }
+            if (d < desired.length) {
+                updateIds[updateCount] = existingIds[e];
+                updateValues[updateCount++] = desired[d++];
+            } else {
+                deleteIds[deleteCount++] = existingIds[e];
+            }
+        }
+        for (; d < desired.length; d++) {
+            if (!satisfied[d]) {
+                inserts[insertCount++] = desired[d];
+            }
+        }
+
+        return new ReminderDiff(Arrays.copyOf(deleteIds, deleteCount), Arrays.copyOf(updateIds, updateCount),
+                Arrays.copyOf(updateValues, updateCount), Arrays.copyOf(inserts, insertCount));
+    }
+
+    /**
+     * @return 需要的提供者操作数
+     */
+    int size() {
+        return deleteIds.length + updateIds.length + inserts.length;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
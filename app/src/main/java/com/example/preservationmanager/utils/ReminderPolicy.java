@@ -0,0 +1,58 @@
+package com.example.preservationmanager.utils;
+
+/**
+ * 提醒策略 - 决定到期提醒事件放在哪一天、几点以及提前多久提醒
+ */
+public class ReminderPolicy {
+
+    /**
+     * 默认策略：到期前 1 天 10:00-11:00，提前 2 小时提醒
+     */
+    public static final ReminderPolicy DEFAULT = new ReminderPolicy(1, 10, 0, 60, 120);
+
+    private final int daysBeforeExpiry;
+    private final int hour;
+    private final int minute;
+    private final int durationMinutes;
+    private final int reminderMinutesBefore;
+
+    /**
+     * @param daysBeforeExpiry      事件放在到期日前几天（0 表示到期当天）
+     * @param hour                  事件开始小时
+     * @param minute                事件开始分钟
+     * @param durationMinutes       事件时长（分钟）
+     * @param reminderMinutesBefore 提前提醒的分钟数
+     */
+    public ReminderPolicy(int daysBeforeExpiry, int hour, int minute,
+                          int durationMinutes, int reminderMinutesBefore) {
+        if (daysBeforeExpiry < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || durationMinutes <= 0 || reminderMinutesBefore < 0) {
+            throw new IllegalArgumentException("Invalid reminder policy");
+        }
+        this.daysBeforeExpiry = daysBeforeExpiry;
+        this.hour = hour;
+        this.minute = minute;
+        this.durationMinutes = durationMinutes;
+        this.reminderMinutesBefore = reminderMinutesBefore;
+    }
+
+    public int getDaysBeforeExpiry() {
+        return daysBeforeExpiry;
+    }
+
+    public int getHour() {
+        return hour;
+    }
+
+    public int getMinute() {
+        return minute;
+    }
+
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public int getReminderMinutesBefore() {
+        return reminderMinutesBefore;
+    }
+}
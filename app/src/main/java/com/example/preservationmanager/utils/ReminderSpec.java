@@ -0,0 +1,81 @@
+package com.example.preservationmanager.utils;
+
+import android.provider.CalendarContract;
+
+/**
+ * 一个事件提醒：提前的分钟数和提醒方式
+ */
+public final class ReminderSpec {
+
+    /**
+     * 常用的过期提醒组合：提前 7 天、1 天和 2 小时
+     */
+    public static final ReminderSpec[] EXPIRY_DEFAULTS = {
+            alert(7 * 24 * 60),
+            alert(24 * 60),
+            alert(2 * 60)
+    };
+
+    private final int minutesBefore;
+    private final int method;
+
+    /**
+     * @param minutesBefore 提前提醒的分钟数
+     * @param method        提醒方式，例如 {@link CalendarContract.Reminders#METHOD_ALERT}
+     */
+    public ReminderSpec(int minutesBefore, int method) {
+        this.minutesBefore = minutesBefore;
+        this.method = method;
+    }
+
+    /**
+     * @return 通知栏提醒
+     */
+    public static ReminderSpec alert(int minutesBefore) {
+        return new ReminderSpec(minutesBefore, CalendarContract.Reminders.METHOD_ALERT);
+    }
+
+    /**
+     * @return 邮件提醒（由日历账户的同步服务发送）
+     */
+    public static ReminderSpec email(int minutesBefore) {
+        return new ReminderSpec(minutesBefore, CalendarContract.Reminders.METHOD_EMAIL);
+    }
+
+    public int getMinutesBefore() {
+        return minutesBefore;
+    }
+
+    public int getMethod() {
+        return method;
+    }
+
+    /**
+     * @return 参数是否有效
+     */
+    public boolean isValid() {
+        return minutesBefore >= 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReminderSpec)) {
+            return false;
+        }
+        ReminderSpec other = (ReminderSpec) o;
+        return minutesBefore == other.minutesBefore && method == other.method;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * minutesBefore + method;
+    }
+
+    @Override
+    public String toString() {
+        return "ReminderSpec{" + minutesBefore + " min, method=" + method + "}";
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.preservationmanager.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重试策略 - 只有 {@link ErrorCategory#TRANSIENT} 类别的失败会被重试
+ * 第 n 次重试前等待 [0, min(maxDelayMs, baseDelayMs * 2^(n-1))] 之间的随机时间（完全抖动），
+ * 避免多个线程在同一时刻重新竞争数据库锁
+ */
+public final class RetryPolicy {
+
+    /**
+     * 默认策略：最多尝试 3 次，退避上限从 50 毫秒开始翻倍，最长 1 秒
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 50, 1000);
+
+    /**
+     * 不重试（例如在主线程中执行时）
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    /**
+     * @param maxAttempts 最多尝试次数（包括第一次）
+     * @param baseDelayMs 第一次重试的退避上限（毫秒）
+     * @param maxDelayMs  退避上限的最大值（毫秒）
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        if (maxAttempts < 1 || baseDelayMs < 0 || maxDelayMs < baseDelayMs) {
+            throw new IllegalArgumentException("Invalid retry policy");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * 执行操作，暂时性失败时退避后重试
+     *
+     * @param call 操作
+     * @param <T>  返回值类型
+     * @return 结果；失败时包含最后一次失败的类别和异常
+     */
+    public <T> CalendarResult<T> execute(Callable<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return CalendarResult.success(call.call(), attempt);
+            } catch (Exception e) {
+                ErrorCategory category = ErrorCategory.classify(e);
+                if (category != ErrorCategory.TRANSIENT || attempt >= maxAttempts) {
+                    return CalendarResult.failure(category, e, attempt);
+                }
+                try {
+                    Thread.sleep(delayBeforeRetry(attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return CalendarResult.failure(category, e, attempt);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param attempt 已失败的次数（从 1 开始）
+     * @return 下一次重试前的等待时间（毫秒）
+     */
+    long delayBeforeRetry(int attempt) {
+        return ThreadLocalRandom.current().nextLong(backoffCap(attempt) + 1);
+    }
+
+    /**
+     * @return 第 attempt 次失败后的退避上限（毫秒）
+     */
+    long backoffCap(int attempt) {
+        int shift = Math.min(attempt - 1, 30);
+        return Math.min(maxDelayMs, baseDelayMs << shift);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.preservationmanager.utils;
+
+/**
+ * 保质期单位
+ */
+public enum ShelfLifeUnit {
+
+    /**
+     * 按天计算，例如 "7 天"
+     */
+    DAYS,
+
+    /**
+     * 按自然月计算，例如 "12 个月"；目标月份没有对应日期时取月末
+     */
+    MONTHS
+}
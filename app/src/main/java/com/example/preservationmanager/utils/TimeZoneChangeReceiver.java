@@ -0,0 +1,21 @@
+package com.example.preservationmanager.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * 设备时区变化时启动 {@link TimeZoneRebaseWorker}
+ * <p>
+ * 在 AndroidManifest.xml 中注册（不导出）并监听 TIMEZONE_CHANGED（隐式广播限制的例外之一）。
+ * 事件可能有上千个，更新交给 WorkManager 执行，不在广播中进行。
+ */
+public class TimeZoneChangeReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+            TimeZoneRebaseWorker.enqueue(context.getApplicationContext());
+        }
+    }
+}
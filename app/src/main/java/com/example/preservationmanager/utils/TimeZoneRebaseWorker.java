@@ -0,0 +1,263 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.provider.CalendarContract;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 时区变化后重新计算应用事件的时间
+ * <p>
+ * 本地索引为每个事件记录了它在自身时区中的本地时间（例如 "2030-01-10 09:00"）。
+ * 设备时区变化后：
+ * <ul>
+ *     <li>时区等于之前设备时区的事件（创建时取的默认时区）跟随设备移到新时区，本地时间不变</li>
+ *     <li>其它时区的事件保持原时区，按当前规则重新换算（时区规则更新、夏令时规则变化）</li>
+ * </ul>
+ * 只有时间或时区实际变化的事件才会写入日历，按 {@link CalendarUtils#BATCH_CHUNK_SIZE} 分块通过 applyBatch 更新，
+ * 并同步更新本地索引和 {@link ExpiryAlarmScheduler} 中对应的应用内提醒（事件的提醒和商品的提醒），
+ * 提醒时间按新的开始时间重新计算。日历提醒按相对分钟数设置，随事件移动。
+ * 同一时间只有一次重新计算在运行，与 {@link CalendarMaintenanceWorker} 中的检查不会重复移动同一个事件。
+ * <p>
+ * 由 {@link TimeZoneChangeReceiver} 在时区变化时启动；{@link CalendarMaintenanceWorker} 每次运行时也会检查，
+ * 弥补应用被强制停止期间错过的广播。
+ */
+public class TimeZoneRebaseWorker extends Worker {
+
+    /**
+     * 一次性任务的唯一名称
+     */
+    public static final String UNIQUE_WORK_NAME = "time-zone-rebase";
+
+    // 输出结果
+    public static final String KEY_REBASED = "rebased";
+
+    /**
+     * 每页从本地索引读取的事件数
+     */
+    static final int PAGE_SIZE = CalendarUtils.IN_CLAUSE_CHUNK_SIZE;
+
+    private static final String PREFS_NAME = "time_zone_rebase";
+    private static final String PREF_LAST_ZONE = "last_zone";
+
+    /**
+     * 串行执行重新计算：读取记录的时区、更新事件、记录新时区是一个整体
+     */
+    private static final Object LOCK = new Object();
+
+    public TimeZoneRebaseWorker(Context context, WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * 启动一次重新计算；已在等待或运行的任务被替换（时区连续变化时只需按最终时区计算）
+     *
+     * @param context 上下文
+     */
+    public static void enqueue(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(TimeZoneRebaseWorker.class).build();
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.REPLACE, request);
+    }
+
+    @Override
+    public Result doWork() {
+        int rebased = rebaseIfZoneChanged(getApplicationContext(), this::isStopped);
+        if (rebased == -1) {
+            // 已更新的事件下次会被跳过，重试只处理剩余部分
+            return Result.retry();
+        }
+        return Result.success(new Data.Builder().putInt(KEY_REBASED, rebased).build());
+    }
+
+    /**
+     * 还没有记录设备时区时记录当前时区（打开本地索引时调用）
+     *
+     * @param context 上下文
+     */
+    static void seedLastZone(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getString(PREF_LAST_ZONE, null) == null) {
+            prefs.edit().putString(PREF_LAST_ZONE, TimeZone.getDefault().getID()).apply();
+        }
+    }
+
+    /**
+     * 设备时区与上次记录的不同时重新计算所有事件
+     * 时区在打开本地索引时记录（{@link #seedLastZone}）；没有记录时说明还没有写入过事件，只记录当前时区
+     *
+     * @param context 上下文
+     * @return 更新的事件数，如果更新失败返回 -1
+     */
+    public static int rebaseIfZoneChanged(Context context) {
+        return rebaseIfZoneChanged(context, () -> false);
+    }
+
+    /**
+     * 设备时区与上次记录的不同时重新计算所有事件，每个批次之前检查 stop
+     * 停止时不记录新时区，已更新的事件下次会被跳过
+     *
+     * @param stop 返回 true 时停止（任务被取消或超出运行预算）
+     * @return 更新的事件数，如果更新失败或未完成返回 -1
+     */
+    static int rebaseIfZoneChanged(Context context, BooleanSupplier stop) {
+        synchronized (LOCK) {
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            String currentZone = TimeZone.getDefault().getID();
+            String lastZone = prefs.getString(PREF_LAST_ZONE, null);
+            if (lastZone == null || lastZone.equals(currentZone)) {
+                if (lastZone == null) {
+                    prefs.edit().putString(PREF_LAST_ZONE, currentZone).apply();
+                }
+                return 0;
+            }
+
+            int rebased = rebaseLocked(context, lastZone, currentZone, stop);
+            if (rebased != -1) {
+                prefs.edit().putString(PREF_LAST_ZONE, currentZone).apply();
+            }
+            return rebased;
+        }
+    }
+
+    /**
+     * 按本地索引中记录的本地时间重新计算所有事件的时间
+     *
+     * @param context      上下文
+     * @param previousZone 之前的设备时区，时区等于它的事件移到 currentZone；为 null 时所有事件保持原时区
+     * @param currentZone  当前的设备时区
+     * @return 更新的事件数，如果更新失败返回 -1
+     */
+    public static int rebase(Context context, String previousZone, String currentZone) {
+        synchronized (LOCK) {
+            return rebaseLocked(context, previousZone, currentZone, () -> false);
+        }
+    }
+
+    private static int rebaseLocked(Context context, String previousZone, String currentZone,
+                                    BooleanSupplier stop) {
+        if (!CalendarPermissionState.canWrite(context)) {
+            return -1;
+        }
+
+        ExpiryIndex index = ExpiryIndex.getInstance(context);
+        int rebased = 0;
+        long cursor = -1;
+        while (true) {
+            List<ExpiryIndex.EventTimes> page;
+            try {
+                page = index.findEventTimesAfter(cursor, PAGE_SIZE);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                return -1;
+            }
+
+            List<ExpiryIndex.EventTimes> targets = new ArrayList<>();
+            for (ExpiryIndex.EventTimes event : page) {
+                ExpiryIndex.EventTimes target = target(event, previousZone, currentZone);
+                if (target != null) {
+                    targets.add(target);
+                }
+            }
+            for (int start = 0; start < targets.size(); start += CalendarUtils.BATCH_CHUNK_SIZE) {
+                if (stop.getAsBoolean()) {
+                    return -1;
+                }
+                int end = Math.min(start + CalendarUtils.BATCH_CHUNK_SIZE, targets.size());
+                if (!apply(context, targets.subList(start, end))) {
+                    return -1;
+                }
+                rebased += end - start;
+            }
+
+            if (page.size() < PAGE_SIZE) {
+                return rebased;
+            }
+            cursor = page.get(page.size() - 1).eventId;
+        }
+    }
+
+    /**
+     * 计算事件在目标时区中应有的时间
+     *
+     * @return 时间和时区都不需要变化，或时区无效时返回 null
+     */
+    static ExpiryIndex.EventTimes target(ExpiryIndex.EventTimes event, String previousZone, String currentZone) {
+        if (event.timeZone == null) {
+            return null;
+        }
+        String zone = event.timeZone.equals(previousZone) ? currentZone : event.timeZone;
+        DateEngine engine;
+        try {
+            engine = DateEngine.of(zone);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        // 当前时间在目标时区中已经显示为记录的本地时间时不修改（重复的本地时间有两个合法的时间戳）
+        if (zone.equals(event.timeZone)
+                && engine.utcToWall(event.startTime) == event.localStart
+                && engine.utcToWall(event.endTime) == event.localEnd) {
+            return null;
+        }
+        return new ExpiryIndex.EventTimes(event.eventId, event.productId, engine.wallToUtc(event.localStart),
+                engine.wallToUtc(event.localEnd), zone, event.localStart, event.localEnd);
+    }
+
+    /**
+     * 在一个批次中更新事件，成功后同步本地索引和应用内提醒
+     */
+    private static boolean apply(Context context, List<ExpiryIndex.EventTimes> targets) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(targets.size());
+        for (ExpiryIndex.EventTimes target : targets) {
+            Uri uri = Uri.withAppendedPath(CalendarContract.Events.CONTENT_URI, String.valueOf(target.eventId));
+            operations.add(ContentProviderOperation.newUpdate(uri)
+                    .withValue(CalendarContract.Events.DTSTART, target.startTime)
+                    .withValue(CalendarContract.Events.DTEND, target.endTime)
+                    .withValue(CalendarContract.Events.EVENT_TIMEZONE, target.timeZone)
+                    .build());
+        }
+        CalendarResult<ContentProviderResult[]> applied = CalendarUtils.applyBatch(context, operations);
+        if (!applied.isSuccess()) {
+            return false;
+        }
+
+        // 已被用户删除的事件更新 0 行，由维护任务的索引核对清理
+        ExpiryIndex index = ExpiryIndex.getInstance(context);
+        CalendarUtils.syncIndex(() -> index.runInTransaction(() -> {
+            for (ExpiryIndex.EventTimes target : targets) {
+                index.rebaseEvent(target.eventId, target.startTime, target.endTime, target.timeZone);
+            }
+        }));
+        Map<String, Long> startTimes = new HashMap<>();
+        for (ExpiryIndex.EventTimes target : targets) {
+            startTimes.put(ExpiryAlarmScheduler.eventKey(target.eventId), target.startTime);
+            if (target.productId != null) {
+                startTimes.put(ExpiryAlarmScheduler.productKey(target.productId), target.startTime);
+            }
+        }
+        CalendarUtils.syncIndex(() -> ExpiryAlarmScheduler.getInstance(context).rebaseAll(startTimes));
+        return true;
+    }
+
+    /**
+     * 清除记录的时区（测试使用）
+     */
+    static void resetLastZone(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .remove(PREF_LAST_ZONE).apply();
+    }
+}
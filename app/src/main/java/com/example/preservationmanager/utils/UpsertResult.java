@@ -0,0 +1,94 @@
+package com.example.preservationmanager.utils;
+
+import java.util.Arrays;
+
+/**
+ * 按商品 upsert 的结果
+ * 按输入顺序记录每个商品的处理方式和事件 ID
+ */
+public class UpsertResult {
+
+    /**
+     * 单个商品的处理方式
+     */
+    public enum Outcome {
+        /** 新商品，已插入事件和提醒 */
+        INSERTED,
+        /** 已有事件，内容变化后原地更新 */
+        UPDATED,
+        /** 已有事件且内容未变化，没有写入 */
+        UNCHANGED,
+        /** 写入失败 */
+        FAILED
+    }
+
+    private final Outcome[] outcomes;
+    private final long[] eventIds;
+    private final String[] reasons;
+    private final ErrorCategory[] categories;
+
+    UpsertResult(int size) {
+        outcomes = new Outcome[size];
+        eventIds = new long[size];
+        reasons = new String[size];
+        categories = new ErrorCategory[size];
+        Arrays.fill(outcomes, Outcome.FAILED);
+        Arrays.fill(eventIds, -1);
+    }
+
+    void set(int index, Outcome outcome, long eventId) {
+        outcomes[index] = outcome;
+        eventIds[index] = eventId;
+        reasons[index] = null;
+        categories[index] = null;
+    }
+
+    void fail(int index, ErrorCategory category, String reason) {
+        outcomes[index] = Outcome.FAILED;
+        eventIds[index] = -1;
+        reasons[index] = reason;
+        categories[index] = category;
+    }
+
+    public Outcome getOutcome(int index) {
+        return outcomes[index];
+    }
+
+    /**
+     * @param index 商品在输入列表中的位置
+     * @return 事件 ID，失败时返回 -1
+     */
+    public long getEventId(int index) {
+        return eventIds[index];
+    }
+
+    /**
+     * @param index 商品在输入列表中的位置
+     * @return 失败原因，未失败时返回 null
+     */
+    public String getFailureReason(int index) {
+        return reasons[index];
+    }
+
+    /**
+     * @param index 商品在输入列表中的位置
+     * @return 失败类别，未失败时返回 null
+     */
+    public ErrorCategory getFailureCategory(int index) {
+        return categories[index];
+    }
+
+    public int count(Outcome outcome) {
+        int count = 0;
+        for (Outcome o : outcomes) {
+            if (o == outcome) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int size() {
+        return outcomes.length;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 大规模负载测试：在 {@link FakeCalendarProvider} 上批量写入、遍历和删除事件
+ * 日常运行默认只写入 {@link #DEFAULT_EVENT_COUNT} 个事件；CI 负载任务以 -Ppm.loadTest.events=100000 运行
+ * 各阶段耗时附在断言消息中，失败时随测试报告输出
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CalendarLoadTest {
+
+    private static final int DEFAULT_EVENT_COUNT = 2_000;
+    private static final int EVENT_COUNT = Integer.getInteger("pm.loadTest.events", DEFAULT_EVENT_COUNT);
+
+    private Application context;
+    private FakeCalendarProvider provider;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        shadowOf(context).grantPermissions(Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+        CalendarPermissionState.refresh(context);
+        provider = FakeCalendarProvider.install();
+    }
+
+    @After
+    public void tearDown() {
+        ExpiryIndex.resetForTesting();
+        CalendarIdCache.resetForTesting();
+    }
+
+    /**
+     * 测试批量写入、分页遍历和批量删除全部事件
+     */
+    @Test
+    public void testBulkInsertIterateAndDelete() {
+        long started = System.nanoTime();
+        BulkInsertResult result = CalendarUtils.addEventsWithReminders(context,
+                CalendarProviderTest.reminders(EVENT_COUNT));
+        long insertedAt = System.nanoTime();
+
+        String timings = EVENT_COUNT + " 个事件，插入 " + millis(started, insertedAt) + " ms";
+
+        assertEquals(timings, EVENT_COUNT, result.getSuccessCount());
+        assertEquals(timings, EVENT_COUNT, provider.getEventCount());
+        assertEquals(timings, EVENT_COUNT, provider.getReminderCount());
+        // 每个分块一次 applyBatch，而不是每个事件一次调用
+        assertTrue(timings, provider.getCallCount() < EVENT_COUNT / CalendarUtils.BATCH_CHUNK_SIZE + 10);
+
+        int iterated = 0;
+        try (EventIterator iterator = CalendarUtils.iterateEvents(context)) {
+            while (iterator.hasNext()) {
+                iterator.next();
+                iterated++;
+            }
+        }
+        long iteratedAt = System.nanoTime();
+        timings += "，遍历 " + millis(insertedAt, iteratedAt) + " ms";
+        assertEquals(timings, EVENT_COUNT, iterated);
+
+        int deleted = CalendarUtils.deleteEvents(context, result.getEventIds());
+        timings += "，删除 " + millis(iteratedAt, System.nanoTime()) + " ms";
+        assertEquals(timings, EVENT_COUNT, deleted);
+        assertEquals(timings, 0, provider.getEventCount());
+    }
+
+    private static long millis(long fromNanos, long toNanos) {
+        return (toNanos - fromNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.preservationmanager.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 日历操作指标和延迟直方图的单元测试
+ */
+public class CalendarMetricsTest {
+
+    @Before
+    public void setUp() {
+        CalendarMetrics.reset();
+        CalendarMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        CalendarMetrics.setEnabled(false);
+        CalendarMetrics.reset();
+    }
+
+    /**
+     * 测试每个值都落在下标对应桶的范围内，且相对误差不超过 1/16
+     */
+    @Test
+    public void testHistogramBucketBounds() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 100, 1000, 12345, 999999, 1L << 30, LatencyHistogram.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            long upper = LatencyHistogram.upperBoundOf(index);
+            long lower = index == 0 ? 0 : LatencyHistogram.upperBoundOf(index - 1) + 1;
+            assertTrue(value + " <= " + upper, value <= upper);
+            assertTrue(value + " >= " + lower, value >= lower);
+            assertTrue(upper - lower <= Math.max(0, value / 16));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE));
+    }
+
+    /**
+     * 测试百分位数估算
+     */
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        assertEquals(500, histogram.getValueAtPercentile(50), 500 / 16);
+        assertEquals(990, histogram.getValueAtPercentile(99), 990 / 16);
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * 测试按结果分别计数，并通过内存输出目标读取快照
+     */
+    @Test
+    public void testRecordAndPublish() {
+        CalendarMetrics.Operation op = CalendarMetrics.Operation.INSERT_EVENT;
+        CalendarMetrics.recordSuccess(op, CalendarMetrics.start());
+        CalendarMetrics.record(op, CalendarMetrics.start(), CalendarResult.success(7L, 3));
+        CalendarMetrics.record(op, CalendarMetrics.start(), ErrorCategory.PERMISSION_DENIED);
+        CalendarMetrics.record(op, CalendarMetrics.start(), ErrorCategory.TRANSIENT);
+        CalendarMetrics.recordBatchSize(CalendarMetrics.Operation.APPLY_BATCH, 200);
+        CalendarMetrics.recordBatchSize(CalendarMetrics.Operation.APPLY_BATCH, 100);
+
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        CalendarMetrics.publish(sink);
+
+        MetricsSnapshot.OperationStats insert = sink.getLatest().get(op);
+        assertEquals(4, insert.getCount());
+        assertEquals(2, insert.getSuccessCount());
+        assertEquals(1, insert.getPermissionDeniedCount());
+        assertEquals(1, insert.getFailureCount());
+        assertEquals(2, insert.getRetryCount());
+
+        MetricsSnapshot.OperationStats batch = sink.getLatest().get(CalendarMetrics.Operation.APPLY_BATCH);
+        assertEquals(2, batch.getBatchCount());
+        assertEquals(150.0, batch.getMeanBatchSize(), 0.001);
+        assertEquals(200, batch.getMaxBatchSize());
+        assertNull(sink.getLatest().get(CalendarMetrics.Operation.DELETE_EVENT));
+    }
+
+    /**
+     * 测试关闭时不记录任何数据
+     */
+    @Test
+    public void testDisabledRecordsNothing() {
+        CalendarMetrics.setEnabled(false);
+
+        long started = CalendarMetrics.start();
+        assertEquals(0, started);
+        CalendarMetrics.recordSuccess(CalendarMetrics.Operation.ADD_REMINDER, started);
+        CalendarMetrics.recordBatchSize(CalendarMetrics.Operation.APPLY_BATCH, 10);
+
+        assertTrue(CalendarMetrics.snapshot().getOperations().isEmpty());
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.app.Application;
+import android.content.ContentValues;
+import android.net.Uri;
+import android.provider.CalendarContract;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 在 {@link FakeCalendarProvider} 上运行的 CalendarUtils 功能测试（Robolectric，无需设备）
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CalendarProviderTest {
+
+    private static final long START = 1_900_000_000_000L;
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private Application context;
+    private FakeCalendarProvider provider;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        shadowOf(context).grantPermissions(Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+        CalendarPermissionState.refresh(context);
+        provider = FakeCalendarProvider.install();
+    }
+
+    @After
+    public void tearDown() {
+        ExpiryAlarmScheduler.resetForTesting();
+        ExpiryIndex.resetForTesting();
+        CalendarIdCache.resetForTesting();
+    }
+
+    /**
+     * 测试创建事件和提醒后可以读回
+     */
+    @Test
+    public void testAddEventWithReminder() {
+        long eventId = CalendarUtils.addEventWithReminder(context, "牛奶保质期提醒", "牛奶 1 瓶",
+                START, START + HOUR, 60, "Asia/Shanghai");
+
+        assertTrue(eventId > 0);
+        assertEquals(1, provider.getEventCount());
+        assertEquals(1, provider.getReminderCount());
+
+        ContentValues details = CalendarUtils.getEventDetails(context, eventId);
+        assertNotNull(details);
+        assertEquals("牛奶保质期提醒", details.getAsString(CalendarContract.Events.TITLE));
+        assertEquals(Long.valueOf(START), details.getAsLong(CalendarContract.Events.DTSTART));
+
+        List<CalendarEvent> events = CalendarUtils.queryEvents(context, START, START + HOUR);
+        assertEquals(1, events.size());
+        assertArrayEquals(new int[]{60}, events.get(0).getReminderMinutes());
+    }
+
+    /**
+     * 测试批量写入：每个提醒通过反向引用指向同一事务中插入的事件
+     */
+    @Test
+    public void testBulkInsertUsesBackReferences() {
+        BulkInsertResult result = CalendarUtils.addEventsWithReminders(context, reminders(250));
+
+        assertEquals(250, result.getSuccessCount());
+        assertEquals(250, provider.getEventCount());
+        assertEquals(250, provider.getReminderCount());
+
+        Set<Long> eventIds = new HashSet<>();
+        for (long eventId : result.getEventIds()) {
+            eventIds.add(eventId);
+        }
+        assertEquals(250, eventIds.size());
+
+        List<CalendarEvent> events = CalendarUtils.queryEvents(context, START, START + 250 * HOUR);
+        assertEquals(250, events.size());
+        for (CalendarEvent event : events) {
+            assertArrayEquals(new int[]{120}, event.getReminderMinutes());
+        }
+    }
+
+    /**
+     * 测试批次超过事务大小限制时拆分后全部写入
+     */
+    @Test
+    public void testBulkInsertSplitsTooLargeBatches() {
+        provider.setMaxBatchOperations(50);
+
+        BulkInsertResult result = CalendarUtils.addEventsWithReminders(context, reminders(250));
+
+        assertEquals(250, result.getSuccessCount());
+        assertEquals(0, result.getFailureCount());
+        assertEquals(250, provider.getEventCount());
+    }
+
+    /**
+     * 测试权限在调用过程中被撤销时返回对应的失败类别
+     */
+    @Test
+    public void testRevokedPermissionIsCategorized() {
+        long calendarId = CalendarUtils.getOrCreateCalendarAccount(context);
+        provider.failNextCalls(1, () -> new SecurityException("calendar permission revoked"));
+
+        CalendarResult<Long> result = CalendarUtils.tryInsertEvent(context, calendarId, "牛奶", null,
+                START, START + HOUR, "Asia/Shanghai");
+
+        assertFalse(result.isSuccess());
+        assertEquals(ErrorCategory.PERMISSION_DENIED, result.getCategory());
+        assertEquals(0, provider.getEventCount());
+    }
+
+    /**
+     * 测试之后在系统设置中授予的权限不需要刷新缓存即可使用
+     */
+    @Test
+    public void testPermissionGrantedLaterIsPickedUp() {
+        shadowOf(context).denyPermissions(Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+        CalendarPermissionState.refresh(context);
+        assertFalse(CalendarPermissionState.canWrite(context));
+        assertEquals(-1, CalendarUtils.addEventWithReminder(context, "牛奶", null, START, START + HOUR, 60));
+
+        shadowOf(context).grantPermissions(Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+        assertTrue(CalendarPermissionState.hasAll(context));
+        assertTrue(CalendarUtils.addEventWithReminder(context, "牛奶", null, START, START + HOUR, 60) > 0);
+    }
+
+    /**
+     * 测试删除不存在的事件
+     */
+    @Test
+    public void testDeleteMissingEvent() {
+        assertEquals(ErrorCategory.NOT_FOUND, CalendarUtils.tryDeleteEvent(context, 12345).getCategory());
+        assertTrue(CalendarUtils.deleteEvent(context, 12345));
+    }
+
+    /**
+     * 测试删除事件时同时删除其提醒
+     */
+    @Test
+    public void testDeleteEventsRemovesReminders() {
+        BulkInsertResult result = CalendarUtils.addEventsWithReminders(context, reminders(10));
+
+        assertEquals(10, CalendarUtils.deleteEvents(context, result.getEventIds()));
+        assertEquals(0, provider.getEventCount());
+        assertEquals(0, provider.getReminderCount());
+    }
+
+    /**
+     * 测试清理过期事件只删除实际删除的事件的索引记录，其它日历的记录保留
+     */
+    @Test
+    public void testPurgeKeepsIndexOfOtherCalendars() {
+        CalendarUtils.addEventsWithReminders(context, reminders(1));
+        CalendarUtils.addEventWithReminder(context, "未标记的事件", null, START, START + HOUR, 60, "Asia/Shanghai");
+        ExpiryIndex index = ExpiryIndex.getInstance(context);
+        index.recordEvent(777, "other", 999, "其它日历的事件", null, START, START + HOUR, "Asia/Shanghai");
+
+        assertEquals(2, CalendarUtils.purgeEventsEndingBefore(context, START + 10 * HOUR));
+        assertEquals(0, provider.getEventCount());
+        assertEquals(0, index.findEventIds("p0").length);
+        assertEquals(1, index.findEventIds("other").length);
+        assertEquals(1, index.queryExpiringBetween(START, START + 1).size());
+    }
+
+    /**
+     * 测试写入失败时只有日历确实不存在才清除缓存的日历 ID
+     */
+    @Test
+    public void testCalendarIdCacheKeptWhenCalendarStillExists() {
+        CalendarIdCache cache = CalendarIdCache.getInstance(context);
+        assertTrue(CalendarUtils.addEventWithReminder(context, "牛奶", null, START, START + HOUR, 10,
+                "Asia/Shanghai") > 0);
+        long calendarId = CalendarUtils.getOrCreateCalendarAccount(context);
+        long misses = cache.getMissCount();
+
+        provider.failNextCalls(1, () -> new SecurityException("calendar permission revoked"));
+        assertEquals(-1, CalendarUtils.addEventWithReminder(context, "酸奶", null, START, START + HOUR, 10,
+                "Asia/Shanghai"));
+        CalendarPermissionState.refresh(context);
+        provider.failNextCalls(1, () -> new IllegalArgumentException("bad values"));
+        assertEquals(-1, CalendarUtils.addEventWithReminder(context, "酸奶", null, START, START + HOUR, 10,
+                "Asia/Shanghai"));
+        assertEquals(calendarId, CalendarUtils.getOrCreateCalendarAccount(context));
+        assertEquals(misses, cache.getMissCount());
+
+        // 日历已被删除：写入失败后清除缓存，下次重新解析
+        provider.delete(Uri.withAppendedPath(CalendarContract.Calendars.CONTENT_URI, String.valueOf(calendarId)),
+                null, null);
+        provider.failNextCalls(1, () -> new IllegalArgumentException("unknown calendar"));
+        assertEquals(-1, CalendarUtils.addEventWithReminder(context, "酸奶", null, START, START + HOUR, 10,
+                "Asia/Shanghai"));
+        CalendarUtils.getOrCreateCalendarAccount(context);
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+
+    /**
+     * 测试查询事件时每个事件的多个提醒按添加顺序读出，互不混淆
+     */
+    @Test
+    public void testQueryEventsCollectsRemindersPerEvent() {
+        long first = CalendarUtils.addEventWithReminder(context, "牛奶", null, START, START + HOUR, 10,
+                "Asia/Shanghai");
+        long second = CalendarUtils.addEventWithReminder(context, "酸奶", null, START + HOUR, START + 2 * HOUR, 15,
+                "Asia/Shanghai");
+        for (int minutes = 20; minutes <= 60; minutes += 10) {
+            assertTrue(CalendarUtils.addReminder(context, first, minutes) > 0);
+        }
+
+        List<CalendarEvent> events = CalendarUtils.queryEvents(context, START, START + 2 * HOUR);
+        assertEquals(2, events.size());
+        assertEquals(first, events.get(0).getEventId());
+        assertArrayEquals(new int[]{10, 20, 30, 40, 50, 60}, events.get(0).getReminderMinutes());
+        assertEquals(second, events.get(1).getEventId());
+        assertArrayEquals(new int[]{15}, events.get(1).getReminderMinutes());
+    }
+
+    /**
+     * 测试遍历中查询下一页失败时可以与读完全部事件区分
+     */
+    @Test
+    public void testEventIteratorReportsFailure() {
+        CalendarUtils.addEventsWithReminders(context, reminders(5));
+        try (EventIterator iterator = CalendarUtils.iterateEvents(context, Long.MIN_VALUE, Long.MAX_VALUE, 2)) {
+            int iterated = 0;
+            while (iterator.hasNext()) {
+                iterator.next();
+                iterated++;
+            }
+            assertEquals(5, iterated);
+            assertNull(iterator.getFailure());
+        }
+
+        try (EventIterator iterator = CalendarUtils.iterateEvents(context, Long.MIN_VALUE, Long.MAX_VALUE, 2)) {
+            iterator.next();
+            iterator.next();
+            provider.failNextCalls(1, () -> new SecurityException("calendar permission revoked"));
+            assertFalse(iterator.hasNext());
+            assertEquals(ErrorCategory.PERMISSION_DENIED, iterator.getFailure());
+        }
+    }
+
+    /**
+     * 测试分块删除中途失败时，已删除的块的索引记录和应用内提醒已被清理，未删除的保留
+     */
+    @Test
+    public void testDeleteEventsSyncsIndexPerChunk() {
+        int count = CalendarUtils.IN_CLAUSE_CHUNK_SIZE + 1;
+        long[] eventIds = CalendarUtils.addEventsWithReminders(context, reminders(count)).getEventIds();
+        ExpiryAlarmScheduler scheduler = ExpiryAlarmScheduler.getInstance(context);
+        String firstKey = ExpiryAlarmScheduler.eventKey(eventIds[0]);
+        String lastKey = ExpiryAlarmScheduler.eventKey(eventIds[count - 1]);
+        scheduler.schedule(firstKey, START, "商品 0", null);
+        scheduler.schedule(lastKey, START, "商品 " + (count - 1), null);
+
+        provider.failCallsAfter(1, 1, () -> new IllegalArgumentException("bad selection"));
+        assertEquals(-1, CalendarUtils.deleteEvents(context, eventIds));
+
+        ExpiryIndex index = ExpiryIndex.getInstance(context);
+        assertEquals(1, provider.getEventCount());
+        assertEquals(0, index.findEventIds("p0").length);
+        assertEquals(1, index.findEventIds("p" + (count - 1)).length);
+        assertEquals(-1, scheduler.getTriggerTime(firstKey));
+        assertEquals(START, scheduler.getTriggerTime(lastKey));
+    }
+
+    /**
+     * 测试按商品标识清理过期事件时取消这些事件的应用内提醒
+     */
+    @Test
+    public void testPurgeCancelsInAppAlarmsOfTaggedEvents() {
+        long eventId = CalendarUtils.addEventsWithReminders(context, reminders(1)).getEventId(0);
+        ExpiryAlarmScheduler scheduler = ExpiryAlarmScheduler.getInstance(context);
+        String key = ExpiryAlarmScheduler.eventKey(eventId);
+        scheduler.schedule(key, START, "商品 0", null);
+
+        assertEquals(1, CalendarUtils.purgeEventsEndingBefore(context, START + 10 * HOUR));
+        assertEquals(-1, scheduler.getTriggerTime(key));
+    }
+
+    /**
+     * 测试一次创建多个提醒，并按差异替换：未变化的提醒保留原来的行
+     */
+    @Test
+    public void testMultipleRemindersAndReplace() {
+        long eventId = CalendarUtils.addEventWithReminders(context, "鸡蛋保质期提醒", "鸡蛋 10 个",
+                START, START + HOUR, ReminderSpec.EXPIRY_DEFAULTS);
+        assertTrue(eventId > 0);
+        assertEquals(3, provider.getReminderCount());
+        int callsBefore = provider.getCallCount();
+
+        int changed = CalendarUtils.replaceReminders(context, eventId,
+                ReminderSpec.alert(24 * 60), ReminderSpec.email(60));
+
+        // 提前 1 天保留，提前 7 天改为邮件提醒，提前 2 小时删除
+        assertEquals(2, changed);
+        assertEquals(2, provider.getReminderCount());
+        // 一次查询 + 一次批量写入
+        assertEquals(callsBefore + 2, provider.getCallCount());
+        assertEquals(0, CalendarUtils.replaceReminders(context, eventId,
+                ReminderSpec.email(60), ReminderSpec.alert(24 * 60)));
+
+        assertEquals(2, CalendarUtils.addReminders(context, eventId, ReminderSpec.alert(10), ReminderSpec.alert(5)));
+        assertEquals(4, provider.getReminderCount());
+    }
+
+    /**
+     * 测试本地索引丢失后同步不会为已有提醒的事件重复添加提醒
+     */
+    @Test
+    public void testSyncAfterIndexResetKeepsOneReminder() {
+        List<ProductReminder> desired = reminders(3);
+        assertEquals(3, CalendarReconciler.reconcile(context, desired).getInsertedCount());
+
+        ExpiryIndex.resetForTesting();
+        context.deleteDatabase(ExpiryIndexDatabase.DATABASE_NAME);
+        for (int run = 0; run < 2; run++) {
+            CalendarReconciler.Result result = CalendarReconciler.reconcile(context, desired);
+            assertEquals(3, result.getUnchangedCount());
+            assertEquals(0, result.getChangeCount());
+        }
+
+        // 索引中只有事件没有提醒时，upsert 按日历中的提醒更新
+        ExpiryIndex.resetForTesting();
+        context.deleteDatabase(ExpiryIndexDatabase.DATABASE_NAME);
+        List<CalendarEvent> events = CalendarUtils.queryEvents(context, START, START + 10 * HOUR);
+        ProductReminder first = desired.get(0);
+        ExpiryIndex.getInstance(context).recordEvent(events.get(0).getEventId(), first.getProductId(),
+                CalendarUtils.getOrCreateCalendarAccount(context), first.getTitle(), first.getDescription(),
+                first.getStartTime(), first.getEndTime(), first.getTimeZone());
+        ProductReminder changed = new ProductReminder(first.getProductId(), first.getTitle(),
+                first.getDescription(), first.getStartTime(), first.getEndTime(), 30, first.getTimeZone());
+        assertEquals(UpsertResult.Outcome.UPDATED, ProductReminderSync.upsert(context, changed).getOutcome(0));
+
+        assertEquals(3, provider.getEventCount());
+        assertEquals(3, provider.getReminderCount());
+        assertArrayEquals(new int[]{30}, CalendarUtils.queryEvents(context, START, START + HOUR)
+                .get(0).getReminderMinutes());
+    }
+
+    /**
+     * 测试本地索引中没有记录的商品按 UID 在日历中找回事件，不会重复插入
+     */
+    @Test
+    public void testUpsertReadoptsEventsMissingFromIndex() {
+        List<ProductReminder> items = reminders(3);
+        assertEquals(3, ProductReminderSync.upsertAll(context, items).count(UpsertResult.Outcome.INSERTED));
+
+        ExpiryIndex.resetForTesting();
+        context.deleteDatabase(ExpiryIndexDatabase.DATABASE_NAME);
+        UpsertResult result = ProductReminderSync.upsertAll(context, items);
+
+        assertEquals(3, result.count(UpsertResult.Outcome.UNCHANGED));
+        assertEquals(3, provider.getEventCount());
+        assertEquals(3, provider.getReminderCount());
+        assertEquals(1, ExpiryIndex.getInstance(context).findEventIds("p0").length);
+        assertEquals(3, ProductReminderSync.upsertAll(context, items).count(UpsertResult.Outcome.UNCHANGED));
+    }
+
+    static List<ProductReminder> reminders(int count) {
+        List<ProductReminder> reminders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long start = START + i * HOUR;
+            reminders.add(new ProductReminder("p" + i, "商品 " + i + " 保质期提醒", "批次 " + i,
+                    start, start + HOUR, 120, "Asia/Shanghai"));
+        }
+        return reminders;
+    }
+}
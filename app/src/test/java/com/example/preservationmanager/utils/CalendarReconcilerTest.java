@@ -0,0 +1,222 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.app.Application;
+import android.net.Uri;
+import android.provider.CalendarContract;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 全量同步的功能测试（Robolectric + {@link FakeCalendarProvider}）
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CalendarReconcilerTest {
+
+    private static final long START = 1_900_000_000_000L;
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private Application context;
+    private FakeCalendarProvider provider;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        shadowOf(context).grantPermissions(Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+        CalendarPermissionState.refresh(context);
+        provider = FakeCalendarProvider.install();
+    }
+
+    @After
+    public void tearDown() {
+        ExpiryAlarmScheduler.resetForTesting();
+        ExpiryIndex.resetForTesting();
+        CalendarIdCache.resetForTesting();
+    }
+
+    /**
+     * 测试内容未变化的商品不产生写入
+     */
+    @Test
+    public void testUnchanged() {
+        assertEquals(3, CalendarReconciler.reconcile(context, reminders(3)).getInsertedCount());
+        long eventId = eventId("p1");
+
+        CalendarReconciler.Result result = CalendarReconciler.reconcile(context, reminders(3));
+        assertEquals(3, result.getUnchangedCount());
+        assertEquals(0, result.getChangeCount());
+        assertEquals(0, result.getFailedCount());
+        assertEquals(3, provider.getEventCount());
+        assertEquals(eventId, eventId("p1"));
+    }
+
+    /**
+     * 测试内容或提醒变化的商品原地更新
+     */
+    @Test
+    public void testUpdate() {
+        CalendarReconciler.reconcile(context, reminders(3));
+        long eventId = eventId("p1");
+
+        List<ProductReminder> desired = reminders(3);
+        desired.set(1, withTitle(desired.get(1), "牛奶 1L"));
+        ProductReminder second = desired.get(2);
+        desired.set(2, new ProductReminder(second.getProductId(), second.getTitle(), second.getDescription(),
+                second.getStartTime(), second.getEndTime(), 30, second.getTimeZone()));
+
+        CalendarReconciler.Result result = CalendarReconciler.reconcile(context, desired);
+        assertEquals(2, result.getUpdatedCount());
+        assertEquals(1, result.getUnchangedCount());
+        assertEquals(3, provider.getEventCount());
+        assertEquals(3, provider.getReminderCount());
+        assertEquals(eventId, eventId("p1"));
+        assertEquals("牛奶 1L", find(eventId).getTitle());
+
+        assertEquals(0, CalendarReconciler.reconcile(context, desired).getChangeCount());
+    }
+
+    /**
+     * 测试新商品插入、不再需要的商品删除，其他来源的事件不受影响
+     */
+    @Test
+    public void testInsertAndDeleteExtras() {
+        long otherId = CalendarUtils.addEventWithReminder(context, "体检", null, START, START + HOUR, 30,
+                "Asia/Shanghai");
+        CalendarReconciler.reconcile(context, reminders(3));
+
+        List<ProductReminder> desired = new ArrayList<>(reminders(4).subList(1, 4));
+        CalendarReconciler.Result result = CalendarReconciler.reconcile(context, desired);
+        assertEquals(1, result.getInsertedCount());
+        assertEquals(1, result.getDeletedCount());
+        assertEquals(2, result.getUnchangedCount());
+        assertEquals(4, provider.getEventCount());
+        assertEquals(0, ExpiryIndex.getInstance(context).findEventIds("p0").length);
+        assertEquals(1, ExpiryIndex.getInstance(context).findEventIds("p3").length);
+        assertEquals("体检", find(otherId).getTitle());
+    }
+
+    /**
+     * 测试同一商品的多余事件被删除，保留事件 ID 最小的一条
+     */
+    @Test
+    public void testDuplicateUids() {
+        CalendarReconciler.reconcile(context, reminders(2));
+        long eventId = eventId("p0");
+        ProductReminder first = reminders(1).get(0);
+        Uri duplicate = context.getContentResolver().insert(CalendarContract.Events.CONTENT_URI,
+                CalendarUtils.buildEventValues(CalendarUtils.getOrCreateCalendarAccount(context),
+                        first.getProductId(), first.getTitle(), first.getDescription(), first.getStartTime(),
+                        first.getEndTime(), first.getTimeZone()));
+        assertNotNull(duplicate);
+        assertEquals(3, provider.getEventCount());
+
+        CalendarReconciler.Result result = CalendarReconciler.reconcile(context, reminders(2));
+        assertEquals(1, result.getDeletedCount());
+        assertEquals(2, result.getUnchangedCount());
+        assertEquals(2, provider.getEventCount());
+        assertEquals(eventId, eventId("p0"));
+    }
+
+    /**
+     * 测试读取之后被删除的事件在更新时改为重新插入
+     */
+    @Test
+    public void testUpdateOfVanishedEventFallsBackToInsert() {
+        CalendarReconciler.reconcile(context, reminders(2));
+        long eventId = eventId("p0");
+        provider.runBeforeNextBatch(() -> provider.delete(
+                Uri.withAppendedPath(CalendarContract.Events.CONTENT_URI, String.valueOf(eventId)), null, null));
+
+        List<ProductReminder> desired = reminders(2);
+        desired.set(0, withTitle(desired.get(0), "牛奶 1L"));
+        CalendarReconciler.Result result = CalendarReconciler.reconcile(context, desired);
+        assertEquals(0, result.getUpdatedCount());
+        assertEquals(1, result.getInsertedCount());
+        assertEquals(1, result.getUnchangedCount());
+        assertEquals(2, provider.getEventCount());
+        assertNotEquals(eventId, eventId("p0"));
+        assertEquals("牛奶 1L", find(eventId("p0")).getTitle());
+    }
+
+    /**
+     * 测试超过 Binder 事务大小限制时减半后重新提交，所有变化都被写入
+     */
+    @Test
+    public void testTooLargeBatchIsHalved() {
+        CalendarReconciler.reconcile(context, reminders(10));
+        List<ProductReminder> desired = new ArrayList<>();
+        for (ProductReminder reminder : reminders(10)) {
+            desired.add(withTitle(reminder, reminder.getTitle() + "（已更新）"));
+        }
+
+        provider.setMaxBatchOperations(3);
+        CalendarReconciler.Result result = CalendarReconciler.reconcile(context, desired);
+        assertEquals(10, result.getUpdatedCount());
+        assertEquals(0, result.getFailedCount());
+        assertEquals("商品 9 保质期提醒（已更新）", find(eventId("p9")).getTitle());
+    }
+
+    /**
+     * 测试删除事件时取消其应用内提醒
+     */
+    @Test
+    public void testDeleteCancelsInAppAlarm() {
+        CalendarReconciler.reconcile(context, reminders(2));
+        ExpiryAlarmScheduler scheduler = ExpiryAlarmScheduler.getInstance(context);
+        String removedKey = ExpiryAlarmScheduler.eventKey(eventId("p0"));
+        String keptKey = ExpiryAlarmScheduler.eventKey(eventId("p1"));
+        assertTrue(scheduler.schedule(removedKey, START, "商品 0", null));
+        assertTrue(scheduler.schedule(keptKey, START + HOUR, "商品 1", null));
+
+        CalendarReconciler.Result result = CalendarReconciler.reconcile(context,
+                new ArrayList<>(reminders(2).subList(1, 2)));
+        assertEquals(1, result.getDeletedCount());
+        assertEquals(-1, scheduler.getTriggerTime(removedKey));
+        assertEquals(START + HOUR, scheduler.getTriggerTime(keptKey));
+    }
+
+    private long eventId(String productId) {
+        long[] ids = ExpiryIndex.getInstance(context).findEventIds(productId);
+        assertEquals(1, ids.length);
+        return ids[0];
+    }
+
+    private CalendarEvent find(long eventId) {
+        for (CalendarEvent event : CalendarUtils.queryEvents(context, 0, Long.MAX_VALUE)) {
+            if (event.getEventId() == eventId) {
+                return event;
+            }
+        }
+        fail("事件不存在");
+        return null;
+    }
+
+    private static ProductReminder withTitle(ProductReminder reminder, String title) {
+        return new ProductReminder(reminder.getProductId(), title, reminder.getDescription(),
+                reminder.getStartTime(), reminder.getEndTime(), reminder.getReminderMinutesBefore(),
+                reminder.getTimeZone());
+    }
+
+    private static List<ProductReminder> reminders(int count) {
+        ProductReminder[] reminders = new ProductReminder[count];
+        for (int i = 0; i < count; i++) {
+            long start = START + i * HOUR;
+            reminders[i] = new ProductReminder("p" + i, "商品 " + i + " 保质期提醒", "批次 " + i,
+                    start, start + HOUR, 120, "Asia/Shanghai");
+        }
+        return new ArrayList<>(Arrays.asList(reminders));
+    }
+}
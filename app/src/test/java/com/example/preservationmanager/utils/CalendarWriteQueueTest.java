@@ -0,0 +1,166 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 写入队列的功能测试（Robolectric + {@link FakeCalendarProvider}）
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CalendarWriteQueueTest {
+
+    private static final long START = 1_900_000_000_000L;
+    private static final long HOUR = 60 * 60 * 1000L;
+    // 测试中只手动提交
+    private static final long NO_AUTO_FLUSH = 60 * 60 * 1000L;
+
+    private Application context;
+    private FakeCalendarProvider provider;
+    private long calendarId;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        shadowOf(context).grantPermissions(Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+        CalendarPermissionState.refresh(context);
+        provider = FakeCalendarProvider.install();
+        calendarId = CalendarUtils.getOrCreateCalendarAccount(context);
+    }
+
+    @After
+    public void tearDown() {
+        ExpiryIndex.resetForTesting();
+        CalendarIdCache.resetForTesting();
+    }
+
+    /**
+     * 测试连续变更合并为一次插入
+     */
+    @Test
+    public void testMergedInsert() {
+        CalendarWriteQueue queue = new CalendarWriteQueue(context, 50, NO_AUTO_FLUSH);
+        long key = queue.insertEvent(calendarId, "牛奶", null, START, START + HOUR, "Asia/Shanghai");
+        assertTrue(key < -1);
+        assertTrue(queue.updateEvent(key, "牛奶 1L", "冷藏", START + HOUR, START + 2 * HOUR));
+        assertTrue(queue.addReminder(key, 60));
+        assertEquals(1, queue.getPendingCount());
+        assertEquals(-1, queue.getEventId(key));
+
+        assertEquals(1, queue.flush());
+        long eventId = queue.getEventId(key);
+        assertTrue(eventId > 0);
+        assertEquals("牛奶 1L", find(eventId).getTitle());
+        assertEquals(1, provider.getReminderCount());
+    }
+
+    /**
+     * 测试进程重启后临时键不重复，已提交的临时键仍指向同一个事件，用它更新和删除会被执行
+     */
+    @Test
+    public void testTempKeysSurviveRestart() {
+        CalendarWriteQueue queue = new CalendarWriteQueue(context, 50, NO_AUTO_FLUSH);
+        long key = queue.insertEvent(calendarId, "牛奶", null, START, START + HOUR, "Asia/Shanghai");
+        assertEquals(1, queue.flush());
+        long eventId = queue.getEventId(key);
+
+        // 模拟进程重启：新的队列只能从数据库恢复状态
+        CalendarWriteQueue restarted = new CalendarWriteQueue(context, 50, NO_AUTO_FLUSH);
+        assertEquals(eventId, restarted.getEventId(key));
+        long otherKey = restarted.insertEvent(calendarId, "酸奶", null, START, START + HOUR, "Asia/Shanghai");
+        assertTrue(otherKey < key);
+
+        assertTrue(restarted.updateEvent(key, "牛奶 1L", null, START + HOUR, START + 2 * HOUR));
+        assertEquals(2, restarted.flush());
+        assertEquals("牛奶 1L", find(eventId).getTitle());
+        assertNotEquals(eventId, restarted.getEventId(otherKey));
+
+        assertTrue(restarted.deleteEvent(key));
+        assertEquals(1, restarted.flush());
+        assertEquals(1, provider.getEventCount());
+    }
+
+    /**
+     * 测试以临时键排队、尚未提交的更新在重启后改为真实 ID 重放
+     */
+    @Test
+    public void testJournaledUpdateOnResolvedKeyIsReplayed() {
+        CalendarWriteQueue queue = new CalendarWriteQueue(context, 50, NO_AUTO_FLUSH);
+        long key = queue.insertEvent(calendarId, "牛奶", null, START, START + HOUR, "Asia/Shanghai");
+        assertEquals(1, queue.flush());
+        long eventId = queue.getEventId(key);
+
+        CalendarWriteQueue second = new CalendarWriteQueue(context, 50, NO_AUTO_FLUSH);
+        assertTrue(second.updateEvent(key, "牛奶 1L", null, START, START + HOUR));
+
+        CalendarWriteQueue third = new CalendarWriteQueue(context, 50, NO_AUTO_FLUSH);
+        assertEquals(1, third.getPendingCount());
+        assertEquals(1, third.flush());
+        assertEquals("牛奶 1L", find(eventId).getTitle());
+    }
+
+    /**
+     * 测试超过保留时间、不再被日志引用的临时键被删除，仍有未提交变更的临时键保留
+     */
+    @Test
+    public void testUnreferencedTempKeysArePruned() {
+        CalendarWriteQueue queue = new CalendarWriteQueue(context, 50, NO_AUTO_FLUSH);
+        long committed = queue.insertEvent(calendarId, "牛奶", null, START, START + HOUR, "Asia/Shanghai");
+        assertEquals(1, queue.flush());
+        long eventId = queue.getEventId(committed);
+        long queued = queue.insertEvent(calendarId, "酸奶", null, START, START + HOUR, "Asia/Shanghai");
+
+        // 保留时间内不删除
+        assertEquals(0, queue.pruneTempKeys(System.currentTimeMillis()));
+        assertEquals(eventId, queue.getEventId(committed));
+
+        long later = System.currentTimeMillis() + CalendarWriteQueue.TEMP_KEY_RETENTION_MS + 1;
+        assertEquals(1, queue.pruneTempKeys(later));
+        assertEquals(-1, queue.getEventId(committed));
+
+        assertEquals(1, queue.flush());
+        assertTrue(queue.getEventId(queued) > 0);
+        long next = queue.insertEvent(calendarId, "奶酪", null, START, START + HOUR, "Asia/Shanghai");
+        assertTrue(next < queued);
+    }
+
+    /**
+     * 测试提交在分块之间停止时剩余的变更留在队列中，下次提交
+     */
+    @Test
+    public void testStoppedFlushKeepsRemainingWrites() {
+        CalendarWriteQueue queue = new CalendarWriteQueue(context, 1000, NO_AUTO_FLUSH);
+        int count = CalendarUtils.BATCH_CHUNK_SIZE + 20;
+        for (int i = 0; i < count; i++) {
+            queue.insertEvent(calendarId, "商品 " + i, null, START + i * HOUR, START + (i + 1) * HOUR, "Asia/Shanghai");
+        }
+
+        assertEquals(CalendarUtils.BATCH_CHUNK_SIZE, queue.flush(() -> true));
+        assertEquals(20, queue.getPendingCount());
+        assertEquals(20, queue.flush());
+        assertEquals(count, provider.getEventCount());
+    }
+
+    private CalendarEvent find(long eventId) {
+        List<CalendarEvent> events = CalendarUtils.queryEvents(context, 0, Long.MAX_VALUE);
+        for (CalendarEvent event : events) {
+            if (event.getEventId() == eventId) {
+                return event;
+            }
+        }
+        fail("事件不存在");
+        return null;
+    }
+}
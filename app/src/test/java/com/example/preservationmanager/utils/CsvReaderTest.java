@@ -0,0 +1,111 @@
+package com.example.preservationmanager.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * 流式 CSV 读取器的单元测试
+ */
+public class CsvReaderTest {
+
+    /**
+     * 测试引号、字段内逗号、换行和 "" 转义
+     */
+    @Test
+    public void testQuotedFields() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader(
+                "a,\"b,c\",\"say \"\"hi\"\"\"\r\n\"multi\nline\",x,\n"));
+
+        assertTrue(csv.next());
+        assertEquals(3, csv.getFieldCount());
+        assertEquals("a", csv.getString(0));
+        assertEquals("b,c", csv.getString(1));
+        assertEquals("say \"hi\"", csv.getString(2));
+        assertEquals(1, csv.getLineNumber());
+
+        assertTrue(csv.next());
+        assertEquals(3, csv.getFieldCount());
+        assertEquals("multi\nline", csv.getString(0));
+        assertTrue(csv.isBlank(2));
+        assertEquals(2, csv.getLineNumber());
+
+        assertFalse(csv.next());
+    }
+
+    /**
+     * 测试跳过 BOM 和空行，行号仍按文件中的实际行计算
+     */
+    @Test
+    public void testBomAndBlankLines() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("﻿id\n\n\r\n 42 \n"));
+
+        assertTrue(csv.next());
+        assertEquals("id", csv.getString(0));
+        assertTrue(csv.next());
+        assertEquals(4, csv.getLineNumber());
+        assertEquals(42, csv.getInt(0));
+        assertEquals("", csv.getString(5));
+        assertFalse(csv.next());
+    }
+
+    /**
+     * 测试整数和日期解析及其错误
+     */
+    @Test
+    public void testNumbersAndDates() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("-7,2024-02-29,2024/3/1,2023-02-29,12x,99999999999\n"));
+        assertTrue(csv.next());
+
+        assertEquals(-7, csv.getInt(0));
+        assertEquals(DateEngine.epochDay(2024, 1, 29), csv.getEpochDay(1));
+        assertEquals(DateEngine.epochDay(2024, 2, 1), csv.getEpochDay(2));
+        try {
+            csv.getEpochDay(3);
+            fail("2023-02-29 不存在");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            csv.getInt(4);
+            fail("12x 不是整数");
+        } catch (NumberFormatException expected) {
+        }
+        try {
+            csv.getInt(5);
+            fail("超出 int 范围");
+        } catch (NumberFormatException expected) {
+        }
+    }
+
+    /**
+     * 测试记录跨越输入缓冲区边界时能正确拼接
+     */
+    @Test
+    public void testRecordsAcrossBufferBoundary() throws IOException {
+        StringBuilder text = new StringBuilder();
+        int rows = 20000;
+        for (int i = 0; i < rows; i++) {
+            text.append(i).append(",\"name ").append(i).append("\"\n");
+        }
+        // 每次只返回少量字符，模拟网络或管道输入
+        Reader slow = new StringReader(text.toString()) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 7));
+            }
+        };
+        CsvReader csv = new CsvReader(slow);
+
+        int count = 0;
+        while (csv.next()) {
+            assertEquals(count, csv.getInt(0));
+            assertEquals("name " + count, csv.getString(1));
+            count++;
+        }
+        assertEquals(rows, count);
+    }
+}
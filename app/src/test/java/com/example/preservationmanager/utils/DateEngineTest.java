@@ -0,0 +1,138 @@
+package com.example.preservationmanager.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * DateEngine 的单元测试，结果需与基于 Calendar 的实现一致
+ */
+public class DateEngineTest {
+
+    private static final String[] ZONES = {"Asia/Shanghai", "America/New_York", "Europe/London", "UTC"};
+
+    private TimeZone originalZone;
+
+    @Before
+    public void setUp() {
+        originalZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(originalZone);
+    }
+
+    /**
+     * 测试未来日期时间与 Calendar 逐日一致（覆盖夏令时切换）
+     */
+    @Test
+    public void testFutureDateTimeMatchesCalendar() {
+        long now = System.currentTimeMillis();
+        int[][] times = {{0, 0}, {2, 30}, {10, 0}, {23, 59}};
+
+        for (String zone : ZONES) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            DateEngine engine = DateEngine.forDefaultZone();
+            assertEquals(zone, engine.getZoneId());
+
+            for (int days = -30; days <= 400; days++) {
+                for (int[] time : times) {
+                    long expected = calendarFuture(now, days, time[0], time[1]);
+                    long actual = engine.futureDateTime(days, time[0], time[1], now);
+                    assertEquals(zone + " +" + days + "d " + time[0] + ":" + time[1], expected, actual);
+                }
+            }
+        }
+    }
+
+    /**
+     * 测试指定日期时间与 Calendar 一致（含月份溢出）
+     */
+    @Test
+    public void testDateTimeMatchesCalendar() {
+        long now = System.currentTimeMillis();
+
+        for (String zone : ZONES) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            DateEngine engine = DateEngine.forDefaultZone();
+
+            for (int year = 2023; year <= 2026; year++) {
+                for (int month = 0; month <= 12; month++) {
+                    for (int day = 1; day <= 31; day++) {
+                        long expected = calendarDate(now, year, month, day, 14, 30);
+                        long actual = engine.dateTime(year, month, day, 14, 30, now);
+                        assertEquals(zone + " " + year + "-" + month + "-" + day, expected, actual);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 测试远期日期（超出预计算窗口）仍与 Calendar 一致
+     */
+    @Test
+    public void testOutsideWindowMatchesCalendar() {
+        long now = System.currentTimeMillis();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        DateEngine engine = DateEngine.forDefaultZone();
+
+        assertEquals(calendarDate(now, 2060, 2, 10, 2, 30), engine.dateTime(2060, 2, 10, 2, 30, now));
+        assertEquals(calendarDate(now, 1990, 9, 28, 1, 30), engine.dateTime(1990, 9, 28, 1, 30, now));
+    }
+
+    /**
+     * 测试批量计算
+     */
+    @Test
+    public void testFutureDateTimesBulk() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+        DateEngine engine = DateEngine.forDefaultZone();
+        int[] days = {1, 7, 30, 365};
+        long[] out = new long[days.length];
+
+        engine.futureDateTimes(days, 9, 0, out);
+
+        for (int i = 0; i < days.length; i++) {
+            long diff = out[i] - System.currentTimeMillis();
+            assertTrue(diff > (days[i] - 1) * DateEngine.MILLIS_PER_DAY);
+            assertTrue(diff < (days[i] + 1) * DateEngine.MILLIS_PER_DAY);
+        }
+    }
+
+    /**
+     * 测试 epochDay 计算
+     */
+    @Test
+    public void testEpochDay() {
+        assertEquals(0, DateEngine.epochDay(1970, 0, 1));
+        assertEquals(19723, DateEngine.epochDay(2024, 0, 1));
+        assertEquals(19782, DateEngine.epochDay(2024, 1, 29));
+        // 月份和日期溢出按 Calendar 宽松模式处理
+        assertEquals(DateEngine.epochDay(2025, 0, 1), DateEngine.epochDay(2024, 12, 1));
+        assertEquals(DateEngine.epochDay(2024, 2, 1), DateEngine.epochDay(2024, 1, 30));
+    }
+
+    private static long calendarFuture(long now, int days, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        calendar.add(Calendar.DAY_OF_YEAR, days);
+        calendar.set(Calendar.HOUR_OF_DAY, hour);
+        calendar.set(Calendar.MINUTE, minute);
+        calendar.set(Calendar.SECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long calendarDate(long now, int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        calendar.set(year, month, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+}
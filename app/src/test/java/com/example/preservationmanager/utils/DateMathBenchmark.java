@@ -0,0 +1,108 @@
+package com.example.preservationmanager.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CalendarUtils 与 DateEngine 日期计算的 JMH 基准测试
+ * 使用 ./gradlew :app:jmh 运行；固定 fork、预热和测量轮数，保证结果可对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateMathBenchmark {
+
+    /**
+     * 一个无夏令时时区和一个有夏令时时区
+     */
+    @Param({"Asia/Shanghai", "America/New_York"})
+    public String zone;
+
+    /**
+     * 批量导入中一次处理的商品数量
+     */
+    @Param({"1000"})
+    public int batchSize;
+
+    private TimeZone originalZone;
+    private DateEngine engine;
+    private int[] shelfLives;
+    private long[] out;
+
+    @Setup
+    public void setUp() {
+        originalZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone(zone));
+        engine = DateEngine.forDefaultZone();
+        shelfLives = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            shelfLives[i] = i % 365;
+        }
+        out = new long[batchSize];
+    }
+
+    @TearDown
+    public void tearDown() {
+        TimeZone.setDefault(originalZone);
+    }
+
+    @Benchmark
+    public long createDateTime() {
+        return CalendarUtils.createDateTime(2024, 10, 15, 14, 30);
+    }
+
+    @Benchmark
+    public long createFutureDateTime() {
+        return CalendarUtils.createFutureDateTime(30, 10, 0);
+    }
+
+    /**
+     * 模拟批量导入：每个商品计算一次开始时间和结束时间
+     */
+    @Benchmark
+    public void bulkStartEndTimes(Blackhole blackhole) {
+        for (int i = 0; i < batchSize; i++) {
+            int shelfLife = 1 + (i % 365);
+            blackhole.consume(CalendarUtils.createFutureDateTime(shelfLife - 1, 10, 0));
+            blackhole.consume(CalendarUtils.createFutureDateTime(shelfLife - 1, 11, 0));
+        }
+    }
+
+    @Benchmark
+    public long engineDateTime() {
+        return engine.dateTime(2024, 10, 15, 14, 30);
+    }
+
+    @Benchmark
+    public long engineFutureDateTime() {
+        return engine.futureDateTime(30, 10, 0);
+    }
+
+    /**
+     * 与 bulkStartEndTimes 相同的工作量，使用 DateEngine 批量计算
+     */
+    @Benchmark
+    public void engineBulkStartEndTimes(Blackhole blackhole) {
+        engine.futureDateTimes(shelfLives, 10, 0, out);
+        blackhole.consume(out);
+        engine.futureDateTimes(shelfLives, 11, 0, out);
+        blackhole.consume(out);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.preservationmanager.utils;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 带索引最小堆的单元测试
+ */
+public class DeadlineHeapTest {
+
+    /**
+     * 测试按到期时间顺序取出
+     */
+    @Test
+    public void testPollInOrder() {
+        DeadlineHeap heap = new DeadlineHeap();
+        heap.put("c", 30);
+        heap.put("a", 10);
+        heap.put("d", 40);
+        heap.put("b", 20);
+
+        assertEquals(4, heap.size());
+        assertEquals(10, heap.peekTime());
+        assertEquals("a", heap.poll());
+        assertEquals("b", heap.poll());
+        assertEquals("c", heap.poll());
+        assertEquals("d", heap.poll());
+        assertNull(heap.poll());
+        assertEquals(Long.MAX_VALUE, heap.peekTime());
+    }
+
+    /**
+     * 测试修改到期时间和按键取消
+     */
+    @Test
+    public void testUpdateAndRemove() {
+        DeadlineHeap heap = new DeadlineHeap();
+        heap.put("a", 10);
+        heap.put("b", 20);
+        heap.put("c", 30);
+
+        heap.put("c", 5);
+        assertEquals("c", heap.peekKey());
+        assertEquals(3, heap.size());
+
+        heap.put("c", 50);
+        assertEquals("a", heap.peekKey());
+        assertEquals(50, heap.getTime("c"));
+
+        assertTrue(heap.remove("a"));
+        assertFalse(heap.remove("a"));
+        assertFalse(heap.contains("a"));
+        assertEquals(-1, heap.getTime("a"));
+        assertEquals("b", heap.poll());
+        assertEquals("c", heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    /**
+     * 随机添加、修改、取消和取出，与简单实现的结果对比
+     */
+    @Test
+    public void testRandomOperationsMatchReference() {
+        Random random = new Random(42);
+        DeadlineHeap heap = new DeadlineHeap(4);
+        Map<String, Long> reference = new HashMap<>();
+
+        for (int step = 0; step < 20000; step++) {
+            String key = "k" + random.nextInt(500);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                long time = random.nextInt(100000);
+                heap.put(key, time);
+                reference.put(key, time);
+            } else if (op < 8) {
+                assertEquals(reference.remove(key) != null, heap.remove(key));
+            } else if (!reference.isEmpty()) {
+                long min = Long.MAX_VALUE;
+                for (long time : reference.values()) {
+                    min = Math.min(min, time);
+                }
+                assertEquals(min, heap.peekTime());
+                String polled = heap.poll();
+                assertEquals(Long.valueOf(min), reference.remove(polled));
+            }
+            assertEquals(reference.size(), heap.size());
+        }
+
+        long previous = Long.MIN_VALUE;
+        while (!heap.isEmpty()) {
+            long time = heap.peekTime();
+            assertTrue(time >= previous);
+            assertEquals(Long.valueOf(time), reference.remove(heap.poll()));
+            previous = time;
+        }
+        assertTrue(reference.isEmpty());
+    }
+}
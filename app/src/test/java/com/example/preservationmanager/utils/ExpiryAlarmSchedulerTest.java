@@ -0,0 +1,149 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 应用内提醒的功能测试（Robolectric）
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ExpiryAlarmSchedulerTest {
+
+    private static final long BASE = 1_900_000_000_000L;
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private Application context;
+    private ExpiryAlarmScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        scheduler = ExpiryAlarmScheduler.getInstance(context);
+    }
+
+    @After
+    public void tearDown() {
+        ExpiryAlarmScheduler.resetForTesting();
+        ExpiryIndex.resetForTesting();
+    }
+
+    /**
+     * 测试添加、替换和取消提醒后最早的提醒时间
+     */
+    @Test
+    public void testScheduleAndCancel() {
+        assertEquals(-1, scheduler.getNextTriggerTime());
+
+        assertTrue(scheduler.schedule("a", BASE + 3 * HOUR, "牛奶", null));
+        assertTrue(scheduler.schedule("b", BASE + HOUR, "酸奶", "明天过期"));
+        assertTrue(scheduler.schedule("c", BASE + 2 * HOUR, "奶酪", null));
+        assertEquals(3, scheduler.size());
+        assertEquals(BASE + HOUR, scheduler.getNextTriggerTime());
+
+        assertTrue(scheduler.schedule("b", BASE + 4 * HOUR, "酸奶", null));
+        assertEquals(3, scheduler.size());
+        assertEquals(BASE + 2 * HOUR, scheduler.getNextTriggerTime());
+
+        assertTrue(scheduler.cancel("c"));
+        assertFalse(scheduler.cancel("c"));
+        assertEquals(BASE + 3 * HOUR, scheduler.getNextTriggerTime());
+    }
+
+    /**
+     * 测试只返回已到期的提醒，发送成功后才删除
+     */
+    @Test
+    public void testPeekDueAndComplete() {
+        scheduler.schedule("a", BASE + 2 * HOUR, "牛奶", "今天过期");
+        scheduler.schedule("b", BASE, "酸奶", null);
+        scheduler.schedule("c", BASE + 5 * HOUR, "奶酪", null);
+
+        assertTrue(scheduler.peekDue(BASE - HOUR).isEmpty());
+
+        List<ExpiryAlarmScheduler.Alarm> due = scheduler.peekDue(BASE + 2 * HOUR);
+        assertEquals(2, due.size());
+        assertEquals("b", due.get(0).key);
+        assertEquals("a", due.get(1).key);
+        assertEquals("牛奶", due.get(1).title);
+        assertEquals("今天过期", due.get(1).text);
+        assertEquals(3, scheduler.size());
+
+        scheduler.complete(due);
+        assertEquals(1, scheduler.size());
+        assertTrue(scheduler.peekDue(BASE + 2 * HOUR).isEmpty());
+        assertEquals(BASE + 5 * HOUR, scheduler.getNextTriggerTime());
+    }
+
+    /**
+     * 测试通知无法发送时提醒保留，重新加载后仍然到期；发送期间被重新安排的提醒不会被删除
+     */
+    @Test
+    public void testUndeliveredAlarmsAreKept() {
+        scheduler.schedule("a", BASE, "牛奶", null);
+        scheduler.schedule("b", BASE, "酸奶", null);
+
+        List<ExpiryAlarmScheduler.Alarm> due = scheduler.peekDue(BASE);
+        scheduler.defer(BASE + HOUR);
+        ExpiryAlarmScheduler.resetForTesting();
+        scheduler = ExpiryAlarmScheduler.getInstance(context);
+        assertEquals(2, scheduler.peekDue(BASE).size());
+
+        scheduler.schedule("b", BASE + 3 * HOUR, "酸奶", null);
+        scheduler.complete(due);
+        assertEquals(1, scheduler.size());
+        assertEquals(BASE + 3 * HOUR, scheduler.getTriggerTime("b"));
+    }
+
+    /**
+     * 测试提醒保存在数据库中，新进程重新加载后保持不变
+     */
+    @Test
+    public void testRemindersArePersisted() {
+        List<ProductReminder> reminders = Arrays.asList(
+                new ProductReminder("A", "牛奶", null, BASE + 2 * HOUR, BASE + 3 * HOUR, 60, "Asia/Shanghai"),
+                new ProductReminder("B", "酸奶", null, BASE + 4 * HOUR, BASE + 5 * HOUR, 0, "Asia/Shanghai"));
+        assertEquals(2, scheduler.scheduleAll(reminders));
+
+        ExpiryAlarmScheduler.resetForTesting();
+        scheduler = ExpiryAlarmScheduler.getInstance(context);
+        assertEquals(2, scheduler.size());
+        assertEquals(BASE + HOUR, scheduler.getTriggerTime(ExpiryAlarmScheduler.productKey("A")));
+        assertEquals(BASE + 4 * HOUR, scheduler.getTriggerTime(ExpiryAlarmScheduler.productKey("B")));
+    }
+
+    /**
+     * 测试 IN_APP 方式不写入日历提醒，删除事件时取消应用内提醒
+     */
+    @Test
+    public void testInAppBackend() {
+        shadowOf(context).grantPermissions(Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+        CalendarPermissionState.refresh(context);
+        FakeCalendarProvider provider = FakeCalendarProvider.install();
+        try {
+            long eventId = CalendarUtils.addEventWithReminder(context, "牛奶", null, BASE + 2 * HOUR,
+                    BASE + 3 * HOUR, 60, "Asia/Shanghai", ReminderBackend.IN_APP);
+            assertTrue(eventId > 0);
+            assertEquals(0, provider.getReminderCount());
+            assertEquals(BASE + HOUR, scheduler.getTriggerTime(ExpiryAlarmScheduler.eventKey(eventId)));
+
+            assertTrue(CalendarUtils.deleteEvent(context, eventId));
+            assertEquals(0, scheduler.size());
+        } finally {
+            CalendarIdCache.resetForTesting();
+        }
+    }
+}
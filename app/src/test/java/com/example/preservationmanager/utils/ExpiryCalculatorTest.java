@@ -0,0 +1,107 @@
+package com.example.preservationmanager.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * ExpiryCalculator 的单元测试
+ */
+public class ExpiryCalculatorTest {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private final DateEngine engine = DateEngine.of("Asia/Shanghai");
+
+    /**
+     * 测试按天计算：到期前 1 天 10:00-11:00，提前 2 小时提醒
+     */
+    @Test
+    public void testDays() {
+        ExpiryCalculator calculator = new ExpiryCalculator(engine, ReminderPolicy.DEFAULT);
+        ExpiryBatch batch = new ExpiryBatch(1);
+        long production = DateEngine.epochDay(2024, 9, 1);
+        batch.add(production, 7, ShelfLifeUnit.DAYS);
+
+        calculator.compute(batch);
+
+        assertEquals(DateEngine.epochDay(2024, 9, 8), batch.getExpiryDay(0));
+        assertEquals(engine.dateTime(2024, 9, 7, 10, 0, 0), batch.getStartTime(0));
+        assertEquals(engine.dateTime(2024, 9, 7, 11, 0, 0), batch.getEndTime(0));
+        assertEquals(batch.getStartTime(0) - 120 * MINUTE, batch.getAlarmTime(0));
+    }
+
+    /**
+     * 测试按月计算，目标月份没有对应日期时取月末
+     */
+    @Test
+    public void testMonths() {
+        ExpiryCalculator calculator = new ExpiryCalculator(engine, new ReminderPolicy(0, 9, 30, 30, 0));
+        ExpiryBatch batch = new ExpiryBatch(4);
+        batch.add(DateEngine.epochDay(2024, 0, 31), 1, ShelfLifeUnit.MONTHS);
+        batch.add(DateEngine.epochDay(2023, 0, 31), 1, ShelfLifeUnit.MONTHS);
+        batch.add(DateEngine.epochDay(2024, 4, 15), 12, ShelfLifeUnit.MONTHS);
+        batch.add(DateEngine.epochDay(2024, 2, 31), -1, ShelfLifeUnit.MONTHS);
+
+        calculator.compute(batch);
+
+        assertEquals(DateEngine.epochDay(2024, 1, 29), batch.getExpiryDay(0));
+        assertEquals(DateEngine.epochDay(2023, 1, 28), batch.getExpiryDay(1));
+        assertEquals(DateEngine.epochDay(2025, 4, 15), batch.getExpiryDay(2));
+        assertEquals(DateEngine.epochDay(2024, 1, 29), batch.getExpiryDay(3));
+        assertEquals(engine.dateTime(2025, 4, 15, 9, 30, 0), batch.getStartTime(2));
+        assertEquals(batch.getStartTime(2) + 30 * MINUTE, batch.getEndTime(2));
+        assertEquals(batch.getStartTime(2), batch.getAlarmTime(2));
+    }
+
+    /**
+     * 测试并行计算与单线程计算结果一致
+     */
+    @Test
+    public void testParallelMatchesSequential() {
+        ExpiryCalculator calculator = new ExpiryCalculator(DateEngine.of("America/New_York"), ReminderPolicy.DEFAULT);
+        int size = ExpiryCalculator.PARALLEL_THRESHOLD * 4 + 17;
+        ExpiryBatch parallel = new ExpiryBatch(16);
+        ExpiryBatch sequential = new ExpiryBatch(size);
+        long today = DateEngine.epochDay(2024, 0, 1);
+        for (int i = 0; i < size; i++) {
+            ShelfLifeUnit unit = i % 3 == 0 ? ShelfLifeUnit.MONTHS : ShelfLifeUnit.DAYS;
+            int shelfLife = unit == ShelfLifeUnit.MONTHS ? 1 + i % 24 : 1 + i % 730;
+            parallel.add(today + i % 365, shelfLife, unit);
+            sequential.add(today + i % 365, shelfLife, unit);
+        }
+
+        calculator.compute(parallel);
+        calculator.computeRange(sequential, 0, size);
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(sequential.getExpiryDay(i), parallel.getExpiryDay(i));
+            assertEquals(sequential.getStartTime(i), parallel.getStartTime(i));
+            assertEquals(sequential.getEndTime(i), parallel.getEndTime(i));
+            assertEquals(sequential.getAlarmTime(i), parallel.getAlarmTime(i));
+        }
+    }
+
+    /**
+     * 测试转换为商品提醒
+     */
+    @Test
+    public void testToReminders() {
+        ExpiryCalculator calculator = new ExpiryCalculator(engine, ReminderPolicy.DEFAULT);
+        ExpiryBatch batch = new ExpiryBatch(2);
+        batch.add(calculator.today(), 7, ShelfLifeUnit.DAYS);
+        batch.add(calculator.today(), 14, ShelfLifeUnit.DAYS);
+        calculator.compute(batch);
+
+        List<ProductReminder> reminders = calculator.toReminders(batch,
+                new String[]{"milk", "yogurt"}, new String[]{"牛奶", "酸奶"}, new String[]{"", ""});
+
+        assertEquals(2, reminders.size());
+        assertEquals("yogurt", reminders.get(1).getProductId());
+        assertEquals(batch.getStartTime(1), reminders.get(1).getStartTime());
+        assertEquals(120, reminders.get(1).getReminderMinutesBefore());
+        assertEquals("Asia/Shanghai", reminders.get(1).getTimeZone());
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 每日汇总提醒的功能测试（Robolectric + {@link FakeCalendarProvider}）
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ExpiryDigestTest {
+
+    private static final long DAY = DateEngine.epochDay(2030, 0, 10);
+
+    private Application context;
+    private FakeCalendarProvider provider;
+    private ExpiryDigest digest;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        shadowOf(context).grantPermissions(Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+        CalendarPermissionState.refresh(context);
+        provider = FakeCalendarProvider.install();
+        digest = new ExpiryDigest(context, new ExpiryCalculator(DateEngine.of("Asia/Shanghai"), ReminderPolicy.DEFAULT));
+    }
+
+    @After
+    public void tearDown() {
+        ExpiryIndex.resetForTesting();
+        CalendarIdCache.resetForTesting();
+    }
+
+    /**
+     * 测试同一天、同一分组的商品合并为一个事件
+     */
+    @Test
+    public void testSameDayItemsShareOneEvent() {
+        int written = digest.addItems(Arrays.asList(
+                new ExpiryDigest.Item("A", "牛奶", "冷藏", DAY),
+                new ExpiryDigest.Item("B", "酸奶", "冷藏", DAY),
+                new ExpiryDigest.Item("C", "奶酪", "冷藏", DAY),
+                new ExpiryDigest.Item("D", "面包", "常温", DAY),
+                new ExpiryDigest.Item("E", "黄油", "冷藏", DAY + 1)));
+
+        assertEquals(3, written);
+        assertEquals(3, provider.getEventCount());
+        assertEquals(3, provider.getReminderCount());
+
+        CalendarEvent event = findDigest("冷藏", DAY);
+        assertEquals("冷藏保质期汇总（3 件）", event.getTitle());
+        assertTrue(event.getDescription().contains("到期日：2030-01-10"));
+        assertTrue(event.getDescription().contains("牛奶"));
+        assertTrue(event.getDescription().contains("奶酪"));
+        assertFalse(event.getDescription().contains("面包"));
+    }
+
+    /**
+     * 测试添加商品时原地更新当天的事件，内容未变化时不访问日历
+     */
+    @Test
+    public void testIncrementalUpdate() {
+        digest.addItems(Arrays.asList(
+                new ExpiryDigest.Item("A", "牛奶", null, DAY),
+                new ExpiryDigest.Item("B", "酸奶", null, DAY)));
+        long eventId = findDigest("", DAY).getEventId();
+
+        assertEquals(1, digest.addItems(Collections.singletonList(new ExpiryDigest.Item("C", "奶酪", null, DAY))));
+        assertEquals(1, provider.getEventCount());
+        assertEquals(1, provider.getReminderCount());
+        CalendarEvent event = findDigest("", DAY);
+        assertEquals(eventId, event.getEventId());
+        assertEquals("保质期汇总（3 件）", event.getTitle());
+
+        int calls = provider.getCallCount();
+        assertEquals(0, digest.addItems(Collections.singletonList(new ExpiryDigest.Item("A", "牛奶", null, DAY))));
+        assertEquals(calls, provider.getCallCount());
+    }
+
+    /**
+     * 测试商品移到其它日期时两天的汇总都更新，汇总中没有商品时删除事件
+     */
+    @Test
+    public void testMoveAndRemove() {
+        digest.addItems(Arrays.asList(
+                new ExpiryDigest.Item("A", "牛奶", null, DAY),
+                new ExpiryDigest.Item("B", "酸奶", null, DAY)));
+
+        assertEquals(2, digest.addItems(Collections.singletonList(new ExpiryDigest.Item("B", "酸奶", null, DAY + 2))));
+        assertEquals(2, provider.getEventCount());
+        assertEquals("保质期汇总（1 件）", findDigest("", DAY).getTitle());
+        assertEquals(1, digest.getItems(null, DAY + 2).size());
+
+        assertEquals(1, digest.removeItems(Collections.singletonList("A")));
+        assertEquals(1, provider.getEventCount());
+        assertEquals(0, ExpiryIndex.getInstance(context).findEventIds(ExpiryDigest.key("", DAY)).length);
+        assertTrue(digest.getItems(null, DAY).isEmpty());
+    }
+
+    /**
+     * 测试写入失败的汇总在下次调用时重试
+     */
+    @Test
+    public void testFailedDigestIsRetried() {
+        CalendarUtils.getOrCreateCalendarAccount(context);
+        provider.failNextCalls(1, () -> new IllegalStateException("provider unavailable"));
+
+        assertEquals(-1, digest.addItems(Collections.singletonList(new ExpiryDigest.Item("A", "牛奶", null, DAY))));
+        assertEquals(0, provider.getEventCount());
+
+        assertEquals(1, digest.flush());
+        assertEquals(1, provider.getEventCount());
+        assertEquals(0, digest.flush());
+    }
+
+    /**
+     * 测试全量同步不会删除或占用汇总事件，之后汇总仍原地更新；商品 ID 不能使用汇总的键
+     */
+    @Test
+    public void testReconcileLeavesDigestsAlone() {
+        digest.addItems(Collections.singletonList(new ExpiryDigest.Item("A", "牛奶", null, DAY)));
+        long eventId = findDigest("", DAY).getEventId();
+
+        long start = 1_900_000_000_000L;
+        ProductReminder product = new ProductReminder("p0", "商品 0 保质期提醒", "批次 0",
+                start, start + 60 * 60 * 1000L, 120, "Asia/Shanghai");
+        CalendarReconciler.Result result = CalendarReconciler.reconcile(context, Collections.singletonList(product));
+        assertEquals(1, result.getInsertedCount());
+        assertEquals(0, result.getDeletedCount());
+        assertEquals(2, provider.getEventCount());
+        assertEquals(eventId, findDigest("", DAY).getEventId());
+
+        assertEquals(1, digest.addItems(Collections.singletonList(new ExpiryDigest.Item("B", "酸奶", null, DAY))));
+        assertEquals(2, provider.getEventCount());
+        assertEquals(eventId, findDigest("", DAY).getEventId());
+
+        ProductReminder impostor = new ProductReminder(ExpiryDigest.key("", DAY), "冒充", null,
+                start, start + 60 * 60 * 1000L, 120, "Asia/Shanghai");
+        assertEquals(UpsertResult.Outcome.FAILED, ProductReminderSync.upsert(context, impostor).getOutcome(0));
+        assertEquals(1, CalendarReconciler.reconcile(context, Collections.singletonList(impostor)).getFailedCount());
+        assertEquals("保质期汇总（2 件）", findDigest("", DAY).getTitle());
+    }
+
+    /**
+     * 测试过期清理不删除汇总事件，汇总的商品过期后由汇总自己删除事件
+     */
+    @Test
+    public void testExpiredDigestIsDeletedByDigest() {
+        digest.addItems(Collections.singletonList(new ExpiryDigest.Item("A", "牛奶", null, DAY)));
+
+        assertEquals(0, CalendarUtils.purgeEventsEndingBefore(context, Long.MAX_VALUE));
+        assertEquals(1, provider.getEventCount());
+        findDigest("", DAY);
+
+        assertEquals(1, digest.removeItemsExpiringBefore(DAY + 1, () -> false));
+        assertEquals(0, provider.getEventCount());
+        assertEquals(0, ExpiryIndex.getInstance(context).findEventIds(ExpiryDigest.key("", DAY)).length);
+    }
+
+    private CalendarEvent findDigest(String group, long day) {
+        long[] ids = ExpiryIndex.getInstance(context).findEventIds(ExpiryDigest.key(group, day));
+        assertEquals(1, ids.length);
+        List<CalendarEvent> events = CalendarUtils.queryEvents(context, 0, Long.MAX_VALUE);
+        for (CalendarEvent event : events) {
+            if (event.getEventId() == ids[0]) {
+                return event;
+            }
+        }
+        fail("汇总事件不存在");
+        return null;
+    }
+}
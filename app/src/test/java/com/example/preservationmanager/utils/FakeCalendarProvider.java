@@ -0,0 +1,392 @@
+package com.example.preservationmanager.utils;
+
+import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.TransactionTooLargeException;
+import android.provider.CalendarContract;
+
+import org.robolectric.Robolectric;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * 内存中的日历提供者 - 在 Robolectric 下代替系统日历，用于 JVM 上的功能测试和大规模负载测试
+ * <p>
+ * 实现 CalendarUtils 使用的 Calendars、Events、Reminders 和 Instances 子集，
+ * 数据保存在内存 SQLite 数据库中，因此任意 selection 都与真实提供者一样由 SQLite 解析。
+ * applyBatch 在一个事务中执行，支持反向引用，任一操作失败时整个批次回滚。
+ * <p>
+ * 可以注入延迟和故障：
+ * <ul>
+ *     <li>{@link #setLatencyMillis(long)}：每次调用（批次整体算一次）前等待</li>
+ *     <li>{@link #failNextCalls(int, Supplier)}：接下来的若干次调用抛出指定异常</li>
+ *     <li>{@link #setMaxBatchOperations(int)}：超过该操作数的批次抛出 TransactionTooLargeException</li>
+ *     <li>{@link #runBeforeNextBatch(Runnable)}：下一个批次执行前修改数据，模拟查询与写入之间其他应用的修改</li>
+ * </ul>
+ */
+public class FakeCalendarProvider extends ContentProvider {
+
+    private static final int CALENDARS = 1;
+    private static final int CALENDAR_ID = 2;
+    private static final int EVENTS = 3;
+    private static final int EVENT_ID = 4;
+    private static final int REMINDERS = 5;
+    private static final int REMINDER_ID = 6;
+    private static final int INSTANCES = 7;
+
+    private static final String TABLE_CALENDARS = "calendars";
+    private static final String TABLE_EVENTS = "events";
+    private static final String TABLE_REMINDERS = "reminders";
+
+    private static final UriMatcher MATCHER = new UriMatcher(UriMatcher.NO_MATCH);
+
+    static {
+        String authority = CalendarContract.AUTHORITY;
+        MATCHER.addURI(authority, "calendars", CALENDARS);
+        MATCHER.addURI(authority, "calendars/#", CALENDAR_ID);
+        // 按账户名追加路径插入日历（CalendarUtils.createLocalCalendar）
+        MATCHER.addURI(authority, "calendars/*", CALENDARS);
+        MATCHER.addURI(authority, "events", EVENTS);
+        MATCHER.addURI(authority, "events/#", EVENT_ID);
+        MATCHER.addURI(authority, "reminders", REMINDERS);
+        MATCHER.addURI(authority, "reminders/#", REMINDER_ID);
+        MATCHER.addURI(authority, "instances/when/#/#", INSTANCES);
+    }
+
+    private SQLiteDatabase database;
+
+    private long latencyMillis;
+    private int maxBatchOperations;
+    private final Deque<Supplier<? extends RuntimeException>> pendingFailures = new ArrayDeque<>();
+    private boolean inBatch;
+    private int callCount;
+    private Runnable beforeNextBatch;
+
+    /**
+     * 创建提供者并注册到 Robolectric 的 ContentResolver，替换日历权限下的系统提供者
+     *
+     * @return 已注册的提供者
+     */
+    public static FakeCalendarProvider install() {
+        return Robolectric.buildContentProvider(FakeCalendarProvider.class)
+                .create(CalendarContract.AUTHORITY)
+                .get();
+    }
+
+    @Override
+    public boolean onCreate() {
+        database = SQLiteDatabase.create(null);
+        database.execSQL("CREATE TABLE " + TABLE_CALENDARS + " ("
+                + CalendarContract.Calendars._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + CalendarContract.Calendars.ACCOUNT_NAME + " TEXT,"
+                + CalendarContract.Calendars.ACCOUNT_TYPE + " TEXT,"
+                + CalendarContract.Calendars.NAME + " TEXT,"
+                + CalendarContract.Calendars.CALENDAR_DISPLAY_NAME + " TEXT,"
+                + CalendarContract.Calendars.CALENDAR_COLOR + " INTEGER,"
+                + CalendarContract.Calendars.CALENDAR_TIME_ZONE + " TEXT,"
+                + CalendarContract.Calendars.CALENDAR_ACCESS_LEVEL + " INTEGER DEFAULT 700,"
+                + CalendarContract.Calendars.OWNER_ACCOUNT + " TEXT,"
+                + CalendarContract.Calendars.VISIBLE + " INTEGER DEFAULT 1,"
+                + CalendarContract.Calendars.IS_PRIMARY + " INTEGER DEFAULT 0,"
+                + CalendarContract.Calendars.SYNC_EVENTS + " INTEGER DEFAULT 0)");
+        database.execSQL("CREATE TABLE " + TABLE_EVENTS + " ("
+                + CalendarContract.Events._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + CalendarContract.Events.CALENDAR_ID + " INTEGER NOT NULL,"
+                + CalendarContract.Events.TITLE + " TEXT,"
+                + CalendarContract.Events.DESCRIPTION + " TEXT,"
+                + CalendarContract.Events.EVENT_LOCATION + " TEXT,"
+                + CalendarContract.Events.DTSTART + " INTEGER,"
+                + CalendarContract.Events.DTEND + " INTEGER,"
+                + CalendarContract.Events.DURATION + " TEXT,"
+                + CalendarContract.Events.EVENT_TIMEZONE + " TEXT,"
+                + CalendarContract.Events.EVENT_END_TIMEZONE + " TEXT,"
+                + CalendarContract.Events.ALL_DAY + " INTEGER DEFAULT 0,"
+                + CalendarContract.Events.RRULE + " TEXT,"
+                + CalendarContract.Events.EVENT_COLOR + " INTEGER,"
+                + CalendarContract.Events.HAS_ALARM + " INTEGER DEFAULT 0,"
+                + CalendarContract.Events.UID_2445 + " TEXT,"
+                + CalendarContract.Events.AVAILABILITY + " INTEGER DEFAULT 0,"
+                + CalendarContract.Events.STATUS + " INTEGER,"
+                + CalendarContract.Events.DIRTY + " INTEGER DEFAULT 1,"
+                + CalendarContract.Events.DELETED + " INTEGER DEFAULT 0)");
+        database.execSQL("CREATE INDEX events_calendar_start ON " + TABLE_EVENTS + " ("
+                + CalendarContract.Events.CALENDAR_ID + ", " + CalendarContract.Events.DTSTART + ")");
+        database.execSQL("CREATE INDEX events_uid ON " + TABLE_EVENTS + " ("
+                + CalendarContract.Events.UID_2445 + ")");
+        database.execSQL("CREATE TABLE " + TABLE_REMINDERS + " ("
+                + CalendarContract.Reminders._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + CalendarContract.Reminders.EVENT_ID + " INTEGER NOT NULL,"
+                + CalendarContract.Reminders.MINUTES + " INTEGER DEFAULT -1,"
+                + CalendarContract.Reminders.METHOD + " INTEGER DEFAULT 0)");
+        database.execSQL("CREATE INDEX reminders_event ON " + TABLE_REMINDERS + " ("
+                + CalendarContract.Reminders.EVENT_ID + ")");
+        return true;
+    }
+
+    // ---- 故障注入 ----
+
+    /**
+     * @param millis 每次调用前等待的毫秒数，0 表示不等待
+     */
+    public synchronized void setLatencyMillis(long millis) {
+        latencyMillis = millis;
+    }
+
+    /**
+     * 接下来的 count 次调用抛出 failure 提供的异常（例如 SecurityException、SQLiteDatabaseLockedException）
+     */
+    public synchronized void failNextCalls(int count, Supplier<? extends RuntimeException> failure) {
+        for (int i = 0; i < count; i++) {
+            pendingFailures.add(failure);
+        }
+    }
+
+    /**
+     * 接下来 succeeding 次调用正常执行，之后的 count 次调用抛出 failure 提供的异常（例如分块操作中途失败）
+     */
+    public synchronized void failCallsAfter(int succeeding, int count, Supplier<? extends RuntimeException> failure) {
+        for (int i = 0; i < succeeding; i++) {
+            pendingFailures.add(() -> null);
+        }
+        failNextCalls(count, failure);
+    }
+
+    /**
+     * 模拟 Binder 事务大小限制
+     *
+     * @param max 一个批次允许的最大操作数，0 表示不限制
+     */
+    public synchronized void setMaxBatchOperations(int max) {
+        maxBatchOperations = max;
+    }
+
+    /**
+     * 下一个批次执行前运行 action（只运行一次），action 中可以直接调用本提供者的方法
+     */
+    public synchronized void runBeforeNextBatch(Runnable action) {
+        beforeNextBatch = action;
+    }
+
+    /**
+     * @return 收到的调用次数（批次整体算一次）
+     */
+    public synchronized int getCallCount() {
+        return callCount;
+    }
+
+    public synchronized long getEventCount() {
+        return count(TABLE_EVENTS);
+    }
+
+    public synchronized long getReminderCount() {
+        return count(TABLE_REMINDERS);
+    }
+
+    private long count(String table) {
+        try (Cursor cursor = database.rawQuery("SELECT COUNT(*) FROM " + table, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    /**
+     * 每次外部调用的入口：计数、延迟、注入的故障；批次内部的单个操作不经过这里
+     */
+    private void beforeCall() {
+        if (inBatch) {
+            return;
+        }
+        callCount++;
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Supplier<? extends RuntimeException> failure = pendingFailures.poll();
+        RuntimeException error = failure != null ? failure.get() : null;
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // ---- ContentProvider ----
+
+    @Override
+    public synchronized Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                                     String sortOrder) {
+        beforeCall();
+        switch (MATCHER.match(uri)) {
+            case CALENDARS:
+                return database.query(TABLE_CALENDARS, projection, selection, selectionArgs, null, null, sortOrder);
+            case CALENDAR_ID:
+                return database.query(TABLE_CALENDARS, projection, whereId(uri, selection), selectionArgs,
+                        null, null, sortOrder);
+            case EVENTS:
+                return database.query(TABLE_EVENTS, projection, selection, selectionArgs, null, null, sortOrder);
+            case EVENT_ID:
+                return database.query(TABLE_EVENTS, projection, whereId(uri, selection), selectionArgs,
+                        null, null, sortOrder);
+            case REMINDERS:
+                return database.query(TABLE_REMINDERS, projection, selection, selectionArgs, null, null, sortOrder);
+            case REMINDER_ID:
+                return database.query(TABLE_REMINDERS, projection, whereId(uri, selection), selectionArgs,
+                        null, null, sortOrder);
+            case INSTANCES:
+                return database.query(instancesTable(uri), projection, selection, selectionArgs,
+                        null, null, sortOrder);
+            default:
+                throw new IllegalArgumentException("Unknown URI " + uri);
+        }
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return null;
+    }
+
+    @Override
+    public synchronized Uri insert(Uri uri, ContentValues values) {
+        beforeCall();
+        switch (MATCHER.match(uri)) {
+            case CALENDARS:
+                return ContentUris.withAppendedId(CalendarContract.Calendars.CONTENT_URI,
+                        database.insertOrThrow(TABLE_CALENDARS, null, values));
+            case EVENTS:
+                // 与系统提供者相同的必填字段校验
+                if (!values.containsKey(CalendarContract.Events.CALENDAR_ID)
+                        || !values.containsKey(CalendarContract.Events.DTSTART)
+                        || !values.containsKey(CalendarContract.Events.EVENT_TIMEZONE)) {
+                    throw new IllegalArgumentException("calendar_id, dtstart and eventTimezone are required");
+                }
+                return ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI,
+                        database.insertOrThrow(TABLE_EVENTS, null, values));
+            case REMINDERS:
+                if (!values.containsKey(CalendarContract.Reminders.EVENT_ID)) {
+                    throw new IllegalArgumentException("event_id is required");
+                }
+                return ContentUris.withAppendedId(CalendarContract.Reminders.CONTENT_URI,
+                        database.insertOrThrow(TABLE_REMINDERS, null, values));
+            default:
+                throw new IllegalArgumentException("Cannot insert into " + uri);
+        }
+    }
+
+    @Override
+    public synchronized int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        beforeCall();
+        switch (MATCHER.match(uri)) {
+            case CALENDARS:
+                return database.update(TABLE_CALENDARS, values, selection, selectionArgs);
+            case CALENDAR_ID:
+                return database.update(TABLE_CALENDARS, values, whereId(uri, selection), selectionArgs);
+            case EVENTS:
+                return database.update(TABLE_EVENTS, values, selection, selectionArgs);
+            case EVENT_ID:
+                return database.update(TABLE_EVENTS, values, whereId(uri, selection), selectionArgs);
+            case REMINDERS:
+                return database.update(TABLE_REMINDERS, values, selection, selectionArgs);
+            case REMINDER_ID:
+                return database.update(TABLE_REMINDERS, values, whereId(uri, selection), selectionArgs);
+            default:
+                throw new IllegalArgumentException("Cannot update " + uri);
+        }
+    }
+
+    @Override
+    public synchronized int delete(Uri uri, String selection, String[] selectionArgs) {
+        beforeCall();
+        switch (MATCHER.match(uri)) {
+            case CALENDARS:
+                return database.delete(TABLE_CALENDARS, selection, selectionArgs);
+            case CALENDAR_ID:
+                return database.delete(TABLE_CALENDARS, whereId(uri, selection), selectionArgs);
+            case EVENTS:
+                return deleteEvents(selection, selectionArgs);
+            case EVENT_ID:
+                return deleteEvents(whereId(uri, selection), selectionArgs);
+            case REMINDERS:
+                return database.delete(TABLE_REMINDERS, selection, selectionArgs);
+            case REMINDER_ID:
+                return database.delete(TABLE_REMINDERS, whereId(uri, selection), selectionArgs);
+            default:
+                throw new IllegalArgumentException("Cannot delete " + uri);
+        }
+    }
+
+    /**
+     * 本地日历中的事件直接删除，并级联删除其提醒
+     */
+    private int deleteEvents(String selection, String[] selectionArgs) {
+        String where = selection == null ? "" : " WHERE " + selection;
+        database.execSQL("DELETE FROM " + TABLE_REMINDERS + " WHERE " + CalendarContract.Reminders.EVENT_ID
+                + " IN (SELECT " + CalendarContract.Events._ID + " FROM " + TABLE_EVENTS + where + ")",
+                selectionArgs != null ? selectionArgs : new String[0]);
+        return database.delete(TABLE_EVENTS, selection, selectionArgs);
+    }
+
+    @Override
+    public synchronized ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        beforeCall();
+        Runnable action = beforeNextBatch;
+        beforeNextBatch = null;
+        if (action != null) {
+            action.run();
+        }
+        if (maxBatchOperations > 0 && operations.size() > maxBatchOperations) {
+            // 真实环境中由 Binder 在客户端抛出
+            throw FakeCalendarProvider.<RuntimeException>sneakyThrow(
+                    new TransactionTooLargeException("data parcel size exceeded for " + operations.size() + " ops"));
+        }
+
+        inBatch = true;
+        database.beginTransaction();
+        try {
+            ContentProviderResult[] results = super.applyBatch(operations);
+            database.setTransactionSuccessful();
+            return results;
+        } finally {
+            database.endTransaction();
+            inBatch = false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> E sneakyThrow(Throwable error) throws E {
+        throw (E) error;
+    }
+
+    private static String whereId(Uri uri, String selection) {
+        String idClause = "_id = " + ContentUris.parseId(uri);
+        return selection == null || selection.isEmpty() ? idClause : idClause + " AND (" + selection + ")";
+    }
+
+    /**
+     * Instances 查询：instances/when/{begin}/{end} 范围内与之重叠的未删除事件（不展开重复规则）
+     */
+    private static String instancesTable(Uri uri) {
+        long begin = Long.parseLong(uri.getPathSegments().get(2));
+        long end = Long.parseLong(uri.getPathSegments().get(3));
+        return "(SELECT " + TABLE_EVENTS + ".*, "
+                + CalendarContract.Events._ID + " AS " + CalendarContract.Instances.EVENT_ID + ", "
+                + CalendarContract.Events.DTSTART + " AS \"" + CalendarContract.Instances.BEGIN + "\", "
+                + CalendarContract.Events.DTEND + " AS \"" + CalendarContract.Instances.END + "\""
+                + " FROM " + TABLE_EVENTS
+                + " WHERE " + CalendarContract.Events.DELETED + " = 0"
+                + " AND " + CalendarContract.Events.DTSTART + " < " + end
+                + " AND " + CalendarContract.Events.DTEND + " > " + begin + ")";
+    }
+}
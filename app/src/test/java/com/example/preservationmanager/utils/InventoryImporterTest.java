@@ -0,0 +1,282 @@
+package com.example.preservationmanager.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 库存 CSV 导入的单元测试（JSON 依赖 android.util.JsonReader，不在此测试）
+ */
+public class InventoryImporterTest {
+
+    private final DateEngine engine = DateEngine.of("Asia/Shanghai");
+
+    private final List<List<ProductReminder>> chunks = new ArrayList<>();
+
+    private InventoryImporter newImporter(int chunkSize) {
+        return new InventoryImporter(reminders -> {
+            chunks.add(new ArrayList<>(reminders));
+            return reminders.size();
+        }, new ExpiryCalculator(engine, ReminderPolicy.DEFAULT), chunkSize);
+    }
+
+    private static InputStream csv(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 测试按分块写入，列顺序不限，未知的列被忽略
+     */
+    @Test
+    public void testImportInChunks() {
+        StringBuilder text = new StringBuilder("shelf_life,extra,name,product_id,production_date,unit\n");
+        for (int i = 0; i < 25; i++) {
+            text.append(7).append(",x,牛奶").append(i).append(",SKU").append(i).append(",2024-01-01,天\n");
+        }
+        InventoryImporter importer = newImporter(10);
+        List<ImportReport> progress = new ArrayList<>();
+        importer.setProgressListener(progress::add);
+
+        ImportReport report = importer.importCsv(csv(text.toString()));
+
+        assertTrue(report.isSuccess());
+        assertEquals(25, report.getRowsRead());
+        assertEquals(25, report.getRowsImported());
+        assertEquals(3, report.getChunksWritten());
+        assertEquals(3, chunks.size());
+        assertEquals(10, chunks.get(0).size());
+        assertEquals(5, chunks.get(2).size());
+        assertEquals(3, progress.size());
+        assertFalse(progress.get(0).isFinished());
+
+        ProductReminder first = chunks.get(0).get(0);
+        assertEquals("SKU0", first.getProductId());
+        assertEquals("牛奶0保质期提醒", first.getTitle());
+        // 2024-01-01 生产，保质期 7 天，默认策略在到期前 1 天 10:00 开始
+        long expected = engine.atTime(DateEngine.epochDay(2024, 0, 7), 10, 0);
+        assertEquals(expected, first.getStartTime());
+    }
+
+    /**
+     * 测试校验失败的行被跳过并记录行号和原因
+     */
+    @Test
+    public void testRejectedRows() {
+        String text = "product_id,name,shelf_life,unit,production_date\n"
+                + "A,酸奶,14,,\n"
+                + ",无 ID,14,,\n"
+                + "C,奶酪,abc,,\n"
+                + "D,黄油,0,,\n"
+                + "E,饼干,6,年,\n"
+                + "F,面包,3,d,2024-13-01\n"
+                + "G,罐头,24,个月,2024-01-31\n";
+
+        ImportReport report = newImporter(100).importCsv(csv(text));
+
+        assertTrue(report.isSuccess());
+        assertEquals(7, report.getRowsRead());
+        assertEquals(2, report.getRowsImported());
+        assertEquals(5, report.getRowsRejected());
+        List<ImportReport.Rejection> rejections = report.getRejections();
+        assertEquals(3, rejections.get(0).getLine());
+        assertEquals("缺少商品 ID", rejections.get(0).getReason());
+        assertEquals("保质期不是整数", rejections.get(1).getReason());
+        assertEquals("保质期超出范围", rejections.get(2).getReason());
+        assertEquals("无法识别的保质期单位", rejections.get(3).getReason());
+        assertEquals("生产日期无效", rejections.get(4).getReason());
+        assertEquals(7, rejections.get(4).getLine());
+    }
+
+    /**
+     * 测试缺少必需的列时中止导入
+     */
+    @Test
+    public void testMissingColumn() {
+        ImportReport report = newImporter(100).importCsv(csv("product_id,name\nA,酸奶\n"));
+
+        assertTrue(report.isFinished());
+        assertFalse(report.isSuccess());
+        assertNotNull(report.getError());
+        assertEquals(0, report.getRowsRead());
+        assertTrue(chunks.isEmpty());
+    }
+
+    /**
+     * 测试写入失败的行计入 rowsFailed
+     */
+    @Test
+    public void testWriterFailures() {
+        InventoryImporter importer = new InventoryImporter(reminders -> reminders.size() - 1);
+        ImportReport report = importer.importCsv(csv("product_id,name,shelf_life\nA,酸奶,14\nB,牛奶,7\n"));
+
+        assertEquals(1, report.getRowsImported());
+        assertEquals(1, report.getRowsFailed());
+    }
+
+    /**
+     * 测试流水线模式：多个计算线程并行时仍按文件顺序写入，结果与串行模式一致
+     */
+    @Test
+    public void testPipelineKeepsOrder() {
+        StringBuilder text = new StringBuilder("product_id,name,shelf_life\n");
+        int rows = 5000;
+        for (int i = 0; i < rows; i++) {
+            text.append("SKU").append(i).append(",商品").append(i).append(',').append(1 + i % 30).append('\n');
+        }
+        List<String> written = new ArrayList<>();
+        InventoryImporter importer = new InventoryImporter(reminders -> {
+            // 模拟较慢的日历提供者
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (ProductReminder reminder : reminders) {
+                written.add(reminder.getProductId());
+            }
+            return reminders.size();
+        }, new ExpiryCalculator(engine, ReminderPolicy.DEFAULT), 100);
+        importer.setComputeThreads(3);
+        importer.setQueueCapacity(2);
+
+        ImportReport report = importer.importCsv(csv(text.toString()));
+
+        assertTrue(report.isSuccess());
+        assertEquals(rows, report.getRowsImported());
+        assertEquals(50, report.getChunksWritten());
+        assertEquals(rows, written.size());
+        for (int i = 0; i < rows; i++) {
+            assertEquals("SKU" + i, written.get(i));
+        }
+
+        List<ImportStageStats> stages = report.getStageStats();
+        assertEquals(3, stages.size());
+        assertEquals("parse", stages.get(0).getName());
+        assertEquals(3, stages.get(1).getThreads());
+        for (ImportStageStats stage : stages) {
+            assertEquals(rows, stage.getRows());
+            assertEquals(50, stage.getChunks());
+            assertTrue(stage.getMaxQueueDepth() <= 2);
+        }
+    }
+
+    /**
+     * 测试流水线模式下的校验失败、写入失败和缺少列
+     */
+    @Test
+    public void testPipelineErrors() {
+        InventoryImporter importer = new InventoryImporter(reminders -> reminders.size() - 1,
+                new ExpiryCalculator(engine, ReminderPolicy.DEFAULT), 2);
+        importer.setComputeThreads(2);
+
+        ImportReport report = importer.importCsv(csv("product_id,name,shelf_life\n"
+                + "A,酸奶,14\nB,牛奶,x\nC,奶酪,30\nD,黄油,60\nE,面包,3\n"));
+        assertTrue(report.isSuccess());
+        assertEquals(5, report.getRowsRead());
+        assertEquals(1, report.getRowsRejected());
+        assertEquals(2, report.getChunksWritten());
+        assertEquals(2, report.getRowsImported());
+        assertEquals(2, report.getRowsFailed());
+
+        report = importer.importCsv(csv("name\n酸奶\n"));
+        assertFalse(report.isSuccess());
+        assertEquals(0, report.getChunksWritten());
+    }
+
+    /**
+     * 测试流水线模式下进度回调抛出异常时导入中止并报告错误，而不是阻塞
+     */
+    @Test(timeout = 10000)
+    public void testPipelineListenerFailure() {
+        StringBuilder text = new StringBuilder("product_id,name,shelf_life\n");
+        int rows = 5000;
+        for (int i = 0; i < rows; i++) {
+            text.append("SKU").append(i).append(",商品").append(i).append(",7\n");
+        }
+        InventoryImporter importer = newImporter(10);
+        importer.setComputeThreads(2);
+        importer.setQueueCapacity(1);
+        importer.setProgressListener(progress -> {
+            if (progress.getChunksWritten() == 3) {
+                throw new IllegalStateException("界面已销毁");
+            }
+        });
+
+        ImportReport report = importer.importCsv(csv(text.toString()));
+
+        assertFalse(report.isSuccess());
+        assertTrue(report.getError().startsWith("写入失败"));
+        assertEquals(3, report.getChunksWritten());
+        assertEquals(30, report.getRowsImported());
+        assertEquals(report.getRowsRead(), report.getRowsImported() + report.getRowsFailed());
+        assertTrue(report.getRowsRead() < rows);
+        assertEquals(3, chunks.size());
+    }
+
+    /**
+     * 测试串行模式下进度回调抛出异常时与流水线模式相同：导入中止并报告错误，不向调用方抛出
+     */
+    @Test
+    public void testSerialListenerFailure() {
+        StringBuilder text = new StringBuilder("product_id,name,shelf_life\n");
+        for (int i = 0; i < 100; i++) {
+            text.append("SKU").append(i).append(",商品").append(i).append(",7\n");
+        }
+        InventoryImporter importer = newImporter(10);
+        importer.setProgressListener(progress -> {
+            if (progress.getChunksWritten() == 3) {
+                throw new IllegalStateException("界面已销毁");
+            }
+        });
+
+        ImportReport report = importer.importCsv(csv(text.toString()));
+
+        assertFalse(report.isSuccess());
+        assertTrue(report.getError().startsWith("写入失败"));
+        assertEquals(3, report.getChunksWritten());
+        assertEquals(30, report.getRowsImported());
+        assertEquals(report.getRowsRead(), report.getRowsImported() + report.getRowsFailed());
+        assertEquals(3, chunks.size());
+    }
+
+    /**
+     * 测试读取被中断时丢弃的行计为写入失败，读取 = 导入 + 拒绝 + 失败
+     */
+    @Test
+    public void testInterruptedRowsAreCountedAsFailed() {
+        StringBuilder text = new StringBuilder("product_id,name,shelf_life\n");
+        for (int i = 0; i < 25; i++) {
+            text.append("SKU").append(i).append(",商品").append(i).append(i == 3 ? ",x\n" : ",7\n");
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        InputStream in = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                if (position == bytes.length) {
+                    // 模拟读取线程被中断
+                    throw new InterruptedIOException();
+                }
+                return bytes[position++] & 0xff;
+            }
+        };
+        InventoryImporter importer = newImporter(10);
+
+        ImportReport report = importer.importCsv(in);
+
+        assertFalse(report.isSuccess());
+        assertEquals(25, report.getRowsRead());
+        assertEquals(1, report.getRowsRejected());
+        assertEquals(20, report.getRowsImported());
+        assertEquals(4, report.getRowsFailed());
+    }
+}
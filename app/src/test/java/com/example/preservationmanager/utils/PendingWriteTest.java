@@ -0,0 +1,102 @@
+package com.example.preservationmanager.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 写入队列变更合并规则的单元测试
+ */
+public class PendingWriteTest {
+
+    private static final long TEMP_KEY = -2;
+    private static final long EVENT_ID = 42;
+
+    /**
+     * 测试插入 + 更新合并为使用新内容的插入
+     */
+    @Test
+    public void testInsertThenUpdate() {
+        PendingWrite insert = PendingWrite.insert(TEMP_KEY, 7, "牛奶", "旧描述", 1000, 2000, "Asia/Shanghai");
+        insert.journalId = 5;
+
+        PendingWrite merged = PendingWrite.merge(insert, PendingWrite.update(TEMP_KEY, "牛奶 1L", "新描述", 3000, 4000));
+
+        assertEquals(PendingWrite.Op.INSERT, merged.op);
+        assertEquals(7, merged.calendarId);
+        assertEquals("牛奶 1L", merged.title);
+        assertEquals("新描述", merged.description);
+        assertEquals(3000, merged.startTime);
+        assertEquals(4000, merged.endTime);
+        assertEquals("Asia/Shanghai", merged.timeZone);
+        assertEquals(5, merged.journalId);
+    }
+
+    /**
+     * 测试插入 + 删除相互抵消
+     */
+    @Test
+    public void testInsertThenDelete() {
+        PendingWrite insert = PendingWrite.insert(TEMP_KEY, 7, "牛奶", "", 1000, 2000, "UTC");
+        PendingWrite withReminder = PendingWrite.merge(insert, PendingWrite.reminder(TEMP_KEY, 60));
+
+        assertNull(PendingWrite.merge(withReminder, PendingWrite.delete(TEMP_KEY)));
+    }
+
+    /**
+     * 测试更新 + 删除合并为删除，删除之后的变更被忽略
+     */
+    @Test
+    public void testUpdateThenDelete() {
+        PendingWrite update = PendingWrite.update(EVENT_ID, "牛奶", "", 1000, 2000);
+        update.journalId = 9;
+
+        PendingWrite merged = PendingWrite.merge(update, PendingWrite.delete(EVENT_ID));
+        assertEquals(PendingWrite.Op.DELETE, merged.op);
+        assertEquals(9, merged.journalId);
+
+        PendingWrite afterDelete = PendingWrite.merge(merged, PendingWrite.update(EVENT_ID, "x", "", 0, 0));
+        assertEquals(PendingWrite.Op.DELETE, afterDelete.op);
+    }
+
+    /**
+     * 测试连续更新保留最后一次内容，提醒按顺序累加
+     */
+    @Test
+    public void testUpdatesAndReminders() {
+        PendingWrite merged = PendingWrite.reminder(EVENT_ID, 30);
+        merged = PendingWrite.merge(merged, PendingWrite.update(EVENT_ID, "a", "", 1000, 2000));
+        merged = PendingWrite.merge(merged, PendingWrite.reminder(EVENT_ID, 60));
+        merged = PendingWrite.merge(merged, PendingWrite.update(EVENT_ID, "b", "", 3000, 4000));
+
+        assertEquals(PendingWrite.Op.UPDATE, merged.op);
+        assertEquals("b", merged.title);
+        assertEquals(3000, merged.startTime);
+        assertArrayEquals(new int[]{30, 60}, merged.reminderMinutes);
+    }
+
+    /**
+     * 测试只添加提醒时保持为提醒变更
+     */
+    @Test
+    public void testRemindersOnly() {
+        PendingWrite merged = PendingWrite.merge(PendingWrite.reminder(EVENT_ID, 30), PendingWrite.reminder(EVENT_ID, 120));
+
+        assertEquals(PendingWrite.Op.REMINDERS, merged.op);
+        assertArrayEquals(new int[]{30, 120}, merged.reminderMinutes);
+    }
+
+    /**
+     * 测试提醒在日志表中的序列化
+     */
+    @Test
+    public void testReminderEncoding() {
+        PendingWrite merged = PendingWrite.merge(PendingWrite.reminder(EVENT_ID, 30), PendingWrite.reminder(EVENT_ID, 1440));
+
+        assertEquals("30,1440", merged.encodeReminders());
+        assertArrayEquals(new int[]{30, 1440}, PendingWrite.decodeReminders("30,1440"));
+        assertEquals(0, PendingWrite.decodeReminders(null).length);
+        assertEquals(0, PendingWrite.decodeReminders("").length);
+        assertEquals(PendingWrite.Op.UPDATE, PendingWrite.Op.fromCode(PendingWrite.Op.UPDATE.code));
+    }
+}
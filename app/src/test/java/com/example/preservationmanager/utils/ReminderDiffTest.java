@@ -0,0 +1,80 @@
+package com.example.preservationmanager.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 提醒差异计算的单元测试
+ */
+public class ReminderDiffTest {
+
+    private static final ReminderSpec WEEK = ReminderSpec.alert(7 * 24 * 60);
+    private static final ReminderSpec DAY = ReminderSpec.alert(24 * 60);
+    private static final ReminderSpec TWO_HOURS = ReminderSpec.alert(120);
+
+    /**
+     * 测试相同的提醒不产生任何操作（与顺序无关）
+     */
+    @Test
+    public void testUnchanged() {
+        ReminderDiff diff = ReminderDiff.compute(new long[]{1, 2, 3},
+                new ReminderSpec[]{WEEK, DAY, TWO_HOURS}, new ReminderSpec[]{TWO_HOURS, WEEK, DAY});
+
+        assertTrue(diff.isEmpty());
+    }
+
+    /**
+     * 测试不同的提醒原地更新，而不是删除后重新插入
+     */
+    @Test
+    public void testChangedReminderIsUpdated() {
+        ReminderDiff diff = ReminderDiff.compute(new long[]{1, 2},
+                new ReminderSpec[]{DAY, TWO_HOURS}, new ReminderSpec[]{DAY, ReminderSpec.alert(60)});
+
+        assertEquals(0, diff.deleteIds.length);
+        assertEquals(0, diff.inserts.length);
+        assertArrayEquals(new long[]{2}, diff.updateIds);
+        assertEquals(ReminderSpec.alert(60), diff.updateValues[0]);
+    }
+
+    /**
+     * 测试提醒方式不同也视为变化
+     */
+    @Test
+    public void testMethodChange() {
+        ReminderDiff diff = ReminderDiff.compute(new long[]{5},
+                new ReminderSpec[]{DAY}, new ReminderSpec[]{ReminderSpec.email(24 * 60)});
+
+        assertArrayEquals(new long[]{5}, diff.updateIds);
+        assertEquals(1, diff.size());
+    }
+
+    /**
+     * 测试多余的提醒被删除，缺少的提醒被插入
+     */
+    @Test
+    public void testDeletesAndInserts() {
+        ReminderDiff shrink = ReminderDiff.compute(new long[]{1, 2, 3},
+                new ReminderSpec[]{WEEK, DAY, TWO_HOURS}, new ReminderSpec[]{DAY});
+        assertArrayEquals(new long[]{1, 3}, shrink.deleteIds);
+        assertEquals(0, shrink.updateIds.length);
+
+        ReminderDiff grow = ReminderDiff.compute(new long[]{2},
+                new ReminderSpec[]{DAY}, ReminderSpec.EXPIRY_DEFAULTS);
+        assertEquals(0, grow.deleteIds.length);
+        assertEquals(0, grow.updateIds.length);
+        assertArrayEquals(new ReminderSpec[]{WEEK, TWO_HOURS}, grow.inserts);
+    }
+
+    /**
+     * 测试重复的提醒按出现次数计算
+     */
+    @Test
+    public void testDuplicates() {
+        ReminderDiff diff = ReminderDiff.compute(new long[]{1, 2},
+                new ReminderSpec[]{DAY, DAY}, new ReminderSpec[]{DAY});
+
+        assertArrayEquals(new long[]{2}, diff.deleteIds);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.preservationmanager.utils;
+
+import android.database.sqlite.SQLiteDatabaseLockedException;
+import android.database.sqlite.SQLiteException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 重试策略的单元测试（Robolectric：SQLiteException 在 JVM 的 android.jar 中只有桩实现）
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RetryPolicyTest {
+
+    /**
+     * 测试退避上限按次数翻倍并在最大值处截断
+     */
+    @Test
+    public void testBackoffCap() {
+        RetryPolicy policy = new RetryPolicy(10, 50, 1000);
+
+        assertEquals(50, policy.backoffCap(1));
+        assertEquals(100, policy.backoffCap(2));
+        assertEquals(400, policy.backoffCap(4));
+        assertEquals(800, policy.backoffCap(5));
+        assertEquals(1000, policy.backoffCap(6));
+        assertEquals(1000, policy.backoffCap(100));
+    }
+
+    /**
+     * 测试随机退避时间始终在 [0, 上限] 之内
+     */
+    @Test
+    public void testDelayWithinCap() {
+        RetryPolicy policy = RetryPolicy.DEFAULT;
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            for (int i = 0; i < 200; i++) {
+                long delay = policy.delayBeforeRetry(attempt);
+                assertTrue(delay >= 0);
+                assertTrue(delay <= policy.backoffCap(attempt));
+            }
+        }
+        assertEquals(0, RetryPolicy.NONE.delayBeforeRetry(1));
+    }
+
+    /**
+     * 测试成功时只执行一次
+     */
+    @Test
+    public void testSuccessOnFirstAttempt() {
+        AtomicInteger calls = new AtomicInteger();
+
+        CalendarResult<Long> result = RetryPolicy.DEFAULT.execute(() -> {
+            calls.incrementAndGet();
+            return 42L;
+        });
+
+        assertTrue(result.isSuccess());
+        assertEquals(Long.valueOf(42), result.getValue());
+        assertEquals(1, result.getAttempts());
+        assertEquals(1, calls.get());
+    }
+
+    /**
+     * 测试数据库被锁定或忙的暂时性失败退避后重试，第 N 次成功
+     */
+    @Test
+    public void testTransientFailureRetried() {
+        RetryPolicy policy = new RetryPolicy(4, 1, 5);
+        AtomicInteger calls = new AtomicInteger();
+
+        CalendarResult<Long> result = policy.execute(() -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                throw new SQLiteDatabaseLockedException("database is locked");
+            }
+            if (call < 4) {
+                throw new SQLiteException("database is busy");
+            }
+            return 42L;
+        });
+
+        assertTrue(result.isSuccess());
+        assertEquals(Long.valueOf(42), result.getValue());
+        assertEquals(4, result.getAttempts());
+        assertEquals(4, calls.get());
+    }
+
+    /**
+     * 测试暂时性失败一直持续时在 maxAttempts 次后停止，返回最后一次的失败
+     */
+    @Test
+    public void testTransientFailureStopsAtMaxAttempts() {
+        RetryPolicy policy = new RetryPolicy(3, 1, 5);
+        AtomicInteger calls = new AtomicInteger();
+
+        CalendarResult<Long> result = policy.execute(() -> {
+            calls.incrementAndGet();
+            throw new SQLiteDatabaseLockedException("database is locked");
+        });
+
+        assertFalse(result.isSuccess());
+        assertEquals(ErrorCategory.TRANSIENT, result.getCategory());
+        assertTrue(result.getError() instanceof SQLiteDatabaseLockedException);
+        assertEquals(3, result.getAttempts());
+        assertEquals(3, calls.get());
+    }
+
+    /**
+     * 测试参数错误不会被重试
+     */
+    @Test
+    public void testInvalidArgumentNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        CalendarResult<Long> result = RetryPolicy.DEFAULT.execute(() -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("bad calendar id");
+        });
+
+        assertFalse(result.isSuccess());
+        assertEquals(ErrorCategory.INVALID_ARGUMENT, result.getCategory());
+        assertEquals(1, result.getAttempts());
+        assertEquals(1, calls.get());
+        assertEquals(Long.valueOf(-1), result.getOrDefault(-1L));
+    }
+
+    /**
+     * 测试无效的参数组合被拒绝
+     */
+    @Test
+    public void testRejectsInvalidPolicy() {
+        try {
+            new RetryPolicy(0, 50, 1000);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // 预期行为
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.preservationmanager.utils;
+
+import android.Manifest;
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 时区变化后重新计算事件时间的功能测试（Robolectric + {@link FakeCalendarProvider}）
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TimeZoneRebaseWorkerTest {
+
+    private static final long DAY = DateEngine.epochDay(2030, 0, 10);
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private TimeZone originalZone;
+    private Application context;
+    private FakeCalendarProvider provider;
+
+    @Before
+    public void setUp() {
+        originalZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+        context = ApplicationProvider.getApplicationContext();
+        shadowOf(context).grantPermissions(Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR);
+        CalendarPermissionState.refresh(context);
+        provider = FakeCalendarProvider.install();
+        // 模拟刚安装：没有记录过设备时区
+        TimeZoneRebaseWorker.resetLastZone(context);
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(originalZone);
+        ExpiryAlarmScheduler.resetForTesting();
+        ExpiryIndex.resetForTesting();
+        CalendarIdCache.resetForTesting();
+    }
+
+    /**
+     * 测试使用设备时区的事件移到新时区，本地时间不变；其它时区的事件保持不变
+     */
+    @Test
+    public void testDeviceZoneEventsFollowDevice() {
+        long start = DateEngine.of("Asia/Shanghai").atTime(DAY, 9, 0);
+        long local = CalendarUtils.addEventWithReminder(context, "牛奶", null, start, start + HOUR, 60);
+        long tokyo = CalendarUtils.addEventWithReminder(context, "酸奶", null, start, start + HOUR, 60, "Asia/Tokyo");
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+        assertEquals(1, TimeZoneRebaseWorker.rebaseIfZoneChanged(context));
+
+        long expected = DateEngine.of("Europe/Berlin").atTime(DAY, 9, 0);
+        CalendarEvent moved = find(local);
+        assertEquals(expected, moved.getStartTime());
+        assertEquals(expected + HOUR, moved.getEndTime());
+        assertEquals("Europe/Berlin", moved.getTimeZone());
+        assertEquals(start, find(tokyo).getStartTime());
+        assertEquals(expected, ExpiryIndex.getInstance(context).queryExpiringBetween(expected, expected + 1)
+                .get(0).getExpiryTime());
+    }
+
+    /**
+     * 测试安装后的第一次时区变化：没有预先记录时区，第一次调用来自时区广播
+     */
+    @Test
+    public void testFirstZoneChangeAfterInstall() {
+        long start = DateEngine.of("Asia/Shanghai").atTime(DAY, 9, 0);
+        long eventId = CalendarUtils.addEventWithReminder(context, "牛奶", null, start, start + HOUR, 60);
+
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        assertEquals(1, TimeZoneRebaseWorker.rebaseIfZoneChanged(context));
+        assertEquals(DateEngine.of("America/New_York").atTime(DAY, 9, 0), find(eventId).getStartTime());
+        assertEquals(0, TimeZoneRebaseWorker.rebaseIfZoneChanged(context));
+    }
+
+    /**
+     * 测试时区没有变化或事件已是正确时间时不访问日历
+     */
+    @Test
+    public void testUnchangedEventsAreSkipped() {
+        long start = DateEngine.of("Asia/Shanghai").atTime(DAY, 9, 0);
+        CalendarUtils.addEventWithReminder(context, "牛奶", null, start, start + HOUR, 60);
+
+        int calls = provider.getCallCount();
+        assertEquals(0, TimeZoneRebaseWorker.rebaseIfZoneChanged(context));
+        assertEquals(0, TimeZoneRebaseWorker.rebase(context, null, "Asia/Shanghai"));
+        assertEquals(calls, provider.getCallCount());
+    }
+
+    /**
+     * 测试应用内提醒随事件一起移动
+     */
+    @Test
+    public void testInAppAlarmsMoveWithEvents() {
+        long start = DateEngine.of("Asia/Shanghai").atTime(DAY, 9, 0);
+        long eventId = CalendarUtils.addEventWithReminder(context, "牛奶", null, start, start + HOUR, 60,
+                "Asia/Shanghai", ReminderBackend.IN_APP);
+
+        assertEquals(1, TimeZoneRebaseWorker.rebase(context, "Asia/Shanghai", "America/New_York"));
+
+        long expected = DateEngine.of("America/New_York").atTime(DAY, 9, 0);
+        assertEquals(expected - HOUR, ExpiryAlarmScheduler.getInstance(context)
+                .getTriggerTime(ExpiryAlarmScheduler.eventKey(eventId)));
+    }
+
+    /**
+     * 测试商品的应用内提醒随商品的事件移动，按新的开始时间计算，重复计算不会再次移动
+     */
+    @Test
+    public void testProductAlarmsAreRebasedAbsolutely() {
+        long start = DateEngine.of("Asia/Shanghai").atTime(DAY, 9, 0);
+        ProductReminder reminder = new ProductReminder("p0", "牛奶", null, start, start + HOUR, 60, "Asia/Shanghai");
+        assertEquals(UpsertResult.Outcome.INSERTED, ProductReminderSync.upsert(context, reminder).getOutcome(0));
+        ExpiryAlarmScheduler scheduler = ExpiryAlarmScheduler.getInstance(context);
+        assertEquals(1, scheduler.scheduleAll(Collections.singletonList(reminder)));
+        String key = ExpiryAlarmScheduler.productKey("p0");
+
+        assertEquals(1, TimeZoneRebaseWorker.rebase(context, "Asia/Shanghai", "America/New_York"));
+        long expected = DateEngine.of("America/New_York").atTime(DAY, 9, 0);
+        assertEquals(expected - HOUR, scheduler.getTriggerTime(key));
+
+        // 另一次重新计算得到相同的开始时间时提醒不再移动
+        assertEquals(0, scheduler.rebaseAll(Collections.singletonMap(key, expected)));
+        assertEquals(expected - HOUR, scheduler.getTriggerTime(key));
+    }
+
+    private CalendarEvent find(long eventId) {
+        List<CalendarEvent> events = CalendarUtils.queryEvents(context, 0, Long.MAX_VALUE);
+        for (CalendarEvent event : events) {
+            if (event.getEventId() == eventId) {
+                return event;
+            }
+        }
+        fail("事件不存在");
+        return null;
+    }
+}